@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,6 +10,8 @@
  *******************************************************************************/
 package org.eclipse.jdt.core.tests.builder;
 
+import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Arrays;
@@ -390,6 +392,48 @@ public class BuilderTests extends TestCase {
 		}
 	}
 
+	/** Verifies that a full build of the given project produces the same class files
+	 * and the same problems as the previous (incremental) build.
+	 */
+	protected void expectingSameResultAsFullBuild(IPath projectPath) {
+		File outputFolder = env.getWorkspaceRootPath().append(env.getOutputLocation(projectPath)).toFile();
+		Hashtable classFiles = getClassFiles(outputFolder, "", new Hashtable()); //$NON-NLS-1$
+		String problems = arrayToString(env.getProblemsFor(projectPath));
+
+		fullBuild(projectPath);
+
+		assertEquals("Unexpected problems after full build", problems, arrayToString(env.getProblemsFor(projectPath))); //$NON-NLS-1$
+		Hashtable fullBuildClassFiles = getClassFiles(outputFolder, "", new Hashtable()); //$NON-NLS-1$
+		String[] paths = new String[classFiles.size()];
+		classFiles.keySet().toArray(paths);
+		Arrays.sort(paths);
+		String[] fullBuildPaths = new String[fullBuildClassFiles.size()];
+		fullBuildClassFiles.keySet().toArray(fullBuildPaths);
+		Arrays.sort(fullBuildPaths);
+		assertEquals("Unexpected class files after full build", arrayToString(paths), arrayToString(fullBuildPaths)); //$NON-NLS-1$
+		for (int i = 0; i < paths.length; i++)
+			assertTrue("Unexpected contents of " + paths[i] + " after full build", //$NON-NLS-1$ //$NON-NLS-2$
+				Arrays.equals((byte[]) classFiles.get(paths[i]), (byte[]) fullBuildClassFiles.get(paths[i])));
+	}
+
+	private Hashtable getClassFiles(File folder, String relativePath, Hashtable classFiles) {
+		File[] files = folder.listFiles();
+		if (files == null) return classFiles;
+		for (int i = 0; i < files.length; i++) {
+			String path = relativePath + files[i].getName();
+			if (files[i].isDirectory()) {
+				getClassFiles(files[i], path + '/', classFiles);
+			} else if (path.endsWith(".class")) { //$NON-NLS-1$
+				try {
+					classFiles.put(path, org.eclipse.jdt.internal.compiler.util.Util.getFileByteContent(files[i]));
+				} catch (IOException e) {
+					fail("Could not read " + files[i]); //$NON-NLS-1$
+				}
+			}
+		}
+		return classFiles;
+	}
+
 	/** Batch builds the workspace.
 	 */
 	protected void fullBuild() {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,10 +10,25 @@
  *******************************************************************************/
 package org.eclipse.jdt.core.tests.builder;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+
 import junit.framework.*;
+import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.core.tests.util.Util;
+import org.eclipse.jdt.internal.core.JavaModelManager;
+import org.eclipse.jdt.internal.core.builder.BuildReport;
+import org.eclipse.jdt.internal.core.builder.JavaBuilder;
+import org.eclipse.jdt.internal.core.builder.ReferenceCollection;
+import org.eclipse.jdt.internal.core.builder.State;
 
 /**
  * Basic efficiency tests of the image builder.
@@ -149,6 +164,437 @@ public class EfficiencyTests extends BuilderTests {
 		expectingCompilingOrder(new String[]{"p1.X", "p2.Y" }); //$NON-NLS-1$ //$NON-NLS-2$
 	}
 
+	public void testMethodChange() throws JavaModelException {
+
+		IPath projectPath = env.addProject("Project"); //$NON-NLS-1$
+		env.addExternalJars(projectPath, Util.getJavaClassLibs());
+		fullBuild(projectPath);
+
+		// remove old package fragment root so that names don't collide
+		env.removePackageFragmentRoot(projectPath, ""); //$NON-NLS-1$
+
+		IPath root = env.addPackageFragmentRoot(projectPath, "src"); //$NON-NLS-1$
+		env.setOutputFolder(projectPath, "bin"); //$NON-NLS-1$
+
+		env.addClass(root, "p1", "X", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p1;\n"+ //$NON-NLS-1$
+			"public class X {\n"+ //$NON-NLS-1$
+			"	public void foo() {}\n" + //$NON-NLS-1$
+			"	public void bar() {}\n" + //$NON-NLS-1$
+			"}\n" //$NON-NLS-1$
+			);
+
+		env.addClass(root, "p2", "Y", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p2;\n"+ //$NON-NLS-1$
+			"import p1.*;\n"+ //$NON-NLS-1$
+			"public class Y {\n"+ //$NON-NLS-1$
+			"	void m(X x) { x.foo(); }\n" + //$NON-NLS-1$
+			"}\n" //$NON-NLS-1$
+			);
+
+		IPath zPath = env.addClass(root, "p2", "Z", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p2;\n"+ //$NON-NLS-1$
+			"import p1.*;\n"+ //$NON-NLS-1$
+			"public class Z {\n"+ //$NON-NLS-1$
+			"	void m(X x) { x.bar(); }\n" + //$NON-NLS-1$
+			"}\n" //$NON-NLS-1$
+			);
+
+		fullBuild(projectPath);
+		expectingNoProblems();
+
+		env.addClass(root, "p1", "X", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p1;\n"+ //$NON-NLS-1$
+			"public class X {\n"+ //$NON-NLS-1$
+			"	public void foo() {}\n" + //$NON-NLS-1$
+			"	public void bar(int i) {}\n" + //$NON-NLS-1$
+			"}\n" //$NON-NLS-1$
+			);
+
+		incrementalBuild(projectPath);
+
+		// only the type using the changed method is recompiled
+		expectingCompiledClasses(new String[]{"p1.X", "p2.Z"}); //$NON-NLS-1$ //$NON-NLS-2$
+		expectingOnlyProblemsFor(zPath);
+	}
+
+	/*
+	 * The digest of a class file recorded by the builder must not be trusted once the class file was changed by someone else.
+	 */
+	public void testModifiedClassFileDigest() throws JavaModelException {
+
+		IPath projectPath = env.addProject("Project"); //$NON-NLS-1$
+		env.addExternalJars(projectPath, Util.getJavaClassLibs());
+		fullBuild(projectPath);
+
+		// remove old package fragment root so that names don't collide
+		env.removePackageFragmentRoot(projectPath, ""); //$NON-NLS-1$
+
+		IPath root = env.addPackageFragmentRoot(projectPath, "src"); //$NON-NLS-1$
+		env.setOutputFolder(projectPath, "bin"); //$NON-NLS-1$
+
+		env.addClass(root, "p1", "X", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p1;\n"+ //$NON-NLS-1$
+			"public class X {\n"+ //$NON-NLS-1$
+			"	public int foo() { return 1; }\n" + //$NON-NLS-1$
+			"}\n" //$NON-NLS-1$
+			);
+
+		env.addClass(root, "p2", "Y", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p2;\n"+ //$NON-NLS-1$
+			"import p1.*;\n"+ //$NON-NLS-1$
+			"public class Y {\n"+ //$NON-NLS-1$
+			"	int m(X x) { return x.foo(); }\n" + //$NON-NLS-1$
+			"}\n" //$NON-NLS-1$
+			);
+
+		fullBuild(projectPath);
+		expectingNoProblems();
+
+		// overwrite the class file of X behind the builder's back
+		env.addBinaryClass(projectPath.append("bin/p1"), "X", new byte[] {0, 1, 2, 3}); //$NON-NLS-1$ //$NON-NLS-2$
+
+		env.addClass(root, "p1", "X", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p1;\n"+ //$NON-NLS-1$
+			"public class X {\n"+ //$NON-NLS-1$
+			"	public int foo() { return 1; } // same class file\n" + //$NON-NLS-1$
+			"}\n" //$NON-NLS-1$
+			);
+
+		incrementalBuild(projectPath);
+
+		// the invalid class file is read back, so it is rewritten & its dependents are recompiled
+		expectingCompiledClasses(new String[]{"p1.X", "p2.Y"}); //$NON-NLS-1$ //$NON-NLS-2$
+		expectingNoProblems();
+	}
+
+	/*
+	 * When the structural digest recorded for a class file matches the one of its new contents, the class file
+	 * is not read back and its dependents are not recompiled.
+	 */
+	public void testSameStructuralDigest() throws JavaModelException {
+
+		IPath projectPath = env.addProject("Project"); //$NON-NLS-1$
+		env.addExternalJars(projectPath, Util.getJavaClassLibs());
+		fullBuild(projectPath);
+
+		// remove old package fragment root so that names don't collide
+		env.removePackageFragmentRoot(projectPath, ""); //$NON-NLS-1$
+
+		IPath root = env.addPackageFragmentRoot(projectPath, "src"); //$NON-NLS-1$
+		env.setOutputFolder(projectPath, "bin"); //$NON-NLS-1$
+
+		env.addClass(root, "p1", "X", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p1;\n"+ //$NON-NLS-1$
+			"public class X {\n"+ //$NON-NLS-1$
+			"	public int foo() { return 1; }\n" + //$NON-NLS-1$
+			"}\n" //$NON-NLS-1$
+			);
+
+		env.addClass(root, "p2", "Y", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p2;\n"+ //$NON-NLS-1$
+			"import p1.*;\n"+ //$NON-NLS-1$
+			"public class Y {\n"+ //$NON-NLS-1$
+			"	int m(X x) { return x.foo(); }\n" + //$NON-NLS-1$
+			"}\n" //$NON-NLS-1$
+			);
+
+		fullBuild(projectPath);
+		expectingNoProblems();
+
+		// the class file of X is compared to the one written by the full build, and its digests are recorded
+		env.addClass(root, "p1", "X", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p1;\n"+ //$NON-NLS-1$
+			"public class X {\n"+ //$NON-NLS-1$
+			"	public int foo() { return 2; }\n" + //$NON-NLS-1$
+			"}\n" //$NON-NLS-1$
+			);
+
+		incrementalBuild(projectPath);
+		expectingCompiledClasses(new String[]{"p1.X"}); //$NON-NLS-1$
+		expectingNoProblems();
+
+		// corrupt the class file of X on disk without refreshing the workspace, so it cannot be read back
+		Util.writeToFile("corrupted", env.getWorkspaceRootPath().append(projectPath).append("bin/p1/X.class").toOSString()); //$NON-NLS-1$ //$NON-NLS-2$
+
+		env.addClass(root, "p1", "X", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p1;\n"+ //$NON-NLS-1$
+			"public class X {\n"+ //$NON-NLS-1$
+			"	public int foo() { return 3; }\n" + //$NON-NLS-1$
+			"}\n" //$NON-NLS-1$
+			);
+
+		incrementalBuild(projectPath);
+
+		// the structural digests match: the class file is written without being read & Y is not recompiled
+		expectingCompiledClasses(new String[]{"p1.X"}); //$NON-NLS-1$
+		expectingNoProblems();
+	}
+
+	/*
+	 * A state read back keeps its references encoded until they are needed, and a state copied from the last
+	 * built state shares its tables until its first update without changing the last built state.
+	 */
+	public void testStateReferences() throws Exception {
+
+		IPath projectPath = env.addProject("Project"); //$NON-NLS-1$
+		env.addExternalJars(projectPath, Util.getJavaClassLibs());
+		fullBuild(projectPath);
+
+		// remove old package fragment root so that names don't collide
+		env.removePackageFragmentRoot(projectPath, ""); //$NON-NLS-1$
+
+		IPath root = env.addPackageFragmentRoot(projectPath, "src"); //$NON-NLS-1$
+		env.setOutputFolder(projectPath, "bin"); //$NON-NLS-1$
+
+		env.addClass(root, "p1", "X", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p1;\n"+ //$NON-NLS-1$
+			"public class X {\n"+ //$NON-NLS-1$
+			"	p2.Y y;\n" + //$NON-NLS-1$
+			"}\n" //$NON-NLS-1$
+			);
+
+		env.addClass(root, "p2", "Y", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p2;\n"+ //$NON-NLS-1$
+			"public class Y {}\n" //$NON-NLS-1$
+			);
+
+		fullBuild(projectPath);
+		expectingNoProblems();
+
+		IProject project = env.getProject(projectPath);
+		State state = (State) JavaModelManager.getJavaModelManager().getLastBuiltState(project, null);
+		assertTrue("X should reference Y", ((ReferenceCollection) state.getReferences().get("src/p1/X.java")).includes("Y".toCharArray())); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+		// the references of a state read back are not decoded, not even to write the state again
+		Field references = State.class.getDeclaredField("references"); //$NON-NLS-1$
+		references.setAccessible(true);
+		State readState = JavaBuilder.readState(project, new DataInputStream(new ByteArrayInputStream(writeState(state))));
+		assertNull("References should not be decoded when read", references.get(readState)); //$NON-NLS-1$
+		readState = JavaBuilder.readState(project, new DataInputStream(new ByteArrayInputStream(writeState(readState))));
+		assertNull("References should not be decoded when written", references.get(readState)); //$NON-NLS-1$
+
+		// they are decoded on demand
+		ReferenceCollection collection = (ReferenceCollection) readState.getReferences().get("src/p1/X.java"); //$NON-NLS-1$
+		assertNotNull("References should be decoded when used", references.get(readState)); //$NON-NLS-1$
+		assertTrue("X should reference Y", collection.includes("Y".toCharArray())); //$NON-NLS-1$ //$NON-NLS-2$
+
+		env.addClass(root, "p1", "X", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p1;\n"+ //$NON-NLS-1$
+			"public class X {\n"+ //$NON-NLS-1$
+			"	p2.Z z;\n" + //$NON-NLS-1$
+			"}\n" //$NON-NLS-1$
+			);
+
+		env.addClass(root, "p2", "Z", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p2;\n"+ //$NON-NLS-1$
+			"public class Z {}\n" //$NON-NLS-1$
+			);
+
+		incrementalBuild(projectPath);
+		expectingNoProblems();
+
+		State newState = (State) JavaModelManager.getJavaModelManager().getLastBuiltState(project, null);
+		assertNotSame("A new state should be built", state, newState); //$NON-NLS-1$
+		assertTrue("X should reference Z", ((ReferenceCollection) newState.getReferences().get("src/p1/X.java")).includes("Z".toCharArray())); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertEquals("Unexpected type locator", "src/p2/Z.java", newState.typeLocators.get("p2/Z")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+		// the tables of the previous state were copied before being updated
+		collection = (ReferenceCollection) state.getReferences().get("src/p1/X.java"); //$NON-NLS-1$
+		assertTrue("X should still reference Y", collection.includes("Y".toCharArray())); //$NON-NLS-1$ //$NON-NLS-2$
+		assertFalse("X should not reference Z", collection.includes("Z".toCharArray())); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNull("Unexpected type locator", state.typeLocators.get("p2/Z")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	private byte[] writeState(State state) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		JavaBuilder.writeState(state, out);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	/*
+	 * Reverting a change must replay the cached result of the unit, including its problems, instead of compiling it.
+	 */
+	public void testBuildCache() throws JavaModelException {
+
+		IPath projectPath = env.addProject("Project"); //$NON-NLS-1$
+		env.addExternalJars(projectPath, Util.getJavaClassLibs());
+		env.getJavaProject(projectPath).setOption(JavaCore.CORE_JAVA_BUILD_CACHE, JavaCore.ENABLED);
+		fullBuild(projectPath);
+
+		// remove old package fragment root so that names don't collide
+		env.removePackageFragmentRoot(projectPath, ""); //$NON-NLS-1$
+
+		IPath root = env.addPackageFragmentRoot(projectPath, "src"); //$NON-NLS-1$
+		env.setOutputFolder(projectPath, "bin"); //$NON-NLS-1$
+
+		env.addClass(root, "p1", "X", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p1;\n"+ //$NON-NLS-1$
+			"public class X {\n"+ //$NON-NLS-1$
+			"	public int foo() { return 1; }\n" + //$NON-NLS-1$
+			"}\n" //$NON-NLS-1$
+			);
+
+		String ySource =
+			"package p2;\n"+ //$NON-NLS-1$
+			"import p1.*;\n"+ //$NON-NLS-1$
+			"public class Y {\n"+ //$NON-NLS-1$
+			"	int m(X x) { return x.foo(); }\n" + //$NON-NLS-1$
+			"	private void bar() {}\n" + //$NON-NLS-1$
+			"}\n"; //$NON-NLS-1$
+		IPath yPath = env.addClass(root, "p2", "Y", ySource); //$NON-NLS-1$ //$NON-NLS-2$
+
+		fullBuild(projectPath);
+		expectingOnlyProblemsFor(yPath);
+		Problem[] problems = env.getProblemsFor(yPath);
+
+		env.addClass(root, "p2", "Y", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p2;\n"+ //$NON-NLS-1$
+			"import p1.*;\n"+ //$NON-NLS-1$
+			"public class Y {\n"+ //$NON-NLS-1$
+			"	int m(X x) { return x.foo() + 1; }\n" + //$NON-NLS-1$
+			"}\n" //$NON-NLS-1$
+			);
+		incrementalBuild(projectPath);
+		expectingNoProblems();
+
+		int hits = JavaModelManager.getJavaModelManager().getBuildCache().hits;
+		env.addClass(root, "p2", "Y", ySource); //$NON-NLS-1$ //$NON-NLS-2$
+		incrementalBuild(projectPath);
+
+		// the result of the full build is replayed
+		expectingCompiledClasses(new String[0]);
+		assertEquals("Unexpected cache hits", hits + 1, JavaModelManager.getJavaModelManager().getBuildCache().hits); //$NON-NLS-1$
+		expectingOnlyProblemsFor(yPath);
+		assertEquals("Unexpected problems", Arrays.asList(problems), Arrays.asList(env.getProblemsFor(yPath))); //$NON-NLS-1$
+		expectingPresenceOf(projectPath.append("bin/p2/Y.class")); //$NON-NLS-1$
+	}
+
+	/*
+	 * The class files replayed from the build cache must be the ones a build without the cache writes.
+	 */
+	public void testBuildCacheClassFiles() throws IOException, JavaModelException {
+
+		IPath projectPath = env.addProject("Project"); //$NON-NLS-1$
+		env.addExternalJars(projectPath, Util.getJavaClassLibs());
+		env.getJavaProject(projectPath).setOption(JavaCore.CORE_JAVA_BUILD_CACHE, JavaCore.ENABLED);
+		fullBuild(projectPath);
+
+		// remove old package fragment root so that names don't collide
+		env.removePackageFragmentRoot(projectPath, ""); //$NON-NLS-1$
+
+		IPath root = env.addPackageFragmentRoot(projectPath, "src"); //$NON-NLS-1$
+		env.setOutputFolder(projectPath, "bin"); //$NON-NLS-1$
+
+		env.addClass(root, "p1", "X", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p1;\n"+ //$NON-NLS-1$
+			"public class X {\n"+ //$NON-NLS-1$
+			"	public int foo() { return 1; }\n" + //$NON-NLS-1$
+			"}\n" //$NON-NLS-1$
+			);
+
+		String ySource =
+			"package p2;\n"+ //$NON-NLS-1$
+			"import p1.*;\n"+ //$NON-NLS-1$
+			"public class Y {\n"+ //$NON-NLS-1$
+			"	int m(X x) { return x.foo(); }\n" + //$NON-NLS-1$
+			"	class M {\n" + //$NON-NLS-1$
+			"		Runnable r = new Runnable() { public void run() {} };\n" + //$NON-NLS-1$
+			"	}\n" + //$NON-NLS-1$
+			"}\n"; //$NON-NLS-1$
+		env.addClass(root, "p2", "Y", ySource); //$NON-NLS-1$ //$NON-NLS-2$
+
+		fullBuild(projectPath);
+		expectingNoProblems();
+
+		env.addClass(root, "p2", "Y", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p2;\n"+ //$NON-NLS-1$
+			"public class Y {}\n" //$NON-NLS-1$
+			);
+		incrementalBuild(projectPath);
+		expectingNoProblems();
+
+		int hits = JavaModelManager.getJavaModelManager().getBuildCache().hits;
+		env.addClass(root, "p2", "Y", ySource); //$NON-NLS-1$ //$NON-NLS-2$
+		incrementalBuild(projectPath);
+		expectingCompiledClasses(new String[0]);
+		assertEquals("Unexpected cache hits", hits + 1, JavaModelManager.getJavaModelManager().getBuildCache().hits); //$NON-NLS-1$
+
+		String[] classFiles = new String[] {"bin/p2/Y.class", "bin/p2/Y$M.class", "bin/p2/Y$M$1.class"}; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		IPath projectLocation = env.getWorkspaceRootPath().append(projectPath);
+		byte[][] cachedContents = new byte[classFiles.length][];
+		for (int i = 0; i < classFiles.length; i++)
+			cachedContents[i] = org.eclipse.jdt.internal.compiler.util.Util.getFileByteContent(projectLocation.append(classFiles[i]).toFile());
+
+		env.getJavaProject(projectPath).setOption(JavaCore.CORE_JAVA_BUILD_CACHE, JavaCore.DISABLED);
+		fullBuild(projectPath);
+		expectingNoProblems();
+		for (int i = 0; i < classFiles.length; i++)
+			assertTrue("Unexpected contents of " + classFiles[i], Arrays.equals(cachedContents[i], //$NON-NLS-1$
+				org.eclipse.jdt.internal.compiler.util.Util.getFileByteContent(projectLocation.append(classFiles[i]).toFile())));
+	}
+
+	public void testBuildReport() throws JavaModelException {
+		boolean report = JavaBuilder.REPORT;
+		JavaBuilder.REPORT = true;
+		try {
+			IPath projectPath = env.addProject("Project"); //$NON-NLS-1$
+			env.addExternalJars(projectPath, Util.getJavaClassLibs());
+			fullBuild(projectPath);
+
+			// remove old package fragment root so that names don't collide
+			env.removePackageFragmentRoot(projectPath, ""); //$NON-NLS-1$
+
+			IPath root = env.addPackageFragmentRoot(projectPath, "src"); //$NON-NLS-1$
+			env.setOutputFolder(projectPath, "bin"); //$NON-NLS-1$
+
+			env.addClass(root, "p1", "X", //$NON-NLS-1$ //$NON-NLS-2$
+				"package p1;\n"+ //$NON-NLS-1$
+				"public class X {\n"+ //$NON-NLS-1$
+				"	public int foo() { return 1; }\n" + //$NON-NLS-1$
+				"}\n" //$NON-NLS-1$
+				);
+			env.addClass(root, "p2", "Y", //$NON-NLS-1$ //$NON-NLS-2$
+				"package p2;\n"+ //$NON-NLS-1$
+				"public class Y {\n"+ //$NON-NLS-1$
+				"	long m(p1.X x) { return x.foo(); }\n" + //$NON-NLS-1$
+				"}\n" //$NON-NLS-1$
+				);
+			env.addClass(root, "p2", "Z", //$NON-NLS-1$ //$NON-NLS-2$
+				"package p2;\n"+ //$NON-NLS-1$
+				"public class Z {\n"+ //$NON-NLS-1$
+				"	long m(p1.X x) { return x.foo() + 1; }\n" + //$NON-NLS-1$
+				"}\n" //$NON-NLS-1$
+				);
+
+			fullBuild(projectPath);
+			expectingNoProblems();
+			String reportPath = env.getProject(projectPath).getWorkingLocation(JavaCore.PLUGIN_ID).append(BuildReport.FILE_NAME).toOSString();
+			String contents = Util.fileContent(reportPath);
+			assertTrue("Unexpected report: " + contents, contents.indexOf("\"kind\": \"full\"") != -1); //$NON-NLS-1$ //$NON-NLS-2$
+			assertTrue("Unexpected report: " + contents, contents.indexOf("\"compiledUnits\": 3") != -1); //$NON-NLS-1$ //$NON-NLS-2$
+
+			env.addClass(root, "p1", "X", //$NON-NLS-1$ //$NON-NLS-2$
+				"package p1;\n"+ //$NON-NLS-1$
+				"public class X {\n"+ //$NON-NLS-1$
+				"	public long foo() { return 1; }\n" + //$NON-NLS-1$
+				"}\n" //$NON-NLS-1$
+				);
+			incrementalBuild(projectPath);
+			expectingNoProblems();
+			expectingCompiledClasses(new String[]{"p1.X", "p2.Y", "p2.Z"}); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+			// both dependents are recompiled because X changed
+			contents = Util.fileContent(reportPath);
+			assertTrue("Unexpected report: " + contents, contents.indexOf("\"kind\": \"incremental\"") != -1); //$NON-NLS-1$ //$NON-NLS-2$
+			assertTrue("Unexpected report: " + contents, contents.indexOf("{\"type\": \"p1/X\", \"recompiledUnits\": 2}") != -1); //$NON-NLS-1$ //$NON-NLS-2$
+		} finally {
+			JavaBuilder.REPORT = report;
+		}
+	}
+
 	public void testLocalTypeAddition() throws JavaModelException {
 
 		IPath projectPath = env.addProject("Project"); //$NON-NLS-1$
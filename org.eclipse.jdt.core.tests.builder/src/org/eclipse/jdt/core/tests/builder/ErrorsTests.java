@@ -28,6 +28,7 @@ import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.jdt.core.IClasspathAttribute;
+import org.eclipse.jdt.core.IJavaModelMarker;
 import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.IRegion;
 import org.eclipse.jdt.core.JavaCore;
@@ -40,6 +41,7 @@ import org.eclipse.jdt.core.util.IClassFileReader;
 import org.eclipse.jdt.core.util.IMethodInfo;
 import org.eclipse.jdt.internal.compiler.classfmt.ClassFileReader;
 import org.eclipse.jdt.internal.core.builder.JavaBuilder;
+import org.eclipse.jdt.internal.core.builder.MarkerBatch;
 
 
 /**
@@ -642,4 +644,98 @@ public void test0112() throws JavaModelException {
 
 	JavaCore.setOptions(options);
 }
+
+// the markers of a recompiled unit which are identical to its new problems are kept instead of being recreated
+public void test0113() throws CoreException {
+	IPath projectPath = env.addProject("P");
+	env.addExternalJars(projectPath, Util.getJavaClassLibs());
+
+	// remove old package fragment root so that names don't collide
+	env.removePackageFragmentRoot(projectPath, "");
+
+	IPath root = env.addPackageFragmentRoot(projectPath, "src");
+	env.setOutputFolder(projectPath, "bin");
+
+	IPath classX = env.addClass(root, "p", "X",
+			"package p;\n" +
+			"public class X {\n" +
+			"	public void foo() {\n" +
+			"		a++;\n" +
+			"	}\n" +
+			"}");
+
+	fullBuild(projectPath);
+	IFile fileX = env.getWorkspace().getRoot().getFile(classX);
+	IMarker[] markers = fileX.findMarkers(IJavaModelMarker.JAVA_MODEL_PROBLEM_MARKER, true, IResource.DEPTH_ZERO);
+	assertEquals("Unexpected markers", 1, markers.length);
+
+	env.addClass(root, "p", "X",
+			"package p;\n" +
+			"public class X {\n" +
+			"	public void foo() {\n" +
+			"		a++;\n" +
+			"	}\n" +
+			"	public void bar() {\n" +
+			"		b++;\n" +
+			"	}\n" +
+			"}");
+
+	incrementalBuild(projectPath);
+	expectingSpecificProblemFor(classX, new Problem("p", "a cannot be resolved to a variable", classX, 51, 52, CategorizedProblem.CAT_MEMBER, IMarker.SEVERITY_ERROR));
+	expectingSpecificProblemFor(classX, new Problem("p", "b cannot be resolved to a variable", classX, 82, 83, CategorizedProblem.CAT_MEMBER, IMarker.SEVERITY_ERROR));
+	assertEquals("Unexpected markers", 2, fileX.findMarkers(IJavaModelMarker.JAVA_MODEL_PROBLEM_MARKER, true, IResource.DEPTH_ZERO).length);
+	assertTrue("The marker of the unchanged problem should be kept", markers[0].exists());
+
+	env.addClass(root, "p", "X",
+			"package p;\n" +
+			"public class X {\n" +
+			"}");
+
+	incrementalBuild(projectPath);
+	expectingNoProblems();
+	assertFalse("The marker of the fixed problem should be deleted", markers[0].exists());
+}
+
+// the markers recorded for a recompiled unit are capped, error markers taking precedence
+public void test0114() throws CoreException {
+	int max = MarkerBatch.MAX_MARKERS_PER_RESOURCE;
+	try {
+		MarkerBatch.MAX_MARKERS_PER_RESOURCE = 2;
+		IPath projectPath = env.addProject("P");
+		env.addExternalJars(projectPath, Util.getJavaClassLibs());
+
+		// remove old package fragment root so that names don't collide
+		env.removePackageFragmentRoot(projectPath, "");
+
+		IPath root = env.addPackageFragmentRoot(projectPath, "src");
+		env.setOutputFolder(projectPath, "bin");
+
+		IPath classX = env.addClass(root, "p", "X",
+				"package p;\n" +
+				"public class X {\n" +
+				"}");
+
+		fullBuild(projectPath);
+		expectingNoProblems();
+
+		env.addClass(root, "p", "X",
+				"package p;\n" +
+				"import java.util.List;\n" +
+				"import java.util.Map;\n" +
+				"import java.util.Set;\n" +
+				"public class X {\n" +
+				"	public void foo() {\n" +
+				"		a++;\n" +
+				"	}\n" +
+				"}");
+
+		incrementalBuild(projectPath);
+		IFile fileX = env.getWorkspace().getRoot().getFile(classX);
+		IMarker[] markers = fileX.findMarkers(IJavaModelMarker.JAVA_MODEL_PROBLEM_MARKER, true, IResource.DEPTH_ZERO);
+		assertEquals("Unexpected markers", 2, markers.length);
+		expectingSpecificProblemFor(classX, new Problem("p", "a cannot be resolved to a variable", classX, 118, 119, CategorizedProblem.CAT_MEMBER, IMarker.SEVERITY_ERROR));
+	} finally {
+		MarkerBatch.MAX_MARKERS_PER_RESOURCE = max;
+	}
+}
 }
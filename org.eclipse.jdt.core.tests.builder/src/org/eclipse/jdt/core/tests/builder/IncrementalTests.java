@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -1231,4 +1231,220 @@ public class IncrementalTests extends BuilderTests {
 		expectingSpecificProblemFor(aPath, new Problem("A", "The import w.I cannot be resolved", aPath, 18, 21, CategorizedProblem.CAT_IMPORT, IMarker.SEVERITY_ERROR)); //$NON-NLS-1$ //$NON-NLS-2$
 		env.removeProject(projectPath);
 	}
+
+	/*
+	 * Ensures that an incremental build after a change to a method body produces the same result as a full build
+	 */
+	public void testMemberChangeMethodBody() throws JavaModelException {
+		IPath projectPath = env.addProject("Project"); //$NON-NLS-1$
+		env.addExternalJars(projectPath, Util.getJavaClassLibs());
+		env.removePackageFragmentRoot(projectPath, ""); //$NON-NLS-1$
+		IPath root = env.addPackageFragmentRoot(projectPath, "src"); //$NON-NLS-1$
+		env.setOutputFolder(projectPath, "bin"); //$NON-NLS-1$
+
+		env.addClass(root, "p1", "X", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p1;\n" + //$NON-NLS-1$
+			"public class X {\n" + //$NON-NLS-1$
+			"	public int foo() { return 1; }\n" + //$NON-NLS-1$
+			"	class M { int bar() { return foo(); } }\n" + //$NON-NLS-1$
+			"}\n"); //$NON-NLS-1$
+		env.addClass(root, "p2", "Y", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p2;\n" + //$NON-NLS-1$
+			"public class Y extends p1.X {\n" + //$NON-NLS-1$
+			"	int m() { return foo() + new p1.X().foo(); }\n" + //$NON-NLS-1$
+			"}\n"); //$NON-NLS-1$
+
+		fullBuild(projectPath);
+		expectingNoProblems();
+
+		env.addClass(root, "p1", "X", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p1;\n" + //$NON-NLS-1$
+			"public class X {\n" + //$NON-NLS-1$
+			"	public int foo() { return 2; }\n" + //$NON-NLS-1$
+			"	class M { int bar() { return foo() + 1; } }\n" + //$NON-NLS-1$
+			"}\n"); //$NON-NLS-1$
+
+		incrementalBuild(projectPath);
+		expectingCompiledClasses(new String[] {"p1.X", "p1.X$M"}); //$NON-NLS-1$ //$NON-NLS-2$
+		expectingSameResultAsFullBuild(projectPath);
+		env.removeProject(projectPath);
+	}
+
+	/*
+	 * Ensures that incremental builds after changes to method signatures produce the same results as full builds
+	 */
+	public void testMemberChangeMethodSignature() throws JavaModelException {
+		IPath projectPath = env.addProject("Project"); //$NON-NLS-1$
+		env.addExternalJars(projectPath, Util.getJavaClassLibs());
+		env.removePackageFragmentRoot(projectPath, ""); //$NON-NLS-1$
+		IPath root = env.addPackageFragmentRoot(projectPath, "src"); //$NON-NLS-1$
+		env.setOutputFolder(projectPath, "bin"); //$NON-NLS-1$
+
+		env.addClass(root, "p1", "X", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p1;\n" + //$NON-NLS-1$
+			"public class X {\n" + //$NON-NLS-1$
+			"	public void foo(Object o) {}\n" + //$NON-NLS-1$
+			"	public void bar() {}\n" + //$NON-NLS-1$
+			"}\n"); //$NON-NLS-1$
+		env.addClass(root, "p2", "Y", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p2;\n" + //$NON-NLS-1$
+			"public class Y {\n" + //$NON-NLS-1$
+			"	void m(p1.X x) { x.foo(\"\"); }\n" + //$NON-NLS-1$
+			"}\n"); //$NON-NLS-1$
+		env.addClass(root, "p2", "Z", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p2;\n" + //$NON-NLS-1$
+			"public class Z extends p1.X {\n" + //$NON-NLS-1$
+			"	public void foo(Object o) {}\n" + //$NON-NLS-1$
+			"	void m() { foo(\"\"); }\n" + //$NON-NLS-1$
+			"}\n"); //$NON-NLS-1$
+		env.addClass(root, "p2", "W", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p2;\n" + //$NON-NLS-1$
+			"public class W {\n" + //$NON-NLS-1$
+			"	void m(p1.X x) { x.bar(); }\n" + //$NON-NLS-1$
+			"}\n"); //$NON-NLS-1$
+
+		fullBuild(projectPath);
+		expectingNoProblems();
+
+		// overload: the calls to foo must be bound again
+		env.addClass(root, "p1", "X", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p1;\n" + //$NON-NLS-1$
+			"public class X {\n" + //$NON-NLS-1$
+			"	public void foo(Object o) {}\n" + //$NON-NLS-1$
+			"	public void foo(String s) {}\n" + //$NON-NLS-1$
+			"	public void bar() {}\n" + //$NON-NLS-1$
+			"}\n"); //$NON-NLS-1$
+
+		incrementalBuild(projectPath);
+		expectingSameResultAsFullBuild(projectPath);
+
+		// signature change: the call to bar becomes an error
+		env.addClass(root, "p1", "X", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p1;\n" + //$NON-NLS-1$
+			"public class X {\n" + //$NON-NLS-1$
+			"	public void foo(Object o) {}\n" + //$NON-NLS-1$
+			"	public void foo(String s) {}\n" + //$NON-NLS-1$
+			"	public void bar(int i) {}\n" + //$NON-NLS-1$
+			"}\n"); //$NON-NLS-1$
+
+		incrementalBuild(projectPath);
+		expectingSameResultAsFullBuild(projectPath);
+		env.removeProject(projectPath);
+	}
+
+	/*
+	 * Ensures that incremental builds after changes to fields produce the same results as full builds
+	 */
+	public void testMemberChangeField() throws JavaModelException {
+		IPath projectPath = env.addProject("Project"); //$NON-NLS-1$
+		env.addExternalJars(projectPath, Util.getJavaClassLibs());
+		env.removePackageFragmentRoot(projectPath, ""); //$NON-NLS-1$
+		IPath root = env.addPackageFragmentRoot(projectPath, "src"); //$NON-NLS-1$
+		env.setOutputFolder(projectPath, "bin"); //$NON-NLS-1$
+
+		env.addClass(root, "p1", "X", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p1;\n" + //$NON-NLS-1$
+			"public class X {\n" + //$NON-NLS-1$
+			"	public int f;\n" + //$NON-NLS-1$
+			"	public String g;\n" + //$NON-NLS-1$
+			"}\n"); //$NON-NLS-1$
+		env.addClass(root, "p2", "Y", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p2;\n" + //$NON-NLS-1$
+			"public class Y {\n" + //$NON-NLS-1$
+			"	long m(p1.X x) { return x.f; }\n" + //$NON-NLS-1$
+			"}\n"); //$NON-NLS-1$
+		env.addClass(root, "p2", "Z", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p2;\n" + //$NON-NLS-1$
+			"public class Z extends p1.X {\n" + //$NON-NLS-1$
+			"	String m() { return g; }\n" + //$NON-NLS-1$
+			"}\n"); //$NON-NLS-1$
+
+		fullBuild(projectPath);
+		expectingNoProblems();
+
+		// type change: the field access is compiled again
+		env.addClass(root, "p1", "X", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p1;\n" + //$NON-NLS-1$
+			"public class X {\n" + //$NON-NLS-1$
+			"	public long f;\n" + //$NON-NLS-1$
+			"	public String g;\n" + //$NON-NLS-1$
+			"}\n"); //$NON-NLS-1$
+
+		incrementalBuild(projectPath);
+		expectingSameResultAsFullBuild(projectPath);
+
+		// removal: the inherited field access becomes an error
+		env.addClass(root, "p1", "X", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p1;\n" + //$NON-NLS-1$
+			"public class X {\n" + //$NON-NLS-1$
+			"	public long f;\n" + //$NON-NLS-1$
+			"}\n"); //$NON-NLS-1$
+
+		incrementalBuild(projectPath);
+		expectingSameResultAsFullBuild(projectPath);
+		env.removeProject(projectPath);
+	}
+
+	/*
+	 * Ensures that an incremental build after changes to constants produces the same result as a full build
+	 * (the constants are inlined in the class files of their dependents)
+	 */
+	public void testMemberChangeConstant() throws JavaModelException {
+		IPath projectPath = env.addProject("Project"); //$NON-NLS-1$
+		env.addExternalJars(projectPath, Util.getJavaClassLibs());
+		env.removePackageFragmentRoot(projectPath, ""); //$NON-NLS-1$
+		IPath root = env.addPackageFragmentRoot(projectPath, "src"); //$NON-NLS-1$
+		env.setOutputFolder(projectPath, "bin"); //$NON-NLS-1$
+
+		env.addClass(root, "p1", "X", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p1;\n" + //$NON-NLS-1$
+			"public class X {\n" + //$NON-NLS-1$
+			"	public static final int C = 1;\n" + //$NON-NLS-1$
+			"	public static final String S = \"a\";\n" + //$NON-NLS-1$
+			"}\n"); //$NON-NLS-1$
+		env.addClass(root, "p1", "Sub", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p1;\n" + //$NON-NLS-1$
+			"public class Sub extends X {}\n"); //$NON-NLS-1$
+		env.addClass(root, "p2", "Y", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p2;\n" + //$NON-NLS-1$
+			"public class Y {\n" + //$NON-NLS-1$
+			"	int m(int i) {\n" + //$NON-NLS-1$
+			"		switch (i) {\n" + //$NON-NLS-1$
+			"			case p1.X.C: return 0;\n" + //$NON-NLS-1$
+			"			case 2: return 1;\n" + //$NON-NLS-1$
+			"		}\n" + //$NON-NLS-1$
+			"		return p1.X.C;\n" + //$NON-NLS-1$
+			"	}\n" + //$NON-NLS-1$
+			"}\n"); //$NON-NLS-1$
+		env.addClass(root, "p2", "Z", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p2;\n" + //$NON-NLS-1$
+			"public class Z {\n" + //$NON-NLS-1$
+			"	String m() { return p1.Sub.S; }\n" + //$NON-NLS-1$
+			"}\n"); //$NON-NLS-1$
+
+		fullBuild(projectPath);
+		expectingNoProblems();
+
+		// C now duplicates a case label of Y
+		env.addClass(root, "p1", "X", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p1;\n" + //$NON-NLS-1$
+			"public class X {\n" + //$NON-NLS-1$
+			"	public static final int C = 2;\n" + //$NON-NLS-1$
+			"	public static final String S = \"b\";\n" + //$NON-NLS-1$
+			"}\n"); //$NON-NLS-1$
+
+		incrementalBuild(projectPath);
+		expectingSameResultAsFullBuild(projectPath);
+
+		env.addClass(root, "p1", "X", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p1;\n" + //$NON-NLS-1$
+			"public class X {\n" + //$NON-NLS-1$
+			"	public static final int C = 3;\n" + //$NON-NLS-1$
+			"	public static final String S = \"b\";\n" + //$NON-NLS-1$
+			"}\n"); //$NON-NLS-1$
+
+		incrementalBuild(projectPath);
+		expectingSameResultAsFullBuild(projectPath);
+		env.removeProject(projectPath);
+	}
 }
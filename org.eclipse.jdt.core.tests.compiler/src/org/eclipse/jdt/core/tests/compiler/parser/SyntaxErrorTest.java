@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2012 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,6 +10,7 @@
  *******************************************************************************/
 package org.eclipse.jdt.core.tests.compiler.parser;
 
+import java.util.Arrays;
 import java.util.Locale;
 
 import org.eclipse.jdt.core.compiler.CategorizedProblem;
@@ -17,11 +18,13 @@ import org.eclipse.jdt.core.tests.util.AbstractCompilerTest;
 import org.eclipse.jdt.core.tests.util.Util;
 import org.eclipse.jdt.internal.compiler.CompilationResult;
 import org.eclipse.jdt.internal.compiler.DefaultErrorHandlingPolicies;
+import org.eclipse.jdt.internal.compiler.ast.CompilationUnitDeclaration;
 import org.eclipse.jdt.internal.compiler.batch.CompilationUnit;
 import org.eclipse.jdt.internal.compiler.classfmt.ClassFileConstants;
 import org.eclipse.jdt.internal.compiler.env.ICompilationUnit;
 import org.eclipse.jdt.internal.compiler.impl.CompilerOptions;
 import org.eclipse.jdt.internal.compiler.parser.Parser;
+import org.eclipse.jdt.internal.compiler.parser.diagnose.DiagnoseParser;
 import org.eclipse.jdt.internal.compiler.problem.DefaultProblem;
 import org.eclipse.jdt.internal.compiler.problem.DefaultProblemFactory;
 import org.eclipse.jdt.internal.compiler.problem.ProblemReporter;
@@ -521,4 +524,159 @@ public void test15() {
 		expectedSyntaxErrorDiagnosis,
 		testName);
 }
+/*
+ * Parses the given source with the given repair token budget and without time budget,
+ * see DiagnoseParser#REPAIR_TOKEN_BUDGET.
+ */
+private CompilationResult parseWithRepairBudget(String source, int tokenBudget) {
+	return parseWithRepairBudget(source, tokenBudget, 0);
+}
+private CompilationResult parseWithRepairBudget(String source, int tokenBudget, int previousEffort) {
+	int oldTokenBudget = DiagnoseParser.REPAIR_TOKEN_BUDGET;
+	int oldTimeBudget = DiagnoseParser.REPAIR_TIME_BUDGET;
+	try {
+		DiagnoseParser.REPAIR_TOKEN_BUDGET = tokenBudget;
+		DiagnoseParser.REPAIR_TIME_BUDGET = -1;
+		Parser parser =
+			new Parser(
+				new ProblemReporter(
+					DefaultErrorHandlingPolicies.proceedWithAllProblems(),
+					new CompilerOptions(getCompilerOptions()),
+					new DefaultProblemFactory(Locale.getDefault())),
+				optimizeStringLiterals);
+		ICompilationUnit sourceUnit = new CompilationUnit(source.toCharArray(), "X.java", null);
+		CompilationResult compilationResult = new CompilationResult(sourceUnit, 0, 0, 0);
+		compilationResult.syntaxRepairEffort = previousEffort;
+		CompilationUnitDeclaration unit = parser.parse(sourceUnit, compilationResult);
+		assertNotNull("Missing unit", unit);
+		assertTrue("Should have syntax errors", compilationResult.hasErrors());
+		return compilationResult;
+	} finally {
+		DiagnoseParser.REPAIR_TOKEN_BUDGET = oldTokenBudget;
+		DiagnoseParser.REPAIR_TIME_BUDGET = oldTimeBudget;
+	}
+}
+/*
+ * A missing brace near the top of a big file.
+ */
+private String getMissingBraceSource() {
+	StringBuffer buffer = new StringBuffer();
+	buffer.append("public class X {\n");
+	buffer.append("  void foo() {\n");
+	buffer.append("    if (true) {\n"); // missing closing brace
+	buffer.append("  }\n");
+	for (int i = 0; i < 2000; i++) {
+		buffer.append("  int bar" + i + "(int i) {\n");
+		buffer.append("    int j = i * " + i + ";\n");
+		buffer.append("    return j + bar" + i + "(i - 1);\n");
+		buffer.append("  }\n");
+	}
+	buffer.append("}\n");
+	return buffer.toString();
+}
+/*
+ * Text that is not Java pasted in a method body.
+ */
+private String getPastedTextSource() {
+	StringBuffer buffer = new StringBuffer();
+	buffer.append("public class X {\n");
+	buffer.append("  void foo() {\n");
+	for (int i = 0; i < 500; i++) {
+		buffer.append("    The quick (brown) fox \"jumps\" over; the lazy [dog] {" + i + "} & again?\n");
+	}
+	buffer.append("  }\n");
+	buffer.append("  void bar() {}\n");
+	buffer.append("}\n");
+	return buffer.toString();
+}
+/*
+ * An expression with many unbalanced parentheses and brackets.
+ */
+private String getUnbalancedExpressionSource() {
+	StringBuffer buffer = new StringBuffer();
+	buffer.append("public class X {\n");
+	buffer.append("  int foo(int[] a) {\n");
+	buffer.append("    return ");
+	for (int i = 0; i < 500; i++) {
+		buffer.append("((a[" + i + " + foo(a, ");
+	}
+	buffer.append("0;\n");
+	buffer.append("  }\n");
+	buffer.append("}\n");
+	return buffer.toString();
+}
+/*
+ * Ensures that the diagnosis of badly broken sources falls back to the degraded recovery
+ * once its repair budget is exceeded, reporting no more than one error after the budget is exceeded.
+ */
+public void testRepairBudget1() {
+	String[] sources = new String[] {
+		getMissingBraceSource(),
+		getPastedTextSource(),
+		getUnbalancedExpressionSource()
+	};
+	for (int i = 0; i < sources.length; i++) {
+		CompilationResult compilationResult = parseWithRepairBudget(sources[i], 0);
+		assertTrue("Should have a degraded recovery for source " + i, compilationResult.hasDegradedSyntaxRecovery);
+		assertTrue("Unexpected number of errors for source " + i, compilationResult.getErrors().length <= 2);
+	}
+}
+/*
+ * Ensures that a source with a few syntax errors is diagnosed within the default repair budget.
+ */
+public void testRepairBudget2() {
+	String s =
+		"public class X {\n" +
+		"  void foo() {\n" +
+		"    if (this.equals(x) {\n" +
+		"    }\n" +
+		"    int i = ;\n" +
+		"  }\n" +
+		"}\n";
+	CompilationResult compilationResult = parseWithRepairBudget(s, DiagnoseParser.REPAIR_TOKEN_BUDGET);
+	assertFalse("Should not have a degraded recovery", compilationResult.hasDegradedSyntaxRecovery);
+}
+/*
+ * Ensures that the diagnosis of a badly broken source gives the same errors when parsed twice
+ * with the default repair budgets, whatever the load of the machine.
+ */
+public void testRepairBudget3() {
+	String source = getPastedTextSource();
+	Parser parser =
+		new Parser(
+			new ProblemReporter(
+				DefaultErrorHandlingPolicies.proceedWithAllProblems(),
+				new CompilerOptions(getCompilerOptions()),
+				new DefaultProblemFactory(Locale.getDefault())),
+			optimizeStringLiterals);
+	ICompilationUnit sourceUnit = new CompilationUnit(source.toCharArray(), "X.java", null);
+	CompilationResult firstResult = new CompilationResult(sourceUnit, 0, 0, 0);
+	parser.parse(sourceUnit, firstResult);
+	CompilationResult secondResult = new CompilationResult(sourceUnit, 0, 0, 0);
+	parser.parse(sourceUnit, secondResult);
+	assertEquals("Unexpected degraded recovery", firstResult.hasDegradedSyntaxRecovery, secondResult.hasDegradedSyntaxRecovery);
+	assertEquals("Unexpected errors", Arrays.toString(firstResult.getErrors()), Arrays.toString(secondResult.getErrors()));
+}
+/*
+ * Ensures that the repair effort is recorded on the compilation result, so that the token budget
+ * is shared by all the diagnoses of a compilation unit.
+ */
+public void testRepairBudget4() {
+	String s =
+		"public class X {\n" +
+		"  void foo() {\n" +
+		"    if (this.equals(x) {\n" +
+		"    }\n" +
+		"    int i = ;\n" +
+		"  }\n" +
+		"}\n";
+	CompilationResult compilationResult = parseWithRepairBudget(s, DiagnoseParser.REPAIR_TOKEN_BUDGET);
+	int effort = compilationResult.syntaxRepairEffort;
+	assertTrue("Should have recorded the repair effort", effort > 0);
+	assertFalse("Should not have a degraded recovery", compilationResult.hasDegradedSyntaxRecovery);
+
+	// the same diagnosis no longer fits once most of the budget was spent by previous diagnoses of the unit
+	compilationResult = parseWithRepairBudget(s, effort, 1);
+	assertTrue("Should have a degraded recovery", compilationResult.hasDegradedSyntaxRecovery);
+}
 }
@@ -44,6 +44,7 @@ import java.io.PrintWriter;
 import java.io.StringReader;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 
@@ -1716,6 +1717,11 @@ public void test012(){
         "    -enableJavadoc     consider references in javadoc\n" +
         "    -parameters        generate method parameters attribute (for target >= 1.8)\n" +
         "    -genericsignature  generate generic signature for lambda expressions\n" +
+        "    -headers           generate header class files only: the signatures,\n" +
+        "                       constants and annotations of the types, without any\n" +
+        "                       method code. Method bodies are neither checked nor\n" +
+        "                       compiled, and the class files can only be compiled\n" +
+        "                       against\n" +
         "    -Xemacs            used to enable emacs-style output in the console.\n" +
         "                       It does not affect the xml log output\n" +
         "    -missingNullDefault  report missing default nullness annotation\n" +
@@ -1724,6 +1730,10 @@ public void test012(){
         "                       to support annotation-based null analysis.\n" + 
         "                       The special name CLASSPATH will cause lookup of\n" + 
         "                       external annotations from the classpath and sourcepath.\n" + 
+        "    -buildCache <directory>\n" + 
+        "                       reuse the results of a previous compilation of the same\n" + 
+        "                       sources with the same options and libraries, and store\n" + 
+        "                       the new results in the given directory\n" + 
         " \n" + 
         "    -? -help           print this help message\n" +
         "    -v -version        print compiler version\n" +
@@ -14562,6 +14572,88 @@ public void test439750() {
 			true);
 }
 
+// -headers: the method bodies are ignored, and the header class files can be compiled against
+public void testHeaders() {
+	String headersDir = OUTPUT_DIR + File.separator + "headers";
+	this.runConformTest(
+		new String[] {
+			"p/X.java",
+			"package p;\n" +
+			"public class X {\n" +
+			"	public static final int K = 42;\n" +
+			"	public enum E { A, B }\n" +
+			"	public java.util.List<String> list() {\n" +
+			"		return undefined();\n" +
+			"	}\n" +
+			"}\n"
+		},
+		"\"" + OUTPUT_DIR + File.separator + "p" + File.separator + "X.java\""
+		+ " -1.5 -headers -d \"" + headersDir + "\"",
+		"",
+		"",
+		true);
+	assertTrue(new File(headersDir + File.separator + "p" + File.separator + "X.class").exists());
+	assertTrue(new File(headersDir + File.separator + "p" + File.separator + "X$E.class").exists());
+	this.runConformTest(
+		new String[] {
+			"q/Y.java",
+			"package q;\n" +
+			"public class Y {\n" +
+			"	int size(p.X x) {\n" +
+			"		switch (x.list().size()) {\n" +
+			"			case p.X.K: return p.X.E.values().length;\n" +
+			"		}\n" +
+			"		return p.X.E.valueOf(\"A\").ordinal();\n" +
+			"	}\n" +
+			"}\n"
+		},
+		"\"" + OUTPUT_DIR + File.separator + "q" + File.separator + "Y.java\""
+		+ " -1.5 -cp \"" + headersDir + "\" -d none",
+		"",
+		"",
+		false);
+}
+
+// -buildCache: compiling the same unit again replays its cached result, problems included
+public void testBuildCache() throws IOException {
+	String cacheDir = OUTPUT_DIR + File.separator + "cache";
+	String[] testFiles = new String[] {
+		"p/X.java",
+		"package p;\n" +
+		"public class X {\n" +
+		"	private int unused;\n" +
+		"}\n"
+	};
+	String expectedProblems =
+		"----------\n" +
+		"1. WARNING in ---OUTPUT_DIR_PLACEHOLDER---/p/X.java (at line 3)\n" +
+		"	private int unused;\n" +
+		"	            ^^^^^^\n" +
+		"The value of the field X.unused is not used\n" +
+		"----------\n" +
+		"1 problem (1 warning)\n";
+	this.runTest(
+		true,
+		testFiles,
+		"\"" + OUTPUT_DIR + File.separator + "p" + File.separator + "X.java\""
+		+ " -1.5 -verbose -buildCache \"" + cacheDir + "\" -d \"" + OUTPUT_DIR + File.separator + "bin1\"",
+		new SubstringMatcher("[build cache: 0 hits, 1 misses, 1 stored, 0 evicted]"),
+		new StringMatcher(expectedProblems, outputDirNormalizer),
+		true);
+	this.runTest(
+		true,
+		testFiles,
+		"\"" + OUTPUT_DIR + File.separator + "p" + File.separator + "X.java\""
+		+ " -1.5 -verbose -buildCache \"" + cacheDir + "\" -d \"" + OUTPUT_DIR + File.separator + "bin2\"",
+		new SubstringMatcher("[build cache: 1 hits, 0 misses, 0 stored, 0 evicted]"),
+		new StringMatcher(expectedProblems, outputDirNormalizer),
+		false);
+	String classFile = File.separator + "p" + File.separator + "X.class";
+	assertTrue("Unexpected class file contents", Arrays.equals(
+		org.eclipse.jdt.internal.compiler.util.Util.getFileByteContent(new File(OUTPUT_DIR + File.separator + "bin1" + classFile)),
+		org.eclipse.jdt.internal.compiler.util.Util.getFileByteContent(new File(OUTPUT_DIR + File.separator + "bin2" + classFile))));
+}
+
 /**
  * A fast exit/result is expected when secondary types are searched with the reserved class name "package-info",
  * because there can not exist a secondary type with the name "package-info", because it is a reserved class name.
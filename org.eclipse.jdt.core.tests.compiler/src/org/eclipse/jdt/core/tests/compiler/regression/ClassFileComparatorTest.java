@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2014 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -15,6 +15,7 @@ import java.io.*;
 
 import org.eclipse.jdt.core.compiler.batch.BatchCompiler;
 import org.eclipse.jdt.core.tests.util.Util;
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFileConstants;
 import org.eclipse.jdt.internal.compiler.classfmt.ClassFileReader;
 import org.eclipse.jdt.internal.compiler.classfmt.ClassFormatException;
 
@@ -468,4 +469,458 @@ public class ClassFileComparatorTest extends AbstractRegressionTest {
 			removeTempClass("A016");
 		}
 	}
+	/*
+	 * A changed field modifier is a structural change
+	 */
+	public void test017() {
+		try {
+			String sourceA017 =
+				"public class A017 {\n" +
+				"\tpublic int i;\n" +
+				"}";
+			compileAndDeploy(sourceA017, null, "A017");
+			String sourceA017_2 =
+				"public class A017_2 {\n" +
+				"\tprotected int i;\n" +
+				"}";
+			compileAndDeploy(sourceA017_2, null, "A017_2");
+			assertTrue(areStructurallyDifferent("A017", "A017_2", false, false));
+		} finally {
+			removeTempClass("A017");
+		}
+	}
+	/*
+	 * A changed type modifier is a structural change
+	 */
+	public void test018() {
+		try {
+			String sourceA018 =
+				"public class A018 {\n" +
+				"}";
+			compileAndDeploy(sourceA018, null, "A018");
+			String sourceA018_2 =
+				"public final class A018_2 {\n" +
+				"}";
+			compileAndDeploy(sourceA018_2, null, "A018_2");
+			assertTrue(areStructurallyDifferent("A018", "A018_2", false, false));
+		} finally {
+			removeTempClass("A018");
+		}
+	}
+	/*
+	 * A deprecated method is a structural change
+	 */
+	public void test019() {
+		if (this.complianceLevel < ClassFileConstants.JDK1_5)
+			return;
+		try {
+			String sourceA019 =
+				"public class A019 {\n" +
+				"\tpublic void foo() {\n" +
+				"\t}\n" +
+				"}";
+			compileAndDeploy(sourceA019, null, "A019");
+			String sourceA019_2 =
+				"public class A019_2 {\n" +
+				"\t@Deprecated\n" +
+				"\tpublic void foo() {\n" +
+				"\t}\n" +
+				"}";
+			compileAndDeploy(sourceA019_2, null, "A019_2");
+			assertTrue(areStructurallyDifferent("A019", "A019_2", false, false));
+		} finally {
+			removeTempClass("A019");
+		}
+	}
+	/*
+	 * A changed generic signature of a field is a structural change
+	 */
+	public void test020() {
+		if (this.complianceLevel < ClassFileConstants.JDK1_5)
+			return;
+		try {
+			String sourceA020 =
+				"public class A020 {\n" +
+				"\tpublic java.util.List<String> list;\n" +
+				"}";
+			compileAndDeploy(sourceA020, null, "A020");
+			String sourceA020_2 =
+				"public class A020_2 {\n" +
+				"\tpublic java.util.List<Integer> list;\n" +
+				"}";
+			compileAndDeploy(sourceA020_2, null, "A020_2");
+			assertTrue(areStructurallyDifferent("A020", "A020_2", false, false));
+		} finally {
+			removeTempClass("A020");
+		}
+	}
+	/*
+	 * A changed generic signature of a method is a structural change
+	 */
+	public void test021() {
+		if (this.complianceLevel < ClassFileConstants.JDK1_5)
+			return;
+		try {
+			String sourceA021 =
+				"public class A021 {\n" +
+				"\tpublic java.util.List<String> foo() {\n" +
+				"\t\treturn null;\n" +
+				"\t}\n" +
+				"}";
+			compileAndDeploy(sourceA021, null, "A021");
+			String sourceA021_2 =
+				"public class A021_2 {\n" +
+				"\tpublic java.util.List<? extends String> foo() {\n" +
+				"\t\treturn null;\n" +
+				"\t}\n" +
+				"}";
+			compileAndDeploy(sourceA021_2, null, "A021_2");
+			assertTrue(areStructurallyDifferent("A021", "A021_2", false, false));
+		} finally {
+			removeTempClass("A021");
+		}
+	}
+	/*
+	 * The same generic signature of a method is not a structural change
+	 */
+	public void test022() {
+		if (this.complianceLevel < ClassFileConstants.JDK1_5)
+			return;
+		try {
+			String sourceA022 =
+				"public class A022 {\n" +
+				"\tpublic <T> T foo(T t) {\n" +
+				"\t\treturn t;\n" +
+				"\t}\n" +
+				"}";
+			compileAndDeploy(sourceA022, null, "A022");
+			String sourceA022_2 =
+				"public class A022_2 {\n" +
+				"\tpublic <T extends Object> T foo(T t) {\n" +
+				"\t\treturn null;\n" +
+				"\t}\n" +
+				"}";
+			compileAndDeploy(sourceA022_2, null, "A022_2");
+			assertTrue(!areStructurallyDifferent("A022", "A022_2", false, false));
+		} finally {
+			removeTempClass("A022");
+		}
+	}
+	/*
+	 * A changed generic signature of a type is a structural change
+	 */
+	public void test023() {
+		if (this.complianceLevel < ClassFileConstants.JDK1_5)
+			return;
+		try {
+			String sourceA023 =
+				"public class A023<T> {\n" +
+				"}";
+			compileAndDeploy(sourceA023, null, "A023");
+			String sourceA023_2 =
+				"public class A023_2<T extends Number> {\n" +
+				"}";
+			compileAndDeploy(sourceA023_2, null, "A023_2");
+			assertTrue(areStructurallyDifferent("A023", "A023_2", false, false));
+		} finally {
+			removeTempClass("A023");
+		}
+	}
+	/*
+	 * A changed annotation value of a method is a structural change
+	 */
+	public void test024() {
+		if (this.complianceLevel < ClassFileConstants.JDK1_5)
+			return;
+		try {
+			String sourceB024 =
+				"@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)\n" +
+				"public @interface B024 {\n" +
+				"\tint value();\n" +
+				"}";
+			compileAndDeploy(sourceB024, null, "B024");
+			String sourceA024 =
+				"public class A024 {\n" +
+				"\t@B024(1)\n" +
+				"\tpublic void foo() {\n" +
+				"\t}\n" +
+				"}";
+			compileAndDeploy(sourceA024, null, "A024");
+			String sourceA024_2 =
+				"public class A024_2 {\n" +
+				"\t@B024(2)\n" +
+				"\tpublic void foo() {\n" +
+				"\t}\n" +
+				"}";
+			compileAndDeploy(sourceA024_2, null, "A024_2");
+			assertTrue(areStructurallyDifferent("A024", "A024_2", false, false));
+		} finally {
+			removeTempClass("A024");
+			removeTempClass("B024");
+		}
+	}
+	/*
+	 * The same annotation of a method is not a structural change
+	 */
+	public void test025() {
+		if (this.complianceLevel < ClassFileConstants.JDK1_5)
+			return;
+		try {
+			String sourceB025 =
+				"@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)\n" +
+				"public @interface B025 {\n" +
+				"\tint value();\n" +
+				"\tString name();\n" +
+				"}";
+			compileAndDeploy(sourceB025, null, "B025");
+			String sourceA025 =
+				"public class A025 {\n" +
+				"\t@B025(value = 1, name = \"n\")\n" +
+				"\tpublic void foo() {\n" +
+				"\t}\n" +
+				"}";
+			compileAndDeploy(sourceA025, null, "A025");
+			String sourceA025_2 =
+				"public class A025_2 {\n" +
+				"\t@B025(value = 1, name = \"n\")\n" +
+				"\tpublic void foo() {\n" +
+				"\t\tfoo();\n" +
+				"\t}\n" +
+				"}";
+			compileAndDeploy(sourceA025_2, null, "A025_2");
+			assertTrue(!areStructurallyDifferent("A025", "A025_2", false, false));
+		} finally {
+			removeTempClass("A025");
+			removeTempClass("B025");
+		}
+	}
+	/*
+	 * An added parameter annotation is a structural change
+	 */
+	public void test026() {
+		if (this.complianceLevel < ClassFileConstants.JDK1_5)
+			return;
+		try {
+			String sourceB026 =
+				"@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)\n" +
+				"public @interface B026 {\n" +
+				"}";
+			compileAndDeploy(sourceB026, null, "B026");
+			String sourceA026 =
+				"public class A026 {\n" +
+				"\tpublic void foo(int i) {\n" +
+				"\t}\n" +
+				"}";
+			compileAndDeploy(sourceA026, null, "A026");
+			String sourceA026_2 =
+				"public class A026_2 {\n" +
+				"\tpublic void foo(@B026 int i) {\n" +
+				"\t}\n" +
+				"}";
+			compileAndDeploy(sourceA026_2, null, "A026_2");
+			assertTrue(areStructurallyDifferent("A026", "A026_2", false, false));
+		} finally {
+			removeTempClass("A026");
+			removeTempClass("B026");
+		}
+	}
+	/*
+	 * A changed int constant is a structural change
+	 */
+	public void test027() {
+		try {
+			String sourceA027 =
+				"public class A027 {\n" +
+				"\tpublic static final int X = 1;\n" +
+				"}";
+			compileAndDeploy(sourceA027, null, "A027");
+			String sourceA027_2 =
+				"public class A027_2 {\n" +
+				"\tpublic static final int X = 2;\n" +
+				"}";
+			compileAndDeploy(sourceA027_2, null, "A027_2");
+			assertTrue(areStructurallyDifferent("A027", "A027_2", false, false));
+		} finally {
+			removeTempClass("A027");
+		}
+	}
+	/*
+	 * A changed String constant is a structural change
+	 */
+	public void test028() {
+		try {
+			String sourceA028 =
+				"public class A028 {\n" +
+				"\tpublic static final String X = \"a\";\n" +
+				"}";
+			compileAndDeploy(sourceA028, null, "A028");
+			String sourceA028_2 =
+				"public class A028_2 {\n" +
+				"\tpublic static final String X = \"b\";\n" +
+				"}";
+			compileAndDeploy(sourceA028_2, null, "A028_2");
+			assertTrue(areStructurallyDifferent("A028", "A028_2", false, false));
+		} finally {
+			removeTempClass("A028");
+		}
+	}
+	/*
+	 * The same constants is not a structural change
+	 */
+	public void test029() {
+		try {
+			String sourceA029 =
+				"public class A029 {\n" +
+				"\tpublic static final int I = 1;\n" +
+				"\tpublic static final long L = 2L;\n" +
+				"\tpublic static final char C = 'c';\n" +
+				"\tpublic static final boolean B = true;\n" +
+				"\tpublic static final double D = 0.5;\n" +
+				"\tpublic static final String S = \"s\";\n" +
+				"}";
+			compileAndDeploy(sourceA029, null, "A029");
+			String sourceA029_2 =
+				"public class A029_2 {\n" +
+				"\tpublic static final int I = 1;\n" +
+				"\tpublic static final long L = 2L;\n" +
+				"\tpublic static final char C = 'c';\n" +
+				"\tpublic static final boolean B = true;\n" +
+				"\tpublic static final double D = 0.5;\n" +
+				"\tpublic static final String S = \"s\";\n" +
+				"}";
+			compileAndDeploy(sourceA029_2, null, "A029_2");
+			assertTrue(!areStructurallyDifferent("A029", "A029_2", false, false));
+		} finally {
+			removeTempClass("A029");
+		}
+	}
+	/*
+	 * A field that is no longer a constant is a structural change
+	 */
+	public void test030() {
+		try {
+			String sourceA030 =
+				"public class A030 {\n" +
+				"\tpublic static final int X = 1;\n" +
+				"}";
+			compileAndDeploy(sourceA030, null, "A030");
+			String sourceA030_2 =
+				"public class A030_2 {\n" +
+				"\tpublic static final int X;\n" +
+				"\tstatic {\n" +
+				"\t\tX = 1;\n" +
+				"\t}\n" +
+				"}";
+			compileAndDeploy(sourceA030_2, null, "A030_2");
+			assertTrue(areStructurallyDifferent("A030", "A030_2", false, false));
+		} finally {
+			removeTempClass("A030");
+		}
+	}
+	/*
+	 * A changed thrown exception is a structural change
+	 */
+	public void test031() {
+		try {
+			String sourceA031 =
+				"public class A031 {\n" +
+				"\tpublic void foo() throws java.io.IOException {\n" +
+				"\t}\n" +
+				"}";
+			compileAndDeploy(sourceA031, null, "A031");
+			String sourceA031_2 =
+				"public class A031_2 {\n" +
+				"\tpublic void foo() throws Exception {\n" +
+				"\t}\n" +
+				"}";
+			compileAndDeploy(sourceA031_2, null, "A031_2");
+			assertTrue(areStructurallyDifferent("A031", "A031_2", false, false));
+		} finally {
+			removeTempClass("A031");
+		}
+	}
+	/*
+	 * A deprecated type is a structural change
+	 */
+	public void test032() {
+		if (this.complianceLevel < ClassFileConstants.JDK1_5)
+			return;
+		try {
+			String sourceA032 =
+				"public class A032 {\n" +
+				"}";
+			compileAndDeploy(sourceA032, null, "A032");
+			String sourceA032_2 =
+				"@Deprecated\n" +
+				"public class A032_2 {\n" +
+				"}";
+			compileAndDeploy(sourceA032_2, null, "A032_2");
+			assertTrue(areStructurallyDifferent("A032", "A032_2", false, false));
+		} finally {
+			removeTempClass("A032");
+		}
+	}
+	/*
+	 * The same annotation of a type argument is not a structural change
+	 */
+	public void test033() {
+		if (this.complianceLevel < ClassFileConstants.JDK1_8)
+			return;
+		try {
+			String sourceB033 =
+				"@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)\n" +
+				"@java.lang.annotation.Target(java.lang.annotation.ElementType.TYPE_USE)\n" +
+				"public @interface B033 {\n" +
+				"}";
+			compileAndDeploy(sourceB033, null, "B033");
+			String sourceA033 =
+				"public class A033 {\n" +
+				"\tpublic java.util.List<@B033 String> list;\n" +
+				"}";
+			compileAndDeploy(sourceA033, null, "A033");
+			String sourceA033_2 =
+				"public class A033_2 {\n" +
+				"\tpublic java.util.List<@B033 String> list;\n" +
+				"}";
+			compileAndDeploy(sourceA033_2, null, "A033_2");
+			assertTrue(!areStructurallyDifferent("A033", "A033_2", false, false));
+		} finally {
+			removeTempClass("A033");
+			removeTempClass("B033");
+		}
+	}
+	/*
+	 * A changed annotation value following an array value is a structural change
+	 */
+	public void test034() {
+		if (this.complianceLevel < ClassFileConstants.JDK1_5)
+			return;
+		try {
+			String sourceB034 =
+				"@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)\n" +
+				"public @interface B034 {\n" +
+				"\tint[] values();\n" +
+				"\tint value();\n" +
+				"}";
+			compileAndDeploy(sourceB034, null, "B034");
+			String sourceA034 =
+				"public class A034 {\n" +
+				"\t@B034(values = {1, 2}, value = 1)\n" +
+				"\tpublic void foo() {\n" +
+				"\t}\n" +
+				"}";
+			compileAndDeploy(sourceA034, null, "A034");
+			String sourceA034_2 =
+				"public class A034_2 {\n" +
+				"\t@B034(values = {1, 2}, value = 2)\n" +
+				"\tpublic void foo() {\n" +
+				"\t}\n" +
+				"}";
+			compileAndDeploy(sourceA034_2, null, "A034_2");
+			assertTrue(areStructurallyDifferent("A034", "A034_2", false, false));
+		} finally {
+			removeTempClass("A034");
+			removeTempClass("B034");
+		}
+	}
 }
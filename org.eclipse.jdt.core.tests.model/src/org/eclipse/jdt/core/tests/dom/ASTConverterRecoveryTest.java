@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2015 IBM Corporation and others.
+ * Copyright (c) 2006, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -38,6 +38,7 @@ import org.eclipse.jdt.core.dom.StringLiteral;
 import org.eclipse.jdt.core.dom.VariableDeclarationFragment;
 import org.eclipse.jdt.core.dom.VariableDeclarationStatement;
 import org.eclipse.jdt.core.dom.VariableDeclarationExpression;
+import org.eclipse.jdt.internal.compiler.parser.diagnose.DiagnoseParser;
 
 @SuppressWarnings("rawtypes")
 public class ASTConverterRecoveryTest extends ConverterTestSetup {
@@ -1108,4 +1109,28 @@ public class ASTConverterRecoveryTest extends ConverterTestSetup {
 			List statements = block.statements();
 			assertEquals("wrong size", 0, statements.size()); //$NON-NLS-1$
 		}
+
+	/*
+	 * Ensures that the compilation unit is flagged as recovered when the repair budget
+	 * of the syntax error diagnosis is exceeded.
+	 */
+	public void test0022() throws JavaModelException {
+		int oldTokenBudget = DiagnoseParser.REPAIR_TOKEN_BUDGET;
+		try {
+			DiagnoseParser.REPAIR_TOKEN_BUDGET = 0;
+			this.workingCopies = new ICompilationUnit[1];
+			this.workingCopies[0] = getWorkingCopy(
+				"/Converter/src/test/X.java",
+				"package test;\n"+
+				"public class X {\n"+
+				"	void foo() {\n" +
+				"		synchronized new Object();\n" +
+				"	}\n" +
+				"}\n");
+			ASTNode result = runConversion(getJLS3(), this.workingCopies[0], true, true);
+			assertTrue("Should be flagged as recovered", (result.getFlags() & ASTNode.RECOVERED) != 0); //$NON-NLS-1$
+		} finally {
+			DiagnoseParser.REPAIR_TOKEN_BUDGET = oldTokenBudget;
+		}
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2016 IBM Corporation and others.
+ * Copyright (c) 2004, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -28,12 +28,15 @@ import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.ASTParser;
 import org.eclipse.jdt.core.dom.ASTRequestor;
 import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.FieldDeclaration;
 import org.eclipse.jdt.core.dom.IBinding;
 import org.eclipse.jdt.core.dom.IMethodBinding;
 import org.eclipse.jdt.core.dom.ITypeBinding;
 import org.eclipse.jdt.core.dom.IVariableBinding;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
 import org.eclipse.jdt.core.dom.Type;
 import org.eclipse.jdt.core.dom.TypeDeclaration;
+import org.eclipse.jdt.core.dom.VariableDeclarationStatement;
 import org.eclipse.jdt.core.tests.util.Util;
 
 @SuppressWarnings({"rawtypes", "unchecked"})
@@ -2283,4 +2286,118 @@ public void test082() throws CoreException, IOException {
 					requestor.asts
 				);
 	}
+	/*
+	 * Ensures that parsing the units ahead on worker threads gives the same ASTs in the same order.
+	 */
+	public void testParsingAhead() throws CoreException {
+		this.workingCopies = createWorkingCopies(new String[] {
+				"/P/p1/X1.java",
+				"package p1;\n" +
+				"public class X1 {\n" +
+				"  int foo(X2 x2) {\n" +
+				"    X3 x3 = x2.bar();\n" +
+				"    return x3.baz(); // comment\n" +
+				"  }\n" +
+				"}",
+				"/P/p1/X2.java",
+				"package p1;\n" +
+				"public class X2 {\n" +
+				"  X3 bar() {\n" +
+				"    return new X3() {\n" +
+				"      /** javadoc */\n" +
+				"      int baz() { return 1; }\n" +
+				"    };\n" +
+				"  }\n" +
+				"}",
+				"/P/p1/X3.java",
+				"package p1;\n" +
+				"public class X3 {\n" +
+				"  int baz() {\n" +
+				"    class Local {}\n" +
+				"    return new Local().hashCode();\n" +
+				"  }\n" +
+				"}",
+				"/P/p1/X4.java",
+				"package p1;\n" +
+				"public class X4 {\n" +
+				"  void foo() {\n" +
+				"    int i = \n" +
+				"  }\n" +
+				"}",
+			});
+		TestASTRequestor sequentialRequestor = new TestASTRequestor();
+		ASTParser parser = ASTParser.newParser(JLS3_INTERNAL);
+		parser.setResolveBindings(true);
+		parser.setProject(getJavaProject("P"));
+		parser.createASTs(this.workingCopies, new String[] {}, sequentialRequestor, null);
+
+		TestASTRequestor parallelRequestor = new TestASTRequestor();
+		parser.setResolveBindings(true);
+		parser.setProject(getJavaProject("P"));
+		parser.setParsingAhead(true);
+		parser.createASTs(this.workingCopies, new String[] {}, parallelRequestor, null);
+
+		int length = sequentialRequestor.asts.size();
+		assertEquals("Unexpected number of ASTs", 4, length);
+		assertEquals("Unexpected number of ASTs", length, parallelRequestor.asts.size());
+		for (int i = 0; i < length; i++) {
+			CompilationUnit sequentialAST = (CompilationUnit) sequentialRequestor.asts.get(i);
+			CompilationUnit parallelAST = (CompilationUnit) parallelRequestor.asts.get(i);
+			assertEquals("Unexpected unit", sequentialAST.getJavaElement(), parallelAST.getJavaElement());
+			assertEquals("Unexpected AST", sequentialAST.toString(), parallelAST.toString());
+			assertEquals("Unexpected comments", sequentialAST.getCommentList().size(), parallelAST.getCommentList().size());
+			assertEquals("Unexpected problems", sequentialAST.getProblems().length, parallelAST.getProblems().length);
+		}
+		MethodDeclaration foo = (MethodDeclaration) ((TypeDeclaration) ((CompilationUnit) parallelRequestor.asts.get(0)).types().get(0)).bodyDeclarations().get(0);
+		VariableDeclarationStatement statement = (VariableDeclarationStatement) foo.getBody().statements().get(0);
+		assertBindingEquals("Lp1/X3;", statement.getType().resolveBinding());
+	}
+
+	/*
+	 * Ensures that a compact AST keeps the bindings resolved by the requestor once its binding resolution is released.
+	 */
+	public void testCompactDOM() throws CoreException {
+		this.workingCopies = createWorkingCopies(new String[] {
+				"/P/p1/X.java",
+				"package p1;\n" +
+				"public class X {\n" +
+				"  String field;\n" +
+				"  int foo(Y y) {\n" +
+				"    return y.bar();\n" +
+				"  }\n" +
+				"}",
+				"/P/p1/Y.java",
+				"package p1;\n" +
+				"public class Y {\n" +
+				"  int bar() { return 0; }\n" +
+				"}",
+			});
+		class Requestor extends TestASTRequestor {
+			ITypeBinding fieldType;
+			public void acceptAST(ICompilationUnit source, CompilationUnit ast) {
+				super.acceptAST(source, ast);
+				if (this.fieldType == null) {
+					FieldDeclaration field = (FieldDeclaration) ((TypeDeclaration) ast.types().get(0)).bodyDeclarations().get(0);
+					this.fieldType = field.getType().resolveBinding();
+				}
+			}
+		}
+		Requestor requestor = new Requestor();
+		ASTParser parser = ASTParser.newParser(JLS3_INTERNAL);
+		parser.setResolveBindings(true);
+		parser.setProject(getJavaProject("P"));
+		parser.setCompactDOM(true);
+		parser.createASTs(this.workingCopies, new String[] {}, requestor, null);
+
+		assertEquals("Unexpected number of ASTs", 2, requestor.asts.size());
+		CompilationUnit ast = (CompilationUnit) requestor.asts.get(0);
+		TypeDeclaration type = (TypeDeclaration) ast.types().get(0);
+		FieldDeclaration field = (FieldDeclaration) type.bodyDeclarations().get(0);
+		assertBindingEquals("Ljava/lang/String;", field.getType().resolveBinding());
+		assertSame("Unexpected binding", requestor.fieldType, field.getType().resolveBinding());
+		MethodDeclaration foo = (MethodDeclaration) type.bodyDeclarations().get(1);
+		assertNull("Unexpected binding", foo.resolveBinding());
+		assertBindingEquals("Ljava/lang/Object;", ast.getAST().resolveWellKnownType("java.lang.Object"));
+		assertTrue("Released binding should still be usable", requestor.fieldType.getDeclaredMethods().length > 0);
+	}
 }
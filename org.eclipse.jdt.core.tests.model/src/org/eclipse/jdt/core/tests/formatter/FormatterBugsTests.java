@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -17,6 +17,7 @@
  *******************************************************************************/
 package org.eclipse.jdt.core.tests.formatter;
 
+import java.io.File;
 import java.util.Map;
 
 import junit.framework.Test;
@@ -26,9 +27,12 @@ import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.core.formatter.CodeFormatter;
 import org.eclipse.jdt.core.formatter.DefaultCodeFormatterConstants;
 import org.eclipse.jdt.core.formatter.IndentManipulation;
+import org.eclipse.jdt.core.tests.util.Util;
+import org.eclipse.jdt.internal.formatter.BulkCodeFormatter;
 import org.eclipse.jdt.internal.formatter.DefaultCodeFormatter;
 import org.eclipse.jdt.internal.formatter.DefaultCodeFormatterOptions;
 import org.eclipse.jdt.internal.formatter.DefaultCodeFormatterOptions.Alignment;
+import org.eclipse.jdt.internal.formatter.linewrap.WrapExecutor;
 
 @SuppressWarnings({"rawtypes", "unchecked"})
 public class FormatterBugsTests extends FormatterRegressionTests {
@@ -12458,4 +12462,295 @@ public void testBug492735() {
 		"}";
 	formatSource(source);
 }
+/**
+ * Formatting a region enclosed in a method of a member type only formats that method
+ */
+public void testRegionScopedFormatting_1() {
+	String source =
+		"public class Example {\r\n" + 
+		"	int field1 =   1;\r\n" + 
+		"	void unchanged( int a ) {\r\n" + 
+		"		if( a>0 )  return;\r\n" + 
+		"		a  =  a+1;\r\n" + 
+		"	}\r\n" + 
+		"	class Inner {\r\n" + 
+		"		void foo() {\r\n" + 
+		"[#  int  i  =  0;#]\r\n" + 
+		"			int  j  =  0;\r\n" + 
+		"		}\r\n" + 
+		"	}\r\n" + 
+		"}";
+	formatSource(source,
+		"public class Example {\r\n" + 
+		"	int field1 =   1;\r\n" + 
+		"	void unchanged( int a ) {\r\n" + 
+		"		if( a>0 )  return;\r\n" + 
+		"		a  =  a+1;\r\n" + 
+		"	}\r\n" + 
+		"	class Inner {\r\n" + 
+		"		void foo() {\r\n" + 
+		"			int i = 0;\r\n" + 
+		"			int  j  =  0;\r\n" + 
+		"		}\r\n" + 
+		"	}\r\n" + 
+		"}"
+	);
+}
+/**
+ * Formatting a region enclosed in a method of an enum wraps it like formatting the whole compilation unit
+ */
+public void testRegionScopedFormatting_2() {
+	this.formatterPrefs.page_width = 40;
+	String prefix =
+		"enum Example {\r\n" + 
+		"	A, B;\r\n" + 
+		"\r\n" + 
+		"	int count;\r\n" + 
+		"\r\n" + 
+		"	void bar(int a) {\r\n" + 
+		"		if (a > 0)\r\n" + 
+		"			return;\r\n" + 
+		"		this.count = a + 1;\r\n" + 
+		"	}\r\n" + 
+		"\r\n" + 
+		"	void foo() {\r\n";
+	String region =
+		"		String s = \"aaaaaaaaaa\" + \"bbbbbbbbbb\" + \"cccccccccc\";\r\n";
+	String suffix =
+		"	}\r\n" + 
+		"}";
+	String source = prefix + region + suffix;
+	String formatted = runFormatter(codeFormatter(), source, CodeFormatter.K_COMPILATION_UNIT | CodeFormatter.F_INCLUDE_COMMENTS, 0, 0, source.length(), "\r\n", false);
+	formatSource(prefix + "[#" + region + "#]" + suffix, formatted);
+}
+/**
+ * Formatting a region within a compilation unit with formatter off tags gives the same result as formatting the whole unit
+ */
+public void testRegionScopedFormatting_3() {
+	this.formatterPrefs.use_tags = true;
+	formatRegionAsWholeUnit(
+		"class Example {\r\n" + 
+		"	// @formatter:off\r\n" + 
+		"	int[] table = { 1,2,\r\n" + 
+		"	                3,4 };\r\n" + 
+		"	// @formatter:on\r\n" + 
+		"\r\n" + 
+		"	void bar(int a) {\r\n" + 
+		"		if (a > 0)\r\n" + 
+		"			return;\r\n" + 
+		"	}\r\n" + 
+		"\r\n" + 
+		"	void foo() {\r\n",
+		"		int  i  =  0;\r\n",
+		"	}\r\n" + 
+		"}");
+}
+/**
+ * Formatting a region within a compilation unit with parse errors gives the same result as formatting the whole unit
+ */
+public void testRegionScopedFormatting_4() {
+	formatRegionAsWholeUnit(
+		"class Example {\r\n" + 
+		"	int broken = 1\r\n" + 
+		"\r\n" + 
+		"	void bar(int a) {\r\n" + 
+		"		if (a > 0)\r\n" + 
+		"			return;\r\n" + 
+		"	}\r\n" + 
+		"\r\n" + 
+		"	void foo() {\r\n",
+		"		int  i  =  0;\r\n",
+		"	}\r\n" + 
+		"}");
+	formatRegionAsWholeUnit(
+		"class Example {\r\n" + 
+		"	void bar(int a) {\r\n" + 
+		"		if (a > 0)\r\n" + 
+		"			return;\r\n" + 
+		"	}\r\n" + 
+		"\r\n" + 
+		"	void foo() {\r\n",
+		"		int  i  =  0;\r\n",
+		"		int j = ;\r\n" + 
+		"	}\r\n" + 
+		"}");
+}
+/**
+ * Formatting a region outside of method, field and initializer declarations gives the same result as formatting the whole unit
+ */
+public void testRegionScopedFormatting_5() {
+	formatRegionAsWholeUnit(
+		"class Example {\r\n" + 
+		"	void bar(int a) {\r\n" + 
+		"		if (a > 0)\r\n" + 
+		"			return;\r\n" + 
+		"	}\r\n" + 
+		"\r\n",
+		"	class  Inner  extends  Object {\r\n",
+		"		int i = 0;\r\n" + 
+		"	}\r\n" + 
+		"}");
+}
+/**
+ * Formatting a region within an enum constant gives the same result as formatting the whole unit
+ */
+public void testRegionScopedFormatting_6() {
+	formatRegionAsWholeUnit(
+		"enum Example {\r\n" + 
+		"	A(1, 2),\r\n",
+		"	B(  3,4  ) {\r\n" + 
+		"		int  foo( )  {  return  0; }\r\n" + 
+		"	};\r\n",
+		"\r\n" + 
+		"	Example(int a, int b) {\r\n" + 
+		"	}\r\n" + 
+		"\r\n" + 
+		"	void bar(int a) {\r\n" + 
+		"		if (a > 0)\r\n" + 
+		"			return;\r\n" + 
+		"	}\r\n" + 
+		"}");
+}
+/**
+ * Formatting a region within a compilation unit with aligned members gives the same result as formatting the whole unit
+ */
+public void testRegionScopedFormatting_7() {
+	this.formatterPrefs.align_type_members_on_columns = true;
+	formatRegionAsWholeUnit(
+		"class Example {\r\n" + 
+		"	String	name	= \"\";\r\n",
+		"	int  i  =  0;\r\n",
+		"\r\n" + 
+		"	void bar(int a) {\r\n" + 
+		"		if (a > 0)\r\n" + 
+		"			return;\r\n" + 
+		"		this.name = \"\" + a;\r\n" + 
+		"	}\r\n" + 
+		"}");
+}
+/**
+ * Formatting a region starting on the first token of a method gives the same result as formatting the whole unit
+ */
+public void testRegionScopedFormatting_8() {
+	formatRegionAsWholeUnit(
+		"class Example {\r\n" + 
+		"	int count;\r\n" + 
+		"\r\n" + 
+		"	void bar(int a) {\r\n" + 
+		"		if (a > 0)\r\n" + 
+		"			return;\r\n" + 
+		"		this.count = a + 1;\r\n" + 
+		"	}\r\n" + 
+		"\r\n" + 
+		"	",
+		"@Deprecated  void  foo( ) {\r\n" + 
+		"		int  i  =  0;\r\n",
+		"	}\r\n" + 
+		"}");
+}
+/*
+ * Formats the region between the given prefix and suffix, expecting the result of formatting it within the whole unit
+ */
+private void formatRegionAsWholeUnit(String prefix, String region, String suffix) {
+	String source = prefix + region + suffix;
+	boolean useRegionScopedFormatting = DefaultCodeFormatter.USE_REGION_SCOPED_FORMATTING;
+	try {
+		DefaultCodeFormatter.USE_REGION_SCOPED_FORMATTING = false;
+		String formatted = runFormatter(codeFormatter(), source, CodeFormatter.K_COMPILATION_UNIT | CodeFormatter.F_INCLUDE_COMMENTS, 0, prefix.length(), region.length(), LINE_SEPARATOR, false);
+		assertNotNull("Should be formatted", formatted);
+		assertFalse("Region should need formatting", source.equals(formatted));
+		DefaultCodeFormatter.USE_REGION_SCOPED_FORMATTING = true;
+		formatSource(prefix + "[#" + region + "#]" + suffix, formatted);
+	} finally {
+		DefaultCodeFormatter.USE_REGION_SCOPED_FORMATTING = useRegionScopedFormatting;
+	}
+}
+/**
+ * The bulk code formatter only writes the files which are not formatted, and none in check only mode
+ */
+public void testBulkCodeFormatter() throws Exception {
+	File dir = new File(Util.getOutputDirectory(), "bulkformat");
+	try {
+		String unformatted = "class A {int i;}";
+		String formatted = "class B {" + LINE_SEPARATOR + "\tint i;" + LINE_SEPARATOR + "}";
+		File fileA = new File(dir, "A.java");
+		File fileB = new File(dir, "p/B.java");
+		fileB.getParentFile().mkdirs();
+		Util.writeToFile(unformatted, fileA.getPath());
+		Util.writeToFile(formatted, fileB.getPath());
+		long lastModified = fileB.lastModified();
+		Map<String, String> options = this.formatterPrefs.getMap();
+
+		BulkCodeFormatter checker = new BulkCodeFormatter(options, 2, true);
+		checker.format(new File[] { dir, fileA }, new BulkCodeFormatter.Requestor() {});
+		assertEquals("Unexpected file count", 2, checker.getFileCount());
+		assertEquals("Unexpected unformatted count", 1, checker.getUnformattedCount());
+		assertEquals("Unexpected failure count", 0, checker.getFailureCount());
+		assertEquals("Should not have written A.java", unformatted, Util.fileContent(fileA.getPath()));
+
+		BulkCodeFormatter formatter = new BulkCodeFormatter(options, 2, false);
+		formatter.format(new File[] { dir }, new BulkCodeFormatter.Requestor() {});
+		assertEquals("Unexpected unformatted count", 1, formatter.getUnformattedCount());
+		assertEquals("Unexpected content of A.java", "class A {\n\tint i;\n}", Util.convertToIndependantLineDelimiter(Util.fileContent(fileA.getPath())));
+		assertEquals("Should not have written B.java", lastModified, fileB.lastModified());
+	} finally {
+		Util.delete(dir);
+	}
+}
+/**
+ * An error thrown while a worker thread of the bulk code formatter formats a file is rethrown
+ */
+public void testBulkCodeFormatterError() throws Exception {
+	File dir = new File(Util.getOutputDirectory(), "bulkformat");
+	try {
+		File fileA = new File(dir, "A.java");
+		File fileB = new File(dir, "B.java");
+		dir.mkdirs();
+		Util.writeToFile("class A {int i;}", fileA.getPath());
+		Util.writeToFile("class B {int i;}", fileB.getPath());
+		final Error error = new Error("formatting failed");
+		BulkCodeFormatter formatter = new BulkCodeFormatter(this.formatterPrefs.getMap(), 2, true);
+		try {
+			formatter.format(new File[] { dir }, new BulkCodeFormatter.Requestor() {
+				public void acceptFile(File file) {
+					if (file.getName().equals("B.java"))
+						throw error;
+				}
+			});
+			fail("Should have thrown the error");
+		} catch (Error e) {
+			assertSame("Unexpected error", error, e);
+		}
+	} finally {
+		Util.delete(dir);
+	}
+}
+/**
+ * Once the wrap search budget is exceeded, lines are still wrapped within the page width
+ */
+public void testWrapSearchBudget() {
+	this.formatterPrefs.page_width = 60;
+	StringBuffer buffer = new StringBuffer("class Example {\n\tObject foo() {\n\t\treturn new Builder()");
+	for (int i = 0; i < 50; i++) {
+		buffer.append(".with(\"property").append(i).append("\", value(").append(i).append(", 2))");
+	}
+	buffer.append(".build();\n\t}\n}");
+	String source = buffer.toString();
+	int budget = WrapExecutor.WRAP_SEARCH_BUDGET;
+	String result;
+	try {
+		WrapExecutor.WRAP_SEARCH_BUDGET = 0;
+		result = runFormatter(codeFormatter(), source, CodeFormatter.K_COMPILATION_UNIT, 0, 0, source.length(), "\n", false);
+	} finally {
+		WrapExecutor.WRAP_SEARCH_BUDGET = budget;
+	}
+	assertNotNull("Should be formatted", result);
+	assertEquals("Unexpected tokens", source.replaceAll("\\s", ""), result.replaceAll("\\s", ""));
+	String[] lines = result.split("\n");
+	assertTrue("Should have wrapped lines", lines.length > 5);
+	for (int i = 0; i < lines.length; i++) {
+		int length = lines[i].replaceAll("\t", "    ").length();
+		assertTrue("Line exceeds the page width: " + lines[i], length <= 60);
+	}
+}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -15,7 +15,9 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.net.URI;
+import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.Map;
 
 import junit.framework.Test;
 
@@ -49,10 +51,15 @@ import org.eclipse.jdt.core.dom.AST;
 import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.ASTParser;
 import org.eclipse.jdt.internal.compiler.classfmt.ClassFileConstants;
+import org.eclipse.jdt.internal.compiler.env.IBinaryType;
+import org.eclipse.jdt.internal.core.BinaryType;
 import org.eclipse.jdt.internal.core.ExternalFoldersManager;
 import org.eclipse.jdt.internal.core.JarPackageFragmentRoot;
 import org.eclipse.jdt.internal.core.JavaModelManager;
 import org.eclipse.jdt.internal.core.JavaProject;
+import org.eclipse.jdt.internal.core.PackageFragmentRoot;
+import org.eclipse.jdt.internal.core.SourceAttachmentIndex;
+import org.eclipse.jdt.internal.core.SourceMapper;
 import org.eclipse.jdt.internal.core.util.Util;
 
 /**
@@ -553,6 +560,38 @@ public void testExternalFolder5() throws Exception {
 		deleteProject("P");
 	}
 }
+/*
+ * Ensures that the source positions of a mapped binary type are recorded in the source attachment index
+ * and that another source mapper can map this type from the index without reading its source.
+ */
+public void testSourceAttachmentIndex() throws CoreException {
+	IClassFile cf = this.pkgFragmentRoot.getPackageFragment("x.y").getClassFile("A.class");
+	IType type = cf.getType();
+	IMethod method = type.getMethod("foo", new String[] {});
+	ISourceRange range = method.getSourceRange();
+
+	IPath sourcePath = new Path("/AttachSourceTests/attachsrc.zip");
+	SourceAttachmentIndex index = ((PackageFragmentRoot) this.pkgFragmentRoot).getSourceMapper().getSourceAttachmentIndex();
+	assertEquals("Unexpected source entry", "x/y/A.java", index.getSourceEntry("x/y/A.java"));
+
+	Map options = this.currentProject.getOptions(true);
+	IBinaryType info = (IBinaryType) ((BinaryType) type).getElementInfo();
+	SourceMapper mapper = new SourceMapper(sourcePath, "", options);
+	assertSame("Unexpected index", index, mapper.getSourceAttachmentIndex());
+	assertTrue("Should map type from index", mapper.mapSourceFromIndex(type, info));
+	assertEquals("Unexpected source range", range, mapper.getSourceRange(method));
+
+	// positions mapped with another root path, encoding or source level are not shared
+	mapper = new SourceMapper(sourcePath, null, options);
+	assertFalse("Should not map type from index of another root path", mapper.mapSourceFromIndex(type, info));
+	mapper = new SourceMapper(sourcePath, "", options, "UTF-16");
+	assertFalse("Should not map type from index of another encoding", mapper.mapSourceFromIndex(type, info));
+	Map otherOptions = new HashMap(options);
+	otherOptions.put(JavaCore.COMPILER_SOURCE,
+		JavaCore.VERSION_1_3.equals(options.get(JavaCore.COMPILER_SOURCE)) ? JavaCore.VERSION_1_4 : JavaCore.VERSION_1_3);
+	mapper = new SourceMapper(sourcePath, "", otherOptions);
+	assertFalse("Should not map type from index of another source level", mapper.mapSourceFromIndex(type, info));
+}
 /*
  * Ensures that one can attach an external ZIP archive containing sources to a library folder.
  */
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,7 +11,10 @@
 package org.eclipse.jdt.core.tests.model;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.eclipse.core.resources.*;
@@ -23,6 +26,7 @@ import org.eclipse.jdt.internal.core.ClasspathEntry;
 import org.eclipse.jdt.internal.core.JavaModelManager;
 import org.eclipse.jdt.internal.core.JavaModelStatus;
 import org.eclipse.jdt.internal.core.JavaProject;
+import org.eclipse.jdt.internal.core.ParallelClasspathResolver;
 import org.eclipse.jdt.internal.core.UserLibrary;
 import org.eclipse.jdt.internal.core.UserLibraryClasspathContainer;
 
@@ -1658,4 +1662,148 @@ public void testBug346002() throws Exception {
 		fail("Should not throw AssertionFailedException");
 	}
 }
+/*
+ * Ensures that the time spent in a container initializer is recorded
+ */
+public void testContainerInitializationTimes() throws CoreException {
+	try {
+		createProject("P1");
+		createFile("/P1/lib.jar", "");
+		ContainerInitializer.setInitializer(new DefaultContainerInitializer(new String[] {"P2", "/P1/lib.jar"}));
+		IJavaProject p2 = createJavaProject(
+				"P2",
+				new String[] {},
+				new String[] {"org.eclipse.jdt.core.tests.model.TEST_CONTAINER"},
+				"");
+		p2.getResolvedClasspath(true);
+		long[] times = (long[]) JavaModelManager.getJavaModelManager().getContainerInitializationTimes().get(new Path("org.eclipse.jdt.core.tests.model.TEST_CONTAINER"));
+		assertNotNull("Should record container initialization time", times);
+		assertTrue("Should have initialized container at least once", times[1] > 0);
+	} finally {
+		deleteProject("P1");
+		deleteProject("P2");
+	}
+}
+/*
+ * Ensures that the batch container initialization does not ask an initializer again for a project
+ * whose container was already set while initializing the same container for another project
+ */
+public void testBatchContainerInitialization() throws CoreException {
+	try {
+		createProject("P1");
+		createFile("/P1/lib.jar", "");
+		ContainerInitializer.setInitializer(new DefaultContainerInitializer(new String[] {"P2", "/P1/lib.jar", "P3", "/P1/lib.jar"}));
+		IJavaProject p2 = createJavaProject(
+				"P2",
+				new String[] {},
+				new String[] {"org.eclipse.jdt.core.tests.model.TEST_CONTAINER"},
+				"");
+		createJavaProject(
+				"P3",
+				new String[] {},
+				new String[] {"org.eclipse.jdt.core.tests.model.TEST_CONTAINER"},
+				"");
+
+		// simulate state on startup
+		simulateExitRestart();
+
+		final int[] initializations = new int[1];
+		ContainerInitializer.setInitializer(new DefaultContainerInitializer(new String[] {"P2", "/P1/lib.jar", "P3", "/P1/lib.jar"}) {
+			public void initialize(IPath containerPath, IJavaProject project) throws CoreException {
+				initializations[0]++;
+				// set the container of both projects at once
+				super.initialize(containerPath, getJavaProject("P2"));
+				super.initialize(containerPath, getJavaProject("P3"));
+			}
+		});
+		JavaModelManager.getJavaModelManager().batchContainerInitializations = JavaModelManager.NEED_BATCH_INITIALIZATION;
+		p2.getResolvedClasspath(true);
+		assertEquals("Unexpected number of initializations", 1, initializations[0]);
+	} finally {
+		deleteProject("P1");
+		deleteProject("P2");
+		deleteProject("P3");
+	}
+}
+/*
+ * Ensures that classpaths resolved in parallel are cached in the per project info,
+ * and that a project is resolved after the projects it references
+ */
+public void testParallelClasspathResolution() throws CoreException {
+	try {
+		createProject("P1");
+		createFile("/P1/lib.jar", "");
+		ContainerInitializer.setInitializer(new DefaultContainerInitializer(new String[] {"P2", "/P1/lib.jar", "P3", "/P1/lib.jar"}));
+		IJavaProject p2 = createJavaProject(
+				"P2",
+				new String[] {},
+				new String[] {"org.eclipse.jdt.core.tests.model.TEST_CONTAINER"},
+				"");
+		IJavaProject p3 = createJavaProject(
+				"P3",
+				new String[] {},
+				new String[] {"org.eclipse.jdt.core.tests.model.TEST_CONTAINER"},
+				new String[] {"/P2"},
+				"");
+		IJavaProject p4 = createJavaProject("P4", new String[] {}, new String[] {}, new String[] {"/P3"}, "");
+		IJavaProject p5 = createJavaProject("P5", new String[] {}, "");
+		IJavaProject[] projects = new IJavaProject[] {p4, p3, p5, p2};
+		for (int i = 0; i < projects.length; i++) {
+			((JavaProject) projects[i]).getPerProjectInfo().resetResolvedClasspath();
+		}
+		final List<String> resolved = Collections.synchronizedList(new ArrayList<String>());
+		new ParallelClasspathResolver(2) {
+			protected void resolve(JavaProject project) {
+				super.resolve(project);
+				resolved.add(project.getElementName());
+			}
+		}.resolve(projects, null);
+		for (int i = 0; i < projects.length; i++) {
+			assertNotNull("Classpath of " + projects[i].getElementName() + " should be resolved", ((JavaProject) projects[i]).getPerProjectInfo().getResolvedClasspath());
+		}
+		assertEquals("Unexpected number of resolutions", 4, resolved.size());
+		assertTrue("P2 should be resolved before P3: " + resolved, resolved.indexOf("P2") < resolved.indexOf("P3"));
+		assertTrue("P3 should be resolved before P4: " + resolved, resolved.indexOf("P3") < resolved.indexOf("P4"));
+	} finally {
+		deleteProject("P1");
+		deleteProject("P2");
+		deleteProject("P3");
+		deleteProject("P4");
+		deleteProject("P5");
+	}
+}
+/*
+ * Ensures that a project whose classpath resolution fails does not prevent the projects
+ * that do not depend on it from being resolved in parallel
+ */
+public void testParallelClasspathResolutionFailure() throws CoreException {
+	try {
+		IJavaProject p1 = createJavaProject("P1", new String[] {}, "");
+		IJavaProject p2 = createJavaProject("P2", new String[] {}, new String[] {}, new String[] {"/P1"}, "");
+		IJavaProject p3 = createJavaProject("P3", new String[] {}, new String[] {}, new String[] {"/P2"}, "");
+		IJavaProject p4 = createJavaProject("P4", new String[] {}, new String[] {}, new String[] {"/P1"}, "");
+		IJavaProject p5 = createJavaProject("P5", new String[] {}, "");
+		IJavaProject[] projects = new IJavaProject[] {p1, p2, p3, p4, p5};
+		for (int i = 0; i < projects.length; i++) {
+			((JavaProject) projects[i]).getPerProjectInfo().resetResolvedClasspath();
+		}
+		final List<String> resolved = Collections.synchronizedList(new ArrayList<String>());
+		new ParallelClasspathResolver(2) {
+			protected void resolve(JavaProject project) {
+				if ("P2".equals(project.getElementName()))
+					throw new IllegalStateException("Simulated failure");
+				super.resolve(project);
+				resolved.add(project.getElementName());
+			}
+		}.resolve(projects, null);
+		Collections.sort(resolved);
+		assertEquals("Unexpected resolved projects", "[P1, P4, P5]", resolved.toString());
+	} finally {
+		deleteProject("P1");
+		deleteProject("P2");
+		deleteProject("P3");
+		deleteProject("P4");
+		deleteProject("P5");
+	}
+}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -33,6 +33,7 @@ import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.core.Signature;
 import org.eclipse.jdt.core.eval.IEvaluationContext;
 import org.eclipse.jdt.internal.codeassist.CompletionEngine;
+import org.eclipse.jdt.internal.codeassist.CompletionSession;
 import org.eclipse.jdt.internal.compiler.impl.CompilerOptions;
 import org.eclipse.jdt.internal.core.eval.EvaluationContextWrapper;
 
@@ -25742,4 +25743,131 @@ public void testBug421469a() throws JavaModelException {
 		COMPLETION_PROJECT.setOptions(options);	
 	}
 }
+/*
+ * Ensures that a completion which only extends the token of the previous completion reports the same
+ * proposals as a completion from scratch, with updated positions and relevance.
+ */
+public void testCompletionSession() throws JavaModelException {
+	this.wc = getWorkingCopy(
+		"/Completion/src/test/Test.java",
+		"package test;\n" +
+		"public class Test {\n" +
+		"  int zzvalue;\n" +
+		"  int zzVeryLong;\n" +
+		"  void zzvalidate() {}\n" +
+		"  void foo() {\n" +
+		"    zzv\n" +
+		"  }\n" +
+		"}");
+
+	CompletionTestsRequestor2 requestor = new CompletionTestsRequestor2(true, false, true);
+	String str = this.wc.getSource();
+	String completeBehind = "zzv";
+	int cursorLocation = str.lastIndexOf(completeBehind) + completeBehind.length();
+	this.wc.codeComplete(cursorLocation, requestor, this.wcOwner);
+	String results = requestor.getResults();
+	assertTrue("Unexpected results: " + results, results.indexOf("zzVeryLong") != -1);
+
+	this.wc.getBuffer().replace(cursorLocation, 0, "a");
+	requestor = new CompletionTestsRequestor2(true, false, true);
+	this.wc.codeComplete(cursorLocation + 1, requestor, this.wcOwner);
+	String refinedContext = requestor.getContext();
+	String refinedResults = requestor.getResults();
+	assertTrue("Unexpected refined results: " + refinedResults, refinedResults.indexOf("zzVeryLong") == -1);
+
+	CompletionSession.reset();
+	requestor = new CompletionTestsRequestor2(true, false, true);
+	this.wc.codeComplete(cursorLocation + 1, requestor, this.wcOwner);
+	assertEquals("Unexpected context", requestor.getContext(), refinedContext);
+	assertResults(requestor.getResults(), refinedResults);
+}
+/*
+ * Ensures that the session of the last completion is forgotten when its working copy is discarded.
+ */
+public void testCompletionSessionDiscarded() throws JavaModelException {
+	this.wc = getWorkingCopy(
+		"/Completion/src/test/Test.java",
+		"package test;\n" +
+		"public class Test {\n" +
+		"  int zzvalue;\n" +
+		"  void foo() {\n" +
+		"    zzv\n" +
+		"  }\n" +
+		"}");
+
+	CompletionTestsRequestor2 requestor = new CompletionTestsRequestor2(true, false, true);
+	String str = this.wc.getSource();
+	String completeBehind = "zzv";
+	int cursorLocation = str.lastIndexOf(completeBehind) + completeBehind.length();
+	this.wc.codeComplete(cursorLocation, requestor, this.wcOwner);
+	assertNotNull("Missing session", CompletionSession.getCurrent());
+
+	this.wc.discardWorkingCopy();
+	assertNull("Unexpected session", CompletionSession.getCurrent());
+}
+public void testCompletionTimeBudget() throws JavaModelException {
+	this.oldOptions = JavaCore.getOptions();
+	try {
+		this.workingCopies = new ICompilationUnit[2];
+		this.workingCopies[0] = getWorkingCopy(
+			"/Completion/src/test/Test.java",
+			"package test;\n" +
+			"public class Test {\n" +
+			"  int zzfield;\n" +
+			"  void foo() {\n" +
+			"    Zz\n" +
+			"  }\n" +
+			"}");
+		this.workingCopies[1] = getWorkingCopy(
+			"/Completion/src/test/ZzBudgetType.java",
+			"package test;\n" +
+			"public class ZzBudgetType {\n" +
+			"}");
+		String str = this.workingCopies[0].getSource();
+		String completeBehind = "Zz";
+		int cursorLocation = str.lastIndexOf(completeBehind) + completeBehind.length();
+
+		// the type search is abandoned, the requestor taking longer than the budget to accept the field
+		Hashtable<String, String> options = new Hashtable<>(this.oldOptions);
+		options.put(JavaCore.CODEASSIST_TIME_BUDGET, "100");
+		JavaCore.setOptions(options);
+		final boolean[] timedOut = new boolean[1];
+		CompletionTestsRequestor2 requestor = new CompletionTestsRequestor2(true) {
+			public void accept(CompletionProposal proposal) {
+				super.accept(proposal);
+				if (proposal.getKind() == CompletionProposal.FIELD_REF) {
+					try {
+						Thread.sleep(200);
+					} catch (InterruptedException e) {
+						// ignore
+					}
+				}
+			}
+			public void completionTimedOut() {
+				timedOut[0] = true;
+			}
+		};
+		this.workingCopies[0].codeComplete(cursorLocation, requestor, this.wcOwner);
+		String results = requestor.getResults();
+		assertTrue("Should time out", timedOut[0]);
+		assertTrue("Unexpected results: " + results, results.indexOf("zzfield[FIELD_REF]") != -1);
+		assertTrue("Unexpected results: " + results, results.indexOf("ZzBudgetType[TYPE_REF]") == -1);
+
+		// without budget, the types are proposed
+		JavaCore.setOptions(this.oldOptions);
+		timedOut[0] = false;
+		requestor = new CompletionTestsRequestor2(true) {
+			public void completionTimedOut() {
+				timedOut[0] = true;
+			}
+		};
+		this.workingCopies[0].codeComplete(cursorLocation, requestor, this.wcOwner);
+		results = requestor.getResults();
+		assertFalse("Should not time out", timedOut[0]);
+		assertTrue("Unexpected results: " + results, results.indexOf("zzfield[FIELD_REF]") != -1);
+		assertTrue("Unexpected results: " + results, results.indexOf("ZzBudgetType[TYPE_REF]") != -1);
+	} finally {
+		JavaCore.setOptions(this.oldOptions);
+	}
+}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,6 +12,7 @@ package org.eclipse.jdt.core.tests.model;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.zip.ZipFile;
 
 import junit.framework.Test;
 
@@ -24,6 +25,8 @@ import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.IPackageFragmentRoot;
 import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.internal.core.JavaModelManager;
+import org.eclipse.jdt.internal.core.ZipFileCache;
 /**
  * These test ensure that modifications in external jar are correctly reported as
  * IJavaEllementDeltas after a JavaModel#refreshExternalArchives().
@@ -554,5 +557,85 @@ public void testExternalJarInternalExternalJar() throws CoreException, IOExcepti
 		stopDeltas();
 	}
 }
-}
+/*
+ * Ensures that the shared zip file cache reuses an open external jar and
+ * that the jar is reopened after it changed and the Java model was refreshed.
+ */
+public void testExternalJarSharedZipFile() throws CoreException, IOException {
+	File f = null;
+	try {
+		IJavaProject project = this.createJavaProject("P", new String[] {""}, "");
 
+		String pPath = getExternalPath() + "p.jar";
+		createJar(new String[] {
+				"p/X.java",
+				"package p;\n" +
+				"public class X {\n" +
+				"}"
+			},
+			pPath);
+		setClasspath(project, new IClasspathEntry[]{JavaCore.newLibraryEntry(new Path(pPath), null, null)});
+		getJavaModel().refreshExternalArchives(null,null);
+		waitUntilIndexesReady();
+
+		f = new File(pPath);
+		IPackageFragmentRoot root = project.getPackageFragmentRoot(pPath);
+		ZipFileCache cache = JavaModelManager.getJavaModelManager().zipFileCache;
+		int hits = cache.getHitCount();
+		root.getPackageFragment("p").getClassFile("X.class").getBytes();
+		root.getPackageFragment("p").getClassFile("X.class").getBytes();
+		assertTrue("Zip file should be shared", cache.getHitCount() > hits);
+
+		createJar(new String[] {
+				"q/Y.java",
+				"package q;\n" +
+				"public class Y {\n" +
+				"}"
+			},
+			pPath);
+		touch(f);
+		getJavaModel().refreshExternalArchives(null,null);
+		assertTrue("Package q should exist", root.getPackageFragment("q").exists());
+		assertFalse("Package p should no longer exist", root.getPackageFragment("p").exists());
+	} finally {
+		if(f != null) {
+			deleteResource(f);
+		}
+		this.deleteProject("P");
+	}
+}
+/*
+ * Ensures that the shared zip file cache closes an archive once it has not been used for the idle timeout,
+ * but not while it is referenced.
+ */
+public void testExternalJarIdleZipFile() throws CoreException, IOException, InterruptedException {
+	String pPath = getExternalPath() + "p.jar";
+	File f = new File(pPath);
+	try {
+		createJar(new String[] {
+				"p/X.java",
+				"package p;\n" +
+				"public class X {\n" +
+				"}"
+			},
+			pPath);
+		ZipFileCache cache = new ZipFileCache(10, 100);
+		ZipFile zipFile = cache.acquire(new Path(pPath), f);
+		Thread.sleep(300);
+		assertEquals("Zip file should not be closed while referenced", 0, cache.getIdleCount());
+		cache.release(zipFile);
+		for (int i = 0; i < 100 && cache.getIdleCount() == 0; i++) {
+			Thread.sleep(50);
+		}
+		assertEquals("Zip file should be closed once idle", 1, cache.getIdleCount());
+		try {
+			zipFile.size();
+			assertTrue("Zip file should be closed", false);
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	} finally {
+		deleteResource(f);
+	}
+}
+}
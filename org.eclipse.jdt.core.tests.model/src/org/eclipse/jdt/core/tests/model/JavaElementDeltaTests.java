@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2014 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -798,6 +798,99 @@ public void testBuildProjectUsedAsLib() throws CoreException {
 		deleteProject("P2");
 	}
 }
+/*
+ * Ensures that a resource change affecting more files than the bulk threshold is reported
+ * as a content change of the source root instead of fine grained deltas.
+ */
+public void testBulkChangeInSourceRoot() throws CoreException {
+	int previousThreshold = DeltaProcessor.setBulkDeltaThreshold(Integer.MAX_VALUE);
+	try {
+		createJavaProject("P", new String[] {"src"}, "bin");
+		createFolder("P/src/x");
+		createFile(
+			"P/src/x/A.java",
+			"package x;\n" +
+			"public class A {\n" +
+			"}");
+		DeltaProcessor.setBulkDeltaThreshold(2);
+		startDeltas();
+		getWorkspace().run(
+			new IWorkspaceRunnable() {
+				public void run(IProgressMonitor monitor) throws CoreException {
+					deleteFile("P/src/x/A.java");
+					createFolder("P/src/y");
+					createFile(
+						"P/src/y/B.java",
+						"package y;\n" +
+						"public class B {\n" +
+						"}");
+					createFile(
+						"P/src/y/C.java",
+						"package y;\n" +
+						"public class C {\n" +
+						"}");
+				}
+			},
+			null);
+		assertDeltas(
+			"Unexpected delta",
+			"P[*]: {CHILDREN}\n" +
+			"	src[*]: {CONTENT}"
+		);
+		assertElementExists(
+			"Unexpected element",
+			"C.java [in y [in src [in P]]]",
+			getCompilationUnit("P/src/y/C.java"));
+	} finally {
+		DeltaProcessor.setBulkDeltaThreshold(previousThreshold);
+		stopDeltas();
+		deleteProject("P");
+	}
+}
+/*
+ * Ensures that the files written in an output folder (e.g. by a build) don't count toward the bulk threshold.
+ */
+public void testBulkChangeInOutputFolder() throws CoreException {
+	int previousThreshold = DeltaProcessor.setBulkDeltaThreshold(Integer.MAX_VALUE);
+	try {
+		createJavaProject("P", new String[] {"src"}, "bin");
+		createFolder("P/src/x");
+		createFile(
+			"P/src/x/A.java",
+			"package x;\n" +
+			"public class A {\n" +
+			"}");
+		DeltaProcessor.setBulkDeltaThreshold(2);
+		startDeltas();
+		getWorkspace().run(
+			new IWorkspaceRunnable() {
+				public void run(IProgressMonitor monitor) throws CoreException {
+					createFolder("P/bin/x");
+					createFile("P/bin/x/A.class", "");
+					createFile("P/bin/x/B.class", "");
+					createFile("P/bin/x/C.class", "");
+					editFile(
+						"P/src/x/A.java",
+						"package x;\n" +
+						"public class A {\n" +
+						"  void foo() {}\n" +
+						"}");
+				}
+			},
+			null);
+		assertDeltas(
+			"Unexpected delta",
+			"P[*]: {CHILDREN}\n" +
+			"	src[*]: {CHILDREN}\n" +
+			"		x[*]: {CHILDREN}\n" +
+			"			A.java[*]: {CONTENT | PRIMARY RESOURCE}"
+		);
+	} finally {
+		DeltaProcessor.setBulkDeltaThreshold(previousThreshold);
+		stopDeltas();
+		deleteProject("P");
+	}
+}
 
 /**
  * Ensures that changing the custom output folder of a source entry
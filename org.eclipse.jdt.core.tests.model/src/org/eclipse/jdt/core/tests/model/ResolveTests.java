@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2012 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -27,6 +27,9 @@ import org.eclipse.jdt.core.IType;
 import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.core.WorkingCopyOwner;
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.internal.core.JavaModelManager;
+import org.eclipse.jdt.internal.core.ReconciledASTCache;
 
 public class ResolveTests extends AbstractJavaModelTests {
 	ICompilationUnit wc = null;
@@ -2725,4 +2728,77 @@ public void testConstantInLocal() throws JavaModelException {
 			"CONSTANT [in Local [in main(String[]) [in X [in [Working copy] Test2.java [in <default> [in src [in Resolve]]]]]]]",
 			elements);
 }
+/*
+ * Ensures that code select is answered from the resolved AST of the last reconcile with the elements
+ * answered by the selection engine, as long as the working copy is unchanged.
+ */
+public void testReconciledAST() throws JavaModelException {
+	this.wcOwner = newWorkingCopyOwner(new ProblemRequestor());
+	this.workingCopies = new ICompilationUnit[1];
+	this.workingCopies[0] = getWorkingCopy(
+		"/Resolve/src/test/ReconciledAST.java",
+		"package test;\n" +
+		"public class ReconciledAST {\n" +
+		"  String field;\n" +
+		"  void foo() {\n" +
+		"    bar(field);\n" +
+		"  }\n" +
+		"  void bar(String s) {}\n" +
+		"}\n");
+	String str = this.workingCopies[0].getSource();
+	String[] selectAt = new String[] {"String field", "field)", "bar(field", "bar(String"};
+	String[] selection = new String[] {"String", "field", "bar", "bar"};
+	String[] expected = new String[] {
+		"String {key=Ljava/lang/String;} [in String.class [in java.lang [in "+ getExternalJCLPathString() + "]]]",
+		"field {key=Ltest/ReconciledAST;.field)Ljava/lang/String;} [in ReconciledAST [in [Working copy] ReconciledAST.java [in test [in src [in Resolve]]]]]",
+		"bar(String) {key=Ltest/ReconciledAST;.bar(Ljava/lang/String;)V} [in ReconciledAST [in [Working copy] ReconciledAST.java [in test [in src [in Resolve]]]]]",
+		"bar(String) [in ReconciledAST [in [Working copy] ReconciledAST.java [in test [in src [in Resolve]]]]]"
+	};
+	ReconciledASTCache cache = JavaModelManager.getJavaModelManager().reconciledASTCache;
+
+	// answered by the selection engine
+	int hits = cache.getHitCount();
+	for (int i = 0; i < selectAt.length; i++) {
+		IJavaElement[] elements = this.workingCopies[0].codeSelect(str.indexOf(selectAt[i]), selection[i].length(), this.wcOwner);
+		assertElementsEqual("Unexpected elements for " + selectAt[i], expected[i], elements, true);
+	}
+	assertEquals("Unexpected hits", hits, cache.getHitCount());
+
+	// answered from the reconciled AST
+	this.workingCopies[0].reconcile(AST.JLS8, true/*force problem detection*/, this.wcOwner, null);
+	for (int i = 0; i < selectAt.length; i++) {
+		IJavaElement[] elements = this.workingCopies[0].codeSelect(str.indexOf(selectAt[i]), selection[i].length(), this.wcOwner);
+		assertElementsEqual("Unexpected elements for " + selectAt[i], expected[i], elements, true);
+	}
+	assertEquals("Unexpected hits", hits + selectAt.length, cache.getHitCount());
+
+	// the AST is stale once the working copy changed
+	this.workingCopies[0].getBuffer().append(" ");
+	IJavaElement[] elements = this.workingCopies[0].codeSelect(str.indexOf(selectAt[1]), selection[1].length(), this.wcOwner);
+	assertElementsEqual("Unexpected elements", expected[1], elements, true);
+	assertEquals("Unexpected hits", hits + selectAt.length, cache.getHitCount());
+}
+public void testReconciledASTModified() throws JavaModelException {
+	this.wcOwner = newWorkingCopyOwner(new ProblemRequestor());
+	this.workingCopies = new ICompilationUnit[1];
+	this.workingCopies[0] = getWorkingCopy(
+		"/Resolve/src/test/ReconciledAST.java",
+		"package test;\n" +
+		"public class ReconciledAST {\n" +
+		"  String field;\n" +
+		"}\n");
+	String str = this.workingCopies[0].getSource();
+	ReconciledASTCache cache = JavaModelManager.getJavaModelManager().reconciledASTCache;
+	int hits = cache.getHitCount();
+
+	// a client modified the AST returned by the reconcile
+	org.eclipse.jdt.core.dom.CompilationUnit ast = this.workingCopies[0].reconcile(AST.JLS8, true/*force problem detection*/, this.wcOwner, null);
+	ast.types().clear();
+	IJavaElement[] elements = this.workingCopies[0].codeSelect(str.indexOf("field"), "field".length(), this.wcOwner);
+	assertElementsEqual(
+		"Unexpected elements",
+		"field [in ReconciledAST [in [Working copy] ReconciledAST.java [in test [in src [in Resolve]]]]]",
+		elements);
+	assertEquals("Unexpected hits", hits, cache.getHitCount());
+}
 }
@@ -1293,4 +1293,41 @@ public void testSearchPatternValidMatchRule47() {
 		SearchPattern.R_CAMELCASE_SAME_PART_COUNT_MATCH,
 		SearchPattern.R_EXACT_MATCH);
 }
+/*
+ * Ensures that the type name dictionary used to find type names is kept in sync with the indexes
+ * when compilation units are added, changed and removed.
+ */
+public void testTypeNameDictionaryUpdate() throws CoreException {
+	try {
+		IJavaProject project = createJavaProject("P1", new String[] {""}, new String[] {"JCL_LIB"}, "");
+		createFile("/P1/XyzFoo.java", "public class XyzFoo {}");
+		createFile("/P1/Other.java", "public class Other {}");
+		waitUntilIndexesReady();
+		assertTypeNames("xyz", SearchPattern.R_PREFIX_MATCH, project, "XyzFoo");
+
+		createFile("/P1/XyzBar.java", "public class XyzBar {}");
+		editFile("/P1/Other.java", "public class Other {}\nclass XyzOther {}");
+		deleteFile("/P1/XyzFoo.java");
+		waitUntilIndexesReady();
+		assertTypeNames("xyz", SearchPattern.R_PREFIX_MATCH, project, "XyzBar\nXyzOther");
+		assertTypeNames("XB", SearchPattern.R_CAMELCASE_MATCH, project, "XyzBar");
+		assertTypeNames("Xyz*r", SearchPattern.R_PATTERN_MATCH, project, "XyzBar\nXyzOther");
+	} finally {
+		deleteProject("P1");
+	}
+}
+private void assertTypeNames(String typeName, int matchRule, IJavaProject project, String expected) throws JavaModelException {
+	SearchTypeNameRequestor requestor = new SearchTypeNameRequestor();
+	new SearchEngine().searchAllTypeNames(
+		null,
+		SearchPattern.R_EXACT_MATCH,
+		typeName.toCharArray(),
+		matchRule,
+		TYPE,
+		SearchEngine.createJavaSearchScope(new IJavaElement[] {project}),
+		requestor,
+		WAIT_UNTIL_READY_TO_SEARCH,
+		null);
+	assertEquals("Unexpected types for " + typeName, expected, requestor.toString());
+}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -41,6 +41,9 @@ import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.core.tests.model.SearchTests.WaitingJob;
 import org.eclipse.jdt.core.tests.model.Semaphore.TimeOutException;
 import org.eclipse.jdt.core.tests.util.Util;
+import org.eclipse.jdt.internal.core.JavaModelManager;
+import org.eclipse.jdt.internal.core.search.indexing.IndexManager;
+import org.eclipse.jdt.internal.core.search.indexing.SubtypeGraph;
 
 @SuppressWarnings("rawtypes")
 public class TypeHierarchyTests extends ModifyingResourceTests {
@@ -686,6 +689,75 @@ public void testEfficiencyMultipleProjects() throws CoreException {
 		deleteProjects(new String[] {"P1", "P2", "P3"});
 	}
 }
+/*
+ * Ensures that the subtype graph used to find the possible subtypes is kept in sync with the indexes
+ * when compilation units are added, changed and removed.
+ */
+public void testSubtypeGraphUpdate() throws CoreException {
+	try {
+		createJavaProject("P1", new String[] {""}, new String[] {"JCL_LIB"}, "");
+		createFile("/P1/X.java", "public class X {}");
+		createFile("/P1/Y.java", "public class Y extends X {}");
+		waitUntilIndexesReady();
+		IType type = getCompilationUnit("/P1/X.java").getType("X");
+		assertTypesEqual(
+			"Unexpected subtypes",
+			"Y\n",
+			type.newTypeHierarchy(null).getAllSubtypes(type));
+
+		createFile("/P1/Z.java", "public class Z extends X {}");
+		editFile("/P1/Y.java", "public class Y {}");
+		waitUntilIndexesReady();
+		assertTypesEqual(
+			"Unexpected subtypes after changes",
+			"Z\n",
+			type.newTypeHierarchy(null).getAllSubtypes(type));
+
+		deleteFile("/P1/Z.java");
+		editFile("/P1/Y.java", "public class Y extends X {}");
+		waitUntilIndexesReady();
+		assertTypesEqual(
+			"Unexpected subtypes after removal",
+			"Y\n",
+			type.newTypeHierarchy(null).getAllSubtypes(type));
+	} finally {
+		deleteProject("P1");
+	}
+}
+/*
+ * Ensures that the subtype graph of an index is dropped when the index is removed,
+ * and that the graph is computed again once the index is rebuilt.
+ */
+public void testSubtypeGraphRemoveIndex() throws CoreException {
+	IndexManager indexManager = JavaModelManager.getIndexManager();
+	SubtypeGraph graph = indexManager.getSubtypeGraph();
+	if (graph == null) return; // subtype graph disabled
+	try {
+		createJavaProject("P1", new String[] {""}, new String[] {"JCL_LIB"}, "");
+		createFile("/P1/X.java", "public class X {}");
+		createFile("/P1/Y.java", "public class Y extends X {}");
+		waitUntilIndexesReady();
+		IType type = getCompilationUnit("/P1/X.java").getType("X");
+		assertTypesEqual(
+			"Unexpected subtypes",
+			"Y\n",
+			type.newTypeHierarchy(null).getAllSubtypes(type));
+
+		int count = graph.getIndexCount();
+		indexManager.removeIndex(new Path("/P1"));
+		assertEquals("Unexpected number of graphs after removal", count - 1, graph.getIndexCount());
+
+		indexManager.indexAll(getProject("P1"));
+		waitUntilIndexesReady();
+		assertTypesEqual(
+			"Unexpected subtypes after rebuild",
+			"Y\n",
+			type.newTypeHierarchy(null).getAllSubtypes(type));
+		assertEquals("Unexpected number of graphs after rebuild", count, graph.getIndexCount());
+	} finally {
+		deleteProject("P1");
+	}
+}
 /*
  * Ensures that a hierarchy can be created with a potential subtype in an empty primary working copy
  * (regression test for bug 65677 Creating hierarchy failed. See log for details. 0)
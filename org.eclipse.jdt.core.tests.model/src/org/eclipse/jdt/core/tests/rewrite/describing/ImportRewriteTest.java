@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -15,8 +15,10 @@ package org.eclipse.jdt.core.tests.rewrite.describing;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.ProjectScope;
@@ -35,8 +37,11 @@ import org.eclipse.jdt.core.dom.AST;
 import org.eclipse.jdt.core.dom.ASTParser;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.ImportDeclaration;
 import org.eclipse.jdt.core.dom.Type;
 import org.eclipse.jdt.core.dom.TypeDeclaration;
+import org.eclipse.jdt.core.dom.rewrite.ASTRewrite;
+import org.eclipse.jdt.core.dom.rewrite.BulkRewrite;
 import org.eclipse.jdt.core.dom.rewrite.ImportRewrite;
 import org.eclipse.jdt.core.dom.rewrite.ImportRewrite.ImportRewriteContext;
 import org.eclipse.jdt.core.formatter.DefaultCodeFormatterConstants;
@@ -4973,6 +4978,98 @@ public class ImportRewriteTest extends AbstractJavaModelTests {
 		assertEquals("pack1.X", actualType.toString());
 	}
 
+	public void testBulkRewrite() throws Exception {
+		ICompilationUnit cu1 = createCompilationUnit("pack1", "C1");
+		ICompilationUnit cu2 = createCompilationUnit("pack1", "C2");
+		ICompilationUnit cu3 = createCompilationUnit("pack1", "C3");
+
+		final Map edits = Collections.synchronizedMap(new HashMap());
+		final List ended = Collections.synchronizedList(new ArrayList());
+		// the edits are accepted on worker threads, so the problems are only asserted on the test thread
+		final List problems = Collections.synchronizedList(new ArrayList());
+		BulkRewrite bulkRewrite = new BulkRewrite(2);
+		bulkRewrite.rewrite(new ICompilationUnit[] {cu1, cu2, cu3}, new BulkRewrite.Requestor() {
+			public void rewrite(ICompilationUnit unit, CompilationUnit ast, ASTRewrite astRewrite, ImportRewrite importRewrite) {
+				if (unit.getElementName().equals("C3.java"))
+					return; // no modification
+				importRewrite.setImportOrder(new String[] {"java"});
+				importRewrite.addImport("java.util.List");
+				if (unit.getElementName().equals("C2.java")) {
+					TypeDeclaration type = (TypeDeclaration) ast.types().get(0);
+					astRewrite.replace(type.getName(), ast.getAST().newSimpleName("Renamed"), null);
+				}
+			}
+			public void acceptEdit(ICompilationUnit unit, TextEdit edit) {
+				if (edit.getParent() != null)
+					problems.add("Edit should have no parent: " + edit);
+				MultiTextEdit root = (MultiTextEdit) edits.get(unit);
+				if (root == null)
+					edits.put(unit, root = new MultiTextEdit());
+				root.addChild(edit);
+			}
+			public void endEdits(ICompilationUnit unit) {
+				ended.add(unit);
+			}
+			public void acceptFailure(ICompilationUnit unit, Exception exception) {
+				problems.add("Unexpected failure for " + unit.getElementName() + ": " + exception);
+			}
+		}, null);
+
+		assertEquals("Unexpected problems", "[]", problems.toString());
+		assertEquals("Unexpected number of modified units", 2, ended.size());
+		assertFalse("C3 should not be modified", edits.containsKey(cu3));
+
+		Document document = new Document(cu1.getSource());
+		((TextEdit) edits.get(cu1)).apply(document);
+		StringBuffer expected = new StringBuffer();
+		expected.append("package pack1;\n");
+		expected.append("\n");
+		expected.append("import java.util.List;\n");
+		expected.append("\n");
+		expected.append("public class C1 {}");
+		assertEqualString(document.get(), expected.toString());
+
+		document = new Document(cu2.getSource());
+		((TextEdit) edits.get(cu2)).apply(document);
+		expected = new StringBuffer();
+		expected.append("package pack1;\n");
+		expected.append("\n");
+		expected.append("import java.util.List;\n");
+		expected.append("\n");
+		expected.append("public class Renamed {}");
+		assertEqualString(document.get(), expected.toString());
+	}
+
+	public void testBulkRewriteOverlappingEdits() throws Exception {
+		StringBuffer contents = new StringBuffer();
+		contents.append("package pack1;\n");
+		contents.append("\n");
+		contents.append("import java.util.List;\n");
+		contents.append("\n");
+		contents.append("public class C1 {}");
+		ICompilationUnit cu1 = createCompilationUnit("pack1", "C1", contents.toString());
+
+		final List accepted = Collections.synchronizedList(new ArrayList());
+		final List failures = Collections.synchronizedList(new ArrayList());
+		BulkRewrite bulkRewrite = new BulkRewrite(2);
+		bulkRewrite.rewrite(new ICompilationUnit[] {cu1}, new BulkRewrite.Requestor() {
+			public void rewrite(ICompilationUnit unit, CompilationUnit ast, ASTRewrite astRewrite, ImportRewrite importRewrite) {
+				// the same import is removed by both rewrites
+				importRewrite.removeImport("java.util.List");
+				astRewrite.remove((ImportDeclaration) ast.imports().get(0), null);
+			}
+			public void acceptEdit(ICompilationUnit unit, TextEdit edit) {
+				accepted.add(edit);
+			}
+			public void acceptFailure(ICompilationUnit unit, Exception exception) {
+				failures.add(exception.getClass().getName());
+			}
+		}, null);
+
+		assertEquals("Unexpected failures", "[" + MalformedTreeException.class.getName() + "]", failures.toString());
+		assertEquals("Unexpected edits", "[]", accepted.toString());
+	}
+
 	private ICompilationUnit createCompilationUnit(String packageName, String className) throws JavaModelException {
 		StringBuffer contents = new StringBuffer();
 		contents.append("package " + packageName + ";\n");
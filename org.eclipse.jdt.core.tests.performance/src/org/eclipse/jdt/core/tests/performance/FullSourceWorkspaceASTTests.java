@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,6 +12,8 @@ package org.eclipse.jdt.core.tests.performance;
 
 import java.io.PrintStream;
 import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
@@ -22,7 +24,11 @@ import junit.framework.*;
 import org.eclipse.jdt.core.*;
 import org.eclipse.jdt.core.compiler.IProblem;
 import org.eclipse.jdt.core.dom.*;
+import org.eclipse.jdt.core.dom.rewrite.ASTRewrite;
+import org.eclipse.jdt.core.dom.rewrite.BulkRewrite;
+import org.eclipse.jdt.core.dom.rewrite.ImportRewrite;
 import org.eclipse.jdt.core.tests.model.AbstractJavaModelTests;
+import org.eclipse.text.edits.TextEdit;
 
 /**
  */
@@ -670,10 +676,19 @@ public class FullSourceWorkspaceASTTests extends FullSourceWorkspaceTests {
 	 * Create AST nodes for all compilation unit of a given project
 	 */
 	private void runAstCreation(IJavaProject javaProject) throws JavaModelException {
+		runAstCreation(javaProject, false);
+	}
+
+	/*
+	 * Create AST nodes for all compilation unit of a given project, parsing the method bodies
+	 * on worker threads if requested. The parallel run also reports its speedup over a sequential run.
+	 */
+	private void runAstCreation(IJavaProject javaProject, boolean parallel) throws JavaModelException {
 		if (DEBUG) System.out.println("Creating AST for project" + javaProject.getElementName());
 		ASTParser parser = ASTParser.newParser(JLS3_INTERNAL);
 		parser.setResolveBindings(true);
 		parser.setProject(javaProject);
+		parser.setParsingAhead(parallel);
 
 		Map options= javaProject.getOptions(true);
 		// turn all errors and warnings into ignore. The customizable set of compiler
@@ -721,14 +736,33 @@ public class FullSourceWorkspaceASTTests extends FullSourceWorkspaceTests {
 
 		// Measures
 		int measures = MEASURES_COUNT * 2;
+		long elapsed = 0;
 		for (int i = 0; i < measures; i++) {
 			runGc();
+			long start = System.nanoTime();
 			startMeasuring();
 			parser.createASTs(compilationUnits, new String[0], new ASTRequestor() {/* do nothing*/}, null);
 			stopMeasuring();
+			elapsed += System.nanoTime() - start;
 		}
 		commitMeasurements();
 		assertPerformance();
+
+		if (parallel) {
+			// same runs without parsing ahead, for comparison
+			parser.setParsingAhead(false);
+			long sequentialElapsed = 0;
+			for (int i = 0; i < measures; i++) {
+				runGc();
+				long start = System.nanoTime();
+				parser.createASTs(compilationUnits, new String[0], new ASTRequestor() {/* do nothing*/}, null);
+				sequentialElapsed += System.nanoTime() - start;
+			}
+			NumberFormat format = NumberFormat.getNumberInstance();
+			format.setMaximumFractionDigits(2);
+			System.out.println("\t- parsing ahead: "+(elapsed / measures / 1000000)+"ms, sequential: "+(sequentialElapsed / measures / 1000000)
+				+"ms, speedup: "+format.format((double) sequentialElapsed / elapsed)+" with "+Runtime.getRuntime().availableProcessors()+" processors");
+		}
 	}
 
 	/**
@@ -740,4 +774,149 @@ public class FullSourceWorkspaceASTTests extends FullSourceWorkspaceTests {
 		tagAsSummary("DOM AST tree for project files (JLS3)", true); // put in fingerprint
 		runAstCreation(getProject("org.eclipse.search"));
 	}
+
+	/**
+	 * Create AST nodes tree for all compilation units in JUnit project, parsing the method bodies on worker threads.
+	 * Also reports the speedup over {@link #testDomAstCreationProjectJLS3()}.
+	 *
+	 * @throws JavaModelException
+	 */
+	public void testDomAstCreationProjectParallelJLS3() throws JavaModelException {
+		tagAsSummary("DOM AST tree for project files (JLS3, parsing ahead)", false); // do NOT put in fingerprint
+		runAstCreation(getProject("org.eclipse.search"), true);
+	}
+
+	/*
+	 * Measures the heap retained by the ASTs of all compilation units of a given project,
+	 * created with bindings, the requestor resolving the bindings of the type declarations.
+	 */
+	private void runAstHeap(IJavaProject javaProject, boolean compact) throws JavaModelException {
+		List units = getProjectCompilationUnits(javaProject);
+		ICompilationUnit[] compilationUnits = new ICompilationUnit[units.size()];
+		units.toArray(compilationUnits);
+		final List asts = new ArrayList();
+		final int[] lines = new int[1];
+		ASTRequestor requestor = new ASTRequestor() {
+			public void acceptAST(ICompilationUnit source, CompilationUnit ast) {
+				List types = ast.types();
+				for (int i = 0, size = types.size(); i < size; i++)
+					((AbstractTypeDeclaration) types.get(i)).resolveBinding();
+				lines[0] += ast.getLineNumber(ast.getStartPosition() + ast.getLength() - 1);
+				asts.add(ast);
+			}
+		};
+
+		// Measures
+		long usedHeap = 0;
+		int measures = MEASURES_COUNT;
+		for (int i = 0; i < measures; i++) {
+			asts.clear();
+			lines[0] = 0;
+			runGc();
+			long before = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+			startMeasuring();
+			ASTParser parser = ASTParser.newParser(JLS3_INTERNAL);
+			parser.setResolveBindings(true);
+			parser.setProject(javaProject);
+			parser.setCompactDOM(compact);
+			parser.createASTs(compilationUnits, new String[0], requestor, null);
+			stopMeasuring();
+			runGc();
+			usedHeap += Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory() - before;
+		}
+		commitMeasurements();
+		assertPerformance();
+		if (PRINT) {
+			NumberFormat intFormat = NumberFormat.getIntegerInstance();
+			System.out.println("	- "+asts.size()+" ASTs ("+intFormat.format(lines[0])+" lines) retain "
+				+intFormat.format(usedHeap / measures / Math.max(1, lines[0] / 1000))+" bytes per 1k lines"+(compact ? " (compact)" : ""));
+		}
+	}
+
+	/**
+	 * Heap retained by the DOM/AST trees with bindings of the project files (JLS3).
+	 */
+	public void testDomAstHeapProjectJLS3() throws JavaModelException {
+		tagAsSummary("DOM AST trees heap for project files (JLS3)", false); // do NOT put in fingerprint
+		runAstHeap(getProject("org.eclipse.search"), false);
+	}
+
+	/**
+	 * Heap retained by the compact DOM/AST trees with bindings of the project files (JLS3).
+	 */
+	public void testDomAstHeapProjectCompactJLS3() throws JavaModelException {
+		tagAsSummary("Compact DOM AST trees heap for project files (JLS3)", false); // do NOT put in fingerprint
+		runAstHeap(getProject("org.eclipse.search"), true);
+	}
+
+	/*
+	 * Organizes the imports of all compilation units of a given project with a bulk rewrite:
+	 * the requestor adds an import for every type referenced in the unit, as the organize imports
+	 * action does from the bindings, and the edits are only counted.
+	 */
+	private void runBulkOrganizeImports(IJavaProject javaProject, int threadCount) throws JavaModelException {
+		List units = getProjectCompilationUnits(javaProject);
+		ICompilationUnit[] compilationUnits = new ICompilationUnit[units.size()];
+		units.toArray(compilationUnits);
+		final int[] editCount = new int[1];
+		// the failures are reported on worker threads, so they are only asserted on the test thread
+		final List failures = Collections.synchronizedList(new ArrayList());
+		BulkRewrite.Requestor requestor = new BulkRewrite.Requestor() {
+			public void rewrite(ICompilationUnit unit, CompilationUnit ast, ASTRewrite astRewrite, final ImportRewrite importRewrite) {
+				importRewrite.setImportOrder(new String[] {"java", "javax", "org", "com"});
+				ast.accept(new ASTVisitor() {
+					public boolean visit(SimpleType node) {
+						ITypeBinding binding = node.resolveBinding();
+						if (binding != null && !binding.isRecovered())
+							importRewrite.addImport(binding);
+						return false;
+					}
+				});
+			}
+			public void acceptEdit(ICompilationUnit unit, TextEdit edit) {
+				synchronized (editCount) {
+					editCount[0]++;
+				}
+			}
+			public void acceptFailure(ICompilationUnit unit, Exception exception) {
+				failures.add("Unexpected failure for "+unit.getElementName()+": "+exception);
+			}
+		};
+
+		// warm up
+		new BulkRewrite(threadCount).rewrite(compilationUnits, requestor, null);
+		assertEquals("Unexpected failures", "[]", failures.toString());
+
+		// Measures
+		int measures = MEASURES_COUNT;
+		for (int i = 0; i < measures; i++) {
+			editCount[0] = 0;
+			runGc();
+			startMeasuring();
+			new BulkRewrite(threadCount).rewrite(compilationUnits, requestor, null);
+			stopMeasuring();
+		}
+		commitMeasurements();
+		assertPerformance();
+		assertEquals("Unexpected failures", "[]", failures.toString());
+		if (PRINT) {
+			System.out.println("	- "+compilationUnits.length+" units organized with "+threadCount+" threads, "+editCount[0]+" edits");
+		}
+	}
+
+	/**
+	 * Organize imports of the project files, computing the edits on the calling thread.
+	 */
+	public void testBulkOrganizeImportsProject() throws JavaModelException {
+		tagAsSummary("Organize imports of project files", false); // do NOT put in fingerprint
+		runBulkOrganizeImports(getProject("org.eclipse.search"), 0);
+	}
+
+	/**
+	 * Organize imports of the project files, computing the edits on worker threads.
+	 */
+	public void testBulkOrganizeImportsProjectConcurrent() throws JavaModelException {
+		tagAsSummary("Organize imports of project files (concurrent)", false); // do NOT put in fingerprint
+		runBulkOrganizeImports(getProject("org.eclipse.search"), BulkRewrite.DEFAULT_THREADS);
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -18,6 +18,10 @@ import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Hashtable;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import junit.framework.Test;
 
@@ -66,6 +70,10 @@ public class FullSourceWorkspaceBuildTests extends FullSourceWorkspaceTests {
 	// Tests thresholds
 	private final static int TIME_THRESHOLD = 150;
 
+	// Project chain: each project depends on the previous one
+	private final static int CHAIN_LENGTH = 50;
+	private final static int CHAIN_TYPES = 20;
+
 	// Log files
 	private static PrintStream[] LOG_STREAMS = new PrintStream[DIM_NAMES.length];
 
@@ -359,6 +367,118 @@ public class FullSourceWorkspaceBuildTests extends FullSourceWorkspaceTests {
 		this.scenarioComment.append(warnings);
 	}
 
+	/*
+	 * Write the sources of a chain of projects, each one using the types of the previous one,
+	 * and answer the directory of each project.
+	 */
+	File[] createProjectChain() throws IOException {
+		File root = new File(ResourcesPlugin.getWorkspace().getRoot().getLocation().toFile(), "ProjectChain");
+		File[] projects = new File[CHAIN_LENGTH];
+		for (int i = 0; i < CHAIN_LENGTH; i++) {
+			projects[i] = new File(root, "P" + i);
+			File packageDir = new File(projects[i], "src" + File.separator + "p" + i);
+			packageDir.mkdirs();
+			for (int j = 0; j < CHAIN_TYPES; j++) {
+				StringBuffer source = new StringBuffer();
+				source.append("package p").append(i).append(";\n");
+				source.append("public class T").append(j).append(" {\n");
+				source.append("	public static final int K = ").append(j).append(";\n");
+				source.append("	public java.util.List<String> names = new java.util.ArrayList<String>();\n");
+				for (int k = 0; k < 10; k++) {
+					source.append("	public int m").append(k).append("(");
+					if (i > 0) source.append("p").append(i - 1).append(".T").append(j).append(" t");
+					source.append(") {\n");
+					source.append("		int sum = K;\n");
+					source.append("		for (String name : this.names) {\n");
+					source.append("			if (name.length() > ").append(k).append(") sum += name.hashCode();\n");
+					source.append("			else sum -= name.indexOf('").append((char) ('a' + k)).append("');\n");
+					source.append("		}\n");
+					if (i > 0) source.append("		sum += t.m").append(k).append(i > 1 ? "(null) + p" : "() + p").append(i - 1).append(".T").append(j).append(".K;\n");
+					source.append("		return sum;\n");
+					source.append("	}\n");
+				}
+				source.append("}\n");
+				org.eclipse.jdt.core.tests.util.Util.writeToFile(source.toString(), new File(packageDir, "T" + j + ".java").getPath());
+			}
+		}
+		return projects;
+	}
+
+	/*
+	 * Compile the given chain of projects using batch compiler, either one project after the other
+	 * or compiling the headers of each project first so that its dependent can be compiled while
+	 * its own method bodies are compiled.
+	 */
+	void compileProjectChain(final File[] projects, boolean headers) throws Exception {
+		int length = projects.length;
+		final String[] fullCommandLines = new String[length];
+		String[] headerCommandLines = new String[length];
+		for (int i = 0; i < length; i++) {
+			String classpath = i == 0 ? "" : " -cp \"" + new File(projects[i - 1], headers ? "headers" : "bin") + "\"";
+			String src = " \"" + new File(projects[i], "src") + "\"";
+			fullCommandLines[i] = "-1.5 -nowarn -proc:none" + classpath + " -d \"" + new File(projects[i], "bin") + "\"" + src;
+			headerCommandLines[i] = "-1.5 -nowarn -proc:none -headers" + classpath + " -d \"" + new File(projects[i], "headers") + "\"" + src;
+		}
+
+		// Warm up
+		for (int i = 0; i < WARMUP_COUNT; i++) {
+			compileProjectChain(fullCommandLines, headers ? headerCommandLines : null);
+			deleteProjectChainOutput(projects);
+		}
+
+		// Measures
+		for (int i = 0; i < MEASURES_COUNT; i++) {
+			runGc();
+			startMeasuring();
+			compileProjectChain(fullCommandLines, headers ? headerCommandLines : null);
+			stopMeasuring();
+			deleteProjectChainOutput(projects);
+		}
+
+		// Commit measures
+		commitMeasurements();
+		assertPerformance();
+	}
+
+	private void compileProjectChain(String[] fullCommandLines, String[] headerCommandLines) throws Exception {
+		int length = fullCommandLines.length;
+		if (headerCommandLines == null) {
+			for (int i = 0; i < length; i++)
+				assertTrue("Unexpected errors in P" + i, compileChainedProject(fullCommandLines[i]));
+			return;
+		}
+		// the full compile of a project only waits for the headers of the previous one
+		ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		try {
+			Future[] fullCompiles = new Future[length];
+			for (int i = 0; i < length; i++) {
+				assertTrue("Unexpected errors in the headers of P" + i, compileChainedProject(headerCommandLines[i]));
+				final String commandLine = fullCommandLines[i];
+				fullCompiles[i] = executor.submit(new Callable() {
+					public Object call() {
+						return Boolean.valueOf(compileChainedProject(commandLine));
+					}
+				});
+			}
+			for (int i = 0; i < length; i++)
+				assertTrue("Unexpected errors in P" + i, ((Boolean) fullCompiles[i].get()).booleanValue());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	boolean compileChainedProject(String commandLine) {
+		NullPrintWriter nullPrint = new NullPrintWriter();
+		return new Main(nullPrint, nullPrint, false/*systemExit*/, null/*options*/, null/*progress*/).compile(Main.tokenize(commandLine));
+	}
+
+	private void deleteProjectChainOutput(File[] projects) {
+		for (int i = 0, length = projects.length; i < length; i++) {
+			org.eclipse.jdt.core.tests.util.Util.delete(new File(projects[i], "bin"));
+			org.eclipse.jdt.core.tests.util.Util.delete(new File(projects[i], "headers"));
+		}
+	}
+
 	/*
 	 * Parse several times a file giving its name.
 	 */
@@ -699,6 +819,20 @@ public class FullSourceWorkspaceBuildTests extends FullSourceWorkspaceTests {
 		build(JDT_CORE_PROJECT, warningOptions(1/*all warnings*/), false);
 	}
 
+	/**
+	 * JDT/Core project full build with JavaCore default options and parallel compilation enabled.
+	 *
+	 * @throws CoreException
+	 * @throws IOException
+	 * @since 3.12
+	 */
+	public void testFullBuildProjectParallelCompilation() throws CoreException, IOException {
+		tagAsSummary("Build JDT/Core project (parallel)", false); // do NOT put in fingerprint
+		Hashtable options = warningOptions(0/*default warnings*/);
+		options.put(JavaCore.CORE_JAVA_BUILD_PARALLEL_COMPILATION, JavaCore.ENABLED);
+		build(JDT_CORE_PROJECT, options, false);
+	}
+
 	/**
 	 * Batch compiler build with no warning
 	 *
@@ -722,6 +856,39 @@ public class FullSourceWorkspaceBuildTests extends FullSourceWorkspaceTests {
 		compile(JavaCore.PLUGIN_ID, "-nowarn", null, false/*no log*/, JDT_CORE_SRC_PATHS);
 	}
 
+	/**
+	 * Compile the headers of JDT/Core project, i.e. the class files its dependents are compiled against.
+	 * To be compared with {@link #testCompileJDTCoreProjectNoWarning()}.
+	 *
+	 * @throws IOException
+	 */
+	public void testCompileJDTCoreProjectHeaders() throws IOException, CoreException {
+		tagAsSummary("Compile JDT/Core headers with cmd line", false); // do NOT put in fingerprint
+		compile(JavaCore.PLUGIN_ID, "-nowarn -headers", null, false/*no log*/, JDT_CORE_SRC_PATHS);
+	}
+
+	/**
+	 * Compile a chain of 50 projects using batch compiler, each project after the previous one.
+	 *
+	 * @throws Exception
+	 */
+	public void testCompileProjectChain() throws Exception {
+		tagAsSummary("Compile project chain with cmd line", false); // do NOT put in fingerprint
+		compileProjectChain(createProjectChain(), false/*no headers*/);
+	}
+
+	/**
+	 * Compile a chain of 50 projects using batch compiler, each project against the headers of the previous one,
+	 * so that the full compile of a project runs while its dependents are compiled.
+	 * To be compared with {@link #testCompileProjectChain()}.
+	 *
+	 * @throws Exception
+	 */
+	public void testCompileProjectChainHeaders() throws Exception {
+		tagAsSummary("Compile project chain headers first with cmd line", false); // do NOT put in fingerprint
+		compileProjectChain(createProjectChain(), true/*headers*/);
+	}
+
 	/**
 	 * Compile JDT/Core project with default warnings
 	 *
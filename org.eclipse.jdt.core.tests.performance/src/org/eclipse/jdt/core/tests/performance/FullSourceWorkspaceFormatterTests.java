@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -158,6 +158,82 @@ public void testFormatDefaultBigFile() {
 	assertPerformance();
 }
 
+/**
+ * Returns a compilation unit made of expressions on which searching the best wraps is expensive:
+ * long fluent call chains, big array initializers, deeply nested invocations and long concatenations.
+ */
+static String getPathologicalExpressionsSource() {
+	StringBuffer buffer = new StringBuffer();
+	buffer.append("public class Pathological {\n");
+	// fluent builder chain
+	buffer.append("	Object builder() {\n		return new Builder()");
+	for (int i = 0; i < 400; i++) {
+		buffer.append(".with(\"property").append(i).append("\", value(").append(i).append(", \"text\"))");
+	}
+	buffer.append(".build();\n	}\n");
+	// big array initializer
+	buffer.append("	int[][] table = {");
+	for (int i = 0; i < 100; i++) {
+		buffer.append(" {");
+		for (int j = 0; j < 40; j++) {
+			buffer.append(i * j).append(", ");
+		}
+		buffer.append("},");
+	}
+	buffer.append(" };\n");
+	// deeply nested invocations
+	buffer.append("	Object nested() {\n		return ");
+	for (int i = 0; i < 60; i++) {
+		buffer.append("foo").append(i).append("(argument").append(i).append(", ");
+	}
+	buffer.append("last");
+	for (int i = 0; i < 60; i++) {
+		buffer.append(')');
+	}
+	buffer.append(";\n	}\n");
+	// long concatenation with nested operators
+	buffer.append("	String concatenation() {\n		return \"start\"");
+	for (int i = 0; i < 300; i++) {
+		buffer.append(" + (a").append(i).append(" * b").append(i).append(" - c").append(i).append(") + \"text").append(i).append('"');
+	}
+	buffer.append(";\n	}\n");
+	buffer.append("}\n");
+	return buffer.toString();
+}
+
+/**
+ * Format a corpus of pathological expressions (see {@link #getPathologicalExpressionsSource()})
+ * using code formatter default options.
+ */
+public void testFormatPathologicalExpressions() {
+	tagAsSummary("Format pathological expressions with default options", false); // do NOT put in fingerprint
+
+	// Warm up
+	String source = getPathologicalExpressionsSource();
+	int warmup = WARMUP_COUNT;
+	for (int i=0; i<warmup; i++) {
+		long start = System.currentTimeMillis();
+		new DefaultCodeFormatter().format(CodeFormatter.K_COMPILATION_UNIT, source, 0, source.length(), 0, null);
+		if (i==0) {
+			System.out.println("	Time to format pathological expressions ("+source.length()+" chars) = "+(System.currentTimeMillis()-start)+"ms");
+		}
+	}
+
+	// Measures
+	resetCounters();
+	int measures = MEASURES_COUNT;
+	for (int i=0; i<measures; i++) {
+		runGc();
+		startMeasuring();
+		new DefaultCodeFormatter().format(CodeFormatter.K_COMPILATION_UNIT, source, 0, source.length(), 0, null);
+		stopMeasuring();
+	}
+
+	// Commit
+	commitMeasurements();
+	assertPerformance();
+}
+
 protected void resetCounters() {
 	// do nothing
 }
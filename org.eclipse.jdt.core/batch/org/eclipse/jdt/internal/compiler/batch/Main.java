@@ -44,6 +44,7 @@ import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Field;
+import java.security.MessageDigest;
 import java.text.DateFormat;
 import java.text.MessageFormat;
 import java.util.ArrayList;
@@ -61,6 +62,7 @@ import java.util.Properties;
 import java.util.ResourceBundle;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.TreeMap;
 
 import org.eclipse.jdt.core.compiler.CategorizedProblem;
 import org.eclipse.jdt.core.compiler.CharOperation;
@@ -68,6 +70,7 @@ import org.eclipse.jdt.core.compiler.CompilationProgress;
 import org.eclipse.jdt.core.compiler.IProblem;
 import org.eclipse.jdt.core.compiler.batch.BatchCompiler;
 import org.eclipse.jdt.internal.compiler.AbstractAnnotationProcessorManager;
+import org.eclipse.jdt.internal.compiler.BuildCache;
 import org.eclipse.jdt.internal.compiler.ClassFile;
 import org.eclipse.jdt.internal.compiler.CompilationResult;
 import org.eclipse.jdt.internal.compiler.Compiler;
@@ -1176,6 +1179,16 @@ public class Main implements ProblemSeverities, SuffixConstants {
 					&& (this.main.showProgress || isTimed || this.main.verbose)) {
 				logNumberOfClassFilesGenerated(this.main.exportedClassFilesCounter);
 			}
+			if (this.main.buildCache != null
+					&& (this.main.showProgress || isTimed || this.main.verbose)) {
+				BuildCache cache = this.main.buildCache;
+				printlnOut(this.main.bind("compile.buildCacheStatistics", new String[] { //$NON-NLS-1$
+					String.valueOf(cache.hits),
+					String.valueOf(cache.misses),
+					String.valueOf(cache.stores),
+					String.valueOf(cache.evictions)
+				}));
+			}
 			if ((this.tagBits & Logger.XML) != 0) {
 				endTag(Logger.STATS);
 			}
@@ -1308,6 +1321,11 @@ public class Main implements ProblemSeverities, SuffixConstants {
 	boolean warnAllJavadocOn;
 
 	public Compiler batchCompiler;
+	// directory of the cache of compilation results (see -buildCache), null if the results are not cached
+	public String buildCacheDirectory;
+	public BuildCache buildCache;
+	// generate headers only (see -headers), i.e. class files holding the API of the types but no method code
+	public boolean generateHeadersOnly;
 	/* Bundle containing messages */
 	public ResourceBundle bundle;
 	protected FileSystem.Classpath[] checkedClasspaths;
@@ -1777,6 +1795,7 @@ public void configure(String[] argv) {
 	final int INSIDE_CLASS_NAMES = 20;
 	final int INSIDE_WARNINGS_PROPERTIES = 21;
 	final int INSIDE_ANNOTATIONPATH_start = 22;
+	final int INSIDE_BUILD_CACHE = 23;
 
 	final int DEFAULT = 0;
 	ArrayList bootclasspaths = new ArrayList(DEFAULT_SIZE_CLASSPATH);
@@ -2228,6 +2247,11 @@ public void configure(String[] argv) {
 							CompilerOptions.GENERATE);
 					continue;
 				}
+				if (currentArg.equals("-headers")) { //$NON-NLS-1$
+					mode = DEFAULT;
+					this.generateHeadersOnly = true;
+					continue;
+				}
 				if (currentArg.startsWith("-g")) { //$NON-NLS-1$
 					mode = DEFAULT;
 					String debugOption = currentArg;
@@ -2476,6 +2500,10 @@ public void configure(String[] argv) {
 					mode = INSIDE_ANNOTATIONPATH_start;
 					continue;
 				}
+				if (currentArg.equals("-buildCache")) { //$NON-NLS-1$
+					mode = INSIDE_BUILD_CACHE;
+					continue;
+				}
 				break;
 			case INSIDE_TARGET :
 				if (this.didSpecifyTarget) {
@@ -2689,6 +2717,12 @@ public void configure(String[] argv) {
 						this.annotationPaths.add(tokens.nextToken());
 				}
 				continue;
+			case INSIDE_BUILD_CACHE :
+				mode = DEFAULT;
+				if (currentArg.isEmpty() || currentArg.charAt(0) == '-')
+					throw new IllegalArgumentException(this.bind("configure.missingBuildCache", currentArg)); //$NON-NLS-1$
+				this.buildCacheDirectory = currentArg;
+				continue;
 		}
 
 		// default is input directory, if no custom destination path exists
@@ -4145,6 +4179,11 @@ public void performCompilation() {
 	this.compilerOptions = new CompilerOptions(this.options);
 	this.compilerOptions.performMethodsFullRecovery = false;
 	this.compilerOptions.performStatementsRecovery = false;
+	if (this.generateHeadersOnly) {
+		// method bodies are neither parsed, resolved, analyzed nor generated
+		this.compilerOptions.ignoreMethodBodies = true;
+		this.compilerOptions.generateHeadersOnly = true;
+	}
 	this.batchCompiler =
 		new Compiler(
 			environment,
@@ -4177,7 +4216,12 @@ public void performCompilation() {
 	this.compilerOptions.produceReferenceInfo = this.produceRefInfo;
 	try {
 		this.logger.startLoggingSources();
-		this.batchCompiler.compile(getCompilationUnits());
+		CompilationUnit[] units = getCompilationUnits();
+		String[] cacheKeys = computeCacheKeys(units);
+		if (cacheKeys == null)
+			this.batchCompiler.compile(units);
+		else if (!acceptCachedResults(units, cacheKeys))
+			compileAndStoreResults(units, cacheKeys);
 	} finally {
 		this.logger.endLoggingSources();
 	}
@@ -4194,6 +4238,106 @@ public void performCompilation() {
 	// cleanup
 	environment.cleanup();
 }
+/*
+ * Replay the results of the given units from the build cache if they were all cached together.
+ * Answer whether they were replayed.
+ */
+protected boolean acceptCachedResults(CompilationUnit[] units, String[] cacheKeys) {
+	// all the types the units were compiled with are either in the units or in the libraries
+	BuildCache.Entry[] entries = this.buildCache.lookup(cacheKeys, 0);
+	if (entries == null) return false;
+	int maxProblemsPerUnit = this.compilerOptions.maxProblemsPerUnit;
+	for (int i = 0, length = units.length; i < length; i++)
+		this.batchCompiler.requestor.acceptResult(entries[i].toResult(units[i], i, length, maxProblemsPerUnit));
+	return true;
+}
+/*
+ * Compile the given units, then store their results in the build cache.
+ */
+protected void compileAndStoreResults(CompilationUnit[] units, String[] cacheKeys) {
+	int length = units.length;
+	CompilationUnit[] compiledUnits = new CompilationUnit[length];
+	System.arraycopy(units, 0, compiledUnits, 0, length); // the compiler clears the units it is done with
+	final ICompilerRequestor requestor = this.batchCompiler.requestor;
+	final HashMap<ICompilationUnit, BuildCache.Entry> entries = new HashMap<ICompilationUnit, BuildCache.Entry>(units.length);
+	this.batchCompiler.requestor = new ICompilerRequestor() {
+		public void acceptResult(CompilationResult result) {
+			entries.put(result.compilationUnit, BuildCache.Entry.forResult(result)); // before the class files are released
+			requestor.acceptResult(result);
+		}
+	};
+	try {
+		this.batchCompiler.compile(units);
+	} finally {
+		this.batchCompiler.requestor = requestor;
+	}
+
+	// units found on the source path were compiled too: their sources are part of the libraries
+	if (entries.size() != length) return;
+	BuildCache.Entry[] unitEntries = new BuildCache.Entry[length];
+	long environmentHash = 0;
+	for (int i = 0; i < length; i++) {
+		if ((unitEntries[i] = entries.get(compiledUnits[i])) == null) return;
+		environmentHash += unitEntries[i].typesHash;
+	}
+	this.buildCache.store(cacheKeys, unitEntries, environmentHash);
+}
+/*
+ * Answer the keys of the given units in the build cache, or null if their results are not cached.
+ * The keys cover the compiler options, the contents of the libraries & the contents of the units.
+ */
+protected String[] computeCacheKeys(CompilationUnit[] units) {
+	if (this.buildCacheDirectory == null || this.batchCompiler.annotationProcessorManager != null)
+		return null;
+	MessageDigest setup = BuildCache.newDigest();
+	if (setup == null) return null;
+	BuildCache.update(setup, "batch " + this.bind("compiler.version")); //$NON-NLS-1$ //$NON-NLS-2$
+	BuildCache.update(setup, String.valueOf(this.proceedOnError));
+	BuildCache.update(setup, String.valueOf(this.generateHeadersOnly));
+	Iterator<Map.Entry<String, String>> sortedOptions = new TreeMap<String, String>(this.options).entrySet().iterator();
+	while (sortedOptions.hasNext()) {
+		Map.Entry<String, String> option = sortedOptions.next();
+		BuildCache.update(setup, option.getKey());
+		BuildCache.update(setup, String.valueOf(option.getValue()));
+	}
+	for (int i = 0, length = this.checkedClasspaths.length; i < length; i++) {
+		Classpath classpath = this.checkedClasspaths[i];
+		byte[] fingerprint = BuildCache.fingerprint(new File(classpath.getPath()));
+		if (fingerprint == null) return null;
+		setup.update(fingerprint);
+		AccessRuleSet accessRuleSet = classpath instanceof ClasspathLocation ? ((ClasspathLocation) classpath).accessRuleSet : null;
+		if (accessRuleSet != null) {
+			// the restrictions are reported with the name of the classpath entry
+			BuildCache.update(setup, accessRuleSet.classpathEntryType + accessRuleSet.classpathEntryName);
+			AccessRule[] accessRules = accessRuleSet.getAccessRules();
+			for (int j = 0, rulesLength = accessRules.length; j < rulesLength; j++) {
+				BuildCache.update(setup, accessRules[j].pattern);
+				BuildCache.update(setup, String.valueOf(accessRules[j].problemId));
+			}
+		}
+	}
+	if (this.annotationPaths != null) {
+		for (String annotationPath : this.annotationPaths) {
+			byte[] fingerprint = BuildCache.fingerprint(new File(annotationPath));
+			if (fingerprint == null) return null;
+			setup.update(fingerprint);
+		}
+	}
+	byte[] setupDigest = setup.digest();
+
+	String[] keys = new String[units.length];
+	for (int i = 0, length = units.length; i < length; i++) {
+		MessageDigest digest = BuildCache.newDigest();
+		digest.update(setupDigest);
+		BuildCache.update(digest, units[i].getFileName());
+		BuildCache.update(digest, String.valueOf(units[i].ignoreOptionalProblems()));
+		BuildCache.update(digest, units[i].getContents());
+		keys[i] = BuildCache.toKey(digest);
+	}
+	if (this.buildCache == null)
+		this.buildCache = new BuildCache(new File(this.buildCacheDirectory), BuildCache.DEFAULT_MAX_SIZE);
+	return keys;
+}
 protected void loggingExtraProblems() {
 	this.logger.loggingExtraProblems(this);
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -20,7 +20,9 @@ import java.util.Locale;
 import java.util.Map;
 
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.ProgressMonitorWrapper;
 import org.eclipse.jdt.core.CompletionContext;
 import org.eclipse.jdt.core.CompletionFlags;
 import org.eclipse.jdt.core.CompletionProposal;
@@ -564,6 +566,11 @@ public final class CompletionEngine
 	HashtableOfObject knownPkgs = new HashtableOfObject(10);
 	HashtableOfObject knownTypes = new HashtableOfObject(10);
 	
+	// when the completion has a time budget (see AssistOptions#timeBudget), the phases which search the indexes
+	// or guess missing types are deferred after the other ones, and abandoned once the deadline is reached
+	long deadline;
+	ArrayList deferredPhases;
+	
  	/*
 		static final char[][] mainDeclarations =
 			new char[][] {
@@ -1689,6 +1696,73 @@ public final class CompletionEngine
 		}
 	}
 
+	/*
+	 * A phase of the completion which searches the indexes or guesses missing types.
+	 * When deferred, it runs with the source & token ranges of the node it was created for.
+	 */
+	abstract class DeferredPhase {
+		int phaseStartPosition = CompletionEngine.this.startPosition;
+		int phaseEndPosition = CompletionEngine.this.endPosition;
+		int phaseTokenStart = CompletionEngine.this.tokenStart;
+		int phaseTokenEnd = CompletionEngine.this.tokenEnd;
+
+		abstract void run();
+
+		void runDeferred() {
+			CompletionEngine.this.startPosition = this.phaseStartPosition;
+			CompletionEngine.this.endPosition = this.phaseEndPosition;
+			CompletionEngine.this.tokenStart = this.phaseTokenStart;
+			CompletionEngine.this.tokenEnd = this.phaseTokenEnd;
+			run();
+		}
+	}
+
+	private void runOrDefer(DeferredPhase phase) {
+		if (this.deferredPhases != null) {
+			this.deferredPhases.add(phase);
+		} else {
+			phase.run();
+		}
+	}
+
+	/*
+	 * Runs the deferred phases until the deadline of the completion, then notifies the requestor
+	 * if some of them were abandoned.
+	 */
+	private void runDeferredPhases() {
+		ArrayList phases = this.deferredPhases;
+		if (phases == null) return;
+		this.deferredPhases = null; // the phases run from now on are not deferred
+		final IProgressMonitor clientMonitor = this.monitor;
+		this.monitor = new ProgressMonitorWrapper(clientMonitor == null ? new NullProgressMonitor() : clientMonitor) {
+			public boolean isCanceled() {
+				return super.isCanceled() || System.currentTimeMillis() >= CompletionEngine.this.deadline;
+			}
+		};
+		boolean timedOut = false;
+		try {
+			for (int i = 0, length = phases.size(); i < length; i++) {
+				if (this.monitor.isCanceled()) {
+					timedOut = true;
+					break;
+				}
+				((DeferredPhase) phases.get(i)).runDeferred();
+			}
+		} catch (OperationCanceledException e) {
+			if (clientMonitor != null && clientMonitor.isCanceled())
+				throw e;
+			timedOut = true;
+		} finally {
+			this.monitor = clientMonitor;
+		}
+		if (timedOut) {
+			if(DEBUG) {
+				System.out.println("COMPLETION - Time budget exceeded"); //$NON-NLS-1$
+			}
+			this.requestor.completionTimedOut();
+		}
+	}
+
 	private boolean complete(
 			ASTNode astNode,
 			ASTNode astNodeParent,
@@ -1809,6 +1883,10 @@ public final class CompletionEngine
 			this.actualCompletionPosition = completionPosition - 1;
 			this.offset = pos;
 			this.typeRoot = root;
+			if (this.options.timeBudget > 0) {
+				this.deadline = System.currentTimeMillis() + this.options.timeBudget;
+				this.deferredPhases = new ArrayList();
+			}
 			
 			this.checkCancel();
 			
@@ -1949,6 +2027,7 @@ public final class CompletionEngine
 									e.qualifiedBinding,
 									e.scope,
 									e.insideTypeAnnotation);
+							runDeferredPhases();
 						}
 					}
 				}
@@ -5203,7 +5282,7 @@ public final class CompletionEngine
 					}
 				}
 			};
-		missingTypesConverter.guess(typeRef, scope, substitutionRequestor);
+		guessMissingTypes(missingTypesConverter, typeRef, scope, substitutionRequestor);
 	}
 		
 	private void findConstructors(
@@ -7399,7 +7478,19 @@ public final class CompletionEngine
 
 				}
 			};
-		missingTypesConverter.guess(typeRef, scope, substitutionRequestor);
+		guessMissingTypes(missingTypesConverter, typeRef, scope, substitutionRequestor);
+	}
+
+	private void guessMissingTypes(
+			final MissingTypesGuesser missingTypesConverter,
+			final TypeReference typeRef,
+			final Scope scope,
+			final MissingTypesGuesser.GuessedTypeRequestor substitutionRequestor) {
+		runOrDefer(new DeferredPhase() {
+			void run() {
+				missingTypesConverter.guess(typeRef, scope, substitutionRequestor);
+			}
+		});
 	}
 
 	private void findFieldsAndMethodsFromStaticImports(
@@ -9417,7 +9508,7 @@ public final class CompletionEngine
 			};
 		SingleTypeReference typeRef = new SingleTypeReference(token, pos);
 		typeRef.resolvedType = new ProblemReferenceBinding(new char[][]{ token }, null, ProblemReasons.NotFound);
-		missingTypesConverter.guess(typeRef, scope, substitutionRequestor);
+		guessMissingTypes(missingTypesConverter, typeRef, scope, substitutionRequestor);
 	}
 
 	private void findMemberTypes(
@@ -9786,7 +9877,7 @@ public final class CompletionEngine
 			};
 		SingleTypeReference typeRef = new SingleTypeReference(typeName, pos);
 		typeRef.resolvedType = new ProblemReferenceBinding(new char[][]{ typeName }, null, ProblemReasons.NotFound);
-		missingTypesConverter.guess(typeRef, scope, substitutionRequestor);
+		guessMissingTypes(missingTypesConverter, typeRef, scope, substitutionRequestor);
 	}
 	
 	private void findMemberTypesFromMissingType(
@@ -9818,7 +9909,7 @@ public final class CompletionEngine
 					}
 				}
 			};
-		missingTypesConverter.guess(typeRef, scope, substitutionRequestor);
+		guessMissingTypes(missingTypesConverter, typeRef, scope, substitutionRequestor);
 	}
 
 	private void findMethodDeclarations(
@@ -10653,15 +10744,7 @@ public final class CompletionEngine
 					this.knownTypes.put(fullyQualifiedTypeName, KNOWN_TYPE_WITH_KNOWN_CONSTRUCTORS);
 				}
 				
-				checkCancel();
-				
-				this.foundConstructorsCount = 0;
-				this.nameEnvironment.findConstructorDeclarations(
-						token,
-						this.options.camelCaseMatch,
-						this,
-						this.monitor);
-				acceptConstructors(scope);
+				findConstructorDeclarations(token, scope);
 			} else if (proposeType) {
 				int l = typesFound.size();
 				for (int i = 0; i < l; i++) {
@@ -10686,17 +10769,7 @@ public final class CompletionEngine
 					searchFor = IJavaSearchConstants.ANNOTATION_TYPE;
 				}
 				
-				checkCancel();
-				
-				this.foundTypesCount = 0;
-				this.nameEnvironment.findTypes(
-						token,
-						proposeAllMemberTypes,
-						this.options.camelCaseMatch,
-						searchFor,
-						this,
-						this.monitor);
-				acceptTypes(scope);
+				findTypeDeclarations(token, proposeAllMemberTypes, searchFor, scope);
 			}
 			if(!isEmptyPrefix && !this.requestor.isIgnored(CompletionProposal.PACKAGE_REF)) {
 				
@@ -10707,6 +10780,46 @@ public final class CompletionEngine
 		}
 	}
 
+	/*
+	 * Proposes the constructors found in the indexes, see #runOrDefer(DeferredPhase).
+	 */
+	private void findConstructorDeclarations(final char[] prefix, final Scope scope) {
+		runOrDefer(new DeferredPhase() {
+			void run() {
+				checkCancel();
+				
+				CompletionEngine.this.foundConstructorsCount = 0;
+				CompletionEngine.this.nameEnvironment.findConstructorDeclarations(
+						prefix,
+						CompletionEngine.this.options.camelCaseMatch,
+						CompletionEngine.this,
+						CompletionEngine.this.monitor);
+				acceptConstructors(scope);
+			}
+		});
+	}
+
+	/*
+	 * Proposes the types found in the indexes, see #runOrDefer(DeferredPhase).
+	 */
+	private void findTypeDeclarations(final char[] prefix, final boolean findMembers, final int searchFor, final Scope scope) {
+		runOrDefer(new DeferredPhase() {
+			void run() {
+				checkCancel();
+				
+				CompletionEngine.this.foundTypesCount = 0;
+				CompletionEngine.this.nameEnvironment.findTypes(
+						prefix,
+						findMembers,
+						CompletionEngine.this.options.camelCaseMatch,
+						searchFor,
+						CompletionEngine.this,
+						CompletionEngine.this.monitor);
+				acceptTypes(scope);
+			}
+		});
+	}
+
 	private void findTypesAndSubpackages(
 		char[] token,
 		PackageBinding packageBinding,
@@ -10847,13 +10960,7 @@ public final class CompletionEngine
 			
 			checkCancel();
 			
-			this.foundConstructorsCount = 0;
-			this.nameEnvironment.findConstructorDeclarations(
-					qualifiedName,
-					this.options.camelCaseMatch,
-					this,
-					this.monitor);
-			acceptConstructors(scope);
+			findConstructorDeclarations(qualifiedName, scope);
 		} if(proposeType) {
 			int searchFor = IJavaSearchConstants.TYPE;
 			if(this.assistNodeIsClass) {
@@ -10868,17 +10975,7 @@ public final class CompletionEngine
 				searchFor = IJavaSearchConstants.ANNOTATION_TYPE;
 			}
 			
-			checkCancel();
-			
-			this.foundTypesCount = 0;
-			this.nameEnvironment.findTypes(
-					qualifiedName,
-					false,
-					this.options.camelCaseMatch,
-					searchFor,
-					this,
-					this.monitor);
-			acceptTypes(scope);
+			findTypeDeclarations(qualifiedName, false, searchFor, scope);
 		}
 		
 		if(!this.requestor.isIgnored(CompletionProposal.PACKAGE_REF)) {
@@ -12894,6 +12991,7 @@ public final class CompletionEngine
 		this.invalidPackageNames = new SimpleSetOfCharArray(1);
 		this.knownPkgs = new HashtableOfObject(10);
 		this.knownTypes = new HashtableOfObject(10);
+		this.deferredPhases = null;
 		if (this.noCacheNameEnvironment != null) {
 			this.noCacheNameEnvironment.cleanup();
 			this.noCacheNameEnvironment = null;
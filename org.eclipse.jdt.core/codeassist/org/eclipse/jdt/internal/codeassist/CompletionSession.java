@@ -0,0 +1,339 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.codeassist;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.eclipse.jdt.core.CompletionContext;
+import org.eclipse.jdt.core.CompletionProposal;
+import org.eclipse.jdt.core.CompletionRequestor;
+import org.eclipse.jdt.core.Signature;
+import org.eclipse.jdt.core.WorkingCopyOwner;
+import org.eclipse.jdt.core.compiler.CharOperation;
+import org.eclipse.jdt.core.compiler.IProblem;
+import org.eclipse.jdt.core.compiler.InvalidInputException;
+import org.eclipse.jdt.internal.codeassist.impl.AssistOptions;
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFileConstants;
+import org.eclipse.jdt.internal.compiler.parser.Scanner;
+import org.eclipse.jdt.internal.compiler.parser.ScannerHelper;
+import org.eclipse.jdt.internal.compiler.parser.TerminalTokens;
+
+/**
+ * The result of the last code completion, kept so that the next completion can be answered without
+ * running the completion engine when the user only typed more characters of the completion token
+ * (e.g. while the completion popup is open).
+ * <p>
+ * The proposals of the previous completion are then filtered with the extended token the same way the
+ * engine would filter them, their positions are shifted by the number of typed characters, and the part
+ * of their relevance which depends on the token (case, exact name, camel case or substring match) is computed
+ * again. This only applies to the proposals of names (types, fields, methods, local variables and keywords),
+ * when the rest of the source, the options and the requestor settings did not change, and as long as
+ * no Java element changed since the previous completion.
+ * </p>
+ * <p>
+ * The recorded proposals reference the completion engine and its name lookup, so the current session is
+ * only softly reachable, and it is forgotten when the working copy it was computed for is discarded.
+ * </p>
+ */
+public class CompletionSession {
+
+	public static boolean ENABLED = !"false".equals(System.getProperty("jdt.core.completionSessions")); //$NON-NLS-1$ //$NON-NLS-2$
+
+	// same as CompletionProposal#FIRST_KIND and CompletionProposal#LAST_KIND
+	private static final int FIRST_KIND = CompletionProposal.ANONYMOUS_CLASS_DECLARATION;
+	private static final int LAST_KIND = CompletionProposal.ANONYMOUS_CLASS_CONSTRUCTOR_INVOCATION;
+
+	private static SoftReference<CompletionSession> current;
+
+	final Object unit;
+	final WorkingCopyOwner owner;
+	final char[] contents;
+	final int position;
+	final Map options;
+	final boolean[] requestorSettings;
+	final String[] favoriteReferences;
+
+	InternalCompletionContext context;
+	ArrayList proposals = new ArrayList();
+	boolean canRefine = true;
+
+	/**
+	 * The requestor given to the completion engine to record the context and the proposals of a completion,
+	 * which are forwarded to the client requestor.
+	 */
+	public class Recorder extends CompletionRequestor {
+		private CompletionRequestor requestor;
+
+		Recorder(CompletionRequestor requestor) {
+			this.requestor = requestor;
+		}
+		public void accept(CompletionProposal proposal) {
+			if (CompletionSession.this.canRefine) {
+				if (getName(proposal) != null)
+					CompletionSession.this.proposals.add(proposal);
+				else
+					CompletionSession.this.canRefine = false;
+			}
+			this.requestor.accept(proposal);
+		}
+		public void acceptContext(CompletionContext completionContext) {
+			if (completionContext instanceof InternalCompletionContext && !completionContext.isExtended())
+				CompletionSession.this.context = (InternalCompletionContext) completionContext;
+			else
+				CompletionSession.this.canRefine = false;
+			this.requestor.acceptContext(completionContext);
+		}
+		public void beginReporting() {
+			this.requestor.beginReporting();
+		}
+		public void completionFailure(IProblem problem) {
+			CompletionSession.this.canRefine = false;
+			this.requestor.completionFailure(problem);
+		}
+		public void completionTimedOut() {
+			CompletionSession.this.canRefine = false; // the proposals are incomplete
+			this.requestor.completionTimedOut();
+		}
+		public void endReporting() {
+			this.requestor.endReporting();
+		}
+		public String[] getFavoriteReferences() {
+			return this.requestor.getFavoriteReferences();
+		}
+		public boolean isAllowingRequiredProposals(int proposalKind, int requiredProposalKind) {
+			return this.requestor.isAllowingRequiredProposals(proposalKind, requiredProposalKind);
+		}
+		public boolean isExtendedContextRequired() {
+			return this.requestor.isExtendedContextRequired();
+		}
+		public boolean isIgnored(int completionProposalKind) {
+			return this.requestor.isIgnored(completionProposalKind);
+		}
+
+		/**
+		 * Makes the recorded completion the current session if its proposals can be refined later,
+		 * otherwise forgets the current session. To be called once the completion engine is done.
+		 */
+		public void done() {
+			CompletionSession session = CompletionSession.this;
+			boolean canRefineSession = session.canRefine && session.context != null && !session.proposals.isEmpty()
+				&& session.context.getTokenKind() == CompletionContext.TOKEN_KIND_NAME
+				&& !session.context.isInJavadoc()
+				&& session.context.getToken() != null && session.context.getToken().length > 0
+				&& session.context.getTokenEnd() == session.position - 1
+				&& session.context.getOffset() == session.position;
+			setCurrent(canRefineSession ? session : null);
+		}
+	}
+
+	private CompletionSession(Object unit, WorkingCopyOwner owner, char[] contents, int position, Map options, CompletionRequestor requestor) {
+		this.unit = unit;
+		this.owner = owner;
+		this.contents = contents;
+		this.position = position;
+		this.options = options;
+		this.requestorSettings = getSettings(requestor);
+		this.favoriteReferences = requestor.getFavoriteReferences();
+	}
+
+	/**
+	 * Answers a requestor recording the completion at the given position of the given contents of the given unit,
+	 * or null if completion sessions are disabled or if the client requires an extended context.
+	 */
+	public static Recorder newRecorder(Object unit, WorkingCopyOwner owner, char[] contents, int position, Map options, CompletionRequestor requestor) {
+		if (!ENABLED || contents == null || requestor.isExtendedContextRequired()) return null;
+		return new CompletionSession(unit, owner, contents, position, options, requestor).new Recorder(requestor);
+	}
+
+	/**
+	 * Reports the proposals of the current session to the given requestor if the given completion only extends
+	 * the token of the current session. Answers whether the proposals were reported, otherwise the completion
+	 * engine must be run.
+	 */
+	public static boolean refine(Object unit, WorkingCopyOwner owner, char[] contents, int position, Map options, CompletionRequestor requestor) {
+		if (!ENABLED || contents == null) return false;
+		CompletionSession session = getCurrent();
+		if (session == null || !session.isExtendedBy(unit, owner, contents, position, options, requestor))
+			return false;
+
+		int shift = position - session.position;
+		char[] oldToken = session.context.getToken();
+		char[] newToken = CharOperation.concat(oldToken, CharOperation.subarray(contents, session.position, position));
+		if (!isIdentifier(newToken)) return false;
+		AssistOptions assistOptions = new AssistOptions(options);
+
+		InternalCompletionContext newContext = new InternalCompletionContext();
+		newContext.setExpectedTypesSignatures(session.context.expectedTypesSignatures);
+		newContext.setExpectedTypesKeys(session.context.expectedTypesKeys);
+		newContext.setJavadoc(session.context.javadoc);
+		newContext.setOffset(position);
+		newContext.setToken(newToken);
+		newContext.setTokenRange(session.context.tokenStart, session.context.tokenEnd + shift);
+		newContext.setTokenKind(session.context.tokenKind);
+		newContext.setTokenLocation(session.context.tokenLocation);
+
+		ArrayList proposals = new ArrayList();
+		for (int i = 0, size = session.proposals.size(); i < size; i++) {
+			InternalCompletionProposal proposal = (InternalCompletionProposal) session.proposals.get(i);
+			char[] name = getName(proposal);
+			if (!matches(newToken, name, proposal.getKind(), assistOptions)) continue;
+			int relevance = proposal.getRelevance()
+				- computeRelevanceForCaseMatching(oldToken, name, assistOptions)
+				+ computeRelevanceForCaseMatching(newToken, name, assistOptions);
+			proposals.add(proposal.copyForExtendedToken(session.position, shift, relevance));
+		}
+		if (proposals.isEmpty()) return false; // let the engine report the failure
+
+		requestor.beginReporting();
+		try {
+			requestor.acceptContext(newContext);
+			for (int i = 0, size = proposals.size(); i < size; i++)
+				requestor.accept((CompletionProposal) proposals.get(i));
+		} finally {
+			requestor.endReporting();
+		}
+		return true;
+	}
+
+	/**
+	 * Forgets the current session, e.g. because a Java element changed.
+	 */
+	public static void reset() {
+		synchronized (CompletionSession.class) {
+			current = null;
+		}
+	}
+
+	/**
+	 * Forgets the current session if it was computed for the given unit, e.g. because its working copy is discarded.
+	 */
+	public static synchronized void forget(Object unit) {
+		CompletionSession session = current == null ? null : current.get();
+		if (session != null && session.unit.equals(unit))
+			current = null;
+	}
+
+	/**
+	 * Answers the current session, or null if there is none or if it was garbage collected.
+	 */
+	public static synchronized CompletionSession getCurrent() {
+		return current == null ? null : current.get();
+	}
+
+	static synchronized void setCurrent(CompletionSession session) {
+		current = session == null ? null : new SoftReference<CompletionSession>(session);
+	}
+
+	private boolean isExtendedBy(Object otherUnit, WorkingCopyOwner otherOwner, char[] otherContents, int otherPosition, Map otherOptions, CompletionRequestor requestor) {
+		if (otherPosition <= this.position) return false;
+		if (!this.unit.equals(otherUnit) || this.owner != otherOwner) return false;
+		int shift = otherPosition - this.position;
+		if (otherContents.length != this.contents.length + shift) return false;
+		// the contents before the position and after the typed characters must be the same
+		for (int i = 0; i < this.position; i++)
+			if (this.contents[i] != otherContents[i]) return false;
+		for (int i = this.position, length = this.contents.length; i < length; i++)
+			if (this.contents[i] != otherContents[i + shift]) return false;
+		for (int i = this.position; i < otherPosition; i++)
+			if (!ScannerHelper.isJavaIdentifierPart(otherContents[i])) return false;
+		return this.options.equals(otherOptions)
+			&& Arrays.equals(this.requestorSettings, getSettings(requestor))
+			&& Arrays.equals(this.favoriteReferences, requestor.getFavoriteReferences());
+	}
+
+	/*
+	 * The settings of the given requestor which change the proposals computed by the completion engine.
+	 */
+	private static boolean[] getSettings(CompletionRequestor requestor) {
+		int kinds = LAST_KIND + 1;
+		boolean[] settings = new boolean[kinds + kinds * kinds];
+		for (int kind = FIRST_KIND; kind < kinds; kind++) {
+			settings[kind] = requestor.isIgnored(kind);
+			for (int requiredKind = FIRST_KIND; requiredKind < kinds; requiredKind++)
+				settings[kinds + kind * kinds + requiredKind] = requestor.isAllowingRequiredProposals(kind, requiredKind);
+		}
+		return settings;
+	}
+
+	/*
+	 * Answers the name the completion engine matches with the token for the given proposal,
+	 * or null if the proposal cannot be refined.
+	 */
+	static char[] getName(CompletionProposal proposal) {
+		if (!(proposal instanceof InternalCompletionProposal)) return null;
+		switch (proposal.getKind()) {
+			case CompletionProposal.TYPE_REF :
+				char[] signature = proposal.getSignature();
+				if (signature == null) return null;
+				return CharOperation.lastSegment(Signature.toCharArray(Signature.getTypeErasure(signature)), '.');
+			case CompletionProposal.FIELD_REF :
+			case CompletionProposal.METHOD_REF :
+			case CompletionProposal.LOCAL_VARIABLE_REF :
+			case CompletionProposal.KEYWORD :
+				return proposal.getName();
+			default :
+				return null;
+		}
+	}
+
+	/*
+	 * Same as CompletionEngine#isFailedMatch(char[], char[]) and CompletionEngine#findKeywords(...).
+	 */
+	static boolean matches(char[] token, char[] name, int kind, AssistOptions options) {
+		if (kind == CompletionProposal.KEYWORD)
+			return token.length <= name.length
+				&& (CharOperation.prefixEquals(token, name, false) || (options.substringMatch && CharOperation.substringMatch(token, name)));
+		return (options.substringMatch && CharOperation.substringMatch(token, name))
+			|| (options.camelCaseMatch && CharOperation.camelCaseMatch(token, name))
+			|| CharOperation.prefixEquals(token, name, false);
+	}
+
+	/*
+	 * Same as CompletionEngine#computeRelevanceForCaseMatching(char[], char[]).
+	 */
+	static int computeRelevanceForCaseMatching(char[] token, char[] proposalName, AssistOptions options) {
+		if (CharOperation.equals(token, proposalName, true)) {
+			return RelevanceConstants.R_EXACT_NAME + RelevanceConstants.R_CASE;
+		} else if (CharOperation.equals(token, proposalName, false)) {
+			return RelevanceConstants.R_EXACT_NAME;
+		} else if (CharOperation.prefixEquals(token, proposalName, false)) {
+			if (CharOperation.prefixEquals(token, proposalName, true))
+				return RelevanceConstants.R_CASE;
+		} else if (options.camelCaseMatch && CharOperation.camelCaseMatch(token, proposalName)) {
+			return RelevanceConstants.R_CAMEL_CASE;
+		} else if (options.substringMatch && CharOperation.substringMatch(token, proposalName)) {
+			return RelevanceConstants.R_SUBSTRING;
+		}
+		return 0;
+	}
+
+	/*
+	 * Answers whether the given token is scanned as an identifier, i.e. whether it is not a keyword
+	 * which the completion parser would handle differently.
+	 */
+	private static boolean isIdentifier(char[] token) {
+		Scanner scanner = new Scanner(false, false, false, ClassFileConstants.JDK1_8, null, null, false);
+		scanner.setSource(token);
+		try {
+			return scanner.getNextToken() == TerminalTokens.TokenNameIdentifier
+				&& scanner.getNextToken() == TerminalTokens.TokenNameEOF;
+		} catch (InvalidInputException e) {
+			return false;
+		}
+	}
+
+	public String toString() {
+		return "CompletionSession at " + this.position + " (" + this.proposals.size() + " proposals)"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2015 IBM Corporation and others.
+ * Copyright (c) 2004, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -458,6 +458,56 @@ public class InternalCompletionProposal extends CompletionProposal {
 		this.completionLocation = completionLocation;
 	}
 
+	/*
+	 * Answers a copy of this proposal for a completion token which was extended by the given number of
+	 * characters at the given position: the positions after this position are shifted accordingly.
+	 * Used to report this proposal again for the extended token (see CompletionSession).
+	 */
+	InternalCompletionProposal copyForExtendedToken(int position, int shift, int newRelevance) {
+		InternalCompletionProposal copy = new InternalCompletionProposal(this.completionKind, this.completionLocation + shift);
+		copy.completionEngine = this.completionEngine;
+		copy.nameLookup = this.nameLookup;
+		copy.declarationPackageName = this.declarationPackageName;
+		copy.declarationTypeName = this.declarationTypeName;
+		copy.packageName = this.packageName;
+		copy.typeName = this.typeName;
+		copy.parameterPackageNames = this.parameterPackageNames;
+		copy.parameterTypeNames = this.parameterTypeNames;
+		copy.originalSignature = this.originalSignature;
+		copy.hasNoParameterNamesFromIndex = this.hasNoParameterNamesFromIndex;
+		copy.updateCompletion = this.updateCompletion;
+		copy.accessibility = this.accessibility;
+		copy.isConstructor = this.isConstructor;
+		copy.tokenStart = this.tokenStart >= position ? this.tokenStart + shift : this.tokenStart;
+		copy.tokenEnd = this.tokenEnd >= position ? this.tokenEnd + shift : this.tokenEnd;
+		copy.completion = this.completion;
+		copy.replaceStart = this.replaceStart >= position ? this.replaceStart + shift : this.replaceStart;
+		copy.replaceEnd = this.replaceEnd >= position ? this.replaceEnd + shift : this.replaceEnd;
+		copy.relevance = newRelevance;
+		copy.declarationSignature = this.declarationSignature;
+		copy.declarationKey = this.declarationKey;
+		copy.name = this.name;
+		copy.binding = this.binding;
+		copy.signature = this.signature;
+		copy.key = this.key;
+		if (this.requiredProposals != null) {
+			int length = this.requiredProposals.length;
+			copy.requiredProposals = new CompletionProposal[length];
+			for (int i = 0; i < length; i++) {
+				InternalCompletionProposal required = (InternalCompletionProposal) this.requiredProposals[i];
+				copy.requiredProposals[i] = required.copyForExtendedToken(position, shift, required.relevance);
+			}
+		}
+		copy.flags = this.flags;
+		copy.additionalFlags = this.additionalFlags;
+		copy.parameterNames = this.parameterNames;
+		copy.parameterNamesComputed = this.parameterNamesComputed;
+		copy.receiverStart = this.receiverStart >= position ? this.receiverStart + shift : this.receiverStart;
+		copy.receiverEnd = this.receiverEnd >= position ? this.receiverEnd + shift : this.receiverEnd;
+		copy.receiverSignature = this.receiverSignature;
+		return copy;
+	}
+
 	/**
 	 * Returns the completion flags relevant in the context, or
 	 * <code>CompletionFlags.Default</code> if none.
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -56,6 +56,8 @@ public class AssistOptions {
 			"org.eclipse.jdt.core.codeComplete.substringMatch"; 	//$NON-NLS-1$
 	public static final String OPTION_SuggestStaticImports =
 		"org.eclipse.jdt.core.codeComplete.suggestStaticImports"; 	//$NON-NLS-1$
+	public static final String OPTION_TimeBudget =
+		"org.eclipse.jdt.core.codeComplete.timeBudget"; 	//$NON-NLS-1$
 
 	public static final String ENABLED = "enabled"; //$NON-NLS-1$
 	public static final String DISABLED = "disabled"; //$NON-NLS-1$
@@ -68,6 +70,7 @@ public class AssistOptions {
 	public boolean camelCaseMatch = true;
 	public boolean substringMatch = true;
 	public boolean suggestStaticImport = true;
+	public long timeBudget = 0; // in milliseconds, 0 if unlimited
 	public char[][] fieldPrefixes = null;
 	public char[][] staticFieldPrefixes = null;
 	public char[][] staticFinalFieldPrefixes = null;
@@ -254,6 +257,16 @@ public class AssistOptions {
 				this.suggestStaticImport = false;
 			}
 		}
+		if ((optionValue = optionsMap.get(OPTION_TimeBudget)) != null) {
+			if (optionValue instanceof String) {
+				try {
+					long budget = Long.parseLong((String) optionValue);
+					if (budget >= 0) this.timeBudget = budget;
+				} catch (NumberFormatException e) {
+					// ignore ill-formatted budget
+				}
+			}
+		}
 	}
 
 	private char[][] splitAndTrimOn(char divider, char[] arrayToSplit) {
@@ -0,0 +1,671 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.compiler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.jdt.core.compiler.CategorizedProblem;
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFileReader;
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFormatException;
+import org.eclipse.jdt.internal.compiler.env.ICompilationUnit;
+import org.eclipse.jdt.internal.compiler.problem.DefaultProblem;
+
+/**
+ * A local store of compilation results, keyed by the contents of the compiled source,
+ * the compiler options &amp; the fingerprints of the libraries.
+ * <p>
+ * Each entry also remembers the API of all the types the unit was compiled with
+ * (see {@link #typeHash(char[], byte[])}). The units compiled together are looked up together:
+ * their entries are only answered if they were all compiled against the very same types,
+ * since the API of a unit being compiled is not known before it is compiled.
+ * </p><p>
+ * Entries are files in a single directory. Their total size is bounded: the least recently
+ * used entries are deleted once the bound is exceeded.
+ * </p>
+ */
+public class BuildCache {
+
+	public static final long DEFAULT_MAX_SIZE = 256L * 1024 * 1024;
+
+	static final int VERSION = 1; // of the entries
+	static final String ALGORITHM = "SHA-1"; //$NON-NLS-1$
+	static final String ENTRY_EXTENSION = ".entry"; //$NON-NLS-1$
+
+	private File directory;
+	private long maxSize;
+	private long size = -1; // total size of the entries, unknown until the first store
+
+	// statistics
+	public int hits;
+	public int misses;
+	public int stores;
+	public int evictions;
+
+	// keyed by the path of a library, value is {Long length, Long last modified, byte[] digest}
+	private static Map<String, Object[]> LibraryFingerprints = new HashMap<String, Object[]>();
+
+/**
+ * The result of the compilation of a unit, as stored in the cache.
+ */
+public static class Entry {
+	public long environmentHash; // sum of the hashes of all the types the unit was compiled with, including its own
+	public long typesHash; // sum of the hashes of the types of the unit
+
+	char[][] classFileNames;
+	byte[][] classFileContents;
+	char[][] enclosingClassFileNames; // outer most enclosing class file of each class file, null for top level types
+	CategorizedProblem[] problems;
+	CategorizedProblem[] tasks;
+	char[][][] qualifiedReferences;
+	char[][] simpleNameReferences;
+	char[][] rootReferences;
+	char[][] memberReferences;
+	char[][][] allMembersReferences;
+	boolean hasInconsistentToplevelHierarchies;
+	boolean hasAnnotations;
+	boolean checkSecondaryTypes;
+
+	Entry() {
+		// filled by forResult() or read()
+	}
+
+	/**
+	 * Answers the entry for the given result, or null if it cannot be stored.
+	 * Must be called before the class files of the result are released.
+	 */
+	public static Entry forResult(CompilationResult result) {
+		CategorizedProblem[] problems = storedProblems(result.problems, result.problemCount);
+		CategorizedProblem[] tasks = storedProblems(result.tasks, result.taskCount);
+		if (problems == null || tasks == null) return null;
+
+		Entry entry = new Entry();
+		ClassFile[] classFiles = result.getClassFiles();
+		int length = classFiles.length;
+		entry.classFileNames = new char[length][];
+		entry.classFileContents = new byte[length][];
+		entry.enclosingClassFileNames = new char[length][];
+		for (int i = 0; i < length; i++) {
+			ClassFile classFile = classFiles[i];
+			char[] fileName = classFile.fileName();
+			byte[] contents = classFile.getBytes();
+			byte[] structure;
+			try {
+				structure = structuralDigest(new ClassFileReader(contents, fileName));
+			} catch (ClassFormatException e) {
+				return null;
+			}
+			if (structure == null) return null;
+			entry.typesHash += typeHash(fileName, structure);
+			entry.classFileNames[i] = fileName;
+			entry.classFileContents[i] = contents;
+			if (classFile.isNestedType)
+				entry.enclosingClassFileNames[i] = classFile.outerMostEnclosingClassFile().fileName();
+		}
+		entry.problems = problems;
+		entry.tasks = tasks;
+		entry.qualifiedReferences = result.qualifiedReferences;
+		entry.simpleNameReferences = result.simpleNameReferences;
+		entry.rootReferences = result.rootReferences;
+		entry.memberReferences = result.memberReferences;
+		entry.allMembersReferences = result.allMembersReferences;
+		entry.hasInconsistentToplevelHierarchies = result.hasInconsistentToplevelHierarchies;
+		entry.hasAnnotations = result.hasAnnotations;
+		entry.checkSecondaryTypes = result.checkSecondaryTypes;
+		return entry;
+	}
+
+	/*
+	 * Answers a copy of the given problems, or null if one of them cannot be stored.
+	 */
+	private static CategorizedProblem[] storedProblems(CategorizedProblem[] problems, int count) {
+		CategorizedProblem[] stored = new CategorizedProblem[count];
+		for (int i = 0; i < count; i++) {
+			CategorizedProblem problem = problems[i];
+			// problems reported by participants may carry extra information
+			if (problem.getClass() != DefaultProblem.class || problem.getExtraMarkerAttributeNames().length > 0)
+				return null;
+			stored[i] = problem;
+		}
+		return stored;
+	}
+
+	/**
+	 * Answers the result of the compilation of the given unit as if it had just been compiled.
+	 */
+	@SuppressWarnings("unchecked")
+	public CompilationResult toResult(ICompilationUnit unit, int unitIndex, int totalUnitsKnown, int maxProblemPerUnit) {
+		CompilationResult result = new CompilationResult(unit, unitIndex, totalUnitsKnown, maxProblemPerUnit);
+		char[] fileName = unit.getFileName();
+		for (int i = 0, l = this.problems.length; i < l; i++)
+			result.record(copy(this.problems[i], fileName), null);
+		for (int i = 0, l = this.tasks.length; i < l; i++)
+			result.record(copy(this.tasks[i], fileName), null);
+
+		HashMap<String, ClassFile> classFiles = new HashMap<String, ClassFile>();
+		for (int i = 0, l = this.classFileNames.length; i < l; i++)
+			classFiles.put(new String(this.classFileNames[i]), new CachedClassFile(this.classFileNames[i], this.classFileContents[i]));
+		for (int i = 0, l = this.classFileNames.length; i < l; i++) {
+			ClassFile classFile = classFiles.get(new String(this.classFileNames[i]));
+			if (this.enclosingClassFileNames[i] != null) {
+				classFile.isNestedType = true;
+				classFile.enclosingClassFile = classFiles.get(new String(this.enclosingClassFileNames[i]));
+			}
+			result.compiledTypes.put(this.classFileNames[i], classFile);
+		}
+		result.qualifiedReferences = this.qualifiedReferences;
+		result.simpleNameReferences = this.simpleNameReferences;
+		result.rootReferences = this.rootReferences;
+		result.memberReferences = this.memberReferences;
+		result.allMembersReferences = this.allMembersReferences;
+		result.hasInconsistentToplevelHierarchies = this.hasInconsistentToplevelHierarchies;
+		result.hasAnnotations = this.hasAnnotations;
+		result.checkSecondaryTypes = this.checkSecondaryTypes;
+		return result;
+	}
+
+	private static CategorizedProblem copy(CategorizedProblem problem, char[] fileName) {
+		DefaultProblem copy = new DefaultProblem(
+			fileName,
+			problem.getMessage(),
+			problem.getID(),
+			problem.getArguments(),
+			((DefaultProblem) problem).getSeverity(),
+			problem.getSourceStart(),
+			problem.getSourceEnd(),
+			problem.getSourceLineNumber(),
+			((DefaultProblem) problem).column);
+		return copy;
+	}
+
+	static Entry read(DataInputStream in) throws IOException {
+		if (in.readInt() != VERSION) return null;
+		Entry entry = new Entry();
+		entry.environmentHash = in.readLong();
+		entry.typesHash = in.readLong();
+		int length = in.readInt();
+		entry.classFileNames = new char[length][];
+		entry.classFileContents = new byte[length][];
+		entry.enclosingClassFileNames = new char[length][];
+		for (int i = 0; i < length; i++) {
+			entry.classFileNames[i] = readName(in);
+			entry.classFileContents[i] = new byte[in.readInt()];
+			in.readFully(entry.classFileContents[i]);
+			if (in.readBoolean())
+				entry.enclosingClassFileNames[i] = readName(in);
+		}
+		entry.problems = readProblems(in);
+		entry.tasks = readProblems(in);
+		entry.qualifiedReferences = readQualifiedNames(in);
+		entry.simpleNameReferences = readNames(in);
+		entry.rootReferences = readNames(in);
+		entry.memberReferences = readNames(in);
+		entry.allMembersReferences = readQualifiedNames(in);
+		entry.hasInconsistentToplevelHierarchies = in.readBoolean();
+		entry.hasAnnotations = in.readBoolean();
+		entry.checkSecondaryTypes = in.readBoolean();
+		return entry;
+	}
+
+	void write(DataOutputStream out) throws IOException {
+		out.writeInt(VERSION);
+		out.writeLong(this.environmentHash);
+		out.writeLong(this.typesHash);
+		int length = this.classFileNames.length;
+		out.writeInt(length);
+		for (int i = 0; i < length; i++) {
+			writeName(this.classFileNames[i], out);
+			out.writeInt(this.classFileContents[i].length);
+			out.write(this.classFileContents[i]);
+			out.writeBoolean(this.enclosingClassFileNames[i] != null);
+			if (this.enclosingClassFileNames[i] != null)
+				writeName(this.enclosingClassFileNames[i], out);
+		}
+		writeProblems(this.problems, out);
+		writeProblems(this.tasks, out);
+		writeQualifiedNames(this.qualifiedReferences, out);
+		writeNames(this.simpleNameReferences, out);
+		writeNames(this.rootReferences, out);
+		writeNames(this.memberReferences, out);
+		writeQualifiedNames(this.allMembersReferences, out);
+		out.writeBoolean(this.hasInconsistentToplevelHierarchies);
+		out.writeBoolean(this.hasAnnotations);
+		out.writeBoolean(this.checkSecondaryTypes);
+	}
+}
+
+/*
+ * A class file read back from the cache.
+ */
+static class CachedClassFile extends ClassFile {
+	private char[] fileName;
+
+	CachedClassFile(char[] fileName, byte[] contents) {
+		this.fileName = fileName;
+		this.header = contents;
+		this.headerOffset = contents.length;
+		this.contents = new byte[0];
+		this.contentsOffset = 0;
+	}
+
+	public char[] fileName() {
+		return this.fileName;
+	}
+}
+
+public BuildCache(File directory, long maxSize) {
+	this.directory = directory;
+	this.maxSize = maxSize;
+}
+
+/**
+ * Answers a new message digest to compute keys, or null if none is available.
+ */
+public static MessageDigest newDigest() {
+	try {
+		return MessageDigest.getInstance(ALGORITHM);
+	} catch (NoSuchAlgorithmException e) {
+		return null;
+	}
+}
+
+public static void update(MessageDigest digest, String string) {
+	try {
+		digest.update(string.getBytes("UTF-8")); //$NON-NLS-1$
+	} catch (UnsupportedEncodingException e) {
+		digest.update(string.getBytes());
+	}
+	digest.update((byte) 0);
+}
+
+public static void update(MessageDigest digest, char[] chars) {
+	update(digest, new String(chars));
+}
+
+/**
+ * Answers the key of a unit given the digest of the compiler setup, updated with the unit contents.
+ */
+public static String toKey(MessageDigest digest) {
+	byte[] bytes = digest.digest();
+	char[] key = new char[bytes.length * 2];
+	for (int i = 0, l = bytes.length; i < l; i++) {
+		key[i * 2] = Character.forDigit((bytes[i] >> 4) & 0xF, 16);
+		key[i * 2 + 1] = Character.forDigit(bytes[i] & 0xF, 16);
+	}
+	return new String(key);
+}
+
+/**
+ * Answers the digest of the structure of the given class file (see {@link ClassFileReader#getStructuralKey()}),
+ * or null if it cannot be computed.
+ */
+public static byte[] structuralDigest(ClassFileReader reader) {
+	MessageDigest digest = newDigest();
+	if (digest == null) return null;
+	try {
+		return digest.digest(new String(reader.getStructuralKey()).getBytes("UTF-8")); //$NON-NLS-1$
+	} catch (UnsupportedEncodingException e) {
+		return null;
+	}
+}
+
+/**
+ * Answers the hash of a type given the name of its class file (i.e. "p1/p2/A$M") and the digest of its structure.
+ * The hashes of several types are summed so that types can be added &amp; removed in any order.
+ */
+public static long typeHash(char[] qualifiedFileName, byte[] structuralDigest) {
+	MessageDigest digest = newDigest();
+	if (digest == null) return 0;
+	update(digest, qualifiedFileName);
+	byte[] bytes = digest.digest(structuralDigest);
+	long hash = 0;
+	for (int i = 0; i < 8; i++)
+		hash = (hash << 8) | (bytes[i] & 0xFF);
+	return hash;
+}
+
+/**
+ * Answers the digest of the contents of the given library, or null if it cannot be read.
+ * The digest of a jar file is remembered until the file changes.
+ */
+public static byte[] fingerprint(File library) {
+	if (library.isDirectory()) {
+		MessageDigest digest = newDigest();
+		if (digest == null) return null;
+		try {
+			fingerprintDirectory(library, "", digest); //$NON-NLS-1$
+		} catch (IOException e) {
+			return null;
+		}
+		return digest.digest();
+	}
+
+	String path = library.getAbsolutePath();
+	long length = library.length();
+	long lastModified = library.lastModified();
+	synchronized (LibraryFingerprints) {
+		Object[] known = LibraryFingerprints.get(path);
+		if (known != null && ((Long) known[0]).longValue() == length && ((Long) known[1]).longValue() == lastModified)
+			return (byte[]) known[2];
+	}
+	MessageDigest digest = newDigest();
+	if (digest == null) return null;
+	try {
+		updateWithContents(library, digest);
+	} catch (IOException e) {
+		return null;
+	}
+	byte[] result = digest.digest();
+	synchronized (LibraryFingerprints) {
+		LibraryFingerprints.put(path, new Object[] {Long.valueOf(length), Long.valueOf(lastModified), result});
+	}
+	return result;
+}
+
+private static void fingerprintDirectory(File directory, String relativePath, MessageDigest digest) throws IOException {
+	String[] names = directory.list();
+	if (names == null) return;
+	Arrays.sort(names);
+	for (int i = 0, l = names.length; i < l; i++) {
+		File file = new File(directory, names[i]);
+		String name = relativePath + names[i];
+		if (file.isDirectory()) {
+			fingerprintDirectory(file, name + '/', digest);
+		} else {
+			update(digest, name);
+			updateWithContents(file, digest);
+		}
+	}
+}
+
+private static void updateWithContents(File file, MessageDigest digest) throws IOException {
+	InputStream input = new FileInputStream(file);
+	try {
+		byte[] buffer = new byte[8192];
+		int read;
+		while ((read = input.read(buffer)) != -1)
+			digest.update(buffer, 0, read);
+	} finally {
+		input.close();
+	}
+}
+
+/**
+ * Answers the entries of the units compiled together, if they were all compiled with the same types:
+ * the types of these units and the given types of the other units, which are not compiled.
+ * Answers null if one entry is missing or if they were compiled with different types.
+ */
+public synchronized Entry[] lookup(String[] keys, long otherTypesHash) {
+	int length = keys.length;
+	Entry[] entries = new Entry[length];
+	long environmentHash = otherTypesHash;
+	for (int i = 0; i < length; i++) {
+		Entry entry = readEntry(keys[i]);
+		if (entry == null) {
+			this.misses += length;
+			return null;
+		}
+		entries[i] = entry;
+		environmentHash += entry.typesHash;
+	}
+	for (int i = 0; i < length; i++) {
+		if (entries[i].environmentHash != environmentHash) {
+			this.misses += length;
+			return null;
+		}
+	}
+	long now = System.currentTimeMillis();
+	for (int i = 0; i < length; i++)
+		entryFile(keys[i]).setLastModified(now); // most recently used
+	this.hits += length;
+	return entries;
+}
+
+/**
+ * Stores the entries of the units compiled together, now that all the types they were compiled with are known.
+ * A null entry is skipped.
+ */
+public synchronized void store(String[] keys, Entry[] entries, long environmentHash) {
+	if (!this.directory.exists() && !this.directory.mkdirs()) return;
+	if (this.size < 0)
+		this.size = computeSize();
+
+	for (int i = 0, l = keys.length; i < l; i++) {
+		Entry entry = entries[i];
+		if (entry == null) continue;
+		entry.environmentHash = environmentHash;
+		File file = entryFile(keys[i]);
+		long previousLength = file.length();
+		File tempFile = null;
+		try {
+			// write a temporary file first, so that concurrent builds never read a partial entry
+			tempFile = File.createTempFile(keys[i], null, this.directory);
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+			try {
+				entry.write(out);
+			} finally {
+				out.close();
+			}
+			if (file.exists() && !file.delete() || !tempFile.renameTo(file))
+				continue;
+			tempFile = null;
+			this.size += file.length() - previousLength;
+			this.stores++;
+		} catch (IOException e) {
+			// skip this entry
+		} finally {
+			if (tempFile != null)
+				tempFile.delete();
+		}
+	}
+	if (this.size > this.maxSize)
+		evict();
+}
+
+private long computeSize() {
+	File[] files = listEntryFiles();
+	long total = 0;
+	if (files != null)
+		for (int i = 0, l = files.length; i < l; i++)
+			total += files[i].length();
+	return total;
+}
+
+/*
+ * Answers the entry files of the cache directory, leaving out the temporary files of entries being stored
+ * & any other file, or null if the directory cannot be read.
+ */
+private File[] listEntryFiles() {
+	return this.directory.listFiles(new FileFilter() {
+		public boolean accept(File file) {
+			return file.getName().endsWith(ENTRY_EXTENSION) && file.isFile();
+		}
+	});
+}
+
+/*
+ * Deletes the least recently used entries until the cache is a quarter below its maximum size.
+ */
+private void evict() {
+	File[] files = listEntryFiles();
+	if (files == null) return;
+	final long[] lastModified = new long[files.length];
+	Integer[] order = new Integer[files.length];
+	for (int i = 0, l = files.length; i < l; i++) {
+		lastModified[i] = files[i].lastModified();
+		order[i] = Integer.valueOf(i);
+	}
+	Arrays.sort(order, new Comparator<Integer>() {
+		public int compare(Integer i1, Integer i2) {
+			long m1 = lastModified[i1.intValue()];
+			long m2 = lastModified[i2.intValue()];
+			return m1 < m2 ? -1 : m1 == m2 ? 0 : 1;
+		}
+	});
+	this.size = computeSize();
+	long target = this.maxSize - this.maxSize / 4;
+	for (int i = 0, l = order.length; i < l && this.size > target; i++) {
+		File file = files[order[i].intValue()];
+		long length = file.length();
+		if (file.delete()) {
+			this.size -= length;
+			this.evictions++;
+		}
+	}
+}
+
+private File entryFile(String key) {
+	return new File(this.directory, key + ENTRY_EXTENSION);
+}
+
+private Entry readEntry(String key) {
+	File file = entryFile(key);
+	if (!file.exists()) return null;
+	try {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			return Entry.read(in);
+		} finally {
+			in.close();
+		}
+	} catch (IOException e) {
+		return null; // deleted or being replaced
+	}
+}
+
+/**
+ * Answers the percentage of the looked up units that were found in the cache.
+ */
+public int getHitRate() {
+	int lookups = this.hits + this.misses;
+	return lookups == 0 ? 0 : this.hits * 100 / lookups;
+}
+
+static char[] readName(DataInputStream in) throws IOException {
+	int length = in.readInt();
+	if (length < 0) return null;
+	char[] name = new char[length];
+	for (int i = 0; i < length; i++)
+		name[i] = in.readChar();
+	return name;
+}
+
+static char[][] readNames(DataInputStream in) throws IOException {
+	int length = in.readInt();
+	if (length < 0) return null;
+	char[][] names = new char[length][];
+	for (int i = 0; i < length; i++)
+		names[i] = readName(in);
+	return names;
+}
+
+static char[][][] readQualifiedNames(DataInputStream in) throws IOException {
+	int length = in.readInt();
+	if (length < 0) return null;
+	char[][][] names = new char[length][][];
+	for (int i = 0; i < length; i++)
+		names[i] = readNames(in);
+	return names;
+}
+
+static CategorizedProblem[] readProblems(DataInputStream in) throws IOException {
+	CategorizedProblem[] problems = new CategorizedProblem[in.readInt()];
+	for (int i = 0, l = problems.length; i < l; i++) {
+		String message = readString(in);
+		int id = in.readInt();
+		int length = in.readInt();
+		String[] arguments = length < 0 ? null : new String[length];
+		for (int j = 0; j < length; j++)
+			arguments[j] = readString(in);
+		problems[i] = new DefaultProblem(null, message, id, arguments, in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt());
+	}
+	return problems;
+}
+
+static String readString(DataInputStream in) throws IOException {
+	char[] chars = readName(in);
+	return chars == null ? null : new String(chars);
+}
+
+static void writeString(String string, DataOutputStream out) throws IOException {
+	writeName(string == null ? null : string.toCharArray(), out);
+}
+
+static void writeName(char[] name, DataOutputStream out) throws IOException {
+	if (name == null) {
+		out.writeInt(-1);
+		return;
+	}
+	out.writeInt(name.length);
+	for (int i = 0, l = name.length; i < l; i++)
+		out.writeChar(name[i]);
+}
+
+static void writeNames(char[][] names, DataOutputStream out) throws IOException {
+	if (names == null) {
+		out.writeInt(-1);
+		return;
+	}
+	out.writeInt(names.length);
+	for (int i = 0, l = names.length; i < l; i++)
+		writeName(names[i], out);
+}
+
+static void writeQualifiedNames(char[][][] names, DataOutputStream out) throws IOException {
+	if (names == null) {
+		out.writeInt(-1);
+		return;
+	}
+	out.writeInt(names.length);
+	for (int i = 0, l = names.length; i < l; i++)
+		writeNames(names[i], out);
+}
+
+static void writeProblems(CategorizedProblem[] problems, DataOutputStream out) throws IOException {
+	out.writeInt(problems.length);
+	for (int i = 0, l = problems.length; i < l; i++) {
+		DefaultProblem problem = (DefaultProblem) problems[i];
+		writeString(problem.getMessage(), out);
+		out.writeInt(problem.getID());
+		String[] arguments = problem.getArguments();
+		int length = arguments == null ? -1 : arguments.length;
+		out.writeInt(length);
+		for (int j = 0; j < length; j++)
+			writeString(arguments[j], out);
+		out.writeInt(problem.getSeverity());
+		out.writeInt(problem.getSourceStart());
+		out.writeInt(problem.getSourceEnd());
+		out.writeInt(problem.getSourceLineNumber());
+		out.writeInt(problem.column);
+	}
+}
+
+public String toString() {
+	return "Build cache " + this.directory //$NON-NLS-1$
+		+ ": " + this.hits + " hits, " + this.misses + " misses (" + getHitRate() + "% hit rate), " //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		+ this.stores + " stored, " + this.evictions + " evicted"; //$NON-NLS-1$ //$NON-NLS-2$
+}
+}
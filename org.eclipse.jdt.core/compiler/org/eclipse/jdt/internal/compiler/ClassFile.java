@@ -865,6 +865,33 @@ public class ClassFile implements TypeConstants, TypeIds {
 		addProblemMethod(method, methodBinding, problems);
 	}
 
+	/**
+	 * INTERNAL USE-ONLY
+	 * Generate the byte for the special method infos of a header (see CompilerOptions#generateHeadersOnly), without any code.
+	 * They are:
+	 * - default abstract methods
+	 * - enum values() and valueOf(String) methods.
+	 * Other synthetic methods are implementation details that no client can reference.
+	 */
+	public void addSpecialMethodHeaders() {
+		MethodBinding[] defaultAbstractMethods = this.referenceBinding.getDefaultAbstractMethods();
+		for (int i = 0, max = defaultAbstractMethods.length; i < max; i++) {
+			addAbstractMethod(null, defaultAbstractMethods[i]);
+		}
+		SyntheticMethodBinding[] syntheticMethods = this.referenceBinding.syntheticMethods();
+		if (syntheticMethods != null) {
+			for (int i = 0, max = syntheticMethods.length; i < max; i++) {
+				SyntheticMethodBinding syntheticMethod = syntheticMethods[i];
+				switch (syntheticMethod.purpose) {
+					case SyntheticMethodBinding.EnumValues :
+					case SyntheticMethodBinding.EnumValueOf :
+						addAbstractMethod(null, syntheticMethod);
+						break;
+				}
+			}
+		}
+	}
+
 	/**
 	 * INTERNAL USE-ONLY
 	 * Generate the byte for all the special method infos.
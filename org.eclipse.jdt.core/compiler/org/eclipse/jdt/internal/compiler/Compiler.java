@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -54,6 +54,8 @@ public class Compiler implements ITypeRequestor, ProblemSeverities {
 	public int annotationProcessorStartIndex = 0;
 	public ReferenceBinding[] referenceBindings;
 	public boolean useSingleThread = true; // by default the compiler will not use worker threads to read/process/write
+	public int parsingThreads = 0; // number of worker threads parsing units ahead of building their bindings and processing them, 0 for none
+	private ParseTaskManager parsingTask;
 
 	// number of initial units parsed at once (-1: none)
 
@@ -531,6 +533,7 @@ public class Compiler implements ITypeRequestor, ProblemSeverities {
 		CompilationUnitDeclaration unit = null;
 		ProcessTaskManager processingTask = null;
 		try {
+			startParsingAhead(startingIndex);
 			if (this.useSingleThread) {
 				// process all units (some more could be injected in the loop by the lookup environment)
 				for (int i = startingIndex; i < this.totalUnits; i++) {
@@ -626,12 +629,51 @@ public class Compiler implements ITypeRequestor, ProblemSeverities {
 				processingTask.shutdown();
 				processingTask = null;
 			}
+			stopParsingAhead();
 			reset();
 			this.annotationProcessorStartIndex  = 0;
 			this.stats.endTime = System.currentTimeMillis();
 		}
 	}
 
+	/**
+	 * Starts the worker threads parsing the method bodies of the units to process from the given index,
+	 * if this compiler uses parsing threads (see {@link #parsingThreads}).
+	 */
+	protected void startParsingAhead(int startingIndex) {
+		if (this.parsingThreads > 0 && this.annotationProcessorManager == null && startingIndex < this.totalUnits - 1)
+			this.parsingTask = new ParseTaskManager(this, startingIndex, this.parsingThreads);
+	}
+
+	/**
+	 * Starts the worker threads parsing the first <code>unitCount</code> given source units ahead of the
+	 * creation of their type bindings, if this compiler uses parsing threads (see {@link #parsingThreads}).
+	 * Answers <code>null</code> if the units must be parsed by the parser of this compiler.
+	 */
+	protected DietParseTaskManager startDietParsing(ICompilationUnit[] sourceUnits, int unitCount, int maxUnits) {
+		if (this.parsingThreads > 0 && this.annotationProcessorManager == null && unitCount > 1)
+			return new DietParseTaskManager(this, sourceUnits, unitCount, maxUnits, Math.min(this.parsingThreads, unitCount));
+		return null;
+	}
+
+	/**
+	 * Stops the worker threads parsing method bodies ahead, once they are done with the units being parsed.
+	 */
+	protected void stopParsingAhead() {
+		if (this.parsingTask != null) {
+			this.parsingTask.shutdown();
+			this.parsingTask = null;
+		}
+	}
+
+	/**
+	 * Answers a new parser for a worker thread parsing method bodies ahead, which must parse them
+	 * the same way as the parser of this compiler.
+	 */
+	protected Parser newMethodBodyParser(ProblemReporter reporter) {
+		return new Parser(reporter, this.options.parseLiteralExpressionsAsConstants);
+	}
+
 	public synchronized CompilationUnitDeclaration getUnitToProcess(int next) {
 		if (next < this.totalUnits) {
 			CompilationUnitDeclaration unit = this.unitsToProcess[next];
@@ -643,6 +685,13 @@ public class Compiler implements ITypeRequestor, ProblemSeverities {
 		return null;
 	}
 
+	/*
+	 * Answers the unit at the given index without releasing it, null if it was already taken by the processing thread.
+	 */
+	synchronized CompilationUnitDeclaration peekUnitToProcess(int index) {
+		return index < this.totalUnits ? this.unitsToProcess[index] : null;
+	}
+
 	/*
 	 * Returns whether the compilation unit at the given index should be
 	 * cleaned up after processing. This basically means whether or not
@@ -789,51 +838,63 @@ public class Compiler implements ITypeRequestor, ProblemSeverities {
 	 *  ->  build compilation unit declarations, their bindings and record their results.
 	 */
 	protected void internalBeginToCompile(ICompilationUnit[] sourceUnits, int maxUnits) {
-		if (!this.useSingleThread && maxUnits >= ReadManager.THRESHOLD)
+		DietParseTaskManager dietParseTask = startDietParsing(sourceUnits, maxUnits, maxUnits);
+		if (dietParseTask == null && !this.useSingleThread && maxUnits >= ReadManager.THRESHOLD)
 			this.parser.readManager = new ReadManager(sourceUnits, maxUnits);
 
 		// Switch the current policy and compilation result for this unit to the requested one.
-		for (int i = 0; i < maxUnits; i++) {
-			CompilationResult unitResult = null;
-			try {
-				if (this.options.verbose) {
-					this.out.println(
-						Messages.bind(Messages.compilation_request,
-						new String[] {
-							String.valueOf(i + 1),
-							String.valueOf(maxUnits),
-							new String(sourceUnits[i].getFileName())
-						}));
-				}
-				// diet parsing for large collection of units
-				CompilationUnitDeclaration parsedUnit;
-				unitResult = new CompilationResult(sourceUnits[i], i, maxUnits, this.options.maxProblemsPerUnit);
-				long parseStart = System.currentTimeMillis();
-				if (this.totalUnits < this.parseThreshold) {
-					parsedUnit = this.parser.parse(sourceUnits[i], unitResult);
-				} else {
-					parsedUnit = this.parser.dietParse(sourceUnits[i], unitResult);
-				}
-				long resolveStart = System.currentTimeMillis();
-				this.stats.parseTime += resolveStart - parseStart;
-				// initial type binding creation
-				this.lookupEnvironment.buildTypeBindings(parsedUnit, null /*no access restriction*/);
-				this.stats.resolveTime += System.currentTimeMillis() - resolveStart;
-				addCompilationUnit(sourceUnits[i], parsedUnit);
-				ImportReference currentPackage = parsedUnit.currentPackage;
-				if (currentPackage != null) {
-					unitResult.recordPackageName(currentPackage.tokens);
+		try {
+			for (int i = 0; i < maxUnits; i++) {
+				CompilationResult unitResult = null;
+				try {
+					if (this.options.verbose) {
+						this.out.println(
+							Messages.bind(Messages.compilation_request,
+							new String[] {
+								String.valueOf(i + 1),
+								String.valueOf(maxUnits),
+								new String(sourceUnits[i].getFileName())
+							}));
+					}
+					// diet parsing for large collection of units
+					CompilationUnitDeclaration parsedUnit;
+					long parseStart = System.currentTimeMillis();
+					if (dietParseTask != null) {
+						// parsed ahead by a worker thread
+						unitResult = dietParseTask.getCompilationResult(i);
+						parsedUnit = dietParseTask.getParsedUnit(i);
+					} else {
+						unitResult = new CompilationResult(sourceUnits[i], i, maxUnits, this.options.maxProblemsPerUnit);
+						if (this.totalUnits < this.parseThreshold) {
+							parsedUnit = this.parser.parse(sourceUnits[i], unitResult);
+						} else {
+							parsedUnit = this.parser.dietParse(sourceUnits[i], unitResult);
+						}
+					}
+					long resolveStart = System.currentTimeMillis();
+					this.stats.parseTime += resolveStart - parseStart;
+					// initial type binding creation
+					this.lookupEnvironment.buildTypeBindings(parsedUnit, null /*no access restriction*/);
+					this.stats.resolveTime += System.currentTimeMillis() - resolveStart;
+					addCompilationUnit(sourceUnits[i], parsedUnit);
+					ImportReference currentPackage = parsedUnit.currentPackage;
+					if (currentPackage != null) {
+						unitResult.recordPackageName(currentPackage.tokens);
+					}
+					//} catch (AbortCompilationUnit e) {
+					//	requestor.acceptResult(unitResult.tagAsAccepted());
+				} catch (AbortCompilation a) {
+					// best effort to find a way for reporting this problem:
+					if (a.compilationResult == null)
+						a.compilationResult = unitResult;
+					throw a;
+				} finally {
+					sourceUnits[i] = null; // no longer hold onto the unit
 				}
-				//} catch (AbortCompilationUnit e) {
-				//	requestor.acceptResult(unitResult.tagAsAccepted());
-			} catch (AbortCompilation a) {
-				// best effort to find a way for reporting this problem:
-				if (a.compilationResult == null)
-					a.compilationResult = unitResult;
-				throw a;
-			} finally {
-				sourceUnits[i] = null; // no longer hold onto the unit
 			}
+		} finally {
+			if (dietParseTask != null)
+				dietParseTask.shutdown();
 		}
 		if (this.parser.readManager != null) {
 			this.parser.readManager.shutdown();
@@ -850,6 +911,8 @@ public class Compiler implements ITypeRequestor, ProblemSeverities {
 		this.lookupEnvironment.unitBeingCompleted = unit;
 		long parseStart = System.currentTimeMillis();
 
+		if (this.parsingTask != null)
+			this.parsingTask.waitFor(unit, i); // the method bodies may be parsed ahead by a worker thread
 		this.parser.getMethodBodies(unit);
 
 		long resolveStart = System.currentTimeMillis();
@@ -875,7 +938,7 @@ public class Compiler implements ITypeRequestor, ProblemSeverities {
 		long generateStart = System.currentTimeMillis();
 		this.stats.analyzeTime += generateStart - analyzeStart;
 	
-		if (!this.options.ignoreMethodBodies) unit.generateCode(); // code generation
+		if (!this.options.ignoreMethodBodies || this.options.generateHeadersOnly) unit.generateCode(); // code generation (or headers only)
 		
 		// reference info
 		if (this.options.produceReferenceInfo && unit.scope != null)
@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.jdt.internal.compiler;
+
+import org.eclipse.jdt.internal.compiler.ast.CompilationUnitDeclaration;
+import org.eclipse.jdt.internal.compiler.env.ICompilationUnit;
+import org.eclipse.jdt.internal.compiler.parser.Parser;
+import org.eclipse.jdt.internal.compiler.problem.ProblemReporter;
+
+/**
+ * Parses the initial units of a compilation using several worker threads, so that the compiler
+ * finds them already parsed when it builds their type bindings (see <code>Compiler#beginToCompile</code>).
+ * <p>
+ * The units are diet parsed, except the ones before the parse threshold of the compiler which are
+ * fully parsed, as the compiler would do. Like for {@link ParseTaskManager}, each worker uses its
+ * own parser &amp; problem reporter. The parsed units are handed over in order: the compiler waits
+ * for a unit that is still being parsed.
+ * </p>
+ */
+public class DietParseTaskManager implements Runnable {
+
+	Compiler compiler;
+	private ICompilationUnit[] sourceUnits;
+	private CompilationResult[] results;
+	private CompilationUnitDeclaration[] parsedUnits;
+	private Throwable[] caughtExceptions; // problem caught while parsing a unit, rethrown when the unit is taken
+	private boolean[] isParsed;
+	private int unitCount;
+	private Thread[] parsingThreads;
+	private int nextUnitToParse;
+	private int inProgress;
+
+/**
+ * Starts parsing the first <code>unitCount</code> given source units, the compilation result of
+ * each unit being created for a compilation of <code>maxUnits</code> units.
+ */
+public DietParseTaskManager(Compiler compiler, ICompilationUnit[] sourceUnits, int unitCount, int maxUnits, int threadCount) {
+	this.compiler = compiler;
+	this.sourceUnits = sourceUnits;
+	this.unitCount = unitCount;
+	this.results = new CompilationResult[unitCount];
+	for (int i = 0; i < unitCount; i++)
+		this.results[i] = new CompilationResult(sourceUnits[i], i, maxUnits, compiler.options.maxProblemsPerUnit);
+	this.parsedUnits = new CompilationUnitDeclaration[unitCount];
+	this.caughtExceptions = new Throwable[unitCount];
+	this.isParsed = new boolean[unitCount];
+
+	synchronized (this) {
+		this.parsingThreads = new Thread[threadCount];
+		for (int i = threadCount; --i >= 0;) {
+			this.parsingThreads[i] = new Thread(this, "Compiler Diet Parser"); //$NON-NLS-1$
+			this.parsingThreads[i].setDaemon(true);
+			this.parsingThreads[i].start();
+		}
+	}
+}
+
+/**
+ * Answers the compilation result of the unit at the given index.
+ */
+public CompilationResult getCompilationResult(int index) {
+	return this.results[index];
+}
+
+/**
+ * Called by the compiler to take the unit at the given index: waits until a parsing thread is done
+ * with the unit, then rethrows the problem caught while parsing it if any.
+ */
+public CompilationUnitDeclaration getParsedUnit(int index) throws Error {
+	synchronized (this) {
+		while (!this.isParsed[index]) {
+			try {
+				wait(100);
+			} catch (InterruptedException ignore) {
+				// ignore
+			}
+		}
+		CompilationUnitDeclaration unit = this.parsedUnits[index];
+		Throwable exception = this.caughtExceptions[index];
+		// no longer hold onto the unit
+		this.parsedUnits[index] = null;
+		this.caughtExceptions[index] = null;
+		this.results[index] = null;
+		if (exception != null) {
+			// rethrow the caught exception from the parsing thread in the compiler thread
+			if (exception instanceof Error)
+				throw (Error) exception;
+			throw (RuntimeException) exception;
+		}
+		return unit;
+	}
+}
+
+public void run() {
+	ProblemReporter problemReporter = this.compiler.problemReporter;
+	Parser parser = this.compiler.newMethodBodyParser(
+		new ProblemReporter(problemReporter.policy, this.compiler.options, problemReporter.problemFactory));
+	while (true) {
+		int index;
+		synchronized (this) {
+			if (this.parsingThreads == null || this.nextUnitToParse >= this.unitCount) return;
+			index = this.nextUnitToParse++;
+			this.inProgress++;
+		}
+		CompilationUnitDeclaration unit = null;
+		Throwable exception = null;
+		try {
+			if (index < this.compiler.parseThreshold) {
+				unit = parser.parse(this.sourceUnits[index], this.results[index]);
+			} else {
+				unit = parser.dietParse(this.sourceUnits[index], this.results[index]);
+			}
+		} catch (Error e) {
+			exception = e;
+		} catch (RuntimeException e) {
+			exception = e;
+		} finally {
+			synchronized (this) {
+				this.parsedUnits[index] = unit;
+				this.caughtExceptions[index] = exception;
+				this.isParsed[index] = true;
+				this.inProgress--;
+				notifyAll();
+			}
+		}
+	}
+}
+
+/**
+ * Stops the parsing threads. Waits until the units being parsed are done, so that the source units
+ * are no longer accessed once this method returns.
+ */
+public void shutdown() {
+	Thread[] threads;
+	synchronized (this) {
+		threads = this.parsingThreads;
+		this.parsingThreads = null;
+		while (this.inProgress > 0) {
+			try {
+				wait(100);
+			} catch (InterruptedException ignore) {
+				// ignore
+			}
+		}
+	}
+	if (threads == null) return;
+	try {
+		for (int i = threads.length; --i >= 0;)
+			threads[i].join(250); // do not wait forever
+	} catch (InterruptedException ignored) {
+		// ignore
+	}
+}
+}
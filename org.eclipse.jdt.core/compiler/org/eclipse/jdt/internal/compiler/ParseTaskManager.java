@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.jdt.internal.compiler;
+
+import org.eclipse.jdt.internal.compiler.ast.ASTNode;
+import org.eclipse.jdt.internal.compiler.ast.CompilationUnitDeclaration;
+import org.eclipse.jdt.internal.compiler.parser.Parser;
+import org.eclipse.jdt.internal.compiler.problem.ProblemReporter;
+
+/**
+ * Parses the method bodies of the units waiting to be processed using several worker threads,
+ * so that the processing thread (resolve, analyze &amp; generate) finds them already parsed.
+ * <p>
+ * Each worker uses its own parser &amp; problem reporter, and only looks at a bounded number of
+ * units ahead of the unit being processed to limit the memory held by the parsed method bodies.
+ * </p>
+ */
+public class ParseTaskManager implements Runnable {
+
+	Compiler compiler;
+	private Thread[] parsingThreads;
+	private CompilationUnitDeclaration[] unitsInProgress; // one slot per parsing thread
+	private int nextSlot;
+	private int nextUnitToParse;
+	private int processedIndex; // units before this index have been taken by the processing thread
+	private int lookAhead;
+
+	// problem caught while parsing a unit ahead, rethrown when the unit is processed
+	private CompilationUnitDeclaration failedUnit;
+	private Throwable caughtException;
+
+	static final int LOOK_AHEAD_PER_THREAD = 4;
+
+public ParseTaskManager(Compiler compiler, int startingIndex, int threadCount) {
+	this.compiler = compiler;
+	this.nextUnitToParse = startingIndex + 1; // the processing thread is about to take the first unit
+	this.processedIndex = startingIndex;
+	this.lookAhead = threadCount * LOOK_AHEAD_PER_THREAD;
+
+	synchronized (this) {
+		this.unitsInProgress = new CompilationUnitDeclaration[threadCount];
+		this.parsingThreads = new Thread[threadCount];
+		for (int i = threadCount; --i >= 0;) {
+			this.parsingThreads[i] = new Thread(this, "Compiler Method Body Parser"); //$NON-NLS-1$
+			this.parsingThreads[i].setDaemon(true);
+			this.parsingThreads[i].start();
+		}
+	}
+}
+
+/**
+ * Called by the processing thread before it parses the method bodies of the given unit:
+ * waits until a parsing thread is done with the unit if it is being parsed.
+ */
+public void waitFor(CompilationUnitDeclaration unit, int index) throws Error {
+	synchronized (this) {
+		if (index + 1 > this.processedIndex) {
+			this.processedIndex = index + 1;
+			notifyAll(); // the parsing threads can look further ahead
+		}
+		while (isInProgress(unit)) {
+			try {
+				wait(100);
+			} catch (InterruptedException ignore) {
+				// ignore
+			}
+		}
+		if (unit == this.failedUnit) {
+			// rethrow the caught exception from the parsing thread in the processing thread
+			Throwable exception = this.caughtException;
+			this.failedUnit = null;
+			this.caughtException = null;
+			if (exception instanceof Error)
+				throw (Error) exception;
+			throw (RuntimeException) exception;
+		}
+	}
+}
+
+private boolean isInProgress(CompilationUnitDeclaration unit) {
+	for (int i = this.unitsInProgress.length; --i >= 0;)
+		if (this.unitsInProgress[i] == unit) return true;
+	return false;
+}
+
+private boolean isInProgress() {
+	for (int i = this.unitsInProgress.length; --i >= 0;)
+		if (this.unitsInProgress[i] != null) return true;
+	return false;
+}
+
+public void run() {
+	int slot;
+	synchronized (this) {
+		slot = this.nextSlot++;
+	}
+	ProblemReporter problemReporter = this.compiler.problemReporter;
+	Parser parser = this.compiler.newMethodBodyParser(
+		new ProblemReporter(problemReporter.policy, this.compiler.options, problemReporter.problemFactory));
+	while (true) {
+		CompilationUnitDeclaration unit;
+		synchronized (this) {
+			while (true) {
+				if (this.parsingThreads == null || this.caughtException != null) return;
+				if (this.nextUnitToParse < this.processedIndex)
+					this.nextUnitToParse = this.processedIndex; // skip the units already taken by the processing thread
+				if (this.nextUnitToParse < this.processedIndex + this.lookAhead) {
+					unit = this.compiler.peekUnitToProcess(this.nextUnitToParse);
+					if (unit != null) {
+						this.nextUnitToParse++;
+						if (unit.ignoreMethodBodies || (unit.bits & ASTNode.HasAllMethodBodies) != 0
+								|| unit.compilationResult.hasBeenAccepted) {
+							continue; // nothing to parse
+						}
+						this.unitsInProgress[slot] = unit;
+						break;
+					}
+				}
+				try {
+					wait(100); // wait for the processing thread to move on or for more units to be added
+				} catch (InterruptedException ignore) {
+					// ignore
+				}
+			}
+		}
+		try {
+			parser.getMethodBodies(unit);
+		} catch (Error e) {
+			synchronized (this) {
+				this.failedUnit = unit;
+				this.caughtException = e;
+			}
+		} catch (RuntimeException e) {
+			synchronized (this) {
+				this.failedUnit = unit;
+				this.caughtException = e;
+			}
+		} finally {
+			synchronized (this) {
+				this.unitsInProgress[slot] = null;
+				notifyAll();
+			}
+		}
+	}
+}
+
+/**
+ * Stops the parsing threads. Waits until the units being parsed are done, so that the caller
+ * can clean up the units which were not processed.
+ */
+public void shutdown() {
+	Thread[] threads;
+	synchronized (this) {
+		threads = this.parsingThreads;
+		this.parsingThreads = null;
+		notifyAll();
+		while (isInProgress()) {
+			try {
+				wait(100);
+			} catch (InterruptedException ignore) {
+				// ignore
+			}
+		}
+	}
+	if (threads == null) return;
+	try {
+		for (int i = threads.length; --i >= 0;)
+			threads[i].join(250); // do not wait forever
+	} catch (InterruptedException ignored) {
+		// ignore
+	}
+}
+}
@@ -313,6 +313,16 @@ public abstract class AbstractMethodDeclaration
 		}
 	}
 
+	/**
+	 * Header generation for a method: its method info without any code (see CompilerOptions#generateHeadersOnly)
+	 * @param classFile
+	 */
+	public void generateHeader(ClassFile classFile) {
+		if (this.binding == null)
+			return; // handle methods with invalid signature or duplicates
+		classFile.addAbstractMethod(this, this.binding);
+	}
+
 	public void generateCode(ClassFile classFile) {
 
 		classFile.generateMethodInfoHeader(this.binding);
@@ -36,6 +36,11 @@ public class AnnotationMethodDeclaration extends MethodDeclaration {
 		classFile.completeMethodInfo(this.binding, methodAttributeOffset, attributeNumber);
 	}
 
+	public void generateHeader(ClassFile classFile) {
+		if (this.binding != null)
+			generateCode(classFile); // no code anyway, but keep the default value
+	}
+
 	public boolean isAnnotationMethod() {
 
 		return true;
@@ -349,6 +349,10 @@ public class Clinit extends AbstractMethodDeclaration {
 		}
 	}
 
+	public void generateHeader(ClassFile classFile) {
+		// no static initializer in a header
+	}
+
 	public boolean isClinit() {
 
 		return true;
@@ -563,13 +563,22 @@ public void generateCode(ClassFile enclosingClassFile) {
 		}
 		// generate all methods
 		classFile.setForMethodInfos();
+		boolean headersOnly = this.scope.compilerOptions().generateHeadersOnly;
 		if (this.methods != null) {
 			for (int i = 0, max = this.methods.length; i < max; i++) {
-				this.methods[i].generateCode(this.scope, classFile);
+				if (headersOnly) {
+					this.methods[i].generateHeader(classFile);
+				} else {
+					this.methods[i].generateCode(this.scope, classFile);
+				}
 			}
 		}
 		// generate all synthetic and abstract methods
-		classFile.addSpecialMethods();
+		if (headersOnly) {
+			classFile.addSpecialMethodHeaders();
+		} else {
+			classFile.addSpecialMethods();
+		}
 
 		if (this.ignoreFurtherInvestigation) { // trigger problem type generation for code gen errors
 			throw new AbortType(this.scope.referenceCompilationUnit().compilationResult, null);
@@ -33,8 +33,8 @@ import org.eclipse.jdt.internal.compiler.impl.Constant;
 import org.eclipse.jdt.internal.compiler.lookup.LookupEnvironment;
 import org.eclipse.jdt.internal.compiler.lookup.TagBits;
 import org.eclipse.jdt.internal.compiler.lookup.TypeConstants;
-import org.eclipse.jdt.internal.compiler.lookup.TypeIds;
 import org.eclipse.jdt.internal.compiler.lookup.BinaryTypeBinding.ExternalAnnotationStatus;
+import org.eclipse.jdt.internal.compiler.util.SimpleSetOfCharArray;
 import org.eclipse.jdt.internal.compiler.util.Util;
 
 public class ClassFileReader extends ClassFileStruct implements IBinaryType {
@@ -966,59 +966,9 @@ public boolean hasStructuralChanges(byte[] newBytes, boolean orderRequired, bool
 	try {
 		ClassFileReader newClassFile =
 			new ClassFileReader(newBytes, this.classFileName);
-		// type level comparison
-		// modifiers
-		if (getModifiers() != newClassFile.getModifiers())
+		if (hasStructuralTypeChanges(newClassFile))
 			return true;
 
-		// only consider a portion of the tagbits which indicate a structural change for dependents
-		// e.g. @Override change has no influence outside
-		long OnlyStructuralTagBits = TagBits.AnnotationTargetMASK // different @Target status ?
-			| TagBits.AnnotationDeprecated // different @Deprecated status ?
-			| TagBits.AnnotationRetentionMASK // different @Retention status ?
-			| TagBits.HierarchyHasProblems; // different hierarchy status ?
-
-		// meta-annotations
-		if ((getTagBits() & OnlyStructuralTagBits) != (newClassFile.getTagBits() & OnlyStructuralTagBits))
-			return true;
-		// annotations
-		if (hasStructuralAnnotationChanges(getAnnotations(), newClassFile.getAnnotations()))
-			return true;
-		if (this.version >= ClassFileConstants.JDK1_8
-				&& hasStructuralTypeAnnotationChanges(getTypeAnnotations(), newClassFile.getTypeAnnotations()))
-			return true;
-
-		// generic signature
-		if (!CharOperation.equals(getGenericSignature(), newClassFile.getGenericSignature()))
-			return true;
-		// superclass
-		if (!CharOperation.equals(getSuperclassName(), newClassFile.getSuperclassName()))
-			return true;
-		// interfaces
-		char[][] newInterfacesNames = newClassFile.getInterfaceNames();
-		if (this.interfaceNames != newInterfacesNames) { // TypeConstants.NoSuperInterfaces
-			int newInterfacesLength = newInterfacesNames == null ? 0 : newInterfacesNames.length;
-			if (newInterfacesLength != this.interfacesCount)
-				return true;
-			for (int i = 0, max = this.interfacesCount; i < max; i++)
-				if (!CharOperation.equals(this.interfaceNames[i], newInterfacesNames[i]))
-					return true;
-		}
-
-		// member types
-		IBinaryNestedType[] currentMemberTypes = getMemberTypes();
-		IBinaryNestedType[] otherMemberTypes = newClassFile.getMemberTypes();
-		if (currentMemberTypes != otherMemberTypes) { // TypeConstants.NoMemberTypes
-			int currentMemberTypeLength = currentMemberTypes == null ? 0 : currentMemberTypes.length;
-			int otherMemberTypeLength = otherMemberTypes == null ? 0 : otherMemberTypes.length;
-			if (currentMemberTypeLength != otherMemberTypeLength)
-				return true;
-			for (int i = 0; i < currentMemberTypeLength; i++)
-				if (!CharOperation.equals(currentMemberTypes[i].getName(), otherMemberTypes[i].getName())
-					|| currentMemberTypes[i].getModifiers() != otherMemberTypes[i].getModifiers())
-						return true;
-		}
-
 		// fields
 		FieldInfo[] otherFieldInfos = (FieldInfo[]) newClassFile.getFields();
 		int otherFieldInfosLength = otherFieldInfos == null ? 0 : otherFieldInfos.length;
@@ -1079,205 +1029,334 @@ public boolean hasStructuralChanges(byte[] newBytes, boolean orderRequired, bool
 			}
 		}
 
-		// missing types
-		char[][][] missingTypes = getMissingTypeNames();
-		char[][][] newMissingTypes = newClassFile.getMissingTypeNames();
-		if (missingTypes != null) {
-			if (newMissingTypes == null) {
-				return true;
-			}
-			int length = missingTypes.length;
-			if (length != newMissingTypes.length) {
-				return true;
-			}
-			for (int i = 0; i < length; i++) {
-				if (!CharOperation.equals(missingTypes[i], newMissingTypes[i])) {
-					return true;
-				}
-			}
-		} else if (newMissingTypes != null) {
-			return true;
-		}
 		return false;
 	} catch (ClassFormatException e) {
 		return true;
 	}
 }
 
-private boolean hasStructuralAnnotationChanges(IBinaryAnnotation[] currentAnnotations, IBinaryAnnotation[] otherAnnotations) {
-	if (currentAnnotations == otherAnnotations)
-		return false;
+/**
+ * Answers the names of the fields and methods that have structural changes compared to the byte array in argument
+ * (see {@link #hasStructuralChanges(byte[])}), the constructors being named <code>&lt;init&gt;</code>.
+ * The synthetic members are ignored.
+ * Answers an empty array if there is no structural change, or null if the changes are not limited to some fields
+ * and methods: changes of the type itself, or changes that can affect its subtypes regardless of the members they
+ * use (abstract or interface methods, enum constants, annotation type elements).
+ * @param newBytes the bytes of the .class file we want to compare the receiver to
+ * @return char[][] Returns the names of the changed members, or null if the type itself changed
+ */
+public char[][] getStructurallyChangedMemberNames(byte[] newBytes) {
+	try {
+		ClassFileReader newClassFile =
+			new ClassFileReader(newBytes, this.classFileName);
+		if (hasStructuralTypeChanges(newClassFile))
+			return null;
+		boolean isInterface = (getModifiers() & ClassFileConstants.AccInterface) != 0;
+		SimpleSetOfCharArray changedNames = new SimpleSetOfCharArray(3);
 
-	int currentAnnotationsLength = currentAnnotations == null ? 0 : currentAnnotations.length;
-	int otherAnnotationsLength = otherAnnotations == null ? 0 : otherAnnotations.length;
-	if (currentAnnotationsLength != otherAnnotationsLength)
-		return true;
-	for (int i = 0; i < currentAnnotationsLength; i++) {
-		Boolean match = matchAnnotations(currentAnnotations[i], otherAnnotations[i]);
-		if (match != null)
-			return match.booleanValue();
-	}
-	return false;
-}
-private Boolean matchAnnotations(IBinaryAnnotation currentAnnotation, IBinaryAnnotation otherAnnotation) {
-	if (!CharOperation.equals(currentAnnotation.getTypeName(), otherAnnotation.getTypeName()))
-		return true;
-	IBinaryElementValuePair[] currentPairs = currentAnnotation.getElementValuePairs();
-	IBinaryElementValuePair[] otherPairs = otherAnnotation.getElementValuePairs();
-	int currentPairsLength = currentPairs == null ? 0 : currentPairs.length;
-	int otherPairsLength = otherPairs == null ? 0 : otherPairs.length;
-	if (currentPairsLength != otherPairsLength)
-		return Boolean.TRUE;
-	for (int j = 0; j < currentPairsLength; j++) {
-		if (!CharOperation.equals(currentPairs[j].getName(), otherPairs[j].getName()))
-			return Boolean.TRUE;
-		final Object value = currentPairs[j].getValue();
-		final Object value2 = otherPairs[j].getValue();
-		if (value instanceof Object[]) {
-			Object[] currentValues = (Object[]) value;
-			if (value2 instanceof Object[]) {
-				Object[] currentValues2 = (Object[]) value2;
-				final int length = currentValues.length;
-				if (length != currentValues2.length) {
-					return Boolean.TRUE;
+		// fields
+		FieldInfo[] currentFieldInfos = sortedFields(this.fields, this.fieldsCount);
+		FieldInfo[] otherFieldInfos = sortedFields(newClassFile.fields, newClassFile.fieldsCount);
+		int index1 = 0, index2 = 0;
+		int length1 = currentFieldInfos.length, length2 = otherFieldInfos.length;
+		while (index1 < length1 || index2 < length2) {
+			FieldInfo changed;
+			if (index1 == length1) {
+				changed = otherFieldInfos[index2++];
+			} else if (index2 == length2) {
+				changed = currentFieldInfos[index1++];
+			} else {
+				int comparison = currentFieldInfos[index1].compareTo(otherFieldInfos[index2]);
+				if (comparison < 0) {
+					changed = currentFieldInfos[index1++];
+				} else if (comparison > 0) {
+					changed = otherFieldInfos[index2++];
+				} else {
+					changed = currentFieldInfos[index1++];
+					if (!hasStructuralFieldChanges(changed, otherFieldInfos[index2]))
+						changed = null;
+					else if ((otherFieldInfos[index2].getModifiers() & ClassFileConstants.AccEnum) != 0)
+						return null;
+					index2++;
 				}
-				for (int n = 0; n < length; n++) {
-					if (!currentValues[n].equals(currentValues2[n])) {
-						return Boolean.TRUE;
-					}
+			}
+			if (changed != null) {
+				if ((changed.getModifiers() & ClassFileConstants.AccEnum) != 0)
+					return null; // enum constants are also used by switch statements
+				changedNames.add(changed.getName());
+			}
+		}
+
+		// methods
+		MethodInfo[] currentMethodInfos = sortedMethods(this.methods, this.methodsCount);
+		MethodInfo[] otherMethodInfos = sortedMethods(newClassFile.methods, newClassFile.methodsCount);
+		index1 = index2 = 0;
+		length1 = currentMethodInfos.length;
+		length2 = otherMethodInfos.length;
+		while (index1 < length1 || index2 < length2) {
+			MethodInfo changed, other = null;
+			if (index1 == length1) {
+				changed = otherMethodInfos[index2++];
+			} else if (index2 == length2) {
+				changed = currentMethodInfos[index1++];
+			} else {
+				int comparison = currentMethodInfos[index1].compareTo(otherMethodInfos[index2]);
+				if (comparison < 0) {
+					changed = currentMethodInfos[index1++];
+				} else if (comparison > 0) {
+					changed = otherMethodInfos[index2++];
+				} else {
+					changed = currentMethodInfos[index1++];
+					other = otherMethodInfos[index2++];
+					if (!hasStructuralMethodChanges(changed, other))
+						continue;
 				}
-				return Boolean.FALSE;
 			}
-			return Boolean.TRUE;
-		} else if (!value.equals(value2)) {
-			return Boolean.TRUE;
+			if (affectsImplementations(changed, isInterface) || (other != null && affectsImplementations(other, isInterface)))
+				return null;
+			changedNames.add(changed.getSelector());
 		}
+
+		if (changedNames.elementSize == 0)
+			return CharOperation.NO_CHAR_CHAR;
+		char[][] result = new char[changedNames.elementSize][];
+		changedNames.asArray(result);
+		return result;
+	} catch (ClassFormatException e) {
+		return null;
 	}
-	return null;
 }
-private boolean hasStructuralFieldChanges(FieldInfo currentFieldInfo, FieldInfo otherFieldInfo) {
-	// generic signature
-	if (!CharOperation.equals(currentFieldInfo.getGenericSignature(), otherFieldInfo.getGenericSignature()))
-		return true;
-	if (currentFieldInfo.getModifiers() != otherFieldInfo.getModifiers())
-		return true;
-	if ((currentFieldInfo.getTagBits() & TagBits.AnnotationDeprecated) != (otherFieldInfo.getTagBits() & TagBits.AnnotationDeprecated))
-		return true;
-	if (hasStructuralAnnotationChanges(currentFieldInfo.getAnnotations(), otherFieldInfo.getAnnotations()))
-		return true;
-	if (this.version >= ClassFileConstants.JDK1_8
-			&& hasStructuralTypeAnnotationChanges(currentFieldInfo.getTypeAnnotations(), otherFieldInfo.getTypeAnnotations()))
-		return true;
-	if (!CharOperation.equals(currentFieldInfo.getName(), otherFieldInfo.getName()))
-		return true;
-	if (!CharOperation.equals(currentFieldInfo.getTypeName(), otherFieldInfo.getTypeName()))
-		return true;
-	if (currentFieldInfo.hasConstant() != otherFieldInfo.hasConstant())
+
+private boolean affectsImplementations(MethodInfo methodInfo, boolean isInterface) {
+	int modifiers = methodInfo.getModifiers();
+	if ((modifiers & ClassFileConstants.AccAbstract) != 0)
 		return true;
-	if (currentFieldInfo.hasConstant()) {
-		Constant currentConstant = currentFieldInfo.getConstant();
-		Constant otherConstant = otherFieldInfo.getConstant();
-		if (currentConstant.typeID() != otherConstant.typeID())
-			return true;
-		if (!currentConstant.getClass().equals(otherConstant.getClass()))
-			return true;
-		switch (currentConstant.typeID()) {
-			case TypeIds.T_int :
-				return currentConstant.intValue() != otherConstant.intValue();
-			case TypeIds.T_byte :
-				return currentConstant.byteValue() != otherConstant.byteValue();
-			case TypeIds.T_short :
-				return currentConstant.shortValue() != otherConstant.shortValue();
-			case TypeIds.T_char :
-				return currentConstant.charValue() != otherConstant.charValue();
-			case TypeIds.T_long :
-				return currentConstant.longValue() != otherConstant.longValue();
-			case TypeIds.T_float :
-				return currentConstant.floatValue() != otherConstant.floatValue();
-			case TypeIds.T_double :
-				return currentConstant.doubleValue() != otherConstant.doubleValue();
-			case TypeIds.T_boolean :
-				return currentConstant.booleanValue() != otherConstant.booleanValue();
-			case TypeIds.T_JavaLangString :
-				return !currentConstant.stringValue().equals(otherConstant.stringValue());
+	// default methods can conflict with the methods inherited by the implementations
+	return isInterface && (modifiers & ClassFileConstants.AccStatic) == 0;
+}
+
+private FieldInfo[] sortedFields(FieldInfo[] fieldInfos, int count) {
+	int nonSynthetic = 0;
+	FieldInfo[] result = new FieldInfo[count];
+	for (int i = 0; i < count; i++)
+		if (!fieldInfos[i].isSynthetic())
+			result[nonSynthetic++] = fieldInfos[i];
+	if (nonSynthetic != count)
+		System.arraycopy(result, 0, result = new FieldInfo[nonSynthetic], 0, nonSynthetic);
+	Arrays.sort(result);
+	return result;
+}
+
+private MethodInfo[] sortedMethods(MethodInfo[] methodInfos, int count) {
+	int nonSynthetic = 0;
+	MethodInfo[] result = new MethodInfo[count];
+	for (int i = 0; i < count; i++)
+		if (!(methodInfos[i].isSynthetic() || methodInfos[i].isClinit()))
+			result[nonSynthetic++] = methodInfos[i];
+	if (nonSynthetic != count)
+		System.arraycopy(result, 0, result = new MethodInfo[nonSynthetic], 0, nonSynthetic);
+	Arrays.sort(result);
+	return result;
+}
+
+/**
+ * Answers a key describing the structure of this type, i.e. everything compared by {@link #hasStructuralChanges(byte[])}
+ * (the synthetic members being ignored and the members being sorted).
+ * Two class files that have the same structural key have no structural changes, so the key (or a digest of it) can be
+ * remembered instead of the class file contents. The structural comparisons are themselves answered by comparing
+ * the keys of the type and of its members.
+ * @return char[] Returns the structural key of this type
+ */
+public char[] getStructuralKey() {
+	StringBuffer buffer = new StringBuffer(256);
+	appendTypeKey(this, buffer);
+	FieldInfo[] fieldInfos = sortedFields(this.fields, this.fieldsCount);
+	for (int i = 0, length = fieldInfos.length; i < length; i++)
+		appendFieldKey(fieldInfos[i], buffer);
+	MethodInfo[] methodInfos = sortedMethods(this.methods, this.methodsCount);
+	for (int i = 0, length = methodInfos.length; i < length; i++)
+		appendMethodKey(methodInfos[i], buffer);
+	return toCharArray(buffer);
+}
+
+private char[] toCharArray(StringBuffer buffer) {
+	char[] result = new char[buffer.length()];
+	buffer.getChars(0, result.length, result, 0);
+	return result;
+}
+
+/*
+ * Appends the structure of the given type itself (its members excluded), the type annotations being
+ * considered if the receiver is a 1.8 class file.
+ */
+private void appendTypeKey(ClassFileReader reader, StringBuffer buffer) {
+	buffer.append(reader.getModifiers()).append('|');
+	buffer.append(reader.getTagBits() & ONLY_STRUCTURAL_TAG_BITS).append('|');
+	appendAnnotations(reader.getAnnotations(), buffer);
+	if (this.version >= ClassFileConstants.JDK1_8)
+		appendTypeAnnotations(reader.getTypeAnnotations(), buffer);
+	appendName(reader.getGenericSignature(), buffer);
+	appendName(reader.getSuperclassName(), buffer);
+	appendNames(reader.interfacesCount == 0 ? null : reader.interfaceNames, buffer);
+	IBinaryNestedType[] memberTypes = reader.getMemberTypes();
+	if (memberTypes != null) {
+		for (int i = 0, length = memberTypes.length; i < length; i++) {
+			buffer.append(memberTypes[i].getName()).append(':');
+			buffer.append(memberTypes[i].getModifiers()).append(',');
 		}
 	}
-	return false;
+	buffer.append('|');
+	char[][][] missingTypes = reader.getMissingTypeNames();
+	if (missingTypes != null)
+		for (int i = 0, length = missingTypes.length; i < length; i++)
+			appendNames(missingTypes[i], buffer);
+	buffer.append('\n');
 }
 
-private boolean hasStructuralMethodChanges(MethodInfo currentMethodInfo, MethodInfo otherMethodInfo) {
-	// generic signature
-	if (!CharOperation.equals(currentMethodInfo.getGenericSignature(), otherMethodInfo.getGenericSignature()))
-		return true;
-	if (currentMethodInfo.getModifiers() != otherMethodInfo.getModifiers())
-		return true;
-	if ((currentMethodInfo.getTagBits() & TagBits.AnnotationDeprecated) != (otherMethodInfo.getTagBits() & TagBits.AnnotationDeprecated))
-		return true;
-	if (hasStructuralAnnotationChanges(currentMethodInfo.getAnnotations(), otherMethodInfo.getAnnotations()))
-		return true;
-	// parameter annotations:
-	int currentAnnotatedParamsCount = currentMethodInfo.getAnnotatedParametersCount();
-	int otherAnnotatedParamsCount = otherMethodInfo.getAnnotatedParametersCount();
-	if (currentAnnotatedParamsCount != otherAnnotatedParamsCount)
-		return true;
-	for (int i=0; i<currentAnnotatedParamsCount; i++) {
-		if (hasStructuralAnnotationChanges(currentMethodInfo.getParameterAnnotations(i, this.classFileName), otherMethodInfo.getParameterAnnotations(i, this.classFileName)))
-			return true;
+private void appendFieldKey(FieldInfo fieldInfo, StringBuffer buffer) {
+	buffer.append(fieldInfo.getModifiers()).append('|');
+	buffer.append(fieldInfo.getTagBits() & TagBits.AnnotationDeprecated).append('|');
+	appendAnnotations(fieldInfo.getAnnotations(), buffer);
+	if (this.version >= ClassFileConstants.JDK1_8)
+		appendTypeAnnotations(fieldInfo.getTypeAnnotations(), buffer);
+	appendName(fieldInfo.getName(), buffer);
+	appendName(fieldInfo.getTypeName(), buffer);
+	appendName(fieldInfo.getGenericSignature(), buffer);
+	if (fieldInfo.hasConstant()) {
+		Constant constant = fieldInfo.getConstant();
+		buffer.append(constant.typeID()).append(':').append(constant.stringValue());
 	}
-	if (this.version >= ClassFileConstants.JDK1_8
-			&& hasStructuralTypeAnnotationChanges(currentMethodInfo.getTypeAnnotations(), otherMethodInfo.getTypeAnnotations()))
-		return true;
+	buffer.append('\n');
+}
 
-	if (!CharOperation.equals(currentMethodInfo.getSelector(), otherMethodInfo.getSelector()))
-		return true;
-	if (!CharOperation.equals(currentMethodInfo.getMethodDescriptor(), otherMethodInfo.getMethodDescriptor()))
-		return true;
-	if (!CharOperation.equals(currentMethodInfo.getGenericSignature(), otherMethodInfo.getGenericSignature()))
-		return true;
+private void appendMethodKey(MethodInfo methodInfo, StringBuffer buffer) {
+	buffer.append(methodInfo.getModifiers()).append('|');
+	buffer.append(methodInfo.getTagBits() & TagBits.AnnotationDeprecated).append('|');
+	appendAnnotations(methodInfo.getAnnotations(), buffer);
+	for (int j = 0, count = methodInfo.getAnnotatedParametersCount(); j < count; j++)
+		appendAnnotations(methodInfo.getParameterAnnotations(j, this.classFileName), buffer);
+	buffer.append('|');
+	if (this.version >= ClassFileConstants.JDK1_8)
+		appendTypeAnnotations(methodInfo.getTypeAnnotations(), buffer);
+	appendName(methodInfo.getSelector(), buffer);
+	appendName(methodInfo.getMethodDescriptor(), buffer);
+	appendName(methodInfo.getGenericSignature(), buffer);
+	appendNames(methodInfo.getExceptionTypeNames(), buffer);
+	Object defaultValue = methodInfo.getDefaultValue();
+	if (defaultValue != null)
+		appendElementValue(defaultValue, buffer);
+	buffer.append('\n');
+}
 
-	char[][] currentThrownExceptions = currentMethodInfo.getExceptionTypeNames();
-	char[][] otherThrownExceptions = otherMethodInfo.getExceptionTypeNames();
-	if (currentThrownExceptions != otherThrownExceptions) { // TypeConstants.NoExceptions
-		int currentThrownExceptionsLength = currentThrownExceptions == null ? 0 : currentThrownExceptions.length;
-		int otherThrownExceptionsLength = otherThrownExceptions == null ? 0 : otherThrownExceptions.length;
-		if (currentThrownExceptionsLength != otherThrownExceptionsLength)
-			return true;
-		for (int k = 0; k < currentThrownExceptionsLength; k++)
-			if (!CharOperation.equals(currentThrownExceptions[k], otherThrownExceptions[k]))
-				return true;
-	}
-	return false;
+private void appendName(char[] name, StringBuffer buffer) {
+	if (name != null)
+		buffer.append(name);
+	buffer.append('|');
+}
+
+private void appendNames(char[][] names, StringBuffer buffer) {
+	if (names != null)
+		for (int i = 0, length = names.length; i < length; i++)
+			buffer.append(names[i]).append(',');
+	buffer.append('|');
+}
+
+private void appendAnnotations(IBinaryAnnotation[] binaryAnnotations, StringBuffer buffer) {
+	if (binaryAnnotations != null)
+		for (int i = 0, length = binaryAnnotations.length; i < length; i++)
+			appendAnnotation(binaryAnnotations[i], buffer);
+	buffer.append('|');
 }
 
-private boolean hasStructuralTypeAnnotationChanges(IBinaryTypeAnnotation[] currentTypeAnnotations, IBinaryTypeAnnotation[] otherTypeAnnotations) {
-	if (otherTypeAnnotations != null) {
-		// copy so we can delete matched annotations:
-		int len = otherTypeAnnotations.length;
-		System.arraycopy(otherTypeAnnotations, 0, otherTypeAnnotations = new IBinaryTypeAnnotation[len], 0, len);
+private void appendAnnotation(IBinaryAnnotation annotation, StringBuffer buffer) {
+	buffer.append('@').append(annotation.getTypeName()).append('(');
+	IBinaryElementValuePair[] pairs = annotation.getElementValuePairs();
+	if (pairs != null) {
+		for (int i = 0, length = pairs.length; i < length; i++) {
+			buffer.append(pairs[i].getName()).append('=');
+			appendElementValue(pairs[i].getValue(), buffer);
+			buffer.append(',');
+		}
 	}
-	if (currentTypeAnnotations != null) {
-		loopCurrent:
-		for (IBinaryTypeAnnotation currentAnnotation : currentTypeAnnotations) {
-			if (!affectsSignature(currentAnnotation)) continue;
-			if (otherTypeAnnotations == null)
-				return true;
-			for (int i = 0; i < otherTypeAnnotations.length; i++) {
-				IBinaryTypeAnnotation otherAnnotation = otherTypeAnnotations[i];
-				if (otherAnnotation != null && matchAnnotations(currentAnnotation.getAnnotation(), otherAnnotation.getAnnotation()) == Boolean.TRUE) {
-					otherTypeAnnotations[i] = null; // matched
-					continue loopCurrent;
-				}
-			}
-			return true; // not matched
+	buffer.append(')');
+}
+
+private void appendElementValue(Object value, StringBuffer buffer) {
+	if (value instanceof Constant) {
+		Constant constant = (Constant) value;
+		buffer.append(constant.typeID()).append(':').append(constant.stringValue());
+	} else if (value instanceof ClassSignature) {
+		buffer.append(((ClassSignature) value).getTypeName()).append(".class"); //$NON-NLS-1$
+	} else if (value instanceof EnumConstantSignature) {
+		EnumConstantSignature enumConstant = (EnumConstantSignature) value;
+		buffer.append(enumConstant.getTypeName()).append('.').append(enumConstant.getEnumConstantName());
+	} else if (value instanceof IBinaryAnnotation) {
+		appendAnnotation((IBinaryAnnotation) value, buffer);
+	} else if (value instanceof Object[]) {
+		Object[] values = (Object[]) value;
+		buffer.append('{');
+		for (int i = 0, length = values.length; i < length; i++) {
+			appendElementValue(values[i], buffer);
+			buffer.append(',');
 		}
+		buffer.append('}');
+	} else {
+		buffer.append(value);
 	}
-	if (otherTypeAnnotations != null) {
-		for (IBinaryTypeAnnotation otherAnnotation : otherTypeAnnotations) {
-			if (affectsSignature(otherAnnotation))
-				return true;
+}
+
+private void appendTypeAnnotations(IBinaryTypeAnnotation[] binaryTypeAnnotations, StringBuffer buffer) {
+	if (binaryTypeAnnotations != null) {
+		for (int i = 0, length = binaryTypeAnnotations.length; i < length; i++) {
+			IBinaryTypeAnnotation typeAnnotation = binaryTypeAnnotations[i];
+			if (!affectsSignature(typeAnnotation)) continue;
+			buffer.append(typeAnnotation.getTargetType()).append(':');
+			int[] typePath = typeAnnotation.getTypePath();
+			if (typePath != null)
+				for (int j = 0, pathLength = typePath.length; j < pathLength; j++)
+					buffer.append(typePath[j]).append('.');
+			buffer.append(':');
+			appendAnnotation(typeAnnotation.getAnnotation(), buffer);
 		}
 	}
-	return false;
+	buffer.append('|');
+}
+
+// only consider a portion of the tagbits which indicate a structural change for dependents
+// e.g. @Override change has no influence outside
+private static final long ONLY_STRUCTURAL_TAG_BITS = TagBits.AnnotationTargetMASK // different @Target status ?
+	| TagBits.AnnotationDeprecated // different @Deprecated status ?
+	| TagBits.AnnotationRetentionMASK // different @Retention status ?
+	| TagBits.HierarchyHasProblems; // different hierarchy status ?
+
+/*
+ * Compares the modifiers, annotations, super types, member types and missing types of the two types.
+ */
+private boolean hasStructuralTypeChanges(ClassFileReader newClassFile) {
+	StringBuffer buffer = new StringBuffer(128);
+	appendTypeKey(this, buffer);
+	char[] currentKey = toCharArray(buffer);
+	buffer.setLength(0);
+	appendTypeKey(newClassFile, buffer);
+	return !CharOperation.equals(currentKey, toCharArray(buffer));
+}
+
+private boolean hasStructuralFieldChanges(FieldInfo currentFieldInfo, FieldInfo otherFieldInfo) {
+	StringBuffer buffer = new StringBuffer(64);
+	appendFieldKey(currentFieldInfo, buffer);
+	char[] currentKey = toCharArray(buffer);
+	buffer.setLength(0);
+	appendFieldKey(otherFieldInfo, buffer);
+	return !CharOperation.equals(currentKey, toCharArray(buffer));
+}
+
+private boolean hasStructuralMethodChanges(MethodInfo currentMethodInfo, MethodInfo otherMethodInfo) {
+	StringBuffer buffer = new StringBuffer(64);
+	appendMethodKey(currentMethodInfo, buffer);
+	char[] currentKey = toCharArray(buffer);
+	buffer.setLength(0);
+	appendMethodKey(otherMethodInfo, buffer);
+	return !CharOperation.equals(currentKey, toCharArray(buffer));
 }
 
 private boolean affectsSignature(IBinaryTypeAnnotation typeAnnotation) {
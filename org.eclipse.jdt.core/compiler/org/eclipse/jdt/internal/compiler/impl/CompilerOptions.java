@@ -437,6 +437,8 @@ public class CompilerOptions {
 	public boolean generateClassFiles;
 	/** Indicate if method bodies should be ignored */
 	public boolean ignoreMethodBodies;
+	/** Indicate if only the headers of the types should be generated, i.e. class files without any method code (along with ignoreMethodBodies) */
+	public boolean generateHeadersOnly;
 	/** Raise null related warnings for variables tainted inside an assert statement (java 1.4 and above)*/
 	public boolean includeNullInfoFromAsserts;
 	/** Controls whether forced generic type problems get reported  */
@@ -1380,6 +1382,7 @@ public class CompilerOptions {
 		
 		// ignore method bodies
 		this.ignoreMethodBodies = false;
+		this.generateHeadersOnly = false;
 		
 		this.ignoreSourceFolderWarningOption = false;
 		
@@ -991,6 +991,7 @@ public ReferenceBinding enclosingType() {  // should not delegate to prototype.
 }
 // NOTE: the type of each field of a binary type is resolved when needed
 public FieldBinding[] fields() {
+	this.environment.recordAllMembersReference(this);
 	
 	if (!isPrototype()) {
 		return this.fields = this.prototype.fields();
@@ -1080,6 +1081,7 @@ public char[] genericTypeSignature() {
 
 //NOTE: the return type, arg & exception types of each method of a binary type are resolved when needed
 public MethodBinding getExactConstructor(TypeBinding[] argumentTypes) {
+	this.environment.recordMemberReference(TypeConstants.INIT);
 
 	if (!isPrototype())
 		return this.prototype.getExactConstructor(argumentTypes);
@@ -1112,6 +1114,7 @@ public MethodBinding getExactConstructor(TypeBinding[] argumentTypes) {
 //NOTE: the return type, arg & exception types of each method of a binary type are resolved when needed
 //searches up the hierarchy as long as no potential (but not exact) match was found.
 public MethodBinding getExactMethod(char[] selector, TypeBinding[] argumentTypes, CompilationUnitScope refScope) {
+	this.environment.recordMemberReference(selector);
 	// sender from refScope calls recordTypeReference(this)
 
 	if (!isPrototype())
@@ -1160,6 +1163,7 @@ public MethodBinding getExactMethod(char[] selector, TypeBinding[] argumentTypes
 }
 //NOTE: the type of a field of a binary type is resolved when needed
 public FieldBinding getField(char[] fieldName, boolean needResolve) {
+	this.environment.recordMemberReference(fieldName);
 	
 	if (!isPrototype())
 		return this.prototype.getField(fieldName, needResolve);
@@ -1200,6 +1204,7 @@ public ReferenceBinding getMemberType(char[] typeName) {
 }
 // NOTE: the return type, arg & exception types of each method of a binary type are resolved when needed
 public MethodBinding[] getMethods(char[] selector) {
+	this.environment.recordMemberReference(selector);
 	
 	if (!isPrototype())
 		return this.prototype.getMethods(selector);
@@ -1240,6 +1245,7 @@ public MethodBinding[] getMethods(char[] selector) {
 // Answer methods named selector, which take no more than the suggestedParameterLength.
 // The suggested parameter length is optional and may not be guaranteed by every type.
 public MethodBinding[] getMethods(char[] selector, int suggestedParameterLength) {
+	this.environment.recordMemberReference(selector);
 	
 	if (!isPrototype())
 		return this.prototype.getMethods(selector, suggestedParameterLength);
@@ -1434,6 +1440,7 @@ public ReferenceBinding[] memberTypes() {
 }
 // NOTE: the return type, arg & exception types of each method of a binary type are resolved when needed
 public MethodBinding[] methods() {
+	this.environment.recordAllMembersReference(this);
 	
 	if (!isPrototype()) {
 		return this.methods = this.prototype.methods();
@@ -2046,6 +2053,7 @@ public TypeBinding withoutToplevelNullAnnotation() {
 	return this.prototype;
 }
 MethodBinding[] unResolvedMethods() { // for the MethodVerifier so it doesn't resolve types
+	this.environment.recordAllMembersReference(this);
 	
 	if (!isPrototype())
 		return this.prototype.unResolvedMethods();
@@ -2054,6 +2062,7 @@ MethodBinding[] unResolvedMethods() { // for the MethodVerifier so it doesn't re
 }
 
 public FieldBinding[] unResolvedFields() {
+	this.environment.recordAllMembersReference(this);
 	
 	if (!isPrototype())
 		return this.prototype.unResolvedFields();
@@ -40,6 +40,8 @@ public class CompilationUnitScope extends Scope {
 	private SimpleNameVector rootReferences;
 	private ObjectVector referencedTypes;
 	private ObjectVector referencedSuperTypes;
+	private SimpleSetOfCharArray memberReferences;
+	private ObjectVector allMembersReferences;
 
 	HashtableOfType constantPoolNameUsage;
 	private int captureID = 1;
@@ -74,12 +76,16 @@ public CompilationUnitScope(CompilationUnitDeclaration unit, LookupEnvironment e
 		this.rootReferences = new SimpleNameVector();
 		this.referencedTypes = new ObjectVector();
 		this.referencedSuperTypes = new ObjectVector();
+		this.memberReferences = new SimpleSetOfCharArray();
+		this.allMembersReferences = new ObjectVector();
 	} else {
 		this.qualifiedReferences = null; // used to test if dependencies should be recorded
 		this.simpleNameReferences = null;
 		this.rootReferences = null;
 		this.referencedTypes = null;
 		this.referencedSuperTypes = null;
+		this.memberReferences = null;
+		this.allMembersReferences = null;
 	}
 }
 void buildFieldsAndMethods() {
@@ -654,6 +660,24 @@ OR 'a' -> 'a' in the simple name collection
 -> As long as each single char[] is interned, we should not have a space problem
  and can handle collision cases.
 */
+void recordAllMembersReference(ReferenceBinding type) {
+	if (this.allMembersReferences == null) return; // not recording dependencies
+
+	ReferenceBinding actualType = typeToRecord(type);
+	if (actualType == null || this.allMembersReferences.containsIdentical(actualType)) return;
+	if (actualType instanceof SourceTypeBinding) {
+		ClassScope typeScope = ((SourceTypeBinding) actualType).scope;
+		if (typeScope != null && typeScope.compilationUnitScope() == this)
+			return; // declared in this unit
+	}
+	this.allMembersReferences.add(actualType);
+}
+void recordMemberReference(char[] name) {
+	if (this.memberReferences == null) return; // not recording dependencies
+
+	if (!this.memberReferences.includes(name))
+		this.memberReferences.add(name);
+}
 void recordQualifiedReference(char[][] qualifiedName) {
 	if (this.qualifiedReferences == null) return; // not recording dependencies
 
@@ -793,6 +817,26 @@ public void storeDependencyInfo() {
 	for (int i = 0; i < size; i++)
 		rootRefs[i] = this.rootReferences.elementAt(i);
 	this.referenceContext.compilationResult.rootReferences = rootRefs;
+
+	char[][] memberRefs = new char[this.memberReferences.elementSize][];
+	this.memberReferences.asArray(memberRefs);
+	this.referenceContext.compilationResult.memberReferences = memberRefs;
+
+	// the types whose members are all referenced are recorded using the name of their top level type
+	CompoundNameVector qualifiedAllMembersRefs = new CompoundNameVector();
+	for (int i = 0, l = this.allMembersReferences.size; i < l; i++) {
+		ReferenceBinding type = (ReferenceBinding) this.allMembersReferences.elementAt(i);
+		ReferenceBinding enclosing;
+		while ((enclosing = type.enclosingType()) != null)
+			type = enclosing;
+		if (!qualifiedAllMembersRefs.contains(type.compoundName))
+			qualifiedAllMembersRefs.add(type.compoundName);
+	}
+	size = qualifiedAllMembersRefs.size;
+	char[][][] allRefs = new char[size][][];
+	for (int i = 0; i < size; i++)
+		allRefs[i] = qualifiedAllMembersRefs.elementAt(i);
+	this.referenceContext.compilationResult.allMembersReferences = allRefs;
 }
 public String toString() {
 	return "--- CompilationUnit Scope : " + new String(this.referenceContext.getFileName()); //$NON-NLS-1$
@@ -1660,6 +1660,26 @@ public MethodVerifier newMethodVerifier() {
 	return new MethodVerifier15(this);
 }
 
+/**
+ * Records that the unit being compiled looked up the fields or methods named <code>name</code>
+ * (<code>TypeConstants.INIT</code> for the constructors) in some type.
+ */
+void recordMemberReference(char[] name) {
+	CompilationUnitDeclaration unit = this.unitBeingCompleted;
+	if (unit != null && unit.scope != null)
+		unit.scope.recordMemberReference(name);
+}
+
+/**
+ * Records that the unit being compiled looked at all the fields or methods of the given type
+ * (e.g. to verify the methods of its subtypes).
+ */
+void recordAllMembersReference(ReferenceBinding type) {
+	CompilationUnitDeclaration unit = this.unitBeingCompleted;
+	if (unit != null && unit.scope != null)
+		unit.scope.recordAllMembersReference(type);
+}
+
 public void releaseClassFiles(org.eclipse.jdt.internal.compiler.ClassFile[] classFiles) {
 	for (int i = 0, fileCount = classFiles.length; i < fileCount; i++)
 		this.classFilePool.release(classFiles[i]);
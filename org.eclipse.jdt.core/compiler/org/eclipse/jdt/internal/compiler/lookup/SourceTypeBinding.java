@@ -908,6 +908,7 @@ private void internalFaultInTypeForFieldsAndMethods() {
 }
 // NOTE: the type of each field of a source type is resolved when needed
 public FieldBinding[] fields() {
+	this.environment.recordAllMembersReference(this);
 	
 	if (!isPrototype()) {
 		if ((this.tagBits & TagBits.AreFieldsComplete) != 0)
@@ -1047,6 +1048,7 @@ public MethodBinding[] getDefaultAbstractMethods() {
 }
 // NOTE: the return type, arg & exception types of each method of a source type are resolved when needed
 public MethodBinding getExactConstructor(TypeBinding[] argumentTypes) {
+	this.environment.recordMemberReference(TypeConstants.INIT);
 	if (!isPrototype())
 		return this.prototype.getExactConstructor(argumentTypes);
 	
@@ -1097,6 +1099,7 @@ public MethodBinding getExactConstructor(TypeBinding[] argumentTypes) {
 //NOTE: the return type, arg & exception types of each method of a source type are resolved when needed
 //searches up the hierarchy as long as no potential (but not exact) match was found.
 public MethodBinding getExactMethod(char[] selector, TypeBinding[] argumentTypes, CompilationUnitScope refScope) {
+	this.environment.recordMemberReference(selector);
 	if (!isPrototype())
 		return this.prototype.getExactMethod(selector, argumentTypes, refScope);
 	
@@ -1185,6 +1188,7 @@ public MethodBinding getExactMethod(char[] selector, TypeBinding[] argumentTypes
 
 //NOTE: the type of a field of a source type is resolved when needed
 public FieldBinding getField(char[] fieldName, boolean needResolve) {
+	this.environment.recordMemberReference(fieldName);
 	
 	if (!isPrototype())
 		return this.prototype.getField(fieldName, needResolve);
@@ -1230,6 +1234,7 @@ public FieldBinding getField(char[] fieldName, boolean needResolve) {
 
 // NOTE: the return type, arg & exception types of each method of a source type are resolved when needed
 public MethodBinding[] getMethods(char[] selector) {
+	this.environment.recordMemberReference(selector);
 	if (!isPrototype())
 		return this.prototype.getMethods(selector);
 	
@@ -1481,6 +1486,7 @@ public boolean hasMemberTypes() {
 
 // NOTE: the return type, arg & exception types of each method of a source type are resolved when needed
 public MethodBinding[] methods() {
+	this.environment.recordAllMembersReference(this);
 	
 	if (!isPrototype()) {
 		if ((this.tagBits & TagBits.AreMethodsComplete) != 0)
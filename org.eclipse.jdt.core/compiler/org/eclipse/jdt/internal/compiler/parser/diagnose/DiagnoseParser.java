@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2014 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,6 +11,7 @@
 package org.eclipse.jdt.internal.compiler.parser.diagnose;
 
 import org.eclipse.jdt.core.compiler.CharOperation;
+import org.eclipse.jdt.internal.compiler.CompilationResult;
 import org.eclipse.jdt.internal.compiler.impl.CompilerOptions;
 import org.eclipse.jdt.internal.compiler.parser.ConflictedParser;
 import org.eclipse.jdt.internal.compiler.parser.Parser;
@@ -38,12 +39,33 @@ public class DiagnoseParser implements ParserBasicInformation, TerminalTokens, C
 	private static final int SCOPE_CODE = 9;
 	private static final int SECONDARY_CODE = 10;
 	private static final int EOF_CODE = 11;
+	private static final int DEGRADED_CODE = 12;
 
 	private static final int BUFF_UBOUND  = 31;
 	private static final int BUFF_SIZE    = 32;
 	private static final int MAX_DISTANCE = 30;
 	private static final int MIN_DISTANCE = 3;
 
+	/**
+	 * Name of the system property bounding the number of tokens that the repair trials of the diagnoses
+	 * of a compilation unit may simulate (see {@link CompilationResult#syntaxRepairEffort}). Once the token or the time budget is exceeded, the remaining errors are not repaired:
+	 * the next syntax error is reported on its token without suggestion and the diagnosis stops, so that
+	 * the time spent on badly broken input (e.g. a missing brace at the top of a big file, or pasted text
+	 * that is not Java) stays bounded. The compilation result is then tagged as having a degraded recovery.
+	 * A negative value removes the bound.
+	 */
+	public static final String REPAIR_TOKEN_BUDGET_PROPERTY = "jdt.core.diagnose.repairTokenBudget"; //$NON-NLS-1$
+	public static int REPAIR_TOKEN_BUDGET = Integer.getInteger(REPAIR_TOKEN_BUDGET_PROPERTY, 500000).intValue();
+
+	/**
+	 * Name of the system property bounding the time, in milliseconds, that a diagnosis may spend
+	 * looking for repairs (see {@link #REPAIR_TOKEN_BUDGET_PROPERTY}). A negative value removes the bound.
+	 * Unlike the token budget, this bound applies to each diagnosis separately. There is no time bound by default, since the reported errors would then depend on the load of the
+	 * machine: the token budget alone keeps the diagnosis deterministic.
+	 */
+	public static final String REPAIR_TIME_BUDGET_PROPERTY = "jdt.core.diagnose.repairTimeBudget"; //$NON-NLS-1$
+	public static int REPAIR_TIME_BUDGET = Integer.getInteger(REPAIR_TIME_BUDGET_PROPERTY, -1).intValue();
+
 	private CompilerOptions options;
 
 	private LexStream lexStream;
@@ -86,6 +108,10 @@ public class DiagnoseParser implements ParserBasicInformation, TerminalTokens, C
 
 	private boolean reportProblem;
 
+	private int repairEffort; // number of tokens simulated by the repair trials
+	private long repairDeadline; // in milliseconds
+	private boolean isRepairBudgetExceeded;
+
 	private static class RepairCandidate {
 		public int symbol;
 		public int location;
@@ -189,6 +215,11 @@ public class DiagnoseParser implements ParserBasicInformation, TerminalTokens, C
 
 	public void diagnoseParse(boolean record) {
 		this.reportProblem = true;
+		this.repairDeadline = REPAIR_TIME_BUDGET < 0 ? Long.MAX_VALUE : System.currentTimeMillis() + REPAIR_TIME_BUDGET;
+		// the token budget is shared by the diagnoses of a compilation unit (e.g. of the methods with syntax errors in their signature)
+		CompilationResult compilationResult = this.parser.compilationUnit == null ? null : this.parser.compilationUnit.compilationResult;
+		this.repairEffort = compilationResult == null ? 0 : compilationResult.syntaxRepairEffort;
+		this.isRepairBudgetExceeded = compilationResult != null && compilationResult.hasDegradedSyntaxRecovery;
 		boolean oldRecord = false;
 		if(this.recoveryScanner != null) {
 			oldRecord = this.recoveryScanner.record;
@@ -377,6 +408,7 @@ public class DiagnoseParser implements ParserBasicInformation, TerminalTokens, C
 					// An error was detected.
 					//
 					RepairCandidate candidate = errorRecovery(this.currentToken, forceRecoveryAfterLBracketMissing);
+					isRepairBudgetExceeded(); // record that this recovery exceeded the budget, if so
 
 					forceRecoveryAfterLBracketMissing = false;
 
@@ -424,6 +456,9 @@ public class DiagnoseParser implements ParserBasicInformation, TerminalTokens, C
 				this.recoveryScanner.record = oldRecord;
 			}
 			this.parser.scanner.setActiveParser(null);
+			if (compilationResult != null) {
+				compilationResult.syntaxRepairEffort = this.repairEffort;
+			}
 		}
 		return;
 	}
@@ -487,6 +522,9 @@ public class DiagnoseParser implements ParserBasicInformation, TerminalTokens, C
 			return candidate;
 		}
 
+		if (isRepairBudgetExceeded())
+			return degradedRecovery(error_token);
+
 		//
 		// Try primary phase recoveries. If not successful, try secondary
 		// phase recoveries.  If not successful and we are at end of the
@@ -497,6 +535,9 @@ public class DiagnoseParser implements ParserBasicInformation, TerminalTokens, C
 			return candidate;
 		}
 
+		if (isRepairBudgetExceeded())
+			return degradedRecovery(error_token);
+
 		candidate = secondaryPhase(error_token);
 		if (candidate.symbol != 0) {
 			return candidate;
@@ -520,6 +561,8 @@ public class DiagnoseParser implements ParserBasicInformation, TerminalTokens, C
 		// tokens.
 		//
 		while(this.lexStream.kind(this.buffer[BUFF_UBOUND]) != EOFT_SYMBOL) {
+			if (isRepairBudgetExceeded())
+				return degradedRecovery(error_token);
 			candidate = secondaryPhase(this.buffer[MAX_DISTANCE - MIN_DISTANCE + 2]);
 			if (candidate.symbol != 0) {
 				return candidate;
@@ -544,6 +587,32 @@ public class DiagnoseParser implements ParserBasicInformation, TerminalTokens, C
 		return candidate;
 	}
 
+	private boolean isRepairBudgetExceeded() {
+		if (!this.isRepairBudgetExceeded
+				&& ((REPAIR_TOKEN_BUDGET >= 0 && this.repairEffort > REPAIR_TOKEN_BUDGET)
+					|| System.currentTimeMillis() > this.repairDeadline)) {
+			this.isRepairBudgetExceeded = true;
+			if (this.parser.compilationUnit != null && this.parser.compilationUnit.compilationResult != null)
+				this.parser.compilationUnit.compilationResult.hasDegradedSyntaxRecovery = true;
+		}
+		return this.isRepairBudgetExceeded;
+	}
+
+	//
+	// Degraded recovery once the repair budget is exceeded: the error token
+	// is reported without looking for a repair, and the diagnosis stops.
+	// The syntax recovery of the parser (see RecoveredElement) still builds
+	// the declarations from the brace structure of the remaining input.
+	//
+	private RepairCandidate degradedRecovery(int error_token) {
+		reportPrimaryError(DEGRADED_CODE, -1, error_token, 0);
+
+		RepairCandidate candidate = new RepairCandidate();
+		candidate.symbol = 0;
+		candidate.location = error_token;
+		return candidate;
+	}
+
 //
 //	   This function tries primary and scope recovery on each
 //	   available configuration.  If a successful recovery is found
@@ -1931,6 +2000,8 @@ public class DiagnoseParser implements ParserBasicInformation, TerminalTokens, C
 		int ct;
 		int act;
 
+		this.repairEffort++;
+
 		//
 		// Initialize pointer for temp_stack and initialize maximum
 		// position of state stack that is still useful.
@@ -2023,6 +2094,7 @@ public class DiagnoseParser implements ParserBasicInformation, TerminalTokens, C
 				if (indx == MAX_DISTANCE)
 					return indx;
 				indx++;
+				this.repairEffort++;
 				ct = this.lexStream.kind(this.buffer[indx]);
 				this.lexStream.reset(this.lexStream.next(this.buffer[indx]));
 				if (act > ERROR_ACTION) {
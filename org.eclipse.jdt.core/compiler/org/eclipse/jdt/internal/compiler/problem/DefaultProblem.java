@@ -130,6 +130,13 @@ public int getID() {
 	return this.id;
 }
 
+/**
+ * Answer the severity of the problem, as a combination of {@link ProblemSeverities} bits.
+ */
+public int getSeverity() {
+	return this.severity;
+}
+
 /**
  * Answers a readable name for the category which this problem belongs to,
  * or null if none could be found.
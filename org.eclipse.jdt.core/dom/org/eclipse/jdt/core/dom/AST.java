@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -193,6 +193,12 @@ public final class AST {
 	 */
 	static final int RESOLVED_BINDINGS = 0x80000000;
 
+	/*
+	 * Set for the ASTs created with ASTParser#setCompactDOM(true).
+	 * Must not collide with a value for ICompilationUnit constants
+	 */
+	static final int COMPACT = 0x40000000;
+
 	/**
 	 * Internal method.
 	 * <p>
@@ -911,6 +917,25 @@ public final class AST {
 		return (this.bits & RESOLVED_BINDINGS) != 0;
 	}
 
+	/**
+	 * Releases the internal structures used to resolve the bindings of the nodes of this AST,
+	 * keeping the bindings which were already resolved.
+	 * <p>
+	 * This only has an effect on the ASTs created with bindings by a parser in compact mode
+	 * (see {@link ASTParser#setCompactDOM(boolean)}). After this call, the nodes of this AST
+	 * answer the bindings, expression types and values which were resolved for them before this call,
+	 * and <code>null</code> (or <code>false</code>) for anything else. The bindings themselves can still be used
+	 * as usual. Clients holding many resolved ASTs should call this method once they have resolved
+	 * the bindings they need.
+	 * </p>
+	 *
+	 * @since 3.12
+	 */
+	public void releaseBindingResolution() {
+		if (this.resolver instanceof CompactBindingResolver)
+			((CompactBindingResolver) this.resolver).release();
+	}
+
 	/**
 	 * Returns true if the ast tree was created with statements recovery, false otherwise
 	 *
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -1380,6 +1380,10 @@ class ASTConverter {
 				}
 			}
 			compilationUnit.setSourceRange(unit.sourceStart, unit.sourceEnd - unit.sourceStart  + 1);
+			if (unit.compilationResult.hasDegradedSyntaxRecovery) {
+				// the syntax errors were not all repaired (see DiagnoseParser#REPAIR_TOKEN_BUDGET_PROPERTY)
+				compilationUnit.setFlags(compilationUnit.getFlags() | ASTNode.RECOVERED);
+			}
 	
 			int problemLength = unit.compilationResult.problemCount;
 			if (problemLength != 0) {
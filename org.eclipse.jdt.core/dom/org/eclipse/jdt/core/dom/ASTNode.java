@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -1842,6 +1842,27 @@ public abstract class ASTNode {
 		throw new RuntimeException("Node does not have this property");  //$NON-NLS-1$
 	}
 
+	/**
+	 * Trims the storage of the child lists of this node and of its descendants
+	 * to the current size of the lists. This is used for compact ASTs, whose lists
+	 * are not expected to grow once created (they can still be modified).
+	 */
+	final void trimChildLists() {
+		accept(new ASTVisitor(true) {
+			public boolean preVisit2(ASTNode node) {
+				List properties = node.structuralPropertiesForType();
+				for (int i = 0, size = properties.size(); i < size; i++) {
+					Object property = properties.get(i);
+					if (property instanceof ChildListPropertyDescriptor) {
+						NodeList list = (NodeList) node.internalGetChildListProperty((ChildListPropertyDescriptor) property);
+						list.store.trimToSize();
+					}
+				}
+				return true;
+			}
+		});
+	}
+
 	/**
 	 * Returns a list of structural property descriptors for nodes of the
 	 * same type as this node. Clients must not modify the result.
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2015 IBM Corporation and others.
+ * Copyright (c) 2004, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -714,6 +714,62 @@ public class ASTParser {
 		}
 	}
 
+	/**
+	 * Requests compact abstract syntax trees, for clients holding many ASTs at once.
+	 *
+	 * <p>When compact mode is enabled, the storage of the child lists of the nodes is trimmed
+	 * to the size of the lists after conversion. If bindings are resolved, the AST also records the bindings
+	 * resolved for its nodes, so that {@link AST#releaseBindingResolution()} can release the compiler
+	 * structures which are otherwise retained by the AST to resolve the bindings on demand.
+	 * {@link #createASTs(ICompilationUnit[], String[], ASTRequestor, IProgressMonitor)} and
+	 * {@link #createASTs(String[], String[], String[], FileASTRequestor, IProgressMonitor)} release them
+	 * as soon as the requestor has accepted an AST: only the bindings resolved by the requestor
+	 * in its <code>acceptAST</code> callback can be resolved afterwards.</p>
+	 * <p>
+	 * Default to <code>false</code>.
+	 * </p>
+	 *
+	 * @param enabled <code>true</code> if compact ASTs are requested,
+	 *   and <code>false</code> otherwise
+	 * @see AST#releaseBindingResolution()
+	 * @since 3.12
+	 */
+	public void setCompactDOM(boolean enabled) {
+		if (enabled) {
+			this.bits |= CompilationUnitResolver.COMPACT_DOM;
+		} else {
+			this.bits &= ~CompilationUnitResolver.COMPACT_DOM;
+		}
+	}
+
+	/**
+	 * Requests that the compilation units be parsed ahead on worker threads when creating ASTs with bindings
+	 * for a batch of compilation units.
+	 *
+	 * <p>When parsing ahead is enabled, the compilation units are diet parsed on worker threads before their
+	 * type bindings are created, and the method bodies of the next compilation units are parsed while a compilation
+	 * unit is being resolved. Only the parsing is done on worker threads: the compilation units are still resolved
+	 * and converted to ASTs one at a time, and the ASTs are reported to the requestor in the same order
+	 * and on the same thread as without parsing ahead.</p>
+	 * <p>
+	 * Default to <code>false</code>.
+	 * </p>
+	 * <p>This setting is only used by {@link #createASTs(ICompilationUnit[], String[], ASTRequestor, IProgressMonitor)}
+	 * and {@link #createASTs(String[], String[], String[], FileASTRequestor, IProgressMonitor)} when bindings
+	 * are resolved.</p>
+	 *
+	 * @param enabled <code>true</code> if the compilation units should be parsed ahead on worker threads,
+	 *   and <code>false</code> otherwise
+	 * @since 3.12
+	 */
+	public void setParsingAhead(boolean enabled) {
+		if (enabled) {
+			this.bits |= CompilationUnitResolver.PARSING_AHEAD;
+		} else {
+			this.bits &= ~CompilationUnitResolver.PARSING_AHEAD;
+		}
+	}
+
     /**
      * Sets the working copy owner used when resolving bindings, where
      * <code>null</code> means the primary owner. Defaults to the primary owner.
@@ -890,13 +946,17 @@ public class ASTParser {
 			if ((this.bits & CompilationUnitResolver.IGNORE_METHOD_BODIES) != 0) {
 				flags |= ICompilationUnit.IGNORE_METHOD_BODIES;
 			}
+			if ((this.bits & CompilationUnitResolver.COMPACT_DOM) != 0) {
+				flags |= AST.COMPACT;
+			}
 			if ((this.bits & CompilationUnitResolver.RESOLVE_BINDING) != 0) {
 				if (this.project == null)
 					throw new IllegalStateException("project not specified"); //$NON-NLS-1$
 				if ((this.bits & CompilationUnitResolver.BINDING_RECOVERY) != 0) {
 					flags |= ICompilationUnit.ENABLE_BINDINGS_RECOVERY;
 				}
-				CompilationUnitResolver.resolve(compilationUnits, bindingKeys, requestor, this.apiLevel, this.compilerOptions, this.project, this.workingCopyOwner, flags, monitor);
+				CompilationUnitResolver.resolve(compilationUnits, bindingKeys, requestor, this.apiLevel, this.compilerOptions, this.project, this.workingCopyOwner, flags,
+						(this.bits & CompilationUnitResolver.PARSING_AHEAD) != 0, monitor);
 			} else {
 				CompilationUnitResolver.parse(compilationUnits, requestor, this.apiLevel, this.compilerOptions, flags, monitor);
 			}
@@ -983,6 +1043,9 @@ public class ASTParser {
 			if ((this.bits & CompilationUnitResolver.IGNORE_METHOD_BODIES) != 0) {
 				flags |= ICompilationUnit.IGNORE_METHOD_BODIES;
 			}
+			if ((this.bits & CompilationUnitResolver.COMPACT_DOM) != 0) {
+				flags |= AST.COMPACT;
+			}
 			if ((this.bits & CompilationUnitResolver.RESOLVE_BINDING) != 0) {
 				if (this.classpaths == null && this.sourcepaths == null && ((this.bits & CompilationUnitResolver.INCLUDE_RUNNING_VM_BOOTCLASSPATH) == 0)) {
 					throw new IllegalStateException("no environment is specified"); //$NON-NLS-1$
@@ -990,7 +1053,8 @@ public class ASTParser {
 				if ((this.bits & CompilationUnitResolver.BINDING_RECOVERY) != 0) {
 					flags |= ICompilationUnit.ENABLE_BINDINGS_RECOVERY;
 				}
-				CompilationUnitResolver.resolve(sourceFilePaths, encodings, bindingKeys, requestor, this.apiLevel, this.compilerOptions, getClasspath(), flags, monitor);
+				CompilationUnitResolver.resolve(sourceFilePaths, encodings, bindingKeys, requestor, this.apiLevel, this.compilerOptions, getClasspath(), flags,
+						(this.bits & CompilationUnitResolver.PARSING_AHEAD) != 0, monitor);
 			} else {
 				CompilationUnitResolver.parse(sourceFilePaths, encodings, requestor, this.apiLevel, this.compilerOptions, flags, monitor);
 			}
@@ -1180,6 +1244,9 @@ public class ASTParser {
 					if (searcher == null && ((this.bits & CompilationUnitResolver.IGNORE_METHOD_BODIES) != 0)) {
 						flags |= ICompilationUnit.IGNORE_METHOD_BODIES;
 					}
+					if ((this.bits & CompilationUnitResolver.COMPACT_DOM) != 0) {
+						flags |= AST.COMPACT;
+					}
 					if (needToResolveBindings) {
 						if ((this.bits & CompilationUnitResolver.BINDING_RECOVERY) != 0) {
 							flags |= ICompilationUnit.ENABLE_BINDINGS_RECOVERY;
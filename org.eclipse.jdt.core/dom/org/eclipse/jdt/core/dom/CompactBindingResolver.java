@@ -0,0 +1,275 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.core.dom;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.jdt.core.WorkingCopyOwner;
+import org.eclipse.jdt.internal.compiler.lookup.CompilationUnitScope;
+
+/**
+ * The binding resolver of a compact AST (see {@link ASTParser#setCompactDOM(boolean)}).
+ * <p>
+ * It records what is resolved for the nodes of the AST, so that the compiler AST and scopes of
+ * the compilation unit can be released (see {@link AST#releaseBindingResolution()}). Once released,
+ * the nodes only answer what was resolved for them before, and <code>null</code> (or <code>false</code>)
+ * for anything else. The bindings themselves are unchanged, and the bindings which are not attached
+ * to a node (e.g. well known types and array types) are still resolved from the lookup environment.
+ * </p>
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+class CompactBindingResolver extends DefaultBindingResolver {
+
+	// bits of the flags recorded for an expression
+	private static final int BOXING = 0x1;
+	private static final int UNBOXING = 0x2;
+	private static final int INFERRED_FROM_EXPECTED_TYPE = 0x4;
+
+	/*
+	 * The bindings resolved for the nodes (element type: ASTNode -> IBinding).
+	 */
+	private Map bindings = new HashMap();
+
+	/*
+	 * The types resolved for the expressions (element type: Expression -> ITypeBinding).
+	 */
+	private Map expressionTypes = new HashMap();
+
+	/*
+	 * The constructors resolved for the enum constants, whose variables are recorded in the bindings
+	 * (element type: EnumConstantDeclaration -> IMethodBinding).
+	 */
+	private Map enumConstantConstructors = new HashMap();
+
+	/*
+	 * The constant values resolved for the expressions (element type: Expression -> Object).
+	 */
+	private Map constantValues = new HashMap();
+
+	/*
+	 * The boxing, unboxing and inference flags resolved for the expressions (element type: Expression -> Integer).
+	 */
+	private Map flags = new HashMap();
+
+	private boolean isReleased;
+
+	CompactBindingResolver(CompilationUnitScope scope, WorkingCopyOwner workingCopyOwner, BindingTables bindingTables, boolean isRecoveringBindings, boolean fromJavaProject) {
+		super(scope, workingCopyOwner, bindingTables, isRecoveringBindings, fromJavaProject);
+	}
+
+	/*
+	 * Releases the compiler AST and scopes of the compilation unit. Only what was resolved so far can be answered afterwards.
+	 */
+	synchronized void release() {
+		if (this.isReleased) return;
+		this.isReleased = true;
+		releaseCompilationUnit();
+	}
+
+	private IBinding record(ASTNode node, IBinding binding) {
+		if (binding != null)
+			this.bindings.put(node, binding);
+		return binding;
+	}
+
+	private boolean record(Expression expression, int flag, boolean value) {
+		if (value) {
+			Integer recorded = (Integer) this.flags.get(expression);
+			this.flags.put(expression, Integer.valueOf(recorded == null ? flag : recorded.intValue() | flag));
+		}
+		return value;
+	}
+
+	private boolean recorded(Expression expression, int flag) {
+		Integer recorded = (Integer) this.flags.get(expression);
+		return recorded != null && (recorded.intValue() & flag) != 0;
+	}
+
+	synchronized boolean isResolvedTypeInferredFromExpectedType(MethodInvocation methodInvocation) {
+		if (this.isReleased) return recorded(methodInvocation, INFERRED_FROM_EXPECTED_TYPE);
+		return record(methodInvocation, INFERRED_FROM_EXPECTED_TYPE, super.isResolvedTypeInferredFromExpectedType(methodInvocation));
+	}
+
+	synchronized boolean isResolvedTypeInferredFromExpectedType(SuperMethodInvocation superMethodInvocation) {
+		if (this.isReleased) return recorded(superMethodInvocation, INFERRED_FROM_EXPECTED_TYPE);
+		return record(superMethodInvocation, INFERRED_FROM_EXPECTED_TYPE, super.isResolvedTypeInferredFromExpectedType(superMethodInvocation));
+	}
+
+	synchronized boolean isResolvedTypeInferredFromExpectedType(ClassInstanceCreation classInstanceCreation) {
+		if (this.isReleased) return recorded(classInstanceCreation, INFERRED_FROM_EXPECTED_TYPE);
+		return record(classInstanceCreation, INFERRED_FROM_EXPECTED_TYPE, super.isResolvedTypeInferredFromExpectedType(classInstanceCreation));
+	}
+
+	synchronized boolean resolveBoxing(Expression expression) {
+		if (this.isReleased) return recorded(expression, BOXING);
+		return record(expression, BOXING, super.resolveBoxing(expression));
+	}
+
+	synchronized boolean resolveUnboxing(Expression expression) {
+		if (this.isReleased) return recorded(expression, UNBOXING);
+		return record(expression, UNBOXING, super.resolveUnboxing(expression));
+	}
+
+	synchronized Object resolveConstantExpressionValue(Expression expression) {
+		if (this.isReleased) return this.constantValues.get(expression);
+		Object value = super.resolveConstantExpressionValue(expression);
+		if (value != null)
+			this.constantValues.put(expression, value);
+		return value;
+	}
+
+	synchronized IMethodBinding resolveConstructor(ClassInstanceCreation expression) {
+		if (this.isReleased) return (IMethodBinding) this.bindings.get(expression);
+		return (IMethodBinding) record(expression, super.resolveConstructor(expression));
+	}
+
+	synchronized IMethodBinding resolveConstructor(ConstructorInvocation expression) {
+		if (this.isReleased) return (IMethodBinding) this.bindings.get(expression);
+		return (IMethodBinding) record(expression, super.resolveConstructor(expression));
+	}
+
+	synchronized IMethodBinding resolveConstructor(EnumConstantDeclaration enumConstantDeclaration) {
+		if (this.isReleased) return (IMethodBinding) this.enumConstantConstructors.get(enumConstantDeclaration);
+		IMethodBinding binding = super.resolveConstructor(enumConstantDeclaration);
+		if (binding != null)
+			this.enumConstantConstructors.put(enumConstantDeclaration, binding);
+		return binding;
+	}
+
+	synchronized IMethodBinding resolveConstructor(SuperConstructorInvocation expression) {
+		if (this.isReleased) return (IMethodBinding) this.bindings.get(expression);
+		return (IMethodBinding) record(expression, super.resolveConstructor(expression));
+	}
+
+	synchronized ITypeBinding resolveExpressionType(Expression expression) {
+		if (this.isReleased) return (ITypeBinding) this.expressionTypes.get(expression);
+		ITypeBinding binding = super.resolveExpressionType(expression);
+		if (binding != null)
+			this.expressionTypes.put(expression, binding);
+		return binding;
+	}
+
+	synchronized IVariableBinding resolveField(FieldAccess fieldAccess) {
+		if (this.isReleased) return (IVariableBinding) this.bindings.get(fieldAccess);
+		return (IVariableBinding) record(fieldAccess, super.resolveField(fieldAccess));
+	}
+
+	synchronized IVariableBinding resolveField(SuperFieldAccess fieldAccess) {
+		if (this.isReleased) return (IVariableBinding) this.bindings.get(fieldAccess);
+		return (IVariableBinding) record(fieldAccess, super.resolveField(fieldAccess));
+	}
+
+	synchronized IBinding resolveImport(ImportDeclaration importDeclaration) {
+		if (this.isReleased) return (IBinding) this.bindings.get(importDeclaration);
+		return record(importDeclaration, super.resolveImport(importDeclaration));
+	}
+
+	synchronized IMethodBinding resolveMember(AnnotationTypeMemberDeclaration declaration) {
+		if (this.isReleased) return (IMethodBinding) this.bindings.get(declaration);
+		return (IMethodBinding) record(declaration, super.resolveMember(declaration));
+	}
+
+	synchronized IMethodBinding resolveMethod(LambdaExpression lambda) {
+		if (this.isReleased) return (IMethodBinding) this.bindings.get(lambda);
+		return (IMethodBinding) record(lambda, super.resolveMethod(lambda));
+	}
+
+	synchronized IMethodBinding resolveMethod(MethodDeclaration method) {
+		if (this.isReleased) return (IMethodBinding) this.bindings.get(method);
+		return (IMethodBinding) record(method, super.resolveMethod(method));
+	}
+
+	synchronized IMethodBinding resolveMethod(MethodInvocation method) {
+		if (this.isReleased) return (IMethodBinding) this.bindings.get(method);
+		return (IMethodBinding) record(method, super.resolveMethod(method));
+	}
+
+	synchronized IMethodBinding resolveMethod(MethodReference methodReference) {
+		if (this.isReleased) return (IMethodBinding) this.bindings.get(methodReference);
+		return (IMethodBinding) record(methodReference, super.resolveMethod(methodReference));
+	}
+
+	synchronized IMethodBinding resolveMethod(SuperMethodInvocation method) {
+		if (this.isReleased) return (IMethodBinding) this.bindings.get(method);
+		return (IMethodBinding) record(method, super.resolveMethod(method));
+	}
+
+	synchronized IBinding resolveName(Name name) {
+		if (this.isReleased) return (IBinding) this.bindings.get(name);
+		return record(name, super.resolveName(name));
+	}
+
+	synchronized IPackageBinding resolvePackage(PackageDeclaration pkg) {
+		if (this.isReleased) return (IPackageBinding) this.bindings.get(pkg);
+		return (IPackageBinding) record(pkg, super.resolvePackage(pkg));
+	}
+
+	synchronized IBinding resolveReference(MemberRef ref) {
+		if (this.isReleased) return (IBinding) this.bindings.get(ref);
+		return record(ref, super.resolveReference(ref));
+	}
+
+	synchronized IMemberValuePairBinding resolveMemberValuePair(MemberValuePair memberValuePair) {
+		if (this.isReleased) return (IMemberValuePairBinding) this.bindings.get(memberValuePair);
+		return (IMemberValuePairBinding) record(memberValuePair, super.resolveMemberValuePair(memberValuePair));
+	}
+
+	synchronized IBinding resolveReference(MethodRef ref) {
+		if (this.isReleased) return (IBinding) this.bindings.get(ref);
+		return record(ref, super.resolveReference(ref));
+	}
+
+	synchronized ITypeBinding resolveType(AnnotationTypeDeclaration type) {
+		if (this.isReleased) return (ITypeBinding) this.bindings.get(type);
+		return (ITypeBinding) record(type, super.resolveType(type));
+	}
+
+	synchronized ITypeBinding resolveType(AnonymousClassDeclaration type) {
+		if (this.isReleased) return (ITypeBinding) this.bindings.get(type);
+		return (ITypeBinding) record(type, super.resolveType(type));
+	}
+
+	synchronized ITypeBinding resolveType(EnumDeclaration type) {
+		if (this.isReleased) return (ITypeBinding) this.bindings.get(type);
+		return (ITypeBinding) record(type, super.resolveType(type));
+	}
+
+	synchronized ITypeBinding resolveType(Type type) {
+		if (this.isReleased) return (ITypeBinding) this.bindings.get(type);
+		return (ITypeBinding) record(type, super.resolveType(type));
+	}
+
+	synchronized ITypeBinding resolveType(TypeDeclaration type) {
+		if (this.isReleased) return (ITypeBinding) this.bindings.get(type);
+		return (ITypeBinding) record(type, super.resolveType(type));
+	}
+
+	synchronized ITypeBinding resolveTypeParameter(TypeParameter typeParameter) {
+		if (this.isReleased) return (ITypeBinding) this.bindings.get(typeParameter);
+		return (ITypeBinding) record(typeParameter, super.resolveTypeParameter(typeParameter));
+	}
+
+	synchronized IVariableBinding resolveVariable(EnumConstantDeclaration enumConstant) {
+		if (this.isReleased) return (IVariableBinding) this.bindings.get(enumConstant);
+		return (IVariableBinding) record(enumConstant, super.resolveVariable(enumConstant));
+	}
+
+	synchronized IVariableBinding resolveVariable(VariableDeclaration variable) {
+		if (this.isReleased) return (IVariableBinding) this.bindings.get(variable);
+		return (IVariableBinding) record(variable, super.resolveVariable(variable));
+	}
+
+	synchronized IAnnotationBinding resolveAnnotation(Annotation annotation) {
+		if (this.isReleased) return (IAnnotationBinding) this.bindings.get(annotation);
+		return (IAnnotationBinding) record(annotation, super.resolveAnnotation(annotation));
+	}
+}
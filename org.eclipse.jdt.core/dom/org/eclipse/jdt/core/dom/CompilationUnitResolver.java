@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -33,6 +33,7 @@ import org.eclipse.jdt.core.compiler.CharOperation;
 import org.eclipse.jdt.internal.compiler.CompilationResult;
 import org.eclipse.jdt.internal.compiler.Compiler;
 import org.eclipse.jdt.internal.compiler.DefaultErrorHandlingPolicies;
+import org.eclipse.jdt.internal.compiler.DietParseTaskManager;
 import org.eclipse.jdt.internal.compiler.ICompilerRequestor;
 import org.eclipse.jdt.internal.compiler.IErrorHandlingPolicy;
 import org.eclipse.jdt.internal.compiler.IProblemFactory;
@@ -45,6 +46,7 @@ import org.eclipse.jdt.internal.compiler.env.ISourceType;
 import org.eclipse.jdt.internal.compiler.impl.CompilerOptions;
 import org.eclipse.jdt.internal.compiler.lookup.AnnotationBinding;
 import org.eclipse.jdt.internal.compiler.lookup.Binding;
+import org.eclipse.jdt.internal.compiler.lookup.CompilationUnitScope;
 import org.eclipse.jdt.internal.compiler.lookup.ExtraCompilerModifiers;
 import org.eclipse.jdt.internal.compiler.lookup.PackageBinding;
 import org.eclipse.jdt.internal.compiler.parser.Parser;
@@ -76,6 +78,8 @@ class CompilationUnitResolver extends Compiler {
 	public static final int IGNORE_METHOD_BODIES = 0x8;
 	public static final int BINDING_RECOVERY = 0x10;
 	public static final int INCLUDE_RUNNING_VM_BOOTCLASSPATH = 0x20;
+	public static final int PARSING_AHEAD = 0x40;
+	public static final int COMPACT_DOM = 0x80;
 
 	/* A list of int */
 	static class IntArrayList {
@@ -189,37 +193,50 @@ class CompilationUnitResolver extends Compiler {
 		this.unitsToProcess = new CompilationUnitDeclaration[maxUnits];
 		int index = 0;
 
-		// walks the source units
+		// walks the source units, parsed ahead by worker threads if this resolver uses parsing threads
 		this.requestedSources = new HashtableOfObject();
-		for (int i = 0; i < sourceLength; i++) {
-			org.eclipse.jdt.internal.compiler.env.ICompilationUnit sourceUnit = sourceUnits[i];
-			CompilationUnitDeclaration parsedUnit;
-			CompilationResult unitResult =
-				new CompilationResult(sourceUnit, index++, maxUnits, this.options.maxProblemsPerUnit);
-			try {
-				if (this.options.verbose) {
-					this.out.println(
-						Messages.bind(Messages.compilation_request,
-						new String[] {
-							String.valueOf(index++ + 1),
-							String.valueOf(maxUnits),
-							new String(sourceUnit.getFileName())
-						}));
-				}
-				// diet parsing for large collection of units
-				if (this.totalUnits < this.parseThreshold) {
-					parsedUnit = this.parser.parse(sourceUnit, unitResult);
+		DietParseTaskManager dietParseTask = startDietParsing(sourceUnits, sourceLength, maxUnits);
+		try {
+			for (int i = 0; i < sourceLength; i++) {
+				org.eclipse.jdt.internal.compiler.env.ICompilationUnit sourceUnit = sourceUnits[i];
+				CompilationUnitDeclaration parsedUnit;
+				CompilationResult unitResult;
+				if (dietParseTask != null) {
+					unitResult = dietParseTask.getCompilationResult(i);
+					index++;
 				} else {
-					parsedUnit = this.parser.dietParse(sourceUnit, unitResult);
+					unitResult = new CompilationResult(sourceUnit, index++, maxUnits, this.options.maxProblemsPerUnit);
+				}
+				try {
+					if (this.options.verbose) {
+						this.out.println(
+							Messages.bind(Messages.compilation_request,
+							new String[] {
+								String.valueOf(index++ + 1),
+								String.valueOf(maxUnits),
+								new String(sourceUnit.getFileName())
+							}));
+					}
+					if (dietParseTask != null) {
+						parsedUnit = dietParseTask.getParsedUnit(i);
+					} else if (this.totalUnits < this.parseThreshold) {
+						parsedUnit = this.parser.parse(sourceUnit, unitResult);
+					} else {
+						// diet parsing for large collection of units
+						parsedUnit = this.parser.dietParse(sourceUnit, unitResult);
+					}
+					// initial type binding creation
+					this.lookupEnvironment.buildTypeBindings(parsedUnit, null /*no access restriction*/);
+					addCompilationUnit(sourceUnit, parsedUnit);
+					this.requestedSources.put(unitResult.getFileName(), sourceUnit);
+					worked(1);
+				} finally {
+					sourceUnits[i] = null; // no longer hold onto the unit
 				}
-				// initial type binding creation
-				this.lookupEnvironment.buildTypeBindings(parsedUnit, null /*no access restriction*/);
-				addCompilationUnit(sourceUnit, parsedUnit);
-				this.requestedSources.put(unitResult.getFileName(), sourceUnit);
-				worked(1);
-			} finally {
-				sourceUnits[i] = null; // no longer hold onto the unit
 			}
+		} finally {
+			if (dietParseTask != null)
+				dietParseTask.shutdown();
 		}
 
 		// walk the binding keys
@@ -284,7 +301,7 @@ class CompilationUnitResolver extends Compiler {
 		CompilationUnit compilationUnit = null;
 		ASTConverter converter = new ASTConverter(options, needToResolveBindings, monitor);
 		if (needToResolveBindings) {
-			resolver = new DefaultBindingResolver(compilationUnitDeclaration.scope, owner, bindingTables, (flags & ICompilationUnit.ENABLE_BINDINGS_RECOVERY) != 0, fromJavaProject);
+			resolver = newBindingResolver(compilationUnitDeclaration.scope, owner, bindingTables, flags, fromJavaProject);
 			ast.setFlag(flags | AST.RESOLVED_BINDINGS);
 		} else {
 			resolver = new BindingResolver();
@@ -294,11 +311,31 @@ class CompilationUnitResolver extends Compiler {
 		converter.setAST(ast);
 		compilationUnit = converter.convert(compilationUnitDeclaration, source);
 		compilationUnit.setLineEndTable(compilationUnitDeclaration.compilationResult.getLineSeparatorPositions());
+		if ((flags & AST.COMPACT) != 0)
+			compilationUnit.trimChildLists();
 		ast.setDefaultNodeFlag(0);
 		ast.setOriginalModificationCount(ast.modificationCount());
 		return compilationUnit;
 	}
 
+	/*
+	 * Answers a binding resolver for the AST of the unit with the given scope, which records the resolved bindings
+	 * if the AST is compact.
+	 */
+	static DefaultBindingResolver newBindingResolver(CompilationUnitScope scope, WorkingCopyOwner owner, DefaultBindingResolver.BindingTables bindingTables, int flags, boolean fromJavaProject) {
+		boolean isRecoveringBindings = (flags & ICompilationUnit.ENABLE_BINDINGS_RECOVERY) != 0;
+		if ((flags & AST.COMPACT) != 0)
+			return new CompactBindingResolver(scope, owner, bindingTables, isRecoveringBindings, fromJavaProject);
+		return new DefaultBindingResolver(scope, owner, bindingTables, isRecoveringBindings, fromJavaProject);
+	}
+
+	/*
+	 * Number of worker threads parsing units ahead, leaving a core to the thread resolving the units
+	 */
+	private static int getParsingThreads() {
+		return Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+	}
+
 	protected static CompilerOptions getCompilerOptions(Map options, boolean statementsRecovery) {
 		CompilerOptions compilerOptions = new CompilerOptions(options);
 		compilerOptions.performMethodsFullRecovery = statementsRecovery;
@@ -344,6 +381,9 @@ class CompilationUnitResolver extends Compiler {
 	public void initializeParser() {
 		this.parser = new CommentRecorderParser(this.problemReporter, false);
 	}
+	protected Parser newMethodBodyParser(ProblemReporter reporter) {
+		return new CommentRecorderParser(reporter, false);
+	}
 	public void process(CompilationUnitDeclaration unit, int i) {
 		// don't resolve a second time the same unit (this would create the same binding twice)
 		char[] fileName = unit.compilationResult.getFileName();
@@ -563,6 +603,7 @@ class CompilationUnitResolver extends Compiler {
 		IJavaProject javaProject,
 		WorkingCopyOwner owner,
 		int flags,
+		boolean parsingAhead,
 		IProgressMonitor monitor) {
 
 		CancelableNameEnvironment environment = null;
@@ -585,6 +626,8 @@ class CompilationUnitResolver extends Compiler {
 					problemFactory,
 					monitor,
 					javaProject != null);
+			if (parsingAhead)
+				resolver.parsingThreads = getParsingThreads();
 			resolver.resolve(compilationUnits, bindingKeys, requestor, apiLevel, options, owner, flags);
 			if (NameLookup.VERBOSE) {
 				System.out.println(Thread.currentThread() + " TIME SPENT in NameLoopkup#seekTypesInSourcePackage: " + environment.nameLookup.timeSpentInSeekTypesInSourcePackage + "ms");  //$NON-NLS-1$ //$NON-NLS-2$
@@ -612,6 +655,7 @@ class CompilationUnitResolver extends Compiler {
 			Map options,
 			List classpaths,
 			int flags,
+			boolean parsingAhead,
 			IProgressMonitor monitor) {
 
 			INameEnvironmentWithProgress environment = null;
@@ -636,6 +680,8 @@ class CompilationUnitResolver extends Compiler {
 						problemFactory,
 						monitor,
 						false);
+				if (parsingAhead)
+					resolver.parsingThreads = getParsingThreads();
 				resolver.resolve(sourceUnits, encodings, bindingKeys, requestor, apiLevel, options, flags);
 				if (NameLookup.VERBOSE && (environment instanceof CancelableNameEnvironment)) {
 					CancelableNameEnvironment cancelableNameEnvironment = (CancelableNameEnvironment) environment;
@@ -803,7 +849,7 @@ class CompilationUnitResolver extends Compiler {
 			}
 		}
 		Requestor requestor = new Requestor();
-		resolve(cus, bindingKeys, requestor, apiLevel, compilerOptions, javaProject, owner, flags, monitor);
+		resolve(cus, bindingKeys, requestor, apiLevel, compilerOptions, javaProject, owner, flags, false/*no parsing ahead*/, monitor);
 		return requestor.bindings;
 	}
 	/*
@@ -866,12 +912,14 @@ class CompilationUnitResolver extends Compiler {
 			org.eclipse.jdt.internal.compiler.env.ICompilationUnit[] sourceUnits = new org.eclipse.jdt.internal.compiler.env.ICompilationUnit[length];
 			System.arraycopy(compilationUnits, 0, sourceUnits, 0, length);
 			beginToCompile(sourceUnits, bindingKeys);
+			startParsingAhead(0); // the method bodies of the next units are parsed on worker threads while a unit is resolved
 			// process all units (some more could be injected in the loop by the lookup environment)
 			for (int i = 0; i < this.totalUnits; i++) {
 				if (resolvedRequestedSourcesAndKeys(i)) {
 					// no need to keep resolving if no more ASTs and no more binding keys are needed
 					// see https://bugs.eclipse.org/bugs/show_bug.cgi?id=114935
 					// cleanup remaining units
+					stopParsingAhead();
 					for (; i < this.totalUnits; i++) {
 						this.unitsToProcess[i].cleanUp();
 						this.unitsToProcess[i] = null;
@@ -894,17 +942,21 @@ class CompilationUnitResolver extends Compiler {
 						ast.setFlag(flags | AST.RESOLVED_BINDINGS);
 						ast.setDefaultNodeFlag(ASTNode.ORIGINAL);
 						ASTConverter converter = new ASTConverter(compilerOptions, true/*need to resolve bindings*/, this.monitor);
-						BindingResolver resolver = new DefaultBindingResolver(unit.scope, owner, this.bindingTables, (flags & ICompilationUnit.ENABLE_BINDINGS_RECOVERY) != 0, this.fromJavaProject);
+						BindingResolver resolver = newBindingResolver(unit.scope, owner, this.bindingTables, flags, this.fromJavaProject);
 						ast.setBindingResolver(resolver);
 						converter.setAST(ast);
 						CompilationUnit compilationUnit = converter.convert(unit, contents);
 						compilationUnit.setTypeRoot(source);
 						compilationUnit.setLineEndTable(compilationResult.getLineSeparatorPositions());
+						if ((flags & AST.COMPACT) != 0)
+							compilationUnit.trimChildLists();
 						ast.setDefaultNodeFlag(0);
 						ast.setOriginalModificationCount(ast.modificationCount());
 
 						// pass it to requestor
 						astRequestor.acceptAST(source, compilationUnit);
+						if ((flags & AST.COMPACT) != 0)
+							ast.releaseBindingResolution(); // keep the bindings resolved by the requestor only
 
 						worked(1);
 
@@ -960,6 +1012,7 @@ class CompilationUnitResolver extends Compiler {
 			this.handleInternalException(e, unit, null);
 			throw e; // rethrow
 		} finally {
+			stopParsingAhead();
 			// disconnect ourselves from ast requestor
 			astRequestor.compilationUnitResolver = null;
 		}
@@ -999,12 +1052,14 @@ class CompilationUnitResolver extends Compiler {
 				sourceUnits[count++] = new org.eclipse.jdt.internal.compiler.batch.CompilationUnit(contents, sourceUnitPath, encoding);
 			}
 			beginToCompile(sourceUnits, bindingKeys);
+			startParsingAhead(0); // the method bodies of the next units are parsed on worker threads while a unit is resolved
 			// process all units (some more could be injected in the loop by the lookup environment)
 			for (int i = 0; i < this.totalUnits; i++) {
 				if (resolvedRequestedSourcesAndKeys(i)) {
 					// no need to keep resolving if no more ASTs and no more binding keys are needed
 					// see https://bugs.eclipse.org/bugs/show_bug.cgi?id=114935
 					// cleanup remaining units
+					stopParsingAhead();
 					for (; i < this.totalUnits; i++) {
 						this.unitsToProcess[i].cleanUp();
 						this.unitsToProcess[i] = null;
@@ -1027,17 +1082,21 @@ class CompilationUnitResolver extends Compiler {
 						ast.setFlag(flags | AST.RESOLVED_BINDINGS);
 						ast.setDefaultNodeFlag(ASTNode.ORIGINAL);
 						ASTConverter converter = new ASTConverter(compilerOptions, true/*need to resolve bindings*/, this.monitor);
-						BindingResolver resolver = new DefaultBindingResolver(unit.scope, null, this.bindingTables, (flags & ICompilationUnit.ENABLE_BINDINGS_RECOVERY) != 0, this.fromJavaProject);
+						BindingResolver resolver = newBindingResolver(unit.scope, null, this.bindingTables, flags, this.fromJavaProject);
 						ast.setBindingResolver(resolver);
 						converter.setAST(ast);
 						CompilationUnit compilationUnit = converter.convert(unit, contents);
 						compilationUnit.setTypeRoot(null);
 						compilationUnit.setLineEndTable(compilationResult.getLineSeparatorPositions());
+						if ((flags & AST.COMPACT) != 0)
+							compilationUnit.trimChildLists();
 						ast.setDefaultNodeFlag(0);
 						ast.setOriginalModificationCount(ast.modificationCount());
 
 						// pass it to requestor
 						astRequestor.acceptAST(new String(source.getFileName()), compilationUnit);
+						if ((flags & AST.COMPACT) != 0)
+							ast.releaseBindingResolution(); // keep the bindings resolved by the requestor only
 
 						worked(1);
 
@@ -1093,6 +1152,7 @@ class CompilationUnitResolver extends Compiler {
 			this.handleInternalException(e, unit, null);
 			throw e; // rethrow
 		} finally {
+			stopParsingAhead();
 			// disconnect ourselves from ast requestor
 			astRequestor.compilationUnitResolver = null;
 		}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -604,6 +604,16 @@ class DefaultBindingResolver extends BindingResolver {
 		return this.scope.environment();
 	}
 
+	/*
+	 * Forgets the compiler nodes and scopes of the unit, keeping the lookup environment only (like a resolver
+	 * created for binding keys). Nodes can no longer be resolved afterwards.
+	 */
+	synchronized void releaseCompilationUnit() {
+		this.newAstToOldAst = new HashMap();
+		this.astNodesToBlockScope = new HashMap();
+		this.scope = new CompilationUnitScope(new CompilationUnitDeclaration(null, null, -1), this.scope.environment());
+	}
+
 	/**
 	 * @see org.eclipse.jdt.core.dom.BindingResolver#recordScope(ASTNode, BlockScope)
 	 */
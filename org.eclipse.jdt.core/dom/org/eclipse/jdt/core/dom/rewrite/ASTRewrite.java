@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2014 IBM Corporation and others.
+ * Copyright (c) 2004, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -284,10 +284,29 @@ public class ASTRewrite {
 		}
 
 		char[] content= typeRoot.getBuffer().getCharacters();
-		LineInformation lineInfo= LineInformation.create(astRoot);
 		String lineDelim= typeRoot.findRecommendedLineSeparator();
 		Map options= typeRoot.getJavaProject().getOptions(true);
 
+		return rewriteAST(content, lineDelim, options);
+	}
+
+	/*
+	 * Converts all modifications recorded by this rewriter into text edits to the given content of the
+	 * compilation unit the AST was created from, using the line table of the AST. Lets BulkRewrite compute
+	 * the options once per project.
+	 */
+	TextEdit rewriteAST(char[] content, String lineDelim, Map options) throws IllegalArgumentException {
+		ASTNode rootNode= getRootNode();
+		if (rootNode == null) {
+			return new MultiTextEdit(); // no changes
+		}
+
+		ASTNode root= rootNode.getRoot();
+		if (!(root instanceof CompilationUnit)) {
+			throw new IllegalArgumentException("This API can only be used if the AST is created from a compilation unit or class file"); //$NON-NLS-1$
+		}
+		CompilationUnit astRoot= (CompilationUnit) root;
+		LineInformation lineInfo= LineInformation.create(astRoot);
 		return internalRewriteAST(content, lineInfo, lineDelim, astRoot.getCommentList(), options, rootNode, (RecoveryScannerData)astRoot.getStatementsRecoveryData());
 	}
 
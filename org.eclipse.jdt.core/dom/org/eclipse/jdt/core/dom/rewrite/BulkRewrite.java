@@ -0,0 +1,322 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.core.dom.rewrite;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.ASTRequestor;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.internal.core.util.Util;
+import org.eclipse.text.edits.MultiTextEdit;
+import org.eclipse.text.edits.TextEdit;
+
+/**
+ * Rewrites a batch of compilation units with an {@link ASTRewrite} and an {@link ImportRewrite} per
+ * compilation unit, e.g. to apply a clean up or to organize the imports of a whole project.
+ * <p>
+ * The ASTs of the compilation units are created one project at a time (see
+ * {@link ASTParser#createASTs(ICompilationUnit[], String[], ASTRequestor, IProgressMonitor)}), and the
+ * modifications are recorded by the requestor on the thread that creates them. The text edits are then
+ * computed on worker threads while the next ASTs are created, and streamed to the requestor one unit at a time,
+ * so that neither the ASTs nor the edits of all compilation units have to be kept in memory.
+ * </p><p>
+ * The import edits and the AST edits of a compilation unit are merged, so that the requestor gets
+ * non-overlapping edits: a compilation unit whose import and AST modifications overlap is reported as a failure.
+ * </p><p>
+ * The options of a project are computed once for the rewrites of all its compilation units. The contents and the
+ * line delimiter of a compilation unit are read once for both of its rewrites, and both use the line table
+ * of its AST. The import rewrite does not scan the source, so the only scanner of a compilation unit is
+ * the one of its AST rewrite.
+ * </p>
+ *
+ * @since 3.12
+ */
+@SuppressWarnings("rawtypes")
+public final class BulkRewrite {
+
+	/**
+	 * A requestor records the modifications of each compilation unit and accepts the resulting text edits.
+	 * <p>
+	 * This class is intended to be subclassed by clients.
+	 * </p>
+	 */
+	public static abstract class Requestor {
+
+		/**
+		 * Records the modifications of the given compilation unit in the given rewrites.
+		 * <p>
+		 * This method is called on the thread calling {@link BulkRewrite#rewrite(ICompilationUnit[], Requestor, IProgressMonitor)},
+		 * one compilation unit at a time. The bindings of the AST can be resolved only during this call.
+		 * </p>
+		 *
+		 * @param unit the compilation unit to rewrite
+		 * @param ast the AST of the compilation unit
+		 * @param astRewrite the rewrite to record the modifications of the AST in
+		 * @param importRewrite the rewrite to record the added and removed imports in
+		 */
+		public abstract void rewrite(ICompilationUnit unit, CompilationUnit ast, ASTRewrite astRewrite, ImportRewrite importRewrite);
+
+		/**
+		 * Accepts a text edit to the given compilation unit. The edit has no parent, and does not overlap
+		 * with the other edits of the compilation unit. The edits of a compilation unit are accepted
+		 * in the order of their offsets.
+		 * <p>
+		 * This method may be called concurrently from several worker threads, for different compilation units.
+		 * All the edits of a compilation unit are accepted from the same thread, and are followed by a call to
+		 * {@link #endEdits(ICompilationUnit)}. Compilation units without modifications are not reported.
+		 * </p>
+		 *
+		 * @param unit the compilation unit the edit applies to
+		 * @param edit the text edit
+		 */
+		public abstract void acceptEdit(ICompilationUnit unit, TextEdit edit);
+
+		/**
+		 * Called after all the edits of the given compilation unit have been accepted.
+		 * <p>
+		 * The default implementation of this method does nothing.
+		 * </p>
+		 *
+		 * @param unit the compilation unit
+		 */
+		public void endEdits(ICompilationUnit unit) {
+			// do nothing
+		}
+
+		/**
+		 * Called when the edits of the given compilation unit could not be computed, or when
+		 * {@link #acceptEdit(ICompilationUnit, TextEdit)} or {@link #endEdits(ICompilationUnit)} threw a runtime exception.
+		 * The edits already accepted for this compilation unit should be discarded.
+		 * <p>
+		 * The default implementation of this method logs the exception.
+		 * </p>
+		 *
+		 * @param unit the compilation unit
+		 * @param exception the exception thrown while computing the edits
+		 */
+		public void acceptFailure(ICompilationUnit unit, Exception exception) {
+			Util.log(exception, "Exception while rewriting " + unit.getElementName()); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Default number of worker threads.
+	 */
+	public static final int DEFAULT_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+	private static final String THREAD_NAME = "Java Bulk Rewrite"; //$NON-NLS-1$
+
+	private final int threadCount;
+
+	private boolean resolveBindings= true;
+
+	private final Map<IJavaProject, Map> projectOptions= new HashMap<>();
+
+	/**
+	 * Creates a bulk rewrite computing the edits on the given number of worker threads.
+	 *
+	 * @param threadCount the number of worker threads, the edits being computed on the calling thread
+	 *   if <code>0</code>
+	 */
+	public BulkRewrite(int threadCount) {
+		this.threadCount= Math.max(0, threadCount);
+	}
+
+	/**
+	 * Sets whether the ASTs should have bindings. Default to <code>true</code>.
+	 *
+	 * @param resolveBindings whether bindings should be resolved
+	 */
+	public void setResolveBindings(boolean resolveBindings) {
+		this.resolveBindings= resolveBindings;
+	}
+
+	/**
+	 * Rewrites the given compilation units. Returns once the edits of all the compilation units
+	 * have been reported to the requestor.
+	 * <p>
+	 * The exceptions thrown while computing the edits of a compilation unit are reported to
+	 * {@link Requestor#acceptFailure(ICompilationUnit, Exception)}. The errors thrown on the worker threads,
+	 * including by the requestor, are rethrown by this method once all the compilation units have been processed.
+	 * </p><p>
+	 * If the monitor is canceled or the calling thread is interrupted, the edits which are not computed yet
+	 * are dropped, and an <code>OperationCanceledException</code> is thrown: the edits of some compilation units
+	 * may then not have been reported.
+	 * </p>
+	 *
+	 * @param units the compilation units to rewrite
+	 * @param requestor the requestor recording the modifications and accepting the edits
+	 * @param monitor the progress monitor, or <code>null</code>
+	 * @throws OperationCanceledException if the monitor is canceled or the calling thread is interrupted
+	 */
+	public void rewrite(ICompilationUnit[] units, final Requestor requestor, IProgressMonitor monitor) {
+		// group the compilation units per project as the ASTs with bindings of a batch share the same project
+		LinkedHashMap<IJavaProject, List<ICompilationUnit>> unitsPerProject= new LinkedHashMap<>();
+		for (int i= 0; i < units.length; i++) {
+			IJavaProject project= units[i].getJavaProject();
+			List<ICompilationUnit> list= unitsPerProject.get(project);
+			if (list == null)
+				unitsPerProject.put(project, list= new ArrayList<>());
+			list.add(units[i]);
+		}
+
+		SubMonitor subMonitor= SubMonitor.convert(monitor, units.length);
+		ExecutorService executor= null;
+		// bound the number of compilation units waiting for their edits, as each one retains its AST
+		final Semaphore pending= new Semaphore(Math.max(1, this.threadCount * 2));
+		// a completed future no longer references its task, so keeping the futures does not retain the ASTs
+		final List<Future<?>> futures= new ArrayList<>();
+		boolean canceled= false;
+		if (this.threadCount > 0) {
+			executor= Executors.newFixedThreadPool(this.threadCount, new ThreadFactory() {
+				public Thread newThread(Runnable runnable) {
+					Thread thread= new Thread(runnable, THREAD_NAME);
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		try {
+			for (Map.Entry<IJavaProject, List<ICompilationUnit>> entry : unitsPerProject.entrySet()) {
+				final IJavaProject project= entry.getKey();
+				List<ICompilationUnit> projectUnits= entry.getValue();
+				final ExecutorService projectExecutor= executor;
+				ASTParser parser= ASTParser.newParser(AST.JLS8);
+				parser.setProject(project);
+				parser.setResolveBindings(this.resolveBindings);
+				parser.setParsingAhead(true);
+				parser.createASTs(projectUnits.toArray(new ICompilationUnit[projectUnits.size()]), new String[0], new ASTRequestor() {
+					public void acceptAST(ICompilationUnit source, CompilationUnit ast) {
+						final Runnable task= record(source, ast, project, requestor);
+						if (projectExecutor == null) {
+							task.run();
+							return;
+						}
+						try {
+							pending.acquire();
+						} catch (InterruptedException e) {
+							throw new OperationCanceledException();
+						}
+						futures.add(projectExecutor.submit(new Runnable() {
+							public void run() {
+								try {
+									task.run();
+								} finally {
+									pending.release();
+								}
+							}
+						}));
+					}
+				}, subMonitor.split(projectUnits.size()));
+			}
+		} finally {
+			if (executor != null) {
+				executor.shutdown();
+				try {
+					while (!executor.awaitTermination(100, TimeUnit.MILLISECONDS)) {
+						if (subMonitor.isCanceled()) {
+							executor.shutdownNow();
+							canceled= true;
+							break;
+						}
+					}
+				} catch (InterruptedException e) {
+					executor.shutdownNow();
+					Thread.currentThread().interrupt();
+					canceled= true;
+				}
+			}
+		}
+		for (Future<?> future : futures) {
+			// the tasks removed by shutdownNow() never complete
+			if (!future.isDone() || future.isCancelled())
+				continue;
+			try {
+				future.get();
+			} catch (ExecutionException e) {
+				Throwable cause= e.getCause();
+				if (cause instanceof Error)
+					throw (Error) cause;
+				throw (RuntimeException) cause;
+			} catch (InterruptedException e) {
+				throw new OperationCanceledException();
+			}
+		}
+		if (canceled) // the tasks removed by shutdownNow() did not report their edits
+			throw new OperationCanceledException();
+	}
+
+	/*
+	 * Lets the requestor record the modifications of the given compilation unit, and returns the task
+	 * computing and reporting its edits.
+	 */
+	Runnable record(final ICompilationUnit unit, CompilationUnit ast, IJavaProject project, final Requestor requestor) {
+		final ASTRewrite astRewrite= ASTRewrite.create(ast.getAST());
+		final ImportRewrite importRewrite= ImportRewrite.create(ast, true);
+		requestor.rewrite(unit, ast, astRewrite, importRewrite);
+
+		Map options= this.projectOptions.get(project);
+		if (options == null)
+			this.projectOptions.put(project, options= project.getOptions(true));
+		final Map unitOptions= options;
+		return new Runnable() {
+			public void run() {
+				try {
+					char[] content= ((org.eclipse.jdt.internal.compiler.env.ICompilationUnit) unit).getContents();
+					String lineDelim= Util.findLineSeparator(content);
+					if (lineDelim == null)
+						lineDelim= Util.getLineSeparator(null, unit.getJavaProject());
+					// merge the edits before reporting any of them: a MalformedTreeException is thrown if they overlap
+					MultiTextEdit edits= new MultiTextEdit();
+					if (importRewrite.hasRecordedChanges())
+						edits.addChildren(importRewrite.rewriteImports(null, lineDelim).removeChildren());
+					edits.addChildren(astRewrite.rewriteAST(content, lineDelim, unitOptions).removeChildren());
+					if (report(unit, edits, requestor))
+						requestor.endEdits(unit);
+				} catch (CoreException e) {
+					requestor.acceptFailure(unit, e);
+				} catch (RuntimeException e) {
+					requestor.acceptFailure(unit, e);
+				}
+			}
+		};
+	}
+
+	/*
+	 * Streams the children of the given root edit to the requestor, without keeping the root.
+	 */
+	static boolean report(ICompilationUnit unit, TextEdit rootEdit, Requestor requestor) {
+		TextEdit[] edits= rootEdit.removeChildren();
+		for (int i= 0; i < edits.length; i++) {
+			requestor.acceptEdit(unit, edits[i]);
+		}
+		return edits.length > 0;
+	}
+}
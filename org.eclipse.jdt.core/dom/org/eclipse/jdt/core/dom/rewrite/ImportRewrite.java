@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -1130,7 +1130,14 @@ public final class ImportRewrite {
 	 * @throws CoreException the exception is thrown if the rewrite fails.
 	 */
 	public final TextEdit rewriteImports(IProgressMonitor monitor) throws CoreException {
+		return rewriteImports(monitor, null);
+	}
 
+	/*
+	 * Same as rewriteImports(IProgressMonitor), writing the imports with the given line delimiter unless it is null.
+	 * Lets BulkRewrite use the line delimiter it computed once for all the rewrites of a compilation unit.
+	 */
+	TextEdit rewriteImports(IProgressMonitor monitor, String lineDelimiter) throws CoreException {
 		try {
 			SubMonitor subMonitor = SubMonitor.convert(monitor,
 					Messages.bind(Messages.importRewrite_processDescription), 2);
@@ -1151,8 +1158,9 @@ public final class ImportRewrite {
 	
 			ImportRewriteConfiguration config= buildImportRewriteConfiguration();
 	
-			ImportRewriteAnalyzer computer=
-				new ImportRewriteAnalyzer(this.compilationUnit, usedAstRoot, config);
+			ImportRewriteAnalyzer computer= lineDelimiter == null
+				? new ImportRewriteAnalyzer(this.compilationUnit, usedAstRoot, config)
+				: new ImportRewriteAnalyzer(this.compilationUnit, usedAstRoot, config, lineDelimiter);
 	
 			for (String addedImport : this.addedImports) {
 				boolean isStatic = STATIC_PREFIX == addedImport.charAt(0);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013, 2014, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2013, 2014, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -425,6 +425,18 @@ public final class ImportRewriteAnalyzer {
 			ICompilationUnit cu,
 			CompilationUnit astRoot,
 			ImportRewriteConfiguration configuration) throws JavaModelException {
+		this(cu, astRoot, configuration, cu.findRecommendedLineSeparator());
+	}
+
+	/**
+	 * Creates an analyzer writing the imports with the given line delimiter, e.g. the one the caller already
+	 * computed from the contents of the compilation unit, so that its buffer is not read again.
+	 */
+	public ImportRewriteAnalyzer(
+			ICompilationUnit cu,
+			CompilationUnit astRoot,
+			ImportRewriteConfiguration configuration,
+			String lineDelimiter) throws JavaModelException {
 		this.originalImportEntries = Collections.unmodifiableList(readOriginalImports(astRoot));
 
 		List<ImportName> importsList = new ArrayList<ImportName>(this.originalImportEntries.size());
@@ -476,7 +488,7 @@ public final class ImportRewriteAnalyzer {
 
 		this.importDeclarationWriter = new ImportDeclarationWriter(shouldInsertSpaceBeforeSemicolon(javaProject));
 
-		this.lineDelimiter = cu.findRecommendedLineSeparator();
+		this.lineDelimiter = lineDelimiter;
 
 		this.importEditor = new ImportEditor(
 				this.lineDelimiter,
@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2005, 2016 IBM Corporation and others.
+ *  Copyright (c) 2005, 2017 IBM Corporation and others.
  *  All rights reserved. This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License v1.0
  *  which accompanies this distribution, and is available at
@@ -14,10 +14,8 @@
 package org.eclipse.jdt.core.formatter;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.text.MessageFormat;
 import java.util.ArrayList;
@@ -26,13 +24,9 @@ import java.util.Properties;
 
 import org.eclipse.equinox.app.IApplication;
 import org.eclipse.equinox.app.IApplicationContext;
-import org.eclipse.jdt.core.ToolFactory;
 import org.eclipse.jdt.internal.core.util.Util;
-import org.eclipse.jface.text.BadLocationException;
-import org.eclipse.jface.text.Document;
-import org.eclipse.jface.text.IDocument;
+import org.eclipse.jdt.internal.formatter.BulkCodeFormatter;
 import org.eclipse.osgi.util.NLS;
-import org.eclipse.text.edits.TextEdit;
 
 /**
  * Implements an Eclipse Application for org.eclipse.jdt.core.JavaCodeFormatter.
@@ -41,9 +35,12 @@ import org.eclipse.text.edits.TextEdit;
  * in which the eclipse.ini file is located. This makes it harder to use relative paths to point to the 
  * files to be formatted or the configuration file to use to set the code formatter's options.</p>
  *
- * <p>There are a couple improvements that could be made: 1. Make a list of all the
- * files first so that a file does not get formatted twice. 2. Use a text based
- * progress monitor for output.</p>
+ * <p>The files can be formatted concurrently (see the <code>-threads</code> option) and are only
+ * written back when their formatting changes. With the <code>-check</code> option, no file is
+ * written: the files which are not formatted are reported and the application exits with
+ * {@link #EXIT_UNFORMATTED}.</p>
+ *
+ * <p>An improvement that could be made: use a text based progress monitor for output.</p>
  *
  * @author Ben Konrath <bkonrath@redhat.com>
  * @since 3.2
@@ -64,6 +61,12 @@ public class CodeFormatterApplication implements IApplication {
 
 		public static String CommandLineDone;
 
+		public static String CommandLineChecking;
+
+		public static String CommandLineUnformatted;
+
+		public static String CommandLineStatistics;
+
 		public static String CommandLineErrorConfig;
 
 		public static String CommandLineErrorFileTryFullPath;
@@ -74,6 +77,8 @@ public class CodeFormatterApplication implements IApplication {
 
 		public static String CommandLineErrorQuietVerbose;
 
+		public static String CommandLineErrorThreads;
+
 		public static String CommandLineErrorNoConfigFile;
 
 		public static String CommandLineFormatting;
@@ -157,12 +162,22 @@ public class CodeFormatterApplication implements IApplication {
 		}
 	}
 
+	/**
+	 * Exit code of the application when some files are not formatted in check mode.
+	 * @since 3.12
+	 */
+	public static final Integer EXIT_UNFORMATTED = Integer.valueOf(1);
+
+	private static final String ARG_CHECK = "-check"; //$NON-NLS-1$
+
 	private static final String ARG_CONFIG = "-config"; //$NON-NLS-1$
 
 	private static final String ARG_HELP = "-help"; //$NON-NLS-1$
 
 	private static final String ARG_QUIET = "-quiet"; //$NON-NLS-1$
 
+	private static final String ARG_THREADS = "-threads"; //$NON-NLS-1$
+
 	private static final String ARG_VERBOSE = "-verbose"; //$NON-NLS-1$
 
 	private String configName;
@@ -171,8 +186,12 @@ public class CodeFormatterApplication implements IApplication {
 
 	private static final String PDE_LAUNCH = "-pdelaunch"; //$NON-NLS-1$
 
+	private boolean check = false;
+
 	private boolean quiet = false;
 
+	private int threads = BulkCodeFormatter.DEFAULT_THREADS;
+
 	private boolean verbose = false;
 
 	/**
@@ -188,68 +207,10 @@ public class CodeFormatterApplication implements IApplication {
 		displayHelp();
 	}
 
-	/**
-	 * Recursively format the Java source code that is contained in the
-	 * directory rooted at dir.
-	 */
-	private void formatDirTree(File dir, CodeFormatter codeFormatter) {
-
-		File[] files = dir.listFiles();
-		if (files == null)
-			return;
-
-		for (int i = 0; i < files.length; i++) {
-			File file = files[i];
-			if (file.isDirectory()) {
-				formatDirTree(file, codeFormatter);
-			} else if (Util.isJavaLikeFileName(file.getPath())) {
-				formatFile(file, codeFormatter);
-			}
-		}
-	}
-
-	/**
-	 * Format the given Java source file.
-	 */
-	private void formatFile(File file, CodeFormatter codeFormatter) {
-		IDocument doc = new Document();
-		try {
-			// read the file
-			if (this.verbose) {
-				System.out.println(Messages.bind(Messages.CommandLineFormatting, file.getAbsolutePath()));
-			}
-			String contents = new String(org.eclipse.jdt.internal.compiler.util.Util.getFileCharContent(file, null));
-			// format the file (the meat and potatoes)
-			doc.set(contents);
-			TextEdit edit = codeFormatter.format(CodeFormatter.K_COMPILATION_UNIT | CodeFormatter.F_INCLUDE_COMMENTS, contents, 0, contents.length(), 0, null);
-			if (edit != null) {
-				edit.apply(doc);
-			} else {
-				System.err.println(Messages.bind(Messages.FormatProblem, file.getAbsolutePath()));
-				return;
-			}
-
-			// write the file
-			final BufferedWriter out = new BufferedWriter(new FileWriter(file));
-			try {
-				out.write(doc.get());
-				out.flush();
-			} finally {
-				try {
-					out.close();
-				} catch (IOException e) {
-					/* ignore */
-				}
-			}
-		} catch (IOException e) {
-			String errorMessage = Messages.bind(Messages.CaughtException, "IOException", e.getLocalizedMessage()); //$NON-NLS-1$
-			Util.log(e, errorMessage);
-			System.err.println(Messages.bind(Messages.ExceptionSkip ,errorMessage));
-		} catch (BadLocationException e) {
-			String errorMessage = Messages.bind(Messages.CaughtException, "BadLocationException", e.getLocalizedMessage()); //$NON-NLS-1$
-			Util.log(e, errorMessage);
-			System.err.println(Messages.bind(Messages.ExceptionSkip ,errorMessage));
-		}
+	private void displayFailure(String exceptionName, Exception e) {
+		String errorMessage = Messages.bind(Messages.CaughtException, exceptionName, e.getLocalizedMessage());
+		Util.log(e, errorMessage);
+		System.err.println(Messages.bind(Messages.ExceptionSkip ,errorMessage));
 	}
 
 	private File[] processCommandLine(String[] argsArray) {
@@ -263,6 +224,7 @@ public class CodeFormatterApplication implements IApplication {
 
 		final int DEFAULT_MODE = 0;
 		final int CONFIG_MODE = 1;
+		final int THREADS_MODE = 2;
 
 		int mode = DEFAULT_MODE;
 		final int INITIAL_SIZE = 1;
@@ -294,6 +256,14 @@ public class CodeFormatterApplication implements IApplication {
 						mode = CONFIG_MODE;
 						continue loop;
 					}
+					if (ARG_CHECK.equals(currentArg)) {
+						this.check = true;
+						continue loop;
+					}
+					if (ARG_THREADS.equals(currentArg)) {
+						mode = THREADS_MODE;
+						continue loop;
+					}
 					// the current arg should be a file or a directory name
 					File file = new File(currentArg);
 					if (file.exists()) {
@@ -324,9 +294,25 @@ public class CodeFormatterApplication implements IApplication {
 					}
 					mode = DEFAULT_MODE;
 					continue loop;
+				case THREADS_MODE :
+					try {
+						this.threads = Integer.parseInt(currentArg);
+					} catch (NumberFormatException e) {
+						this.threads = 0;
+					}
+					if (this.threads <= 0) {
+						displayHelp(Messages.bind(Messages.CommandLineErrorThreads, currentArg));
+						return null;
+					}
+					mode = DEFAULT_MODE;
+					continue loop;
 			}
 		}
 
+		if (mode == THREADS_MODE) {
+			displayHelp(Messages.bind(Messages.CommandLineErrorThreads, "")); //$NON-NLS-1$
+			return null;
+		}
 		if (mode == CONFIG_MODE || this.options == null) {
 			displayHelp(Messages.bind(Messages.CommandLineErrorNoConfigFile));
 			return null;
@@ -409,21 +395,41 @@ public class CodeFormatterApplication implements IApplication {
 			System.out.println(Messages.bind(Messages.CommandLineStart));
 		}
 
-		final CodeFormatter codeFormatter = ToolFactory.createCodeFormatter(this.options,
-				ToolFactory.M_FORMAT_EXISTING);
+		BulkCodeFormatter formatter = new BulkCodeFormatter(this.options, this.threads, this.check);
 		// format the list of files and/or directories
-		for (int i = 0, max = filesToFormat.length; i < max; i++) {
-			final File file = filesToFormat[i];
-			if (file.isDirectory()) {
-				formatDirTree(file, codeFormatter);
-			} else if (Util.isJavaLikeFileName(file.getPath())) {
-				formatFile(file, codeFormatter);
+		formatter.format(filesToFormat, new BulkCodeFormatter.Requestor() {
+			public void acceptFile(File file) {
+				if (CodeFormatterApplication.this.verbose) {
+					System.out.println(Messages.bind(CodeFormatterApplication.this.check ? Messages.CommandLineChecking : Messages.CommandLineFormatting, file.getAbsolutePath()));
+				}
 			}
-		}
+			public void acceptUnformattedFile(File file) {
+				if (CodeFormatterApplication.this.check) {
+					System.out.println(Messages.bind(Messages.CommandLineUnformatted, file.getAbsolutePath()));
+				}
+			}
+			public void acceptFailure(File file, Exception exception) {
+				if (exception == null) {
+					System.err.println(Messages.bind(Messages.FormatProblem, file.getAbsolutePath()));
+				} else {
+					displayFailure(exception.getClass().getSimpleName(), exception);
+				}
+			}
+		});
 		if (!this.quiet) {
 			System.out.println(Messages.bind(Messages.CommandLineDone));
+			System.out.println(Messages.bind(Messages.CommandLineStatistics, new Object[] {
+				String.valueOf(formatter.getFileCount()),
+				String.valueOf(formatter.getUnformattedCount()),
+				String.valueOf(formatter.getFailureCount()),
+				String.valueOf(formatter.getElapsedTime()),
+				String.valueOf(formatter.getThroughput())
+			}));
 		}
 
+		if (this.check && formatter.getUnformattedCount() > 0) {
+			return EXIT_UNFORMATTED;
+		}
 		return IApplication.EXIT_OK;
 	}
 	public void stop() {
@@ -0,0 +1,277 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.formatter;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jdt.core.ToolFactory;
+import org.eclipse.jdt.core.formatter.CodeFormatter;
+import org.eclipse.jdt.internal.core.util.Util;
+import org.eclipse.text.edits.TextEdit;
+
+/**
+ * Formats the Java source files of a set of files and directories, concurrently if several threads
+ * are requested, each worker thread using its own code formatter (see <code>org.eclipse.jdt.core.formatter.CodeFormatterApplication</code>).
+ * <p>
+ * Files that are already formatted are not written back. In check only mode, no file is written and
+ * the files that are not formatted are only reported to the requestor.
+ * </p>
+ */
+public class BulkCodeFormatter {
+
+	/**
+	 * Default number of threads: the files are formatted by the calling thread unless more threads are requested.
+	 */
+	public static final int DEFAULT_THREADS = 1;
+
+	private static final String THREAD_NAME = "Java Code Formatter"; //$NON-NLS-1$
+
+	/**
+	 * Receives the outcome of formatting each file. Its methods may be called concurrently
+	 * from the worker threads.
+	 */
+	public static abstract class Requestor {
+
+		/**
+		 * The given file is about to be formatted.
+		 */
+		public void acceptFile(File file) {
+			// do nothing by default
+		}
+
+		/**
+		 * The given file was not formatted: it has been written back formatted, unless in check only mode.
+		 */
+		public void acceptUnformattedFile(File file) {
+			// do nothing by default
+		}
+
+		/**
+		 * The given file could not be formatted. The exception is <code>null</code> if the code formatter
+		 * failed to format the file (e.g. because of syntax errors).
+		 */
+		public void acceptFailure(File file, Exception exception) {
+			// do nothing by default
+		}
+	}
+
+	private final Map<String, String> options;
+	private final int threadCount;
+	private final boolean checkOnly;
+
+	private final AtomicInteger fileCount = new AtomicInteger();
+	private final AtomicInteger unformattedCount = new AtomicInteger();
+	private final AtomicInteger failureCount = new AtomicInteger();
+	private final AtomicLong charCount = new AtomicLong();
+	private long elapsedTime; // in milliseconds
+
+	/**
+	 * @param options the code formatter options, see {@link ToolFactory#createCodeFormatter(Map, int)}
+	 * @param threadCount the number of worker threads, files are formatted by the calling thread if 1 or less
+	 * @param checkOnly whether the files are only checked, without being written
+	 */
+	public BulkCodeFormatter(Map<String, String> options, int threadCount, boolean checkOnly) {
+		this.options = options;
+		this.threadCount = threadCount;
+		this.checkOnly = checkOnly;
+	}
+
+	/**
+	 * Formats the given Java source files and the Java source files contained in the given directories.
+	 * A file given more than once (directly or through its directories) is formatted only once.
+	 * An error thrown while formatting a file (e.g. an <code>OutOfMemoryError</code>) stops the formatting
+	 * of the other files and is rethrown, whether the file was formatted by a worker thread or not.
+	 */
+	public void format(File[] filesOrDirectories, final Requestor requestor) throws InterruptedException {
+		long start = System.currentTimeMillis();
+		LinkedHashSet<File> files = new LinkedHashSet<>();
+		for (int i = 0, length = filesOrDirectories.length; i < length; i++) {
+			collectFiles(filesOrDirectories[i].getAbsoluteFile(), files);
+		}
+
+		if (this.threadCount <= 1 || files.size() <= 1) {
+			CodeFormatter codeFormatter = newCodeFormatter();
+			for (File file : files) {
+				formatFile(file, codeFormatter, requestor);
+			}
+			this.elapsedTime += System.currentTimeMillis() - start;
+			return;
+		}
+
+		final ThreadLocal<CodeFormatter> codeFormatters = new ThreadLocal<CodeFormatter>() {
+			protected CodeFormatter initialValue() {
+				return newCodeFormatter();
+			}
+		};
+		ExecutorService executor = Executors.newFixedThreadPool(this.threadCount, new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, THREAD_NAME);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		try {
+			List<Future<?>> futures = new ArrayList<>(files.size());
+			for (final File file : files) {
+				futures.add(executor.submit(new Runnable() {
+					public void run() {
+						formatFile(file, codeFormatters.get(), requestor);
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (ExecutionException e) {
+			// rethrow the error of the worker thread in the calling thread (exceptions are reported as failures)
+			Throwable cause = e.getCause();
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw (RuntimeException) cause;
+		} finally {
+			executor.shutdownNow();
+			this.elapsedTime += System.currentTimeMillis() - start;
+		}
+	}
+
+	private void collectFiles(File file, LinkedHashSet<File> files) {
+		if (file.isDirectory()) {
+			File[] children = file.listFiles();
+			if (children == null)
+				return;
+			for (int i = 0, length = children.length; i < length; i++) {
+				collectFiles(children[i], files);
+			}
+		} else if (Util.isJavaLikeFileName(file.getPath())) {
+			files.add(file);
+		}
+	}
+
+	CodeFormatter newCodeFormatter() {
+		return ToolFactory.createCodeFormatter(this.options, ToolFactory.M_FORMAT_EXISTING);
+	}
+
+	void formatFile(File file, CodeFormatter codeFormatter, Requestor requestor) {
+		requestor.acceptFile(file);
+		try {
+			String contents = new String(org.eclipse.jdt.internal.compiler.util.Util.getFileCharContent(file, null));
+			this.fileCount.incrementAndGet();
+			this.charCount.addAndGet(contents.length());
+			TextEdit edit = codeFormatter.format(CodeFormatter.K_COMPILATION_UNIT | CodeFormatter.F_INCLUDE_COMMENTS, contents, 0, contents.length(), 0, null);
+			if (edit == null) {
+				this.failureCount.incrementAndGet();
+				requestor.acceptFailure(file, null);
+				return;
+			}
+			if (!edit.hasChildren())
+				return;
+			String formatted = Util.editedString(contents, edit);
+			if (formatted.equals(contents))
+				return;
+
+			this.unformattedCount.incrementAndGet();
+			requestor.acceptUnformattedFile(file);
+			if (this.checkOnly)
+				return;
+			BufferedWriter out = new BufferedWriter(new FileWriter(file));
+			try {
+				out.write(formatted);
+				out.flush();
+			} finally {
+				try {
+					out.close();
+				} catch (IOException e) {
+					/* ignore */
+				}
+			}
+		} catch (IOException e) {
+			this.failureCount.incrementAndGet();
+			requestor.acceptFailure(file, e);
+		} catch (RuntimeException e) {
+			// a bug in the code formatter should not stop the other files from being formatted
+			this.failureCount.incrementAndGet();
+			requestor.acceptFailure(file, e);
+		}
+	}
+
+	/**
+	 * Returns the number of files read so far.
+	 */
+	public int getFileCount() {
+		return this.fileCount.get();
+	}
+
+	/**
+	 * Returns the number of files found not formatted so far.
+	 */
+	public int getUnformattedCount() {
+		return this.unformattedCount.get();
+	}
+
+	/**
+	 * Returns the number of files that could not be formatted so far.
+	 */
+	public int getFailureCount() {
+		return this.failureCount.get();
+	}
+
+	/**
+	 * Returns the number of characters read so far.
+	 */
+	public long getCharCount() {
+		return this.charCount.get();
+	}
+
+	/**
+	 * Returns the time spent formatting so far, in milliseconds.
+	 */
+	public long getElapsedTime() {
+		return this.elapsedTime;
+	}
+
+	/**
+	 * Returns the number of files read per second.
+	 */
+	public long getThroughput() {
+		return this.elapsedTime == 0 ? 0 : getFileCount() * 1000L / this.elapsedTime;
+	}
+
+	public String toString() {
+		StringBuffer buffer = new StringBuffer("BulkCodeFormatter ["); //$NON-NLS-1$
+		buffer.append(getFileCount());
+		buffer.append(" files, "); //$NON-NLS-1$
+		buffer.append(getCharCount());
+		buffer.append(" chars, unformatted="); //$NON-NLS-1$
+		buffer.append(getUnformattedCount());
+		buffer.append(", failures="); //$NON-NLS-1$
+		buffer.append(getFailureCount());
+		buffer.append(", "); //$NON-NLS-1$
+		buffer.append(this.elapsedTime);
+		buffer.append("ms, "); //$NON-NLS-1$
+		buffer.append(getThroughput());
+		buffer.append(" files/s]"); //$NON-NLS-1$
+		return buffer.toString();
+	}
+}
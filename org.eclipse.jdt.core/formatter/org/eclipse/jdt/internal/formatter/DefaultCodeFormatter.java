@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -33,14 +33,22 @@ import org.eclipse.jdt.core.compiler.InvalidInputException;
 import org.eclipse.jdt.core.dom.AST;
 import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.AbstractTypeDeclaration;
+import org.eclipse.jdt.core.dom.AnnotationTypeDeclaration;
+import org.eclipse.jdt.core.dom.BodyDeclaration;
 import org.eclipse.jdt.core.dom.Comment;
 import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.EnumDeclaration;
+import org.eclipse.jdt.core.dom.FieldDeclaration;
+import org.eclipse.jdt.core.dom.Initializer;
 import org.eclipse.jdt.core.dom.Javadoc;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
 import org.eclipse.jdt.core.dom.TypeDeclaration;
 import org.eclipse.jdt.core.formatter.CodeFormatter;
 import org.eclipse.jdt.core.formatter.DefaultCodeFormatterConstants;
 import org.eclipse.jdt.internal.compiler.impl.CompilerOptions;
 import org.eclipse.jdt.internal.compiler.parser.Scanner;
+import org.eclipse.jdt.internal.compiler.parser.ScannerHelper;
 import org.eclipse.jdt.internal.compiler.util.Util;
 import org.eclipse.jdt.internal.formatter.linewrap.CommentWrapExecutor;
 import org.eclipse.jdt.internal.formatter.linewrap.WrapPreparator;
@@ -56,6 +64,13 @@ public class DefaultCodeFormatter extends CodeFormatter {
 	 */
 	public static boolean DEBUG = false;
 
+	public static final String USE_REGION_SCOPED_FORMATTING_PROPERTY = "jdt.core.useRegionScopedFormatting"; //$NON-NLS-1$
+	/**
+	 * Whether regions of a compilation unit are formatted within their enclosing declarations only.
+	 * Not final for testing purpose only.
+	 */
+	public static boolean USE_REGION_SCOPED_FORMATTING = !"false".equals(System.getProperty(USE_REGION_SCOPED_FORMATTING_PROPERTY)); //$NON-NLS-1$
+
 	private static final int K_COMMENTS_MASK = K_SINGLE_LINE_COMMENT
 		| K_MULTI_LINE_COMMENT
 		| K_JAVA_DOC;
@@ -149,6 +164,12 @@ public class DefaultCodeFormatter extends CodeFormatter {
 		if (!regionsSatisfiesPreconditions(regions, source.length())) {
 			throw new IllegalArgumentException();
 		}
+
+		if (USE_REGION_SCOPED_FORMATTING && (kind & K_MASK) == K_COMPILATION_UNIT) {
+			TextEdit edit = formatEnclosingDeclarations(kind, source, regions, indentationLevel, lineSeparator);
+			if (edit != null)
+				return edit;
+		}
 		this.formatRegions = regions;
 
 		updateWorkingOptions(indentationLevel, lineSeparator, kind);
@@ -169,6 +190,116 @@ public class DefaultCodeFormatter extends CodeFormatter {
 		return result;
 	}
 
+	/**
+	 * Formats the given regions of a compilation unit by formatting only the method, field and initializer
+	 * declarations enclosing them, each one as class body declarations at the indentation level of its type.
+	 * The compilation unit is parsed without method bodies to find these declarations.
+	 * Returns <code>null</code> if the whole compilation unit has to be formatted instead, i.e. when a region
+	 * is not enclosed in such a declaration, when the enclosing declarations are not much smaller than the
+	 * compilation unit, or when the formatting of a declaration may depend on the rest of the compilation unit.
+	 */
+	private TextEdit formatEnclosingDeclarations(int kind, String source, IRegion[] regions, int indentationLevel,
+			String lineSeparator) {
+		if (this.originalOptions.align_type_members_on_columns)
+			return null;
+		if (this.originalOptions.use_tags && this.originalOptions.disabling_tag != null
+				&& source.indexOf(new String(this.originalOptions.disabling_tag)) != -1)
+			return null;
+		// the enclosing declarations are at least as long as the (disjoint) regions: check it before parsing
+		int regionsLength = 0;
+		for (IRegion region : regions)
+			regionsLength += region.getLength();
+		if (regionsLength * 2 >= source.length())
+			return null;
+
+		ASTParser parser = ASTParser.newParser(AST.JLS8);
+		parser.setCompilerOptions(getParserOptions());
+		parser.setKind(ASTParser.K_COMPILATION_UNIT);
+		parser.setIgnoreMethodBodies(true);
+		parser.setSource(source.toCharArray());
+		CompilationUnit unit = (CompilationUnit) parser.createAST(null);
+		for (IProblem problem : unit.getProblems()) {
+			if (problem.isError())
+				return null;
+		}
+
+		BodyDeclaration[] declarations = new BodyDeclaration[regions.length];
+		int declarationsLength = 0;
+		for (int i = 0; i < regions.length; i++) {
+			int start = regions[i].getOffset();
+			declarations[i] = findEnclosingDeclaration(unit.types(), start, start + regions[i].getLength());
+			if (declarations[i] == null)
+				return null;
+			if (i == 0 || declarations[i] != declarations[i - 1])
+				declarationsLength += declarations[i].getLength();
+		}
+		if (declarationsLength * 2 >= source.length())
+			return null;
+
+		MultiTextEdit result = new MultiTextEdit();
+		for (int i = 0; i < regions.length;) {
+			BodyDeclaration declaration = declarations[i];
+			int declarationEnd = declaration.getStartPosition() + declaration.getLength();
+			// start at the beginning of the line so that the declaration gets indented
+			int lineStart = declaration.getStartPosition();
+			while (lineStart > 0 && ScannerHelper.isWhitespace(source.charAt(lineStart - 1))
+					&& source.charAt(lineStart - 1) != '\n' && source.charAt(lineStart - 1) != '\r')
+				lineStart--;
+			if (lineStart > 0 && source.charAt(lineStart - 1) != '\n' && source.charAt(lineStart - 1) != '\r')
+				return null; // the declaration does not start its line
+
+			List<IRegion> declarationRegions = new ArrayList<>();
+			for (; i < regions.length && declarations[i] == declaration; i++)
+				declarationRegions.add(new Region(regions[i].getOffset() - lineStart, regions[i].getLength()));
+
+			TextEdit edit = format((kind & ~K_MASK) | K_CLASS_BODY_DECLARATIONS,
+					source.substring(lineStart, declarationEnd),
+					declarationRegions.toArray(new IRegion[declarationRegions.size()]),
+					indentationLevel + getIndentationLevel(declaration), lineSeparator);
+			if (edit == null)
+				return null;
+			for (TextEdit child : edit.removeChildren()) {
+				child.moveTree(lineStart);
+				result.addChild(child);
+			}
+		}
+		return result;
+	}
+
+	private BodyDeclaration findEnclosingDeclaration(List<?> bodyDeclarations, int start, int end) {
+		for (Object element : bodyDeclarations) {
+			BodyDeclaration declaration = (BodyDeclaration) element;
+			int declarationStart = declaration.getStartPosition();
+			// the whitespace following the declaration is not part of it
+			if (start < declarationStart || end >= declarationStart + declaration.getLength())
+				continue;
+			if (declaration instanceof AbstractTypeDeclaration)
+				return findEnclosingDeclaration(((AbstractTypeDeclaration) declaration).bodyDeclarations(), start, end);
+			if (declaration instanceof MethodDeclaration || declaration instanceof FieldDeclaration
+					|| declaration instanceof Initializer)
+				return declaration;
+			return null;
+		}
+		return null;
+	}
+
+	private int getIndentationLevel(BodyDeclaration declaration) {
+		int indentationLevel = 0;
+		for (ASTNode parent = declaration.getParent(); parent instanceof AbstractTypeDeclaration; parent = parent.getParent()) {
+			boolean indent;
+			if (parent instanceof EnumDeclaration) {
+				indent = this.originalOptions.indent_body_declarations_compare_to_enum_declaration_header;
+			} else if (parent instanceof AnnotationTypeDeclaration) {
+				indent = this.originalOptions.indent_body_declarations_compare_to_annotation_declaration_header;
+			} else {
+				indent = this.originalOptions.indent_body_declarations_compare_to_type_header;
+			}
+			if (indent)
+				indentationLevel++;
+		}
+		return indentationLevel;
+	}
+
 	private boolean init(String source) {
 
 		// this is convenient for debugging (see Token.toString())
@@ -285,11 +416,16 @@ public class DefaultCodeFormatter extends CodeFormatter {
 		return result;
 	}
 
-	private ASTNode parseSourceCode(int kind) {
-		ASTParser parser = ASTParser.newParser(AST.JLS8);
+	private Map<String, String> getParserOptions() {
 		Map<String, String> parserOptions = JavaCore.getOptions();
 		parserOptions.put(CompilerOptions.OPTION_Source, this.sourceLevel);
 		parserOptions.put(CompilerOptions.OPTION_DocCommentSupport, CompilerOptions.ENABLED);
+		return parserOptions;
+	}
+
+	private ASTNode parseSourceCode(int kind) {
+		ASTParser parser = ASTParser.newParser(AST.JLS8);
+		Map<String, String> parserOptions = getParserOptions();
 		parser.setCompilerOptions(parserOptions);
 
 		switch (kind & K_MASK) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2014, 2015 Mateusz Matela and others.
+ * Copyright (c) 2014, 2017 Mateusz Matela and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -17,11 +17,11 @@ import static org.eclipse.jdt.internal.compiler.parser.TerminalTokens.TokenNameC
 import static org.eclipse.jdt.internal.compiler.parser.TerminalTokens.TokenNameCOMMENT_LINE;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 
 import org.eclipse.jdt.internal.compiler.parser.ScannerHelper;
+import org.eclipse.jdt.internal.compiler.util.HashtableOfLong;
 import org.eclipse.jdt.internal.formatter.DefaultCodeFormatterOptions;
 import org.eclipse.jdt.internal.formatter.Token;
 import org.eclipse.jdt.internal.formatter.TokenManager;
@@ -32,43 +32,13 @@ import org.eclipse.jdt.internal.formatter.Token.WrapPolicy;
 public class WrapExecutor {
 
 	private static class WrapInfo {
-		public int wrapTokenIndex;
-		public int indent;
+		public final int wrapTokenIndex;
+		public final int indent;
 
 		public WrapInfo(int wrapIndex, int indent) {
 			this.wrapTokenIndex = wrapIndex;
 			this.indent = indent;
 		}
-
-		public WrapInfo() {
-			// empty constructor
-		}
-
-		@Override
-		public int hashCode() {
-			final int prime = 31;
-			int result = 1;
-			result = prime * result + this.indent;
-			result = prime * result + this.wrapTokenIndex;
-			return result;
-		}
-
-		@Override
-		public boolean equals(Object obj) {
-			if (this == obj)
-				return true;
-			if (obj == null)
-				return false;
-			if (getClass() != obj.getClass())
-				return false;
-			WrapInfo other = (WrapInfo) obj;
-			if (this.indent != other.indent)
-				return false;
-			if (this.wrapTokenIndex != other.wrapTokenIndex)
-				return false;
-			return true;
-		}
-
 	}
 
 	private static class WrapResult {
@@ -79,7 +49,7 @@ public class WrapExecutor {
 		public final int totalExtraLines;
 		/**
 		 * Contains information about the next wrap in the result or <code>null</code> if this is the last wrap.
-		 * Can be used as a key in {@link WrapExecutor#wrapSearchResults} to retrieve the next wraps.
+		 * Can be used to retrieve the next wraps from {@link WrapExecutor#wrapSearchResults}.
 		 */
 		public final WrapInfo nextWrap;
 
@@ -276,7 +246,18 @@ public class WrapExecutor {
 
 	private final static int[] EMPTY_ARRAY = {};
 
-	private final HashMap<WrapInfo, WrapResult> wrapSearchResults = new HashMap<WrapInfo, WrapResult>();
+	/**
+	 * System property giving the maximum number of lines analyzed when searching the wraps of a line,
+	 * including the lines it gets wrapped into. Past this budget, the remaining lines are wrapped at the
+	 * last possible wrap instead of the best one, so that pathological expressions (e.g. long fluent
+	 * call chains or big array initializers) are still formatted in reasonable time.
+	 */
+	public static final String WRAP_SEARCH_BUDGET_PROPERTY = "jdt.core.formatter.wrapSearchBudget"; //$NON-NLS-1$
+	public static int WRAP_SEARCH_BUDGET = Integer.getInteger(WRAP_SEARCH_BUDGET_PROPERTY, 20000).intValue();
+
+	/* The results of findWraps() keyed by wrap token index and indent (see wrapKey()) */
+	private HashtableOfLong wrapSearchResults = new HashtableOfLong();
+	private int wrapSearchEffort;
 	private final HashSet<WrapPolicy> usedTopPriorityWraps = new HashSet<WrapPolicy>();
 
 	private final LineAnalyzer lineAnalyzer;
@@ -284,8 +265,6 @@ public class WrapExecutor {
 	final TokenManager tm;
 	final DefaultCodeFormatterOptions options;
 
-	private final WrapInfo wrapInfoTemp = new WrapInfo();
-
 	public WrapExecutor(TokenManager tokenManager, DefaultCodeFormatterOptions options) {
 		this.tm = tokenManager;
 		this.options = options;
@@ -296,23 +275,41 @@ public class WrapExecutor {
 		int index = 0;
 		while (index < this.tm.size()) {
 			Token token = this.tm.get(index);
+			this.wrapSearchEffort = 0;
 			while (true) {
 				try {
 					int currentIndent = getWrapIndent(token);
-					this.wrapSearchResults.clear();
+					clearWrapSearchResults();
 					index = applyWraps(index, currentIndent);
 					break;
 				} catch (WrapRestartThrowable e) {
 					handleTopPriorityWraps(e);
 				}
 			}
-			this.wrapSearchResults.clear();
+			clearWrapSearchResults();
 			this.usedTopPriorityWraps.clear();
 		}
 
 		this.tm.traverse(0, new NLSTagHandler());
 	}
 
+	private void clearWrapSearchResults() {
+		if (this.wrapSearchResults.size() > 0)
+			this.wrapSearchResults = new HashtableOfLong();
+	}
+
+	private static long wrapKey(int wrapTokenIndex, int indent) {
+		// the hashtable needs non zero keys and hashes their high bits, which must not be negative:
+		// mix the indent into them so that results for the same token with different indents spread out,
+		// the high bits are still distinct for distinct tokens with the same indent in the low bits
+		int hash = ((wrapTokenIndex + 1) + indent * 0x9E3779B9) & 0x7FFFFFFF;
+		return ((long) hash << 32) | (indent & 0xFFFFFFFFL);
+	}
+
+	private WrapResult getWrapResult(WrapInfo wrapInfo) {
+		return (WrapResult) this.wrapSearchResults.get(wrapKey(wrapInfo.wrapTokenIndex, wrapInfo.indent));
+	}
+
 	private int applyWraps(int index, int indent) throws WrapRestartThrowable {
 		WrapInfo wrapInfo = findWrapsCached(index, indent).nextWrap;
 		Token token = this.tm.get(index);
@@ -334,7 +331,7 @@ public class WrapExecutor {
 				separateLinesOnWrapFrom = index;
 			}
 			while (wrapInfo != null && wrapInfo.wrapTokenIndex < index)
-				wrapInfo = this.wrapSearchResults.get(wrapInfo).nextWrap;
+				wrapInfo = getWrapResult(wrapInfo).nextWrap;
 			if (wrapInfo != null && wrapInfo.wrapTokenIndex == index) {
 				checkSeparateLinesOnWrap(separateLinesOnWrapFrom);
 				token.breakBefore();
@@ -372,11 +369,8 @@ public class WrapExecutor {
 	}
 
 	private WrapResult findWrapsCached(int startTokenIndex, int indent) throws WrapRestartThrowable {
-		this.wrapInfoTemp.wrapTokenIndex = startTokenIndex;
-		this.wrapInfoTemp.indent = indent;
-		WrapResult wrapResult = this.wrapSearchResults.get(this.wrapInfoTemp);
-		if (wrapResult == null && this.wrapSearchResults.containsKey(this.wrapInfoTemp))
-			return null; // no wrap needed
+		long key = wrapKey(startTokenIndex, indent);
+		WrapResult wrapResult = (WrapResult) this.wrapSearchResults.get(key);
 
 		// pre-existing result may be based on different wrapping of earlier tokens and therefore be wrong
 		WrapResult wr = wrapResult;
@@ -387,7 +381,7 @@ public class WrapExecutor {
 				wrapResult = null;
 				break;
 			}
-			wr = this.wrapSearchResults.get(wi);
+			wr = getWrapResult(wi);
 		}
 
 		if (wrapResult == null) {
@@ -401,8 +395,7 @@ public class WrapExecutor {
 					token.clearLineBreaksBefore();
 			}
 
-			WrapInfo wrapInfo = new WrapInfo(startTokenIndex, indent);
-			this.wrapSearchResults.put(wrapInfo, wrapResult);
+			this.wrapSearchResults.put(key, wrapResult);
 		}
 		return wrapResult;
 	}
@@ -410,8 +403,10 @@ public class WrapExecutor {
 	/**
 	 * The main algorithm that looks for optimal places to wrap.
 	 * Calls itself recursively to get results for wrapped sub-lines.  
+	 * Once {@link #WRAP_SEARCH_BUDGET} is exceeded, only the last possible wrap of each sub-line is considered.
 	 */
 	private WrapResult findWraps(int wrapTokenIndex, int indent) throws WrapRestartThrowable {
+		this.wrapSearchEffort++;
 		final int lastIndex = this.lineAnalyzer.analyzeLine(wrapTokenIndex, indent);
 		final boolean lineExceeded = this.lineAnalyzer.lineExceeded;
 		final int lastPosition = this.lineAnalyzer.getLastPosition();
@@ -431,7 +426,8 @@ public class WrapExecutor {
 		int bestNextWrap = -1;
 		int bestIndent = 0;
 
-		if (!lineExceeded && (!this.options.join_wrapped_lines || !this.options.wrap_outer_expressions_when_nested))
+		if (!lineExceeded && (!this.options.join_wrapped_lines || !this.options.wrap_outer_expressions_when_nested
+				|| this.wrapSearchEffort > WRAP_SEARCH_BUDGET))
 			return new WrapResult(bestTotalPenalty, bestExtraLines, null);
 
 		if ((!lineExceeded || firstPotentialWrap < 0) && lastIndex + 1 < this.tm.size()) {
@@ -496,6 +492,8 @@ public class WrapExecutor {
 				if (!this.options.wrap_outer_expressions_when_nested)
 					break;
 			}
+			if (this.wrapSearchEffort > WRAP_SEARCH_BUDGET)
+				break; // keep the best wrap found so far
 		}
 
 		if (bestNextWrap == -1 && lineExceeded && topPriorityGroupStarts.length > 0) {
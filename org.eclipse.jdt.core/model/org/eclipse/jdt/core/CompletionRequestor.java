@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2008 IBM Corporation and others.
+ * Copyright (c) 2004, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -294,6 +294,21 @@ public abstract class CompletionRequestor {
 		// default behavior is to ignore
 	}
 
+	/**
+	 * Notification that the completion exceeded its time budget (see {@link JavaCore#CODEASSIST_TIME_BUDGET}):
+	 * the proposals which require a search in the indexes or a guess of missing types were not all reported,
+	 * and the proposals are thus incomplete. This notification is sent before <code>endReporting</code>.
+	 * <p>
+	 * The default implementation of this method does nothing.
+	 * Clients may override to receive this kind of notice.
+	 * </p>
+	 *
+	 * @since 3.12
+	 */
+	public void completionTimedOut() {
+		// default behavior is to ignore
+	}
+
 	/**
 	 * Proposes a completion. Has no effect if the kind of proposal
 	 * is being ignored by this requestor. Callers should consider
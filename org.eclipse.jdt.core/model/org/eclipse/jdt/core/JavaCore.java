@@ -2279,6 +2279,35 @@ public final class JavaCore extends Plugin {
 	 * @category CoreOptionID
 	 */
 	public static final String CORE_JAVA_BUILD_RECREATE_MODIFIED_CLASS_FILES_IN_OUTPUT_FOLDER = PLUGIN_ID + ".builder.recreateModifiedClassFileInOutputFolder"; //$NON-NLS-1$
+	/**
+	 * Core option ID: Parallel Compilation.
+	 * <p>When enabled, the JavaBuilder parses the source files being compiled using several worker
+	 *    threads, while the type bindings are built and while the types are resolved and their code is generated.
+	 *    Problem markers and .class files are still written by the builder thread.</p>
+	 * <dl>
+	 * <dt>Option id:</dt><dd><code>"org.eclipse.jdt.core.builder.parallelCompilation"</code></dd>
+	 * <dt>Possible values:</dt><dd><code>{ "enabled", "disabled" }</code></dd>
+	 * <dt>Default:</dt><dd><code>"disabled"</code></dd>
+	 * </dl>
+	 * @since 3.12
+	 * @category CoreOptionID
+	 */
+	public static final String CORE_JAVA_BUILD_PARALLEL_COMPILATION = PLUGIN_ID + ".builder.parallelCompilation"; //$NON-NLS-1$
+	/**
+	 * Core option ID: Build Cache.
+	 * <p>When enabled, the JavaBuilder stores the results of its compilations in a local cache keyed by the
+	 *    contents of the source files, the compiler options and the API of their dependencies. Source files
+	 *    compiled again against the same dependencies (for instance after switching back to a previous branch)
+	 *    get their .class files and problems from the cache instead of being compiled.</p>
+	 * <dl>
+	 * <dt>Option id:</dt><dd><code>"org.eclipse.jdt.core.builder.buildCache"</code></dd>
+	 * <dt>Possible values:</dt><dd><code>{ "enabled", "disabled" }</code></dd>
+	 * <dt>Default:</dt><dd><code>"disabled"</code></dd>
+	 * </dl>
+	 * @since 3.12
+	 * @category CoreOptionID
+	 */
+	public static final String CORE_JAVA_BUILD_CACHE = PLUGIN_ID + ".builder.buildCache"; //$NON-NLS-1$
 	/**
 	 * Core option ID: Reporting Incomplete Classpath.
 	 * <p>Indicate the severity of the problem reported when an entry on the classpath does not exist,
@@ -2709,6 +2738,22 @@ public final class JavaCore extends Plugin {
 	 * @category CodeAssistOptionID
 	 */
 	public static final String CODEASSIST_SUGGEST_STATIC_IMPORTS= PLUGIN_ID + ".codeComplete.suggestStaticImports"; //$NON-NLS-1$
+	/**
+	 * Code assist option ID: Time Budget of Code Completion.
+	 * <p>When positive, code completion reports the proposals which are computed from the code being completed
+	 *    (local variables, members of the receiver type, keywords...) first. The proposals which require a search
+	 *    in the indexes (types, constructors) or a guess of missing types are computed afterwards, and are abandoned
+	 *    once the completion has taken the given number of milliseconds, in which case
+	 *    {@link CompletionRequestor#completionTimedOut()} is sent.</p>
+	 * <dl>
+	 * <dt>Option id:</dt><dd><code>"org.eclipse.jdt.core.codeComplete.timeBudget"</code></dd>
+	 * <dt>Possible values:</dt><dd><code>"&lt;n&gt;"</code> where <code>&lt;n&gt;</code> is zero (no time budget) or a positive number of milliseconds</dd>
+	 * <dt>Default:</dt><dd><code>"0"</code></dd>
+	 * </dl>
+	 * @since 3.12
+	 * @category CodeAssistOptionID
+	 */
+	public static final String CODEASSIST_TIME_BUDGET = PLUGIN_ID + ".codeComplete.timeBudget"; //$NON-NLS-1$
 	// end configurable option IDs }
 	// Begin configurable option values {
 	/**
@@ -4202,10 +4247,15 @@ public final class JavaCore extends Plugin {
 				manager.batchContainerInitializationsProgress.initializeAfterLoadMonitor.set(null);
 			}
 	
+			// resolve the classpaths ahead of time (independent projects in parallel) now that the containers are initialized
+			mainMonitor.subTask(Messages.javamodel_resolving_classpaths);
+			final IJavaProject[] projects = manager.getJavaModel().getJavaProjects();
+			int threads = Integer.getInteger(JavaModelManager.CLASSPATH_RESOLUTION_THREADS, ParallelClasspathResolver.DEFAULT_THREADS).intValue();
+			new ParallelClasspathResolver(threads).resolve(projects, mainMonitor.split(5)); // 5% of the time is spent in resolving classpaths
+	
 			// avoid leaking source attachment properties (see https://bugs.eclipse.org/bugs/show_bug.cgi?id=183413 )
 			// and recreate links for external folders if needed
 			mainMonitor.subTask(Messages.javamodel_resetting_source_attachment_properties);
-			final IJavaProject[] projects = manager.getJavaModel().getJavaProjects();
 			HashSet visitedPaths = new HashSet();
 			ExternalFoldersManager externalFoldersManager = JavaModelManager.getExternalManager();
 			for (int i = 0, length = projects.length; i < length; i++) {
@@ -4287,7 +4337,7 @@ public final class JavaCore extends Plugin {
 					// will not activate index query caches if indexes are not ready, since it would take to long
 					// to wait until indexes are fully rebuild
 					IJavaSearchConstants.CANCEL_IF_NOT_READY_TO_SEARCH,
-					mainMonitor.split(47) // 47% of the time is spent in the dummy search
+					mainMonitor.split(42) // 42% of the time is spent in the dummy search
 				);
 			} catch (JavaModelException e) {
 				// /search failed: ignore
@@ -216,9 +216,11 @@ public String[] getParameterNames() throws JavaModelException {
 		// map source and try to find parameter names
 		if(paramNames == null) {
 			IBinaryType info = (IBinaryType) ((BinaryType) getDeclaringType()).getElementInfo();
-			char[] source = mapper.findSource(type, info);
-			if (source != null){
-				mapper.mapSource(type, source, info);
+			if (!mapper.mapSourceFromIndex(type, info)) {
+				char[] source = mapper.findSource(type, info);
+				if (source != null){
+					mapper.mapSource(type, source, info);
+				}
 			}
 			paramNames = mapper.getMethodParameterNames(this);
 		}
@@ -33,6 +33,7 @@ import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.*;
 import org.eclipse.jdt.core.*;
 import org.eclipse.jdt.core.compiler.CharOperation;
+import org.eclipse.jdt.internal.codeassist.CompletionSession;
 import org.eclipse.jdt.internal.compiler.SourceElementParser;
 import org.eclipse.jdt.internal.core.JavaModelManager.PerProjectInfo;
 import org.eclipse.jdt.internal.core.builder.JavaBuilder;
@@ -208,6 +209,22 @@ public class DeltaProcessor {
 
 	public static final int DEFAULT_CHANGE_EVENT = 0; // must not collide with ElementChangedEvent event masks
 
+	/*
+	 * Number of affected files above which a resource delta is processed in bulk mode
+	 * (e.g. after switching branches): changed source roots are reported as a single content change
+	 * and re-indexed as a whole instead of being processed file by file.
+	 */
+	private static int BULK_DELTA_THRESHOLD = Integer.getInteger(JavaModelManager.BULK_DELTA_THRESHOLD, 5000).intValue();
+
+	/*
+	 * For testing purpose only: sets the bulk delta threshold and returns the previous one
+	 */
+	public static int setBulkDeltaThreshold(int threshold) {
+		int previous = BULK_DELTA_THRESHOLD;
+		BULK_DELTA_THRESHOLD = threshold;
+		return previous;
+	}
+
 	/*
 	 * Answer a combination of the lastModified stamp and the size.
 	 * Used for detecting external JAR changes
@@ -276,6 +293,12 @@ public class DeltaProcessor {
 	 */
 	private SourceElementParser sourceElementParserCache;
 
+	/*
+	 * Source roots that have been reported as a whole while processing the current resource delta in bulk mode.
+	 * Null if the current resource delta is not processed in bulk mode.
+	 */
+	private HashSet bulkRoots;
+
 	public DeltaProcessor(DeltaProcessingState state, JavaModelManager manager) {
 		this.state = state;
 		this.manager = manager;
@@ -594,6 +617,46 @@ public class DeltaProcessor {
 			}
 		}
 	}
+	/*
+	 * Processes the given changed source root as a whole (bulk mode):
+	 * closes it, reports a single content change and re-indexes its folder instead of its individual files.
+	 * Returns whether the root could be processed this way.
+	 */
+	private boolean bulkRootChanged(IResourceDelta delta, RootInfo rootInfo) {
+		if (delta.getKind() != IResourceDelta.CHANGED
+				|| (delta.getFlags() & IResourceDelta.LOCAL_CHANGED) != 0
+				|| rootInfo.entryKind != IClasspathEntry.CPE_SOURCE)
+			return false;
+		IResource res = delta.getResource();
+		Openable root = createElement(res, IJavaElement.PACKAGE_FRAGMENT_ROOT, rootInfo);
+		if (root == null)
+			return false;
+		if (VERBOSE) {
+			System.out.println("Processing source root in bulk mode: " + res.getFullPath()); //$NON-NLS-1$
+		}
+		close(root);
+		currentDelta().changed(root, IJavaElementDelta.F_CONTENT);
+		this.bulkRoots.add(rootInfo);
+
+		// packages may have been added or removed
+		JavaProject project = rootInfo.project;
+		this.projectCachesToReset.add(project);
+
+		// secondary types will be recomputed from the index
+		PerProjectInfo projectInfo = this.manager.getPerProjectInfo(project.getProject(), false/*don't create info*/);
+		if (projectInfo != null) {
+			projectInfo.secondaryTypes = null;
+		}
+
+		// replace the per-file index updates with a single folder re-index request
+		IndexManager indexManager = this.manager.indexManager;
+		if (indexManager != null) {
+			IPath rootPath = res.getFullPath();
+			indexManager.removeSourceFolderFromIndex(project, rootPath, rootInfo.inclusionPatterns, rootInfo.exclusionPatterns);
+			indexManager.indexSourceFolder(project, rootPath, rootInfo.inclusionPatterns, rootInfo.exclusionPatterns);
+		}
+		return true;
+	}
 	/*
 	 * Closes the given element, which removes it from the cache of open elements.
 	 */
@@ -945,6 +1008,7 @@ public class DeltaProcessor {
 								externalArchivesStatus.put(entryPath, EXTERNAL_JAR_REMOVED);
 								// the jar was physically removed: remove the index
 								this.manager.indexManager.removeIndex(entryPath);
+								this.manager.zipFileCache.invalidate(entryPath);
 							}
 
 						} else if (targetLibrary instanceof File){ // external JAR
@@ -961,10 +1025,13 @@ public class DeltaProcessor {
 									this.state.getExternalLibTimeStamps().remove(entryPath);
 									// remove the index
 									this.manager.indexManager.removeIndex(entryPath);
+									this.manager.zipFileCache.invalidate(entryPath);
 
 								} else if (oldTimestamp.longValue() != newTimeStamp){
 									externalArchivesStatus.put(entryPath, EXTERNAL_JAR_CHANGED);
 									this.state.getExternalLibTimeStamps().put(entryPath, Long.valueOf(newTimeStamp));
+									// close the outdated zip file once it is no longer in use
+									this.manager.zipFileCache.invalidate(entryPath);
 									// first remove the index so that it is forced to be re-indexed
 									this.manager.indexManager.removeIndex(entryPath);
 									// then index the jar
@@ -1036,6 +1103,59 @@ public class DeltaProcessor {
 		}
 		return hasDelta;
 	}
+	/*
+	 * Returns the number of files affected by the given delta, stopping the count once the given limit is reached.
+	 * Output folders and the class files of output folders shared with source folders are not counted,
+	 * so that the output of a build never switches to bulk mode.
+	 */
+	private int countAffectedFiles(IResourceDelta delta, final int limit) {
+		final int[] count = new int[1];
+		try {
+			delta.accept(new IResourceDeltaVisitor() {
+				private OutputsInfo projectOutputs; // the output folders of the project being visited
+				public boolean visit(IResourceDelta child) {
+					if (count[0] >= limit)
+						return false;
+					IResource res = child.getResource();
+					switch (res.getType()) {
+						case IResource.PROJECT :
+							this.projectOutputs = child.getKind() == IResourceDelta.REMOVED ? null : outputsInfo(null, res);
+							break;
+						case IResource.FOLDER :
+							if (isInOutput(this.projectOutputs, res))
+								return false;
+							break;
+						case IResource.FILE :
+							if (!isInOutput(this.projectOutputs, res))
+								count[0]++;
+							break;
+					}
+					return true;
+				}
+			});
+		} catch (CoreException e) {
+			// cannot happen as the visitor doesn't throw
+		}
+		return count[0];
+	}
+	/*
+	 * Returns whether the given resource is an output folder (or in an output folder) that doesn't contain sources,
+	 * or a class file in an output folder shared with a source folder.
+	 */
+	private static boolean isInOutput(OutputsInfo info, IResource res) {
+		if (info == null)
+			return false;
+		IPath resPath = res.getFullPath();
+		for (int i = 0; i < info.outputCount; i++) {
+			if (info.paths[i].isPrefixOf(resPath)) {
+				if (info.traverseModes[i] == IGNORE)
+					return true;
+				if (res.getType() == IResource.FILE && org.eclipse.jdt.internal.compiler.util.Util.isClassFileName(res.getName()))
+					return true;
+			}
+		}
+		return false;
+	}
 	private JavaElementDelta currentDelta() {
 		if (this.currentDelta == null) {
 			this.currentDelta = new JavaElementDelta(this.manager.getJavaModel());
@@ -1429,6 +1549,15 @@ public class DeltaProcessor {
 			JavaWorkspaceScope workspaceScope = this.manager.workspaceScope;
 			if (workspaceScope != null)
 				workspaceScope.processDelta(deltaToNotify, eventType);
+
+			// the proposals of the last completion may no longer be valid
+			CompletionSession.reset();
+		}
+		// the bindings of the reconciled ASTs may no longer be valid, except the ones of the working copies being reconciled
+		if (deltaToNotify != null) {
+			this.manager.reconciledASTCache.clear();
+		} else if (!this.reconcileDeltas.isEmpty()) {
+			this.manager.reconciledASTCache.retain(this.reconcileDeltas.keySet());
 		}
 
 		// Notification
@@ -1846,6 +1975,15 @@ public class DeltaProcessor {
 			this.state.initializeRoots(false/*not initiAfterLoad*/);
 			this.currentElement = null;
 
+			// large deltas (e.g. branch switches) are processed per source root rather than per file
+			int threshold = BULK_DELTA_THRESHOLD;
+			if (threshold > 0 && countAffectedFiles(changes, threshold) >= threshold) {
+				if (VERBOSE) {
+					System.out.println("Resource delta affects more than " + threshold + " files: processing it in bulk mode"); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+				this.bulkRoots = new HashSet();
+			}
+
 			// get the workspace delta, and start processing there.
 			IResourceDelta[] deltas = changes.getAffectedChildren(IResourceDelta.ADDED | IResourceDelta.REMOVED | IResourceDelta.CHANGED, IContainer.INCLUDE_HIDDEN);
 			for (int i = 0; i < deltas.length; i++) {
@@ -1889,6 +2027,7 @@ public class DeltaProcessor {
 			return this.currentDelta;
 		} finally {
 			this.currentDelta = null;
+			this.bulkRoots = null;
 		}
 	}
 	/*
@@ -2222,7 +2361,14 @@ public class DeltaProcessor {
 						elementType,
 					rootInfo);
 		} else if (rootInfo != null) {
-			processChildren = updateCurrentDeltaAndIndex(delta, elementType, rootInfo);
+			if (this.bulkRoots != null
+					&& (this.bulkRoots.contains(rootInfo)
+						|| (elementType == IJavaElement.PACKAGE_FRAGMENT_ROOT && bulkRootChanged(delta, rootInfo)))) {
+				// already reported as a whole: only look for nested roots and roots of other projects
+				processChildren = true;
+			} else {
+				processChildren = updateCurrentDeltaAndIndex(delta, elementType, rootInfo);
+			}
 		} else {
 			// not yet inside a package fragment root
 			processChildren = true;
@@ -2277,6 +2423,7 @@ public class DeltaProcessor {
 					if (childType == NON_JAVA_RESOURCE) {
 						if (rootInfo != null) { // if inside a package fragment root
 							if (!isValidParent) continue;
+							if (this.bulkRoots != null && this.bulkRoots.contains(rootInfo)) continue; // covered by the root content change
 							if (parent == null) {
 								// find the parent of the non-java resource to attach to
 								if (this.currentElement == null
@@ -2637,6 +2784,8 @@ public class DeltaProcessor {
 							indexManager.indexLibrary(jarPath, root.getJavaProject().getProject(), root.getIndexPath());
 							break;
 						case IResourceDelta.CHANGED:
+							// close the outdated zip file once it is no longer in use
+							this.manager.zipFileCache.invalidate(jarPath);
 							// first remove the index so that it is forced to be re-indexed
 							indexManager.removeIndex(jarPath);
 							// then index the jar
@@ -2646,6 +2795,7 @@ public class DeltaProcessor {
 							// the jar was physically removed: remove the index
 							indexManager.discardJobs(jarPath.toString());
 							indexManager.removeIndex(jarPath);
+							this.manager.zipFileCache.invalidate(jarPath);
 							break;
 					}
 					break;
@@ -12,7 +12,6 @@ package org.eclipse.jdt.internal.core;
 
 import java.net.URL;
 import java.util.*;
-import java.util.zip.ZipEntry;
 import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
 
@@ -89,9 +88,14 @@ public class JarPackageFragmentRoot extends PackageFragmentRoot {
 			// always create the default package
 			rawPackageInfo.put(CharOperation.NO_STRINGS, new ArrayList[] { EMPTY_LIST, EMPTY_LIST });
 
-			for (Enumeration e= jar.entries(); e.hasMoreElements();) {
-				ZipEntry member= (ZipEntry) e.nextElement();
-				initRawPackageInfo(rawPackageInfo, member.getName(), member.isDirectory(), compliance);
+			// use the entry index of the shared zip file cache rather than enumerating the zip entries
+			Iterator packages = getJavaModelManager().zipFileCache.getPackageIndex(jar).values().iterator();
+			while (packages.hasNext()) {
+				String[] entryNames = (String[]) packages.next();
+				for (int i = 0, length = entryNames.length; i < length; i++) {
+					String entryName = entryNames[i];
+					initRawPackageInfo(rawPackageInfo, entryName, entryName.endsWith("/"), compliance); //$NON-NLS-1$
+				}
 			}
 
 			// loop through all of referenced packages, creating package fragments if necessary
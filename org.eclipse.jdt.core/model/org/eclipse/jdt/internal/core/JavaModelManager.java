@@ -120,6 +120,7 @@ import org.eclipse.jdt.core.formatter.DefaultCodeFormatterConstants;
 import org.eclipse.jdt.internal.codeassist.CompletionEngine;
 import org.eclipse.jdt.internal.codeassist.SelectionEngine;
 import org.eclipse.jdt.internal.compiler.AbstractAnnotationProcessorManager;
+import org.eclipse.jdt.internal.compiler.BuildCache;
 import org.eclipse.jdt.internal.compiler.Compiler;
 import org.eclipse.jdt.internal.compiler.classfmt.ClassFileConstants;
 import org.eclipse.jdt.internal.compiler.env.AccessRestriction;
@@ -189,9 +190,10 @@ public class JavaModelManager implements IModelManager, ISaveParticipant, IConte
 				try {
 					ZipFile zipFile = (ZipFile)iterator.next();
 					if (JavaModelManager.ZIP_ACCESS_VERBOSE) {
-						System.out.println("(" + currentThread + ") [JavaModelManager.flushZipFiles()] Closing ZipFile on " +zipFile.getName()); //$NON-NLS-1$//$NON-NLS-2$
+						System.out.println("(" + currentThread + ") [JavaModelManager.flushZipFiles()] Releasing ZipFile on " +zipFile.getName()); //$NON-NLS-1$//$NON-NLS-2$
 					}
-					zipFile.close();
+					if (!getJavaModelManager().zipFileCache.release(zipFile))
+						zipFile.close();
 				} catch (IOException e) {
 					// problem occured closing zip file: cannot do much more
 				}
@@ -236,6 +238,11 @@ public class JavaModelManager implements IModelManager, ISaveParticipant, IConte
 	public int batchContainerInitializations = NO_BATCH_INITIALIZATION;
 
 	public BatchInitializationMonitor batchContainerInitializationsProgress = new BatchInitializationMonitor();
+
+	/*
+	 * Time spent in classpath container initializers (in ms), keyed by container path (IPath -> long[] {total time, count})
+	 */
+	private final HashMap containerInitializationTimes = new HashMap();
 	public Hashtable containerInitializersCache = new Hashtable(5);
 
 	/*
@@ -310,6 +317,39 @@ public class JavaModelManager implements IModelManager, ISaveParticipant, IConte
 	 */
 	public static final String MAX_COMPILED_UNITS_AT_ONCE = "maxCompiledUnitsAtOnce"; //$NON-NLS-1$
 
+	/**
+	 * Name of the JVM parameter to specify how many problem &amp; task markers the builder creates at most on a source file.
+	 * The default value is represented by <code>MarkerBatch#MAX_MARKERS_PER_RESOURCE</code>.
+	 */
+	public static final String MAX_MARKERS_PER_RESOURCE = "maxMarkersPerResource"; //$NON-NLS-1$
+
+	/**
+	 * Name of the JVM parameter to specify how many zip files are kept open by the shared zip file cache.
+	 * The default value is represented by <code>ZipFileCache#DEFAULT_SIZE</code>.
+	 */
+	public static final String ZIP_FILE_CACHE_SIZE = "zipFileCacheSize"; //$NON-NLS-1$
+
+	/**
+	 * Name of the JVM parameter to specify after how many milliseconds an unused zip file of the shared zip file cache
+	 * is closed. A negative value keeps unused zip files open until they are evicted.
+	 * The default value is represented by <code>ZipFileCache#DEFAULT_IDLE_TIMEOUT</code>.
+	 */
+	public static final String ZIP_FILE_CACHE_IDLE_TIMEOUT = "zipFileCacheIdleTimeout"; //$NON-NLS-1$
+
+	/**
+	 * Name of the JVM parameter to specify how many threads are used to resolve the classpaths of the workspace projects
+	 * after the classpath containers have been initialized (see <code>JavaCore#initializeAfterLoad(IProgressMonitor)</code>).
+	 * The default value is represented by <code>ParallelClasspathResolver#DEFAULT_THREADS</code>. A value of 1 resolves them serially.
+	 */
+	public static final String CLASSPATH_RESOLUTION_THREADS = "classpathResolutionThreads"; //$NON-NLS-1$
+
+	/**
+	 * Name of the JVM parameter to specify how many files a resource delta must affect before the delta processor
+	 * switches to bulk mode (coarse source root deltas and folder re-indexing instead of per-file processing).
+	 * The default value is represented by <code>DeltaProcessor#BULK_DELTA_THRESHOLD</code>. A value of 0 disables bulk mode.
+	 */
+	public static final String BULK_DELTA_THRESHOLD = "bulkDeltaThreshold"; //$NON-NLS-1$
+
 	/**
 	 * Special value used for recognizing ongoing initialization and breaking initialization cycles
 	 */
@@ -342,6 +382,7 @@ public class JavaModelManager implements IModelManager, ISaveParticipant, IConte
 	private static final String POST_ACTION_DEBUG = JavaCore.PLUGIN_ID + "/debug/postaction" ; //$NON-NLS-1$
 	private static final String BUILDER_DEBUG = JavaCore.PLUGIN_ID + "/debug/builder" ; //$NON-NLS-1$
 	private static final String BUILDER_STATS_DEBUG = JavaCore.PLUGIN_ID + "/debug/builder/stats" ; //$NON-NLS-1$
+	private static final String BUILDER_REPORT_DEBUG = JavaCore.PLUGIN_ID + "/debug/builder/report" ; //$NON-NLS-1$
 	private static final String COMPLETION_DEBUG = JavaCore.PLUGIN_ID + "/debug/completion" ; //$NON-NLS-1$
 	private static final String RESOLUTION_DEBUG = JavaCore.PLUGIN_ID + "/debug/resolution" ; //$NON-NLS-1$
 	private static final String SELECTION_DEBUG = JavaCore.PLUGIN_ID + "/debug/selection" ; //$NON-NLS-1$
@@ -1174,6 +1215,11 @@ public class JavaModelManager implements IModelManager, ISaveParticipant, IConte
 
 	public IndexManager indexManager = null;
 
+	/**
+	 * The local cache of compilation results used by the JavaBuilder, created on demand.
+	 */
+	private BuildCache buildCache;
+
 	/**
 	 * Table from IProject to PerProjectInfo.
 	 * NOTE: this object itself is used as a lock to synchronize creation/removal of per project infos
@@ -1507,6 +1553,25 @@ public class JavaModelManager implements IModelManager, ISaveParticipant, IConte
 	 */
 	private ThreadLocal zipFiles = new ThreadLocal();
 
+	/*
+	 * The indexes of the source attachment archives used during this session (String key -> SourceAttachmentIndex)
+	 * @see SourceAttachmentIndex#getKey(IPath, String, String, String)
+	 */
+	private final HashMap sourceAttachmentIndexes = new HashMap();
+
+	/**
+	 * The process-wide cache of open zip files shared by all threads.
+	 * Zip files cached per thread (see {@link #cacheZipFiles(Object)}) are references on archives of this cache.
+	 */
+	public final ZipFileCache zipFileCache = new ZipFileCache(
+		Integer.getInteger(ZIP_FILE_CACHE_SIZE, ZipFileCache.DEFAULT_SIZE).intValue(),
+		Long.getLong(ZIP_FILE_CACHE_IDLE_TIMEOUT, ZipFileCache.DEFAULT_IDLE_TIMEOUT).longValue());
+
+	/**
+	 * The resolved ASTs of the last reconciles, used by code select.
+	 */
+	public final ReconciledASTCache reconciledASTCache = new ReconciledASTCache(ReconciledASTCache.DEFAULT_SIZE);
+
 	private UserLibraryManager userLibraryManager;
 	
 	/*
@@ -1726,8 +1791,10 @@ public class JavaModelManager implements IModelManager, ISaveParticipant, IConte
 		}
 		try {
 			if (JavaModelManager.ZIP_ACCESS_VERBOSE) {
-				System.out.println("(" + Thread.currentThread() + ") [JavaModelManager.closeZipFile(ZipFile)] Closing ZipFile on " +zipFile.getName()); //$NON-NLS-1$	//$NON-NLS-2$
+				System.out.println("(" + Thread.currentThread() + ") [JavaModelManager.closeZipFile(ZipFile)] Releasing ZipFile on " +zipFile.getName()); //$NON-NLS-1$	//$NON-NLS-2$
 			}
+			if (this.zipFileCache.release(zipFile))
+				return; // zip file will be closed when evicted from the shared cache
 			zipFile.close();
 		} catch (IOException e) {
 			// problem occured closing zip file: cannot do much more
@@ -1746,6 +1813,7 @@ public class JavaModelManager implements IModelManager, ISaveParticipant, IConte
 				JavaBuilder.DEBUG = debug && options.getBooleanOption(BUILDER_DEBUG, false);
 				Compiler.DEBUG = debug && options.getBooleanOption(COMPILER_DEBUG, false);
 				JavaBuilder.SHOW_STATS = debug && options.getBooleanOption(BUILDER_STATS_DEBUG, false);
+				JavaBuilder.REPORT = debug && options.getBooleanOption(BUILDER_REPORT_DEBUG, false);
 				CompletionEngine.DEBUG = debug && options.getBooleanOption(COMPLETION_DEBUG, false);
 				JavaModelManager.CP_RESOLVE_VERBOSE = debug && options.getBooleanOption(CP_RESOLVE_DEBUG, false);
 				JavaModelManager.CP_RESOLVE_VERBOSE_ADVANCED = debug && options.getBooleanOption(CP_RESOLVE_ADVANCED_DEBUG, false);
@@ -2017,6 +2085,16 @@ public class JavaModelManager implements IModelManager, ISaveParticipant, IConte
 		return MANAGER.indexManager;
 	}
 
+	/**
+	 * Returns the cache of compilation results shared by the builds of all projects.
+	 * @see JavaCore#CORE_JAVA_BUILD_CACHE
+	 */
+	public synchronized BuildCache getBuildCache() {
+		if (this.buildCache == null)
+			this.buildCache = new BuildCache(JavaCore.getPlugin().getStateLocation().append("buildCache").toFile(), BuildCache.DEFAULT_MAX_SIZE); //$NON-NLS-1$
+		return this.buildCache;
+	}
+
 	/**
 	 *  Returns the info for the element.
 	 */
@@ -2339,6 +2417,7 @@ public class JavaModelManager implements IModelManager, ISaveParticipant, IConte
 		defaultOptionsMap.put(JavaCore.CODEASSIST_CAMEL_CASE_MATCH, JavaCore.ENABLED);
 		defaultOptionsMap.put(JavaCore.CODEASSIST_SUBSTRING_MATCH, JavaCore.ENABLED);
 		defaultOptionsMap.put(JavaCore.CODEASSIST_SUGGEST_STATIC_IMPORTS, JavaCore.ENABLED);
+		defaultOptionsMap.put(JavaCore.CODEASSIST_TIME_BUDGET, "0"); //$NON-NLS-1$
 
 		// Time out for parameter names
 		defaultOptionsMap.put(JavaCore.TIMEOUT_FOR_PARAMETER_NAME_FROM_ATTACHED_JAVADOC, "50"); //$NON-NLS-1$
@@ -2684,7 +2763,8 @@ public class JavaModelManager implements IModelManager, ISaveParticipant, IConte
 	/**
 	 * Returns the open ZipFile at the given path. If the ZipFile
 	 * does not yet exist, it is created, opened, and added to the cache
-	 * of open ZipFiles.
+	 * of open ZipFiles. The returned ZipFile must be given back using
+	 * {@link #closeZipFile(ZipFile)}.
 	 *
 	 * The path must be a file system path if representing an external
 	 * zip/jar, or it must be an absolute workspace relative path if
@@ -2723,18 +2803,24 @@ public class JavaModelManager implements IModelManager, ISaveParticipant, IConte
 			localFile= path.toFile();
 		}
 
+		ZipFile acquired = null;
 		try {
+			zipFile = acquired = this.zipFileCache.acquire(path, localFile);
 			if (ZIP_ACCESS_VERBOSE) {
-				System.out.println("(" + Thread.currentThread() + ") [JavaModelManager.getZipFile(IPath)] Creating ZipFile on " + localFile ); //$NON-NLS-1$ //$NON-NLS-2$
+				System.out.println("(" + Thread.currentThread() + ") [JavaModelManager.getZipFile(IPath)] " + this.zipFileCache); //$NON-NLS-1$ //$NON-NLS-2$
 			}
-			zipFile = new ZipFile(localFile);
 			if (zipCache != null) {
 				zipCache.setCache(path, zipFile);
 			}
+			acquired = null; // the reference now belongs to the caller (or to the zip cache of this thread)
 			return zipFile;
 		} catch (IOException e) {
 			addInvalidArchive(path);
 			throw new CoreException(new Status(IStatus.ERROR, JavaCore.PLUGIN_ID, -1, Messages.status_IOException, e));
+		} finally {
+			// give the reference back if it could not be handed over
+			if (acquired != null)
+				this.zipFileCache.release(acquired);
 		}
 	}
 
@@ -2816,8 +2902,15 @@ public class JavaModelManager implements IModelManager, ISaveParticipant, IConte
 								pathSet.toArray(paths); // clone as the following will have a side effect
 								for (int j = 0; j < length2; j++) {
 									IPath path = paths[j];
-									initializeContainer(javaProject, path);
+									// identical requests are made once: an initializer that already provided the container
+									// of this project while initializing the same container for another project is not asked again
 									IClasspathContainer container = containerBeingInitializedGet(javaProject, path);
+									if (container == null) {
+										initializeContainer(javaProject, path);
+										container = containerBeingInitializedGet(javaProject, path);
+									} else if (CP_RESOLVE_VERBOSE_ADVANCED) {
+										verbose_container_already_initialized(javaProject, path);
+									}
 									if (container != null) {
 										containerPut(javaProject, path, container);
 									}
@@ -2877,6 +2970,13 @@ public class JavaModelManager implements IModelManager, ISaveParticipant, IConte
 		return containerGet(javaProjectToInit, containerToInit);
 	}
 
+	private void verbose_container_already_initialized(IJavaProject project, IPath containerPath) {
+		Util.verbose(
+			"CPContainer INIT - already initialized in batch\n" + //$NON-NLS-1$
+			"	project: " + project.getElementName() + '\n' + //$NON-NLS-1$
+			"	container path: " + containerPath); //$NON-NLS-1$
+	}
+
 	private void verbose_batching_containers_initialization(IJavaProject javaProjectToInit, IPath containerToInit) {
 		Util.verbose(
 			"CPContainer INIT - batching containers initialization\n" + //$NON-NLS-1$
@@ -2904,6 +3004,7 @@ public class JavaModelManager implements IModelManager, ISaveParticipant, IConte
 			}
 			containerPut(project, containerPath, CONTAINER_INITIALIZATION_IN_PROGRESS); // avoid initialization cycles
 			boolean ok = false;
+			long start = System.currentTimeMillis();
 			try {
 				if (monitor != null)
 					monitor.subTask(Messages.bind(Messages.javamodel_configuring, initializer.getDescription(containerPath, project)));
@@ -2948,6 +3049,7 @@ public class JavaModelManager implements IModelManager, ISaveParticipant, IConte
 				if(JavaModelManager.PERF_CONTAINER_INITIALIZER) {
 					stats.endRun();
 				}
+				recordContainerInitializationTime(containerPath, System.currentTimeMillis() - start);
 				if (!ok) {
 					// just remove initialization in progress and keep previous session container so as to avoid a full build
 					// see https://bugs.eclipse.org/bugs/show_bug.cgi?id=92588
@@ -2971,6 +3073,127 @@ public class JavaModelManager implements IModelManager, ISaveParticipant, IConte
 		return container;
 	}
 
+	private void recordContainerInitializationTime(IPath containerPath, long time) {
+		synchronized (this.containerInitializationTimes) {
+			long[] times = (long[]) this.containerInitializationTimes.get(containerPath);
+			if (times == null)
+				this.containerInitializationTimes.put(containerPath, times = new long[2]);
+			times[0] += time;
+			times[1]++;
+		}
+	}
+
+	/**
+	 * Returns the time spent in classpath container initializers since startup, as a map from
+	 * container path (<code>IPath</code>) to <code>long[] {total time in ms, number of initializations}</code>.
+	 */
+	public Map getContainerInitializationTimes() {
+		synchronized (this.containerInitializationTimes) {
+			HashMap result = new HashMap(this.containerInitializationTimes.size());
+			Iterator iterator = this.containerInitializationTimes.entrySet().iterator();
+			while (iterator.hasNext()) {
+				Map.Entry entry = (Map.Entry) iterator.next();
+				result.put(entry.getKey(), ((long[]) entry.getValue()).clone());
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Returns the index of the source attachment archive at the given path for the given root path, encoding
+	 * and source level, or <code>null</code> if the source is not attached as an archive. A new index is returned
+	 * if the archive changed on disk.
+	 */
+	public SourceAttachmentIndex getSourceAttachmentIndex(IPath sourcePath, String rootPath, String encoding, String sourceLevel) {
+		long timeStamp = SourceAttachmentIndex.getTimeStamp(sourcePath);
+		if (timeStamp == -1)
+			return null;
+		String key = SourceAttachmentIndex.getKey(sourcePath, rootPath, encoding, sourceLevel);
+		synchronized (this.sourceAttachmentIndexes) {
+			SourceAttachmentIndex index = (SourceAttachmentIndex) this.sourceAttachmentIndexes.get(key);
+			if (index != null && index.timeStamp == timeStamp)
+				return index;
+		}
+		// read the index file outside the lock so that the indexes of other archives can still be accessed
+		SourceAttachmentIndex loaded = SourceAttachmentIndex.load(sourcePath, rootPath, encoding, sourceLevel, timeStamp);
+		synchronized (this.sourceAttachmentIndexes) {
+			SourceAttachmentIndex index = (SourceAttachmentIndex) this.sourceAttachmentIndexes.get(key);
+			if (index != null && index.timeStamp == timeStamp)
+				return index; // loaded concurrently by another thread
+			this.sourceAttachmentIndexes.put(key, loaded);
+			return loaded;
+		}
+	}
+
+	/*
+	 * Deletes the files of the source attachment indexes that are neither used during this session
+	 * nor attached to a library of the resolved classpaths.
+	 */
+	private void cleanUpSourceAttachmentIndexes() {
+		HashSet knownFileNames = new HashSet();
+		synchronized (this.sourceAttachmentIndexes) {
+			for (Iterator iterator = this.sourceAttachmentIndexes.values().iterator(); iterator.hasNext();)
+				knownFileNames.add(((SourceAttachmentIndex) iterator.next()).getFileName());
+		}
+		String defaultEncoding = null;
+		try {
+			defaultEncoding = ResourcesPlugin.getWorkspace().getRoot().getDefaultCharset();
+		} catch (CoreException e) {
+			// use no encoding
+		}
+		try {
+			IJavaProject[] projects = getJavaModel().getJavaProjects();
+			for (int i = 0; i < projects.length; i++) {
+				JavaProject project = (JavaProject) projects[i];
+				String sourceLevel = project.getOption(JavaCore.COMPILER_SOURCE, true);
+				IClasspathEntry[] entries = project.getResolvedClasspath();
+				for (int j = 0; j < entries.length; j++) {
+					IClasspathEntry entry = entries[j];
+					if (entry.getEntryKind() != IClasspathEntry.CPE_LIBRARY)
+						continue;
+					String encoding = ((ClasspathEntry) entry).getSourceAttachmentEncoding();
+					if (encoding == null)
+						encoding = defaultEncoding;
+					IPackageFragmentRoot[] roots = project.computePackageFragmentRoots(entry);
+					for (int k = 0; k < roots.length; k++) {
+						IPackageFragmentRoot root = roots[k];
+						if (root.getKind() != IPackageFragmentRoot.K_BINARY)
+							continue;
+						// see PackageFragmentRoot#getSourceMapper()
+						IPath sourcePath = root.getSourceAttachmentPath();
+						IPath rootPath = root.getSourceAttachmentRootPath();
+						knownFileNames.add(SourceAttachmentIndex.getFileName(
+							sourcePath == null ? root.getPath() : sourcePath,
+							rootPath == null ? null : rootPath.toOSString(),
+							encoding,
+							sourceLevel));
+					}
+				}
+			}
+		} catch (JavaModelException e) {
+			// don't delete the indexes of a classpath that cannot be resolved
+			return;
+		}
+		SourceAttachmentIndex.deleteIndexFiles(knownFileNames);
+	}
+
+	private void saveSourceAttachmentIndexes() {
+		Job.getJobManager().cancel(SourceAttachmentIndex.INDEXING_FAMILY);
+		try {
+			Job.getJobManager().join(SourceAttachmentIndex.INDEXING_FAMILY, null);
+		} catch (InterruptedException e) {
+			// ignore
+		}
+		SourceAttachmentIndex[] indexes;
+		synchronized (this.sourceAttachmentIndexes) {
+			indexes = new SourceAttachmentIndex[this.sourceAttachmentIndexes.size()];
+			this.sourceAttachmentIndexes.values().toArray(indexes);
+		}
+		for (int i = 0; i < indexes.length; i++) {
+			indexes[i].save();
+		}
+	}
+
 	private void verbose_no_container_initializer_found(IJavaProject project, IPath containerPath) {
 		Util.verbose(
 			"CPContainer INIT - no initializer found\n" + //$NON-NLS-1$
@@ -3163,7 +3386,7 @@ public class JavaModelManager implements IModelManager, ISaveParticipant, IConte
 		// If it transitioned to being valid, remove it from the cache and force an update to project caches.
 		if (now > evictionTime) {
 			try {
-				getZipFile(path, false);
+				closeZipFile(getZipFile(path, false));
 				removeFromInvalidArchiveCache(path);
 				return false;
 			} catch (CoreException e) {
@@ -4276,6 +4499,7 @@ public class JavaModelManager implements IModelManager, ISaveParticipant, IConte
 						// (see https://bugs.eclipse.org/bugs/show_bug.cgi?id=93941)
 						&& this.workspaceScope != null) {
 					manager.cleanUpIndexes();
+					cleanUpSourceAttachmentIndexes();
 				}
 			}
 			//$FALL-THROUGH$
@@ -5050,6 +5274,12 @@ public class JavaModelManager implements IModelManager, ISaveParticipant, IConte
 			this.indexManager.shutdown();
 		}
 
+		// Save the source attachment indexes
+		saveSourceAttachmentIndexes();
+
+		// Close cached zip files that are no longer in use
+		this.zipFileCache.flush();
+
 		// Stop listening to preferences changes
 		preferences.removePreferenceChangeListener(this.propertyListener);
 		((IEclipsePreferences) this.preferencesLookup[PREF_DEFAULT].parent()).removeNodeChangeListener(this.defaultNodeListener);
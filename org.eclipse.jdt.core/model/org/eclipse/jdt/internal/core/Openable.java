@@ -11,6 +11,7 @@
 package org.eclipse.jdt.internal.core;
 
 import java.util.Enumeration;
+import java.util.Map;
 
 import org.eclipse.core.resources.*;
 import org.eclipse.core.runtime.CoreException;
@@ -20,6 +21,7 @@ import org.eclipse.handly.context.IContext;
 import org.eclipse.handly.util.Property;
 import org.eclipse.jdt.core.*;
 import org.eclipse.jdt.internal.codeassist.CompletionEngine;
+import org.eclipse.jdt.internal.codeassist.CompletionSession;
 import org.eclipse.jdt.internal.codeassist.SelectionEngine;
 import org.eclipse.jdt.internal.core.util.Util;
 
@@ -113,14 +115,29 @@ protected void codeComplete(
 		throw new JavaModelException(new JavaModelStatus(IJavaModelStatusConstants.INDEX_OUT_OF_BOUNDS));
 	}
 	JavaProject project = (JavaProject) getJavaProject();
+	Map options = project.getOptions(true);
+
+	// refine the previous completion if only the completion token was extended since
+	char[] contents = cu.getContents();
+	if (CompletionSession.refine(this, owner, contents, position, options, requestor)) {
+		if(performanceStats != null) {
+			performanceStats.endRun();
+		}
+		return;
+	}
+	CompletionSession.Recorder recorder = CompletionSession.newRecorder(this, owner, contents, position, options, requestor);
+
 	SearchableEnvironment environment = project.newSearchableNameEnvironment(owner);
 
 	// set unit to skip
 	environment.unitToSkip = unitToSkip;
 
 	// code complete
-	CompletionEngine engine = new CompletionEngine(environment, requestor, project.getOptions(true), project, owner, monitor);
+	CompletionEngine engine = new CompletionEngine(environment, recorder == null ? requestor : recorder, options, project, owner, monitor);
 	engine.complete(cu, position, 0, typeRoot);
+	if (recorder != null) {
+		recorder.done();
+	}
 	if(performanceStats != null) {
 		performanceStats.endRun();
 	}
@@ -137,22 +154,40 @@ protected IJavaElement[] codeSelect(org.eclipse.jdt.internal.compiler.env.ICompi
 		performanceStats.startRun(new String(cu.getFileName()) + " at [" + offset + "," + length + "]"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 	}
 
-	JavaProject project = (JavaProject)getJavaProject();
-	SearchableEnvironment environment = project.newSearchableNameEnvironment(owner);
-
-	SelectionRequestor requestor= new SelectionRequestor(environment.nameLookup, this);
 	IBuffer buffer = getBuffer();
 	if (buffer == null) {
-		return requestor.getElements();
+		return NO_ELEMENTS;
 	}
 	int end= buffer.getLength();
 	if (offset < 0 || length < 0 || offset + length > end ) {
 		throw new JavaModelException(new JavaModelStatus(IJavaModelStatusConstants.INDEX_OUT_OF_BOUNDS));
 	}
 
+	// answer from the AST of the last reconcile if still valid, before creating the name environment
+	ReconciledASTCache astCache = JavaModelManager.getJavaModelManager().reconciledASTCache;
+	long start = System.nanoTime();
+	if (this instanceof CompilationUnit) {
+		IJavaElement[] elements = astCache.select((CompilationUnit) this, offset, length, owner);
+		if (elements != null) {
+			astCache.recordSelection(true, System.nanoTime() - start);
+			if(performanceStats != null) {
+				performanceStats.endRun();
+			}
+			if (SelectionEngine.DEBUG) {
+				System.out.println("SELECTION - answered by " + astCache); //$NON-NLS-1$
+			}
+			return elements;
+		}
+	}
+
+	JavaProject project = (JavaProject)getJavaProject();
+	SearchableEnvironment environment = project.newSearchableNameEnvironment(owner);
+	SelectionRequestor requestor= new SelectionRequestor(environment.nameLookup, this);
+
 	// fix for 1FVXGDK
 	SelectionEngine engine = new SelectionEngine(environment, requestor, project.getOptions(true), owner);
 	engine.select(cu, offset, offset + length - 1);
+	astCache.recordSelection(false, System.nanoTime() - start);
 
 	if(performanceStats != null) {
 		performanceStats.endRun();
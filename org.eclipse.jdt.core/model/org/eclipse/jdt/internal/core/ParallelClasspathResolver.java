@@ -0,0 +1,246 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.internal.core.util.Util;
+
+/**
+ * Resolves the classpaths of a set of Java projects concurrently (e.g. at workspace startup
+ * once the classpath containers have been initialized).
+ * <p>
+ * A project is only resolved once the projects it references through the project entries of its
+ * raw classpath have been resolved, so that independent projects are resolved in parallel while
+ * dependent ones follow the project reference order. Projects involved in a reference cycle are
+ * resolved once no other project can be scheduled.
+ * </p><p>
+ * If resolving a project fails unexpectedly, the failure is logged and the projects that depend on it
+ * are left to be resolved on demand, while the other projects are still resolved.
+ * </p>
+ */
+public class ParallelClasspathResolver {
+
+	/**
+	 * Default number of threads, see <code>JavaModelManager#CLASSPATH_RESOLUTION_THREADS</code>.
+	 */
+	public static final int DEFAULT_THREADS = Math.min(4, Runtime.getRuntime().availableProcessors());
+
+	private static final String THREAD_NAME = "Java Model Classpath Resolution"; //$NON-NLS-1$
+
+	private final int threadCount;
+
+	public ParallelClasspathResolver(int threadCount) {
+		this.threadCount = threadCount;
+	}
+
+	/**
+	 * Resolves the classpath of the given projects, caching the results in their per project info.
+	 * Projects that no longer exist or whose classpath cannot be resolved are ignored.
+	 */
+	public void resolve(IJavaProject[] projects, IProgressMonitor monitor) {
+		int length = projects.length;
+		SubMonitor subMonitor = SubMonitor.convert(monitor, length);
+		if (this.threadCount <= 1 || length <= 1) {
+			for (int i = 0; i < length; i++) {
+				subMonitor.checkCanceled();
+				try {
+					resolve((JavaProject) projects[i]);
+				} catch (OperationCanceledException e) {
+					throw e;
+				} catch (RuntimeException e) {
+					logFailure(projects[i], e);
+				}
+				subMonitor.worked(1);
+			}
+			return;
+		}
+
+		// compute the references between the given projects
+		HashMap<String, JavaProject> projectsByName = new HashMap<>(length);
+		for (int i = 0; i < length; i++) {
+			projectsByName.put(projects[i].getElementName(), (JavaProject) projects[i]);
+		}
+		HashMap<JavaProject, Integer> pendingPrerequisites = new HashMap<>(length);
+		HashMap<JavaProject, List<JavaProject>> dependents = new HashMap<>(length);
+		for (int i = 0; i < length; i++) {
+			JavaProject project = (JavaProject) projects[i];
+			int prerequisites = 0;
+			try {
+				IClasspathEntry[] rawClasspath = project.getRawClasspath();
+				for (int j = 0, rawLength = rawClasspath.length; j < rawLength; j++) {
+					IClasspathEntry entry = rawClasspath[j];
+					if (entry.getEntryKind() != IClasspathEntry.CPE_PROJECT)
+						continue;
+					JavaProject prerequisite = projectsByName.get(entry.getPath().lastSegment());
+					if (prerequisite == null || prerequisite == project)
+						continue;
+					List<JavaProject> list = dependents.get(prerequisite);
+					if (list == null)
+						dependents.put(prerequisite, list = new ArrayList<>());
+					list.add(project);
+					prerequisites++;
+				}
+			} catch (JavaModelException e) {
+				// project doesn't exist: it will be ignored when resolved
+			}
+			pendingPrerequisites.put(project, Integer.valueOf(prerequisites));
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(this.threadCount, new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, THREAD_NAME);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		CompletionService<JavaProject> completionService = new ExecutorCompletionService<>(executor);
+		HashMap<Future<JavaProject>, JavaProject> submitted = new HashMap<>(length);
+		try {
+			int running = 0;
+			int remaining = length;
+			while (remaining > 0) {
+				// schedule the projects whose prerequisites are resolved
+				Iterator<Map.Entry<JavaProject, Integer>> iterator = pendingPrerequisites.entrySet().iterator();
+				while (iterator.hasNext()) {
+					Map.Entry<JavaProject, Integer> entry = iterator.next();
+					if (entry.getValue().intValue() == 0) {
+						submitted.put(submit(completionService, entry.getKey()), entry.getKey());
+						iterator.remove();
+						running++;
+					}
+				}
+				if (running == 0) {
+					// reference cycle: schedule one of the remaining projects anyway
+					iterator = pendingPrerequisites.entrySet().iterator();
+					JavaProject project = iterator.next().getKey();
+					submitted.put(submit(completionService, project), project);
+					iterator.remove();
+					running++;
+				}
+
+				// wait for a project to be resolved
+				Future<JavaProject> future = null;
+				while (future == null) {
+					subMonitor.checkCanceled();
+					future = completionService.poll(100, TimeUnit.MILLISECONDS);
+				}
+				running--;
+				remaining--;
+				subMonitor.worked(1);
+				JavaProject resolved = submitted.remove(future);
+				try {
+					future.get();
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof Error)
+						throw (Error) cause;
+					if (cause instanceof OperationCanceledException)
+						throw (OperationCanceledException) cause;
+					logFailure(resolved, cause);
+					// keep resolving the projects that do not depend on the failed one
+					int skipped = skipDependents(resolved, dependents, pendingPrerequisites);
+					remaining -= skipped;
+					subMonitor.worked(skipped);
+					continue;
+				}
+
+				List<JavaProject> list = dependents.get(resolved);
+				if (list != null) {
+					for (int i = 0, size = list.size(); i < size; i++) {
+						JavaProject dependent = list.get(i);
+						Integer prerequisites = pendingPrerequisites.get(dependent);
+						if (prerequisites != null)
+							pendingPrerequisites.put(dependent, Integer.valueOf(prerequisites.intValue() - 1));
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			throw new OperationCanceledException();
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private Future<JavaProject> submit(CompletionService<JavaProject> completionService, final JavaProject project) {
+		return completionService.submit(new Runnable() {
+			public void run() {
+				resolve(project);
+			}
+		}, project);
+	}
+
+	/*
+	 * Removes the projects that depend on the given project, directly or not, from the projects
+	 * waiting to be scheduled. Answers how many projects were removed.
+	 */
+	private int skipDependents(JavaProject project, Map<JavaProject, List<JavaProject>> dependents, Map<JavaProject, Integer> pendingPrerequisites) {
+		List<JavaProject> list = dependents.get(project);
+		if (list == null)
+			return 0;
+		int skipped = 0;
+		for (int i = 0, size = list.size(); i < size; i++) {
+			JavaProject dependent = list.get(i);
+			if (pendingPrerequisites.remove(dependent) == null)
+				continue; // already scheduled (reference cycle) or skipped
+			if (JavaModelManager.CP_RESOLVE_VERBOSE)
+				Util.verbose(
+					"CPResolution - skipped resolution ahead of time\n" + //$NON-NLS-1$
+					"	project: " + dependent.getElementName() + '\n' + //$NON-NLS-1$
+					"	failed prerequisite: " + project.getElementName()); //$NON-NLS-1$
+			skipped += 1 + skipDependents(dependent, dependents, pendingPrerequisites);
+		}
+		return skipped;
+	}
+
+	private void logFailure(IJavaProject project, Throwable e) {
+		Util.log(e, "Exception while resolving the classpath of " + project.getElementName()); //$NON-NLS-1$
+	}
+
+	/**
+	 * Resolves the classpath of the given project, on the calling thread.
+	 * Subclasses may override to observe the resolution order.
+	 */
+	protected void resolve(JavaProject project) {
+		long start = 0;
+		if (JavaModelManager.CP_RESOLVE_VERBOSE)
+			start = System.currentTimeMillis();
+		try {
+			project.getResolvedClasspath();
+		} catch (JavaModelException e) {
+			// project doesn't exist or classpath cannot be resolved: ignore
+		}
+		if (JavaModelManager.CP_RESOLVE_VERBOSE)
+			Util.verbose(
+				"CPResolution - resolved classpath ahead of time\n" + //$NON-NLS-1$
+				"	project: " + project.getElementName() + '\n' + //$NON-NLS-1$
+				"	thread: " + Thread.currentThread().getName() + '\n' + //$NON-NLS-1$
+				"	time: " + (System.currentTimeMillis() - start) + "ms"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
@@ -84,6 +84,7 @@ public class ReconcileWorkingCopyOperation extends JavaModelOperation {
 			this.requestorIsActive = defaultRequestorIsActive || ownerRequestorIsActive;
 
 			// make working copy consistent if needed and compute AST if needed
+			char[] contents = this.astLevel != ICompilationUnit.NO_AST ? workingCopy.getContents() : null;
 			makeConsistent(workingCopy);
 
 			// notify reconcile participants only if working copy was not consistent or if forcing problem detection
@@ -106,6 +107,11 @@ public class ReconcileWorkingCopyOperation extends JavaModelOperation {
 				}
 			}
 
+			// remember the resolved AST to answer code select requests, see Openable#codeSelect(...)
+			if (this.ast != null && contents != null) {
+				JavaModelManager.getJavaModelManager().reconciledASTCache.put(workingCopy, this.ast, contents, this.workingCopyOwner);
+			}
+
 			// report delta
 			if (this.delta != null) {
 				addReconcileDelta(workingCopy, this.delta);
@@ -0,0 +1,259 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import org.eclipse.jdt.core.IField;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.WorkingCopyOwner;
+import org.eclipse.jdt.core.compiler.CharOperation;
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ClassInstanceCreation;
+import org.eclipse.jdt.core.dom.IBinding;
+import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.IVariableBinding;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.MethodInvocation;
+import org.eclipse.jdt.core.dom.NodeFinder;
+import org.eclipse.jdt.core.dom.SimpleName;
+import org.eclipse.jdt.core.dom.SimpleType;
+import org.eclipse.jdt.core.dom.StructuralPropertyDescriptor;
+import org.eclipse.jdt.core.dom.SuperMethodInvocation;
+
+/**
+ * The resolved ASTs computed by the last reconciles of working copies, used to answer code select requests
+ * without parsing and resolving the working copies again.
+ * <p>
+ * An AST is only used while the contents of its working copy are unchanged. Since their bindings may no longer be
+ * valid, the ASTs are forgotten as soon as a Java element delta is fired, except the ASTs of the working copies
+ * being reconciled (see <code>DeltaProcessor#fire(IJavaElementDelta, int)</code>).
+ * </p><p>
+ * The cached AST is the one returned by the reconcile and given to the reconcile listeners, not a private copy,
+ * since a copy would lose its bindings. Clients must not modify it: an AST which was modified since its reconcile
+ * (see {@link org.eclipse.jdt.core.dom.AST#modificationCount()}) is no longer used.
+ * </p><p>
+ * Only the selections that the AST answers like the selection engine are answered from the cache: the names
+ * of fields, of methods in invocations and declarations, and of types in declarations and simple type references.
+ * Other selections (local variables, constructors, parameterized types, javadoc...) are left to the selection engine.
+ * </p>
+ */
+public class ReconciledASTCache {
+
+	public static final String USE_RECONCILED_ASTS_PROPERTY = "jdt.core.useReconciledASTs"; //$NON-NLS-1$
+	private static final boolean IS_USING_RECONCILED_ASTS = !"false".equals(System.getProperty(USE_RECONCILED_ASTS_PROPERTY)); //$NON-NLS-1$
+
+	/**
+	 * Default number of ASTs kept, an AST with bindings retaining the whole lookup environment of its reconcile.
+	 */
+	public static final int DEFAULT_SIZE = 3;
+
+	static class Entry {
+		final org.eclipse.jdt.core.dom.CompilationUnit ast;
+		final char[] contents; // the contents of the working copy when its reconcile started
+		final WorkingCopyOwner owner;
+		final long modificationCount; // the modification count of the AST when it was cached
+
+		Entry(org.eclipse.jdt.core.dom.CompilationUnit ast, char[] contents, WorkingCopyOwner owner) {
+			this.ast = ast;
+			this.contents = contents;
+			this.owner = owner;
+			this.modificationCount = ast.getAST().modificationCount();
+		}
+	}
+
+	/* The cached entries in access order (least recently used first) */
+	private final LinkedHashMap<CompilationUnit, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	private final int maxSize;
+
+	private int hitCount;
+	private int missCount;
+	private long hitTime; // in nanoseconds
+	private long missTime;
+
+	public ReconciledASTCache(int maxSize) {
+		this.maxSize = Math.max(maxSize, 0);
+	}
+
+	/**
+	 * Remembers the AST computed from the given contents of the working copy, if it is resolved.
+	 */
+	public synchronized void put(CompilationUnit workingCopy, org.eclipse.jdt.core.dom.CompilationUnit ast, char[] contents, WorkingCopyOwner owner) {
+		if (!IS_USING_RECONCILED_ASTS || this.maxSize == 0 || !ast.getAST().hasResolvedBindings())
+			return;
+		this.entries.put(workingCopy, new Entry(ast, contents, owner));
+		if (this.entries.size() > this.maxSize) {
+			Iterator<CompilationUnit> iterator = this.entries.keySet().iterator();
+			iterator.next();
+			iterator.remove();
+		}
+	}
+
+	/**
+	 * Forgets the ASTs of the working copies which are not in the given collection.
+	 */
+	public synchronized void retain(Collection<?> workingCopies) {
+		this.entries.keySet().retainAll(workingCopies);
+	}
+
+	public synchronized void clear() {
+		this.entries.clear();
+	}
+
+	/**
+	 * Answers the elements selected in the given working copy, or <code>null</code> if the selection
+	 * cannot be answered from the cached AST of the working copy.
+	 */
+	public IJavaElement[] select(CompilationUnit workingCopy, int offset, int length, WorkingCopyOwner owner) {
+		Entry entry;
+		synchronized (this) {
+			entry = this.entries.get(workingCopy);
+		}
+		if (entry == null || entry.owner != owner || !workingCopy.isWorkingCopy() || !workingCopy.isConsistent())
+			return null;
+		if (!CharOperation.equals(entry.contents, workingCopy.getContents()))
+			return null; // the working copy changed since its reconcile
+		if (entry.ast.getAST().modificationCount() != entry.modificationCount)
+			return null; // the AST was modified by a client
+
+		IJavaElement element = select(entry.ast, offset, length);
+		return element == null ? null : new IJavaElement[] {element};
+	}
+
+	private static IJavaElement select(org.eclipse.jdt.core.dom.CompilationUnit ast, int offset, int length) {
+		ASTNode node = NodeFinder.perform(ast, offset, length);
+		if (!(node instanceof SimpleName)) return null;
+		SimpleName name = (SimpleName) node;
+		int nameStart = name.getStartPosition();
+		if (offset < nameStart || offset + length > nameStart + name.getLength()) return null;
+		for (ASTNode current = name; current != null; current = current.getParent()) {
+			if ((current.getFlags() & (ASTNode.MALFORMED | ASTNode.RECOVERED)) != 0) return null;
+			switch (current.getNodeType()) {
+				case ASTNode.JAVADOC :
+				case ASTNode.IMPORT_DECLARATION :
+				case ASTNode.PACKAGE_DECLARATION :
+				case ASTNode.LAMBDA_EXPRESSION :
+				case ASTNode.ANONYMOUS_CLASS_DECLARATION :
+				case ASTNode.TYPE_DECLARATION_STATEMENT :
+					// elements created differently by the selection engine
+					return null;
+			}
+		}
+
+		IBinding binding = name.resolveBinding();
+		if (binding == null || binding.isRecovered()) return null;
+		StructuralPropertyDescriptor location = name.getLocationInParent();
+		boolean isDeclaration = name.isDeclaration();
+		switch (binding.getKind()) {
+			case IBinding.VARIABLE :
+				if (!((IVariableBinding) binding).isField()) return null;
+				break;
+			case IBinding.METHOD :
+				if (((IMethodBinding) binding).isConstructor()) return null;
+				if (location != MethodInvocation.NAME_PROPERTY
+						&& location != SuperMethodInvocation.NAME_PROPERTY
+						&& location != MethodDeclaration.NAME_PROPERTY)
+					return null;
+				break;
+			case IBinding.TYPE :
+				ITypeBinding typeBinding = (ITypeBinding) binding;
+				if (!typeBinding.isClass() && !typeBinding.isInterface() && !typeBinding.isEnum() && !typeBinding.isAnnotation())
+					return null;
+				if (typeBinding.isLocal() || typeBinding.isGenericType() || typeBinding.isParameterizedType() || typeBinding.isRawType())
+					return null;
+				if (!isDeclaration
+						&& (location != SimpleType.NAME_PROPERTY || name.getParent().getLocationInParent() == ClassInstanceCreation.TYPE_PROPERTY))
+					return null;
+				break;
+			default :
+				return null;
+		}
+		IJavaElement element = binding.getJavaElement();
+		if (element == null || isDeclaration) return element;
+
+		// references are answered with resolved elements
+		JavaElement parent = (JavaElement) element.getParent();
+		String key = binding.getKey();
+		SourceRefElement resolvedElement;
+		switch (element.getElementType()) {
+			case IJavaElement.FIELD :
+				resolvedElement = ((IField) element).isBinary()
+					? (SourceRefElement) new ResolvedBinaryField(parent, element.getElementName(), key)
+					: new ResolvedSourceField(parent, element.getElementName(), key);
+				break;
+			case IJavaElement.METHOD :
+				String[] parameterTypes = ((IMethod) element).getParameterTypes();
+				resolvedElement = ((IMethod) element).isBinary()
+					? (SourceRefElement) new ResolvedBinaryMethod(parent, element.getElementName(), parameterTypes, key)
+					: new ResolvedSourceMethod(parent, element.getElementName(), parameterTypes, key);
+				break;
+			case IJavaElement.TYPE :
+				resolvedElement = ((IType) element).isBinary()
+					? (SourceRefElement) new ResolvedBinaryType(parent, element.getElementName(), key)
+					: new ResolvedSourceType(parent, element.getElementName(), key);
+				break;
+			default :
+				return null;
+		}
+		resolvedElement.occurrenceCount = ((SourceRefElement) element).occurrenceCount;
+		return resolvedElement;
+	}
+
+	/**
+	 * Records the time spent answering a code select request, from the cache or not.
+	 */
+	public synchronized void recordSelection(boolean isHit, long time) {
+		if (isHit) {
+			this.hitCount++;
+			this.hitTime += time;
+		} else {
+			this.missCount++;
+			this.missTime += time;
+		}
+	}
+
+	public synchronized int getHitCount() {
+		return this.hitCount;
+	}
+
+	public synchronized int getMissCount() {
+		return this.missCount;
+	}
+
+	public synchronized String toString() {
+		StringBuffer buffer = new StringBuffer("ReconciledASTCache ["); //$NON-NLS-1$
+		buffer.append(this.entries.size());
+		buffer.append('/');
+		buffer.append(this.maxSize);
+		buffer.append(" cached, hits="); //$NON-NLS-1$
+		buffer.append(this.hitCount);
+		if (this.hitCount > 0) {
+			buffer.append(" (avg "); //$NON-NLS-1$
+			buffer.append(this.hitTime / this.hitCount / 1000);
+			buffer.append("us)"); //$NON-NLS-1$
+		}
+		buffer.append(", misses="); //$NON-NLS-1$
+		buffer.append(this.missCount);
+		if (this.missCount > 0) {
+			buffer.append(" (avg "); //$NON-NLS-1$
+			buffer.append(this.missTime / this.missCount / 1000);
+			buffer.append("us)"); //$NON-NLS-1$
+		}
+		buffer.append(']');
+		return buffer.toString();
+	}
+}
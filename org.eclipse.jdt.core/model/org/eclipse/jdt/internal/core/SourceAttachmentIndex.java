@@ -0,0 +1,629 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jdt.core.IClassFile;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.SourceRange;
+import org.eclipse.jdt.internal.compiler.env.IBinaryType;
+import org.eclipse.jdt.internal.core.util.MementoTokenizer;
+import org.eclipse.jdt.internal.core.util.Messages;
+import org.eclipse.jdt.internal.core.util.Util;
+
+/**
+ * A persisted index of a source attachment archive, used by the {@link SourceMapper} so that the source of
+ * a binary type doesn't need to be searched for and parsed again once it has been mapped.
+ * <p>
+ * The index maps the source file names (e.g. "java/lang/Object.java") to the corresponding entries of the
+ * archive, and the binary types (e.g. "java/lang/Object.class") to the source positions computed when
+ * mapping their source: source and name ranges, parameter names and ranges, categories and imports.
+ * Element handles are stored as mementos relative to their package fragment, so that the index can be shared
+ * by all the package fragment roots the archive is attached to with the same root path, encoding and
+ * compiler source level, as the mapped positions depend on them.
+ * </p><p>
+ * The mapped types are stored in a file of the plug-in state location and are read on demand; only their
+ * table of contents is kept in memory. The index is discarded when the archive changes on disk, and its file
+ * is deleted on a full workspace save once the archive is no longer attached. The whole archive can be indexed in the background using {@link #scheduleIndexing(JarPackageFragmentRoot, SourceMapper)}.
+ * </p>
+ */
+public class SourceAttachmentIndex {
+
+	/**
+	 * The family of the jobs indexing source attachments.
+	 */
+	public static final Object INDEXING_FAMILY = new Object();
+
+	static final int VERSION = 2;
+
+	private static final String INDEX_FOLDER = "sourceAttachmentIndexes"; //$NON-NLS-1$
+
+	private static final String INDEX_EXTENSION = ".index"; //$NON-NLS-1$
+	private static final String TEMP_EXTENSION = ".tmp"; //$NON-NLS-1$
+
+	/* Number of types mapped by the indexing job before they are written to disk */
+	private static final int SAVE_INTERVAL = 500;
+
+	/**
+	 * The source positions of a binary type and of its members.
+	 * Ranges are stored as {source offset, source length, name offset, name length}.
+	 */
+	static class MappedType {
+		int mementoPrefixLength; // length of the package fragment memento (while recording)
+
+		ArrayList<String> elements = new ArrayList<>();
+		ArrayList<int[]> ranges = new ArrayList<>();
+		ArrayList<String> methods = new ArrayList<>();
+		ArrayList<char[][]> parameterNames = new ArrayList<>();
+		ArrayList<String> parameterMethods = new ArrayList<>();
+		ArrayList<String> parameters = new ArrayList<>();
+		ArrayList<int[]> parameterRanges = new ArrayList<>();
+		ArrayList<Boolean> finalParameters = new ArrayList<>();
+		ArrayList<String> categorizedElements = new ArrayList<>();
+		ArrayList<String[]> categories = new ArrayList<>();
+		char[][] imports;
+
+		MappedType() {
+			// read from disk
+		}
+
+		MappedType(PackageFragment pkg) {
+			this.mementoPrefixLength = pkg.getHandleMemento().length();
+		}
+
+		void addRange(IJavaElement element, SourceRange sourceRange, SourceRange nameRange) {
+			this.elements.add(relativeMemento(element));
+			this.ranges.add(toArray(sourceRange, nameRange));
+		}
+
+		void addParameterNames(IJavaElement method, char[][] names) {
+			this.methods.add(relativeMemento(method));
+			this.parameterNames.add(names);
+		}
+
+		void addParameter(IJavaElement method, String name, SourceRange[] allRanges, boolean isFinal) {
+			this.parameterMethods.add(relativeMemento(method));
+			this.parameters.add(name);
+			this.parameterRanges.add(toArray(allRanges[0], allRanges[1]));
+			this.finalParameters.add(Boolean.valueOf(isFinal));
+		}
+
+		void addCategories(IJavaElement element, String[] elementCategories) {
+			this.categorizedElements.add(relativeMemento(element));
+			this.categories.add(elementCategories);
+		}
+
+		private String relativeMemento(IJavaElement element) {
+			return ((JavaElement) element).getHandleMemento().substring(this.mementoPrefixLength);
+		}
+
+		private int[] toArray(SourceRange sourceRange, SourceRange nameRange) {
+			return new int[] {
+				sourceRange.getOffset(), sourceRange.getLength(),
+				nameRange == null ? -1 : nameRange.getOffset(), nameRange == null ? 0 : nameRange.getLength()
+			};
+		}
+
+		static IJavaElement resolve(PackageFragment pkg, String memento) {
+			return pkg.getHandleFromMemento(new MementoTokenizer(memento), DefaultWorkingCopyOwner.PRIMARY);
+		}
+
+		static SourceRange sourceRange(int[] range) {
+			return new SourceRange(range[0], range[1]);
+		}
+
+		static SourceRange nameRange(int[] range) {
+			return range[2] == -1 ? null : new SourceRange(range[2], range[3]);
+		}
+
+		void write(DataOutput out) throws IOException {
+			int size = this.elements.size();
+			out.writeInt(size);
+			for (int i = 0; i < size; i++) {
+				out.writeUTF(this.elements.get(i));
+				writeRange(out, this.ranges.get(i));
+			}
+			size = this.methods.size();
+			out.writeInt(size);
+			for (int i = 0; i < size; i++) {
+				out.writeUTF(this.methods.get(i));
+				writeNames(out, this.parameterNames.get(i));
+			}
+			size = this.parameters.size();
+			out.writeInt(size);
+			for (int i = 0; i < size; i++) {
+				out.writeUTF(this.parameterMethods.get(i));
+				out.writeUTF(this.parameters.get(i));
+				writeRange(out, this.parameterRanges.get(i));
+				out.writeBoolean(this.finalParameters.get(i).booleanValue());
+			}
+			size = this.categorizedElements.size();
+			out.writeInt(size);
+			for (int i = 0; i < size; i++) {
+				out.writeUTF(this.categorizedElements.get(i));
+				String[] elementCategories = this.categories.get(i);
+				out.writeInt(elementCategories.length);
+				for (int j = 0; j < elementCategories.length; j++)
+					out.writeUTF(elementCategories[j]);
+			}
+			if (this.imports == null) {
+				out.writeInt(-1);
+			} else {
+				writeNames(out, this.imports);
+			}
+		}
+
+		static MappedType read(DataInput in) throws IOException {
+			MappedType mappedType = new MappedType();
+			int size = in.readInt();
+			for (int i = 0; i < size; i++) {
+				mappedType.elements.add(in.readUTF());
+				mappedType.ranges.add(readRange(in));
+			}
+			size = in.readInt();
+			for (int i = 0; i < size; i++) {
+				mappedType.methods.add(in.readUTF());
+				mappedType.parameterNames.add(readNames(in, in.readInt()));
+			}
+			size = in.readInt();
+			for (int i = 0; i < size; i++) {
+				mappedType.parameterMethods.add(in.readUTF());
+				mappedType.parameters.add(in.readUTF());
+				mappedType.parameterRanges.add(readRange(in));
+				mappedType.finalParameters.add(Boolean.valueOf(in.readBoolean()));
+			}
+			size = in.readInt();
+			for (int i = 0; i < size; i++) {
+				mappedType.categorizedElements.add(in.readUTF());
+				String[] elementCategories = new String[in.readInt()];
+				for (int j = 0; j < elementCategories.length; j++)
+					elementCategories[j] = in.readUTF();
+				mappedType.categories.add(elementCategories);
+			}
+			int length = in.readInt();
+			if (length != -1)
+				mappedType.imports = readNames(in, length);
+			return mappedType;
+		}
+
+		private static void writeRange(DataOutput out, int[] range) throws IOException {
+			for (int i = 0; i < 4; i++)
+				out.writeInt(range[i]);
+		}
+
+		private static int[] readRange(DataInput in) throws IOException {
+			return new int[] {in.readInt(), in.readInt(), in.readInt(), in.readInt()};
+		}
+
+		private static void writeNames(DataOutput out, char[][] names) throws IOException {
+			out.writeInt(names.length);
+			for (int i = 0; i < names.length; i++)
+				out.writeUTF(new String(names[i]));
+		}
+
+		private static char[][] readNames(DataInput in, int length) throws IOException {
+			char[][] names = new char[length][];
+			for (int i = 0; i < length; i++)
+				names[i] = in.readUTF().toCharArray();
+			return names;
+		}
+	}
+
+	/* The location of the mapped types of a type in the index file: {offset, length} */
+	private static class Location {
+		final long offset;
+		final int length;
+		Location(long offset, int length) {
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+
+	final IPath sourcePath;
+	final String rootPath; // null if inferred
+	final String encoding;
+	final String sourceLevel;
+	final long timeStamp;
+	private final File file;
+
+	/* Source file name (package path + simple name) -> archive entry name */
+	private final HashMap<String, String> sourceEntries = new HashMap<>();
+
+	/* Binary type key -> location of its mapped type in the index file */
+	private final HashMap<String, Location> locations = new HashMap<>();
+
+	/* Binary type key -> mapped type not yet written to disk */
+	private final HashMap<String, MappedType> pendingTypes = new HashMap<>();
+
+	private boolean isComplete;
+	private boolean isDirty;
+	private Job indexingJob;
+
+	private SourceAttachmentIndex(IPath sourcePath, String rootPath, String encoding, String sourceLevel, long timeStamp) {
+		this.sourcePath = sourcePath;
+		this.rootPath = rootPath;
+		this.encoding = encoding;
+		this.sourceLevel = sourceLevel;
+		this.timeStamp = timeStamp;
+		this.file = getIndexFolder().append(getFileName(sourcePath, rootPath, encoding, sourceLevel)).toFile();
+	}
+
+	/**
+	 * Returns the time stamp of the given source attachment, or -1 if it is not an archive
+	 * (source folders are not indexed).
+	 */
+	public static long getTimeStamp(IPath sourcePath) {
+		Object target = JavaModel.getTarget(sourcePath, true);
+		File localFile = null;
+		if (target instanceof IFile) {
+			IPath location = ((IFile) target).getLocation();
+			if (location != null)
+				localFile = location.toFile();
+		} else if (target instanceof File) {
+			localFile = (File) target;
+		}
+		if (localFile == null || !localFile.isFile())
+			return -1;
+		return DeltaProcessor.getTimeStamp(localFile);
+	}
+
+	/**
+	 * Returns the key identifying the index of the given source attachment: the positions mapped from an archive
+	 * depend on the root path of the sources in the archive (<code>null</code> if inferred), on their encoding,
+	 * and on the compiler source level used to parse them.
+	 */
+	public static String getKey(IPath sourcePath, String rootPath, String encoding, String sourceLevel) {
+		StringBuffer key = new StringBuffer(sourcePath.toPortableString());
+		key.append('|');
+		if (rootPath != null)
+			key.append('/').append(rootPath);
+		key.append('|');
+		key.append(encoding);
+		key.append('|');
+		key.append(sourceLevel);
+		return key.toString();
+	}
+
+	/**
+	 * Returns the name of the file of the index of the given source attachment.
+	 */
+	public static String getFileName(IPath sourcePath, String rootPath, String encoding, String sourceLevel) {
+		CRC32 checksumCalculator = new CRC32();
+		checksumCalculator.update(getKey(sourcePath, rootPath, encoding, sourceLevel).getBytes(StandardCharsets.UTF_8));
+		return Long.toString(checksumCalculator.getValue()) + INDEX_EXTENSION;
+	}
+
+	private static IPath getIndexFolder() {
+		return JavaCore.getPlugin().getStateLocation().append(INDEX_FOLDER);
+	}
+
+	/**
+	 * Deletes the index files that are not in the given set of file names.
+	 */
+	public static void deleteIndexFiles(Set<String> knownFileNames) {
+		File[] files = getIndexFolder().toFile().listFiles();
+		if (files == null)
+			return;
+		for (int i = 0; i < files.length; i++) {
+			String fileName = files[i].getName();
+			if (fileName.endsWith(TEMP_EXTENSION))
+				fileName = fileName.substring(0, fileName.length() - TEMP_EXTENSION.length());
+			if (fileName.endsWith(INDEX_EXTENSION) && !knownFileNames.contains(fileName))
+				files[i].delete();
+		}
+	}
+
+	/**
+	 * Returns the index of the given source attachment, reading its table of contents from disk
+	 * if it was saved for the same time stamp, or an empty index otherwise.
+	 */
+	public static SourceAttachmentIndex load(IPath sourcePath, String rootPath, String encoding, String sourceLevel, long timeStamp) {
+		SourceAttachmentIndex index = new SourceAttachmentIndex(sourcePath, rootPath, encoding, sourceLevel, timeStamp);
+		if (!index.file.exists())
+			return index;
+		try (RandomAccessFile in = new RandomAccessFile(index.file, "r")) { //$NON-NLS-1$
+			if (in.readInt() == VERSION
+					&& in.readUTF().equals(index.getKey())
+					&& in.readLong() == timeStamp) {
+				in.seek(in.length() - 8);
+				in.seek(in.readLong());
+				index.isComplete = in.readBoolean();
+				for (int i = 0, size = in.readInt(); i < size; i++)
+					index.sourceEntries.put(in.readUTF(), in.readUTF());
+				for (int i = 0, size = in.readInt(); i < size; i++)
+					index.locations.put(in.readUTF(), new Location(in.readLong(), in.readInt()));
+				return index;
+			}
+		} catch (IOException e) {
+			// corrupted index: start over
+			index.sourceEntries.clear();
+			index.locations.clear();
+			index.isComplete = false;
+		}
+		index.file.delete();
+		return index;
+	}
+
+	String getKey() {
+		return getKey(this.sourcePath, this.rootPath, this.encoding, this.sourceLevel);
+	}
+
+	String getFileName() {
+		return this.file.getName();
+	}
+
+	/**
+	 * Returns the key of the given binary type in this index, e.g. "p/X$Y.class".
+	 */
+	static String getTypeKey(BinaryType type) {
+		PackageFragment pkg = (PackageFragment) type.getPackageFragment();
+		return Util.concatWith(pkg.names, type.getParent().getElementName(), '/');
+	}
+
+	/**
+	 * Returns the name of the archive entry containing the given source file (e.g. "src/java/lang/Object.java"
+	 * for "java/lang/Object.java"), or <code>null</code> if unknown.
+	 */
+	public synchronized String getSourceEntry(String sourceFileName) {
+		return this.sourceEntries.get(sourceFileName);
+	}
+
+	public synchronized void putSourceEntry(String sourceFileName, String entryName) {
+		if (!entryName.equals(this.sourceEntries.put(sourceFileName, entryName)))
+			this.isDirty = true;
+	}
+
+	synchronized boolean hasMappedType(String typeKey) {
+		return this.pendingTypes.containsKey(typeKey) || this.locations.containsKey(typeKey);
+	}
+
+	/**
+	 * Returns the source positions recorded for the given binary type, or <code>null</code> if unknown.
+	 */
+	synchronized MappedType getMappedType(String typeKey) {
+		MappedType mappedType = this.pendingTypes.get(typeKey);
+		if (mappedType != null)
+			return mappedType;
+		Location location = this.locations.get(typeKey);
+		if (location == null)
+			return null;
+		try (RandomAccessFile in = new RandomAccessFile(this.file, "r")) { //$NON-NLS-1$
+			byte[] bytes = new byte[location.length];
+			in.seek(location.offset);
+			in.readFully(bytes);
+			return MappedType.read(new DataInputStream(new ByteArrayInputStream(bytes)));
+		} catch (IOException e) {
+			// index file was deleted or is corrupted: the source will be parsed again
+			this.locations.remove(typeKey);
+			return null;
+		}
+	}
+
+	synchronized void putMappedType(String typeKey, MappedType mappedType) {
+		this.pendingTypes.put(typeKey, mappedType);
+		this.isDirty = true;
+	}
+
+	public synchronized boolean isComplete() {
+		return this.isComplete;
+	}
+
+	/**
+	 * Writes the mapped types that were recorded since the last save to disk.
+	 */
+	public synchronized void save() {
+		if (!this.isDirty)
+			return;
+		File folder = this.file.getParentFile();
+		if (!folder.exists() && !folder.mkdirs())
+			return;
+		File tempFile = new File(folder, this.file.getName() + TEMP_EXTENSION);
+		HashMap<String, Location> newLocations = new HashMap<>(this.locations.size() + this.pendingTypes.size());
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+			out.writeInt(VERSION);
+			out.writeUTF(getKey());
+			out.writeLong(this.timeStamp);
+
+			// copy the types that were already on disk
+			if (!this.locations.isEmpty()) {
+				try (RandomAccessFile in = new RandomAccessFile(this.file, "r")) { //$NON-NLS-1$
+					for (Iterator<Map.Entry<String, Location>> iterator = this.locations.entrySet().iterator(); iterator.hasNext();) {
+						Map.Entry<String, Location> entry = iterator.next();
+						if (this.pendingTypes.containsKey(entry.getKey()))
+							continue;
+						Location location = entry.getValue();
+						byte[] bytes = new byte[location.length];
+						in.seek(location.offset);
+						in.readFully(bytes);
+						newLocations.put(entry.getKey(), new Location(out.size(), bytes.length));
+						out.write(bytes);
+					}
+				}
+			}
+
+			// write the new types
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+			for (Iterator<Map.Entry<String, MappedType>> iterator = this.pendingTypes.entrySet().iterator(); iterator.hasNext();) {
+				Map.Entry<String, MappedType> entry = iterator.next();
+				buffer.reset();
+				entry.getValue().write(new DataOutputStream(buffer));
+				newLocations.put(entry.getKey(), new Location(out.size(), buffer.size()));
+				buffer.writeTo(out);
+			}
+
+			// table of contents
+			long tableOffset = out.size();
+			out.writeBoolean(this.isComplete);
+			out.writeInt(this.sourceEntries.size());
+			for (Iterator<Map.Entry<String, String>> iterator = this.sourceEntries.entrySet().iterator(); iterator.hasNext();) {
+				Map.Entry<String, String> entry = iterator.next();
+				out.writeUTF(entry.getKey());
+				out.writeUTF(entry.getValue());
+			}
+			out.writeInt(newLocations.size());
+			for (Iterator<Map.Entry<String, Location>> iterator = newLocations.entrySet().iterator(); iterator.hasNext();) {
+				Map.Entry<String, Location> entry = iterator.next();
+				out.writeUTF(entry.getKey());
+				out.writeLong(entry.getValue().offset);
+				out.writeInt(entry.getValue().length);
+			}
+			out.writeLong(tableOffset);
+		} catch (IOException e) {
+			Util.log(e, "Could not save source attachment index for " + this.sourcePath); //$NON-NLS-1$
+			tempFile.delete();
+			return;
+		}
+		this.file.delete();
+		if (!tempFile.renameTo(this.file)) {
+			tempFile.delete();
+			this.locations.clear(); // the previous index file is gone
+			return;
+		}
+		this.locations.clear();
+		this.locations.putAll(newLocations);
+		this.pendingTypes.clear();
+		this.isDirty = false;
+	}
+
+	/**
+	 * Maps in the background all the top level types of the given root that are not indexed yet,
+	 * using a copy of the given source mapper, then saves this index. Does nothing if this index
+	 * is complete or is already being built.
+	 */
+	public void scheduleIndexing(final JarPackageFragmentRoot root, final SourceMapper mapper) {
+		Job job;
+		synchronized (this) {
+			if (this.isComplete || this.indexingJob != null)
+				return;
+			job = this.indexingJob = new Job(Messages.bind(Messages.indexing_source_attachment_job, this.sourcePath.toString())) {
+				protected IStatus run(IProgressMonitor monitor) {
+					try {
+						return index(root, mapper, monitor);
+					} finally {
+						synchronized (SourceAttachmentIndex.this) {
+							SourceAttachmentIndex.this.indexingJob = null;
+						}
+					}
+				}
+				public boolean belongsTo(Object family) {
+					return family == INDEXING_FAMILY;
+				}
+			};
+		}
+		job.setSystem(true);
+		job.setPriority(Job.DECORATE);
+		job.schedule();
+	}
+
+	IStatus index(JarPackageFragmentRoot root, SourceMapper mapper, IProgressMonitor monitor) {
+		JavaModelManager manager = JavaModelManager.getJavaModelManager();
+		try {
+			IJavaElement[] packages = root.getChildren();
+			SubMonitor subMonitor = SubMonitor.convert(monitor, packages.length);
+			SourceMapper indexingMapper = newIndexingMapper(mapper, mapper.rootPath);
+			int mapped = 0;
+			for (int i = 0; i < packages.length; i++) {
+				IClassFile[] classFiles = ((PackageFragment) packages[i]).getClassFiles();
+				for (int j = 0; j < classFiles.length; j++) {
+					if (subMonitor.isCanceled()
+							|| manager.getSourceAttachmentIndex(this.sourcePath, this.rootPath, this.encoding, this.sourceLevel) != this) {
+						// cancelled or the archive changed: keep what was indexed so far
+						save();
+						return Status.CANCEL_STATUS;
+					}
+					ClassFile classFile = (ClassFile) classFiles[j];
+					if (classFile.getElementName().indexOf('$') != -1)
+						continue; // member types are mapped with their top level type
+					BinaryType type = (BinaryType) classFile.getType();
+					if (hasMappedType(getTypeKey(type)))
+						continue;
+					IBinaryType info;
+					try {
+						info = classFile.getBinaryTypeInfo(null);
+					} catch (JavaModelException e) {
+						continue;
+					}
+					if (info == null)
+						continue;
+					char[] source = indexingMapper.findSource(type, info);
+					if (source != null) {
+						indexingMapper.mapSource(type, source, info);
+						if (++mapped % SAVE_INTERVAL == 0) {
+							save();
+							// don't keep the ranges of the mapped types in memory
+							indexingMapper = newIndexingMapper(mapper, indexingMapper.rootPath);
+						}
+					}
+				}
+				subMonitor.worked(1);
+			}
+		} catch (JavaModelException e) {
+			// root doesn't exist any longer
+			return Status.OK_STATUS;
+		}
+		synchronized (this) {
+			this.isComplete = true;
+			this.isDirty = true;
+		}
+		save();
+		return Status.OK_STATUS;
+	}
+
+	/*
+	 * Returns a copy of the given mapper that records into this index, reusing the given (possibly inferred) root path.
+	 */
+	private static SourceMapper newIndexingMapper(SourceMapper mapper, String inferredRootPath) {
+		SourceMapper indexingMapper = new SourceMapper(mapper.sourcePath, inferredRootPath, mapper.options, mapper.encoding);
+		indexingMapper.attachmentRootPath = mapper.attachmentRootPath;
+		return indexingMapper;
+	}
+
+	public String toString() {
+		StringBuffer buffer = new StringBuffer("Source attachment index for "); //$NON-NLS-1$
+		buffer.append(this.sourcePath);
+		synchronized (this) {
+			buffer.append(" ("); //$NON-NLS-1$
+			buffer.append(this.locations.size() + this.pendingTypes.size());
+			buffer.append(" types"); //$NON-NLS-1$
+			if (this.isComplete)
+				buffer.append(", complete"); //$NON-NLS-1$
+			buffer.append(')');
+		}
+		return buffer.toString();
+	}
+}
@@ -260,6 +260,18 @@ public class SourceMapper
 	 */
 	private boolean areRootPathsComputed;
 
+	/**
+	 * The source positions recorded for the source attachment index while mapping a type,
+	 * or <code>null</code> if not recording
+	 */
+	private SourceAttachmentIndex.MappedType mappedType;
+
+	/**
+	 * The root path given when the source was attached, or <code>null</code> if inferred.
+	 * Identifies the source attachment index along with the source path, the encoding and the source level.
+	 */
+	String attachmentRootPath;
+
 	public SourceMapper() {
 		this.areRootPathsComputed = false;
 	}
@@ -284,6 +296,7 @@ public class SourceMapper
 			this.rootPaths = new ArrayList();
 			this.rootPaths.add(rootPath);
 		}
+		this.attachmentRootPath = rootPath;
 		this.sourcePath = sourcePath;
 		this.sourceRanges = new HashMap();
 		this.parametersRanges = new HashMap();
@@ -356,7 +369,22 @@ public class SourceMapper
 		if (elementCategories == null) return;
 		if (this.categories == null)
 			this.categories = new HashMap();
-		this.categories.put(element, CharOperation.toStrings(elementCategories));
+		String[] strings = CharOperation.toStrings(elementCategories);
+		this.categories.put(element, strings);
+		if (this.mappedType != null)
+			this.mappedType.addCategories(element, strings);
+	}
+
+	/**
+	 * Returns the index of the source attachment archive of this mapper, or <code>null</code>
+	 * if the source is not attached as an archive.
+	 */
+	public SourceAttachmentIndex getSourceAttachmentIndex() {
+		return JavaModelManager.getJavaModelManager().getSourceAttachmentIndex(
+			this.sourcePath,
+			this.attachmentRootPath,
+			this.encoding == null ? this.defaultEncoding : this.encoding,
+			this.options == null ? null : (String) this.options.get(JavaCore.COMPILER_SOURCE));
 	}
 
 	/**
@@ -882,6 +910,8 @@ public class SourceMapper
 						}
 						this.finalParameters.add(key);
 					}
+					if (this.mappedType != null)
+						this.mappedType.addParameter(method, key.name, allRanges, parameterInfo.modifiers != 0);
 				}
 			}
 
@@ -1002,10 +1032,21 @@ public class SourceMapper
 		char[] source = null;
 
 		JavaModelManager javaModelManager = JavaModelManager.getJavaModelManager();
+		SourceAttachmentIndex index = getSourceAttachmentIndex();
 		try {
 			javaModelManager.cacheZipFiles(this); // Cache any zip files we open during this operation
 
-			if (this.rootPath != null) {
+			boolean isIndexed = false;
+			if (index != null) {
+				// the entry is known: no need to search the root paths
+				String entryName = index.getSourceEntry(name);
+				if (entryName != null) {
+					source = findSource(entryName);
+					isIndexed = source != null;
+				}
+			}
+
+			if (source == null && this.rootPath != null) {
 				source = getSourceForRootPath(this.rootPath, name);
 			}
 	
@@ -1025,6 +1066,14 @@ public class SourceMapper
 					}
 				}
 			}
+			if (source != null && index != null) {
+				if (!isIndexed)
+					index.putSourceEntry(name, getFullName(this.rootPath, name));
+				IPackageFragmentRoot root = pkgFrag.getPackageFragmentRoot();
+				if (root instanceof JarPackageFragmentRoot) {
+					index.scheduleIndexing((JarPackageFragmentRoot) root, this);
+				}
+			}
 		} finally {
 			javaModelManager.flushZipFiles(this); // clean up cached zip files.
 		}
@@ -1035,17 +1084,19 @@ public class SourceMapper
 	}
 
 	private char[] getSourceForRootPath(String currentRootPath, String name) {
-		String newFullName;
+		return this.findSource(getFullName(currentRootPath, name));
+	}
+
+	private String getFullName(String currentRootPath, String name) {
 		if (!currentRootPath.equals(IPackageFragmentRoot.DEFAULT_PACKAGEROOT_PATH)) {
 			if (currentRootPath.endsWith("/")) { //$NON-NLS-1$
-				newFullName = currentRootPath + name;
+				return currentRootPath + name;
 			} else {
-				newFullName = currentRootPath + '/' + name;
+				return currentRootPath + '/' + name;
 			}
 		} else {
-			newFullName = name;
+			return name;
 		}
-		return this.findSource(newFullName);
 	}
 
 	public char[] findSource(String fullName) {
@@ -1428,6 +1479,21 @@ public class SourceMapper
 				}
 			}
 			boolean doFullParse = hasToRetrieveSourceRangesForLocalClass(fullName);
+
+			// reuse the source positions recorded in the source attachment index if any
+			SourceAttachmentIndex index = null;
+			String typeKey = null;
+			if (elementToFind == null && !isAnonymousClass && !doFullParse) {
+				index = getSourceAttachmentIndex();
+				if (index != null) {
+					typeKey = SourceAttachmentIndex.getTypeKey(this.binaryType);
+					SourceAttachmentIndex.MappedType indexedType = index.getMappedType(typeKey);
+					if (indexedType != null && restore(this.binaryType, indexedType))
+						return null;
+					this.mappedType = new SourceAttachmentIndex.MappedType((PackageFragment) this.binaryType.getPackageFragment());
+				}
+			}
+
 			parser = new SourceElementParser(this, factory, new CompilerOptions(this.options), doFullParse, true/*optimize string literals*/);
 			parser.javadocParser.checkDocComment = false; // disable javadoc parsing
 			IJavaElement javaElement = this.binaryType.getCompilationUnit();
@@ -1436,6 +1502,10 @@ public class SourceMapper
 				new BasicCompilationUnit(contents, null, this.binaryType.sourceFileName(info), javaElement),
 				doFullParse,
 				null/*no progress*/);
+			if (this.mappedType != null) {
+				this.mappedType.imports = getImports(this.binaryType);
+				index.putMappedType(typeKey, this.mappedType);
+			}
 			if (elementToFind != null) {
 				ISourceRange range = getNameRange(elementToFind);
 				return range;
@@ -1448,12 +1518,93 @@ public class SourceMapper
 			}
 			this.binaryType = null;
 			this.searchedElement = null;
+			this.mappedType = null;
 			this.types = null;
 			this.typeDeclarationStarts = null;
 			this.typeNameRanges = null;
 			this.typeDepth = -1;
 		}
 	}
+	/**
+	 * Maps the given binary type and its children using the source positions recorded in the
+	 * source attachment index, without reading nor parsing its source.
+	 * Returns whether the type is mapped.
+	 */
+	public synchronized boolean mapSourceFromIndex(IType type, IBinaryType info) {
+		if (this.sourceRanges.get(type) != null) return true;
+		if (info.isAnonymous() || hasToRetrieveSourceRangesForLocalClass(info.getName())) return false;
+		SourceAttachmentIndex index = getSourceAttachmentIndex();
+		if (index == null) return false;
+		SourceAttachmentIndex.MappedType indexedType = index.getMappedType(SourceAttachmentIndex.getTypeKey((BinaryType) type));
+		return indexedType != null && restore((BinaryType) type, indexedType);
+	}
+
+	/*
+	 * Restores the source positions of the given binary type from the source attachment index.
+	 * Returns false if they cannot be restored.
+	 */
+	private boolean restore(BinaryType type, SourceAttachmentIndex.MappedType indexedType) {
+		PackageFragment pkg = (PackageFragment) type.getPackageFragment();
+		HashMap restoredRanges = new HashMap();
+		HashMap restoredParameterNames = new HashMap();
+		HashMap restoredParametersRanges = new HashMap();
+		HashSet restoredFinalParameters = new HashSet();
+		HashMap restoredCategories = new HashMap();
+		try {
+			for (int i = 0, size = indexedType.elements.size(); i < size; i++) {
+				int[] range = indexedType.ranges.get(i);
+				restoredRanges.put(
+					SourceAttachmentIndex.MappedType.resolve(pkg, indexedType.elements.get(i)),
+					new SourceRange[] {SourceAttachmentIndex.MappedType.sourceRange(range), SourceAttachmentIndex.MappedType.nameRange(range)});
+			}
+			for (int i = 0, size = indexedType.methods.size(); i < size; i++) {
+				restoredParameterNames.put(
+					SourceAttachmentIndex.MappedType.resolve(pkg, indexedType.methods.get(i)),
+					indexedType.parameterNames.get(i));
+			}
+			for (int i = 0, size = indexedType.parameters.size(); i < size; i++) {
+				IJavaElement method = SourceAttachmentIndex.MappedType.resolve(pkg, indexedType.parameterMethods.get(i));
+				LocalVariableElementKey key = new LocalVariableElementKey(method, indexedType.parameters.get(i));
+				int[] range = indexedType.parameterRanges.get(i);
+				restoredParametersRanges.put(
+					key,
+					new SourceRange[] {SourceAttachmentIndex.MappedType.sourceRange(range), SourceAttachmentIndex.MappedType.nameRange(range)});
+				if (indexedType.finalParameters.get(i).booleanValue())
+					restoredFinalParameters.add(key);
+			}
+			for (int i = 0, size = indexedType.categorizedElements.size(); i < size; i++) {
+				restoredCategories.put(
+					SourceAttachmentIndex.MappedType.resolve(pkg, indexedType.categorizedElements.get(i)),
+					indexedType.categories.get(i));
+			}
+		} catch (RuntimeException e) {
+			// memento cannot be resolved (e.g. index from an incompatible version): parse the source instead
+			return false;
+		}
+		if (!restoredRanges.containsKey(type))
+			return false;
+		this.sourceRanges.putAll(restoredRanges);
+		this.parameterNames.putAll(restoredParameterNames);
+		this.parametersRanges.putAll(restoredParametersRanges);
+		if (!restoredFinalParameters.isEmpty()) {
+			if (this.finalParameters == null)
+				this.finalParameters = new HashSet();
+			this.finalParameters.addAll(restoredFinalParameters);
+		}
+		if (!restoredCategories.isEmpty()) {
+			if (this.categories == null)
+				this.categories = new HashMap();
+			this.categories.putAll(restoredCategories);
+		}
+		this.importsTable.remove(type);
+		this.importsCounterTable.remove(type);
+		if (indexedType.imports != null) {
+			this.importsTable.put(type, indexedType.imports);
+			this.importsCounterTable.put(type, Integer.valueOf(indexedType.imports.length));
+		}
+		return true;
+	}
+
 	private char[] readSource(ZipEntry entry, ZipFile zip, String charSet) {
 		try {
 			byte[] bytes = Util.getZipEntryByteContent(entry, zip);
@@ -1479,6 +1630,8 @@ public class SourceMapper
 			parameterNames = CharOperation.NO_CHAR_CHAR;
 		}
 		this.parameterNames.put(method, parameterNames);
+		if (this.mappedType != null)
+			this.mappedType.addParameterNames(method, parameterNames);
 	}
 
 	/**
@@ -1492,6 +1645,8 @@ public class SourceMapper
 		SourceRange sourceRange,
 		SourceRange nameRange) {
 		this.sourceRanges.put(element, new SourceRange[] { sourceRange, nameRange });
+		if (this.mappedType != null)
+			this.mappedType.addRange(element, sourceRange, nameRange);
 	}
 
 	/**
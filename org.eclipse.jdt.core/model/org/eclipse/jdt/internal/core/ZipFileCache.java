@@ -0,0 +1,341 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jdt.internal.core.util.Messages;
+
+/**
+ * A process-wide cache of open archives, shared by all threads.
+ * <p>
+ * Archives are reference counted: a <code>ZipFile</code> answered by {@link #acquire(IPath, File)}
+ * must be given back using {@link #release(ZipFile)}. At most <code>maxSize</code> archives are kept
+ * open, the least recently used unreferenced ones being closed first. An archive that is invalidated
+ * or evicted while still referenced is closed when its last reference is released.
+ * </p><p>
+ * Unreferenced archives are also closed once they have not been used for <code>idleTimeout</code>
+ * milliseconds, so that archives are not kept open (and locked on some platforms) while no one needs them.
+ * </p><p>
+ * For each cached archive, an index from package paths to entry names is built on demand so that
+ * the package structure of the archive can be computed without enumerating its <code>ZipEntry</code>s again.
+ * </p>
+ */
+public class ZipFileCache {
+
+	/**
+	 * Default number of archives kept open, see <code>JavaModelManager#ZIP_FILE_CACHE_SIZE</code>.
+	 */
+	public static final int DEFAULT_SIZE = 100;
+
+	/**
+	 * Default time after which an unreferenced archive is closed, in milliseconds,
+	 * see <code>JavaModelManager#ZIP_FILE_CACHE_IDLE_TIMEOUT</code>.
+	 */
+	public static final long DEFAULT_IDLE_TIMEOUT = 5000;
+
+	private static final String[] NO_NAMES = new String[0];
+
+	static class Entry {
+		final IPath path;
+		final ZipFile zipFile;
+		final long timeStamp;
+		int refCount;
+		boolean isObsolete; // no longer in the cache: close it when the last reference is released
+		long lastUse; // when the last reference was released
+		Map<String, String[]> packageIndex; // lazily computed
+
+		Entry(IPath path, ZipFile zipFile, long timeStamp) {
+			this.path = path;
+			this.zipFile = zipFile;
+			this.timeStamp = timeStamp;
+		}
+	}
+
+	/* The cached entries in access order (least recently used first) */
+	private final LinkedHashMap<IPath, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	/* All the open archives managed by this cache, including the obsolete ones that are still referenced */
+	private final HashMap<ZipFile, Entry> openArchives = new HashMap<>();
+
+	private final int maxSize;
+	private final long idleTimeout; // negative if unreferenced archives are kept open until evicted
+
+	/* Closes the idle archives, scheduled while there are unreferenced archives */
+	private final Job closeIdleJob = new Job(Messages.closing_idle_archives_job) {
+		protected IStatus run(IProgressMonitor monitor) {
+			long delay = closeIdleArchives(System.currentTimeMillis());
+			if (delay >= 0)
+				schedule(delay);
+			return Status.OK_STATUS;
+		}
+	};
+	private boolean isCloseIdleScheduled;
+
+	private int hitCount;
+	private int openCount;
+	private int evictionCount;
+	private int idleCount;
+
+	public ZipFileCache(int maxSize, long idleTimeout) {
+		this.maxSize = Math.max(maxSize, 0);
+		this.idleTimeout = idleTimeout;
+		this.closeIdleJob.setSystem(true);
+	}
+
+	/**
+	 * Answers the open archive for the given path, opening the given local file if it is not cached yet
+	 * or if it changed on disk since it was opened. The caller must call {@link #release(ZipFile)} once done.
+	 */
+	public ZipFile acquire(IPath path, File localFile) throws IOException {
+		long timeStamp = DeltaProcessor.getTimeStamp(localFile);
+		synchronized (this) {
+			Entry entry = this.entries.get(path);
+			if (entry != null) {
+				if (entry.timeStamp == timeStamp) {
+					entry.refCount++;
+					this.hitCount++;
+					return entry.zipFile;
+				}
+				// the archive changed on disk since it was opened
+				remove(entry);
+			}
+		}
+		// open the archive outside the lock so that other threads can still access cached archives
+		if (JavaModelManager.ZIP_ACCESS_VERBOSE) {
+			System.out.println("(" + Thread.currentThread() + ") [ZipFileCache.acquire(IPath, File)] Creating ZipFile on " + localFile); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		ZipFile zipFile = new ZipFile(localFile);
+		synchronized (this) {
+			this.openCount++;
+			Entry entry = this.entries.get(path);
+			if (entry != null) {
+				if (entry.timeStamp == timeStamp) {
+					// opened concurrently by another thread: share its archive
+					entry.refCount++;
+					close(zipFile);
+					return entry.zipFile;
+				}
+				remove(entry);
+			}
+			entry = new Entry(path, zipFile, timeStamp);
+			entry.refCount = 1;
+			this.entries.put(path, entry);
+			this.openArchives.put(zipFile, entry);
+			evictIfNeeded();
+			return zipFile;
+		}
+	}
+
+	/**
+	 * Gives back a reference on the given archive.
+	 * Returns <code>false</code> if the archive is not managed by this cache.
+	 */
+	public boolean release(ZipFile zipFile) {
+		synchronized (this) {
+			Entry entry = this.openArchives.get(zipFile);
+			if (entry == null)
+				return false;
+			if (entry.refCount == 0 || --entry.refCount > 0)
+				return true;
+			if (entry.isObsolete) {
+				this.openArchives.remove(zipFile);
+				close(zipFile);
+				return true;
+			}
+			entry.lastUse = System.currentTimeMillis();
+			evictIfNeeded();
+			if (this.idleTimeout < 0 || this.isCloseIdleScheduled || !this.entries.containsKey(entry.path))
+				return true;
+			this.isCloseIdleScheduled = true;
+		}
+		// schedule outside the lock as the job manager has its own
+		this.closeIdleJob.schedule(this.idleTimeout);
+		return true;
+	}
+
+	/**
+	 * Removes the archive at the given path from the cache (e.g. because it changed or was removed).
+	 * The archive is closed as soon as it is no longer referenced.
+	 */
+	public synchronized void invalidate(IPath path) {
+		Entry entry = this.entries.get(path);
+		if (entry != null)
+			remove(entry);
+	}
+
+	/**
+	 * Removes all archives from the cache, closing the ones that are no longer referenced.
+	 */
+	public void flush() {
+		synchronized (this) {
+			Iterator<Entry> iterator = new ArrayList<>(this.entries.values()).iterator();
+			while (iterator.hasNext()) {
+				remove(iterator.next());
+			}
+			this.isCloseIdleScheduled = false;
+		}
+		this.closeIdleJob.cancel();
+	}
+
+	/*
+	 * Closes the unreferenced archives that have not been used for the idle timeout at the given time.
+	 * Answers the delay after which the next unreferenced archive becomes idle, or -1 if there is none.
+	 */
+	synchronized long closeIdleArchives(long now) {
+		long nextDelay = -1;
+		Iterator<Entry> iterator = this.entries.values().iterator();
+		while (iterator.hasNext()) {
+			Entry entry = iterator.next();
+			if (entry.refCount > 0)
+				continue;
+			long idleTime = now - entry.lastUse;
+			if (idleTime >= this.idleTimeout) {
+				iterator.remove();
+				this.openArchives.remove(entry.zipFile);
+				this.idleCount++;
+				close(entry.zipFile);
+			} else if (nextDelay == -1 || this.idleTimeout - idleTime < nextDelay) {
+				nextDelay = this.idleTimeout - idleTime;
+			}
+		}
+		this.isCloseIdleScheduled = nextDelay >= 0;
+		return nextDelay;
+	}
+
+	/**
+	 * Answers a table from package paths (using '/' as separator, "" for the default package) to
+	 * the names of the entries directly contained in this package, including the directory entry of
+	 * the package if any. The table is shared and must not be modified.
+	 */
+	public Map<String, String[]> getPackageIndex(ZipFile zipFile) {
+		Entry entry;
+		synchronized (this) {
+			entry = this.openArchives.get(zipFile);
+		}
+		if (entry == null)
+			return computePackageIndex(zipFile);
+		synchronized (entry) {
+			if (entry.packageIndex == null)
+				entry.packageIndex = computePackageIndex(zipFile);
+			return entry.packageIndex;
+		}
+	}
+
+	public synchronized int getHitCount() {
+		return this.hitCount;
+	}
+
+	public synchronized int getOpenCount() {
+		return this.openCount;
+	}
+
+	public synchronized int getEvictionCount() {
+		return this.evictionCount;
+	}
+
+	/**
+	 * Answers how many archives were closed because they were not used for the idle timeout.
+	 */
+	public synchronized int getIdleCount() {
+		return this.idleCount;
+	}
+
+	private Map<String, String[]> computePackageIndex(ZipFile zipFile) {
+		LinkedHashMap<String, List<String>> index = new LinkedHashMap<>(); // keep the packages in the order of the archive
+		for (Enumeration<? extends ZipEntry> e = zipFile.entries(); e.hasMoreElements();) {
+			String entryName = e.nextElement().getName();
+			// a directory entry belongs to the package it denotes
+			int lastSeparator = entryName.endsWith("/") ? entryName.length() - 1 : entryName.lastIndexOf('/'); //$NON-NLS-1$
+			String packagePath = lastSeparator == -1 ? "" : entryName.substring(0, lastSeparator); //$NON-NLS-1$
+			List<String> names = index.get(packagePath);
+			if (names == null)
+				index.put(packagePath, names = new ArrayList<>());
+			names.add(entryName);
+		}
+		LinkedHashMap<String, String[]> result = new LinkedHashMap<>(index.size());
+		for (Iterator<Map.Entry<String, List<String>>> iterator = index.entrySet().iterator(); iterator.hasNext();) {
+			Map.Entry<String, List<String>> packageEntry = iterator.next();
+			result.put(packageEntry.getKey(), packageEntry.getValue().toArray(NO_NAMES));
+		}
+		return result;
+	}
+
+	private void evictIfNeeded() {
+		if (this.entries.size() <= this.maxSize)
+			return;
+		Iterator<Entry> iterator = this.entries.values().iterator();
+		while (this.entries.size() > this.maxSize && iterator.hasNext()) {
+			Entry entry = iterator.next();
+			if (entry.refCount > 0)
+				continue; // in use: will be evicted once released
+			iterator.remove();
+			this.openArchives.remove(entry.zipFile);
+			this.evictionCount++;
+			close(entry.zipFile);
+		}
+	}
+
+	private void remove(Entry entry) {
+		this.entries.remove(entry.path);
+		if (entry.refCount == 0) {
+			this.openArchives.remove(entry.zipFile);
+			close(entry.zipFile);
+		} else {
+			entry.isObsolete = true;
+		}
+	}
+
+	private void close(ZipFile zipFile) {
+		try {
+			if (JavaModelManager.ZIP_ACCESS_VERBOSE) {
+				System.out.println("(" + Thread.currentThread() + ") [ZipFileCache.close(ZipFile)] Closing ZipFile on " + zipFile.getName()); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			zipFile.close();
+		} catch (IOException e) {
+			// problem occured closing zip file: cannot do much more
+		}
+	}
+
+	public synchronized String toString() {
+		StringBuffer buffer = new StringBuffer("ZipFileCache ["); //$NON-NLS-1$
+		buffer.append(this.entries.size());
+		buffer.append('/');
+		buffer.append(this.maxSize);
+		buffer.append(" cached, "); //$NON-NLS-1$
+		buffer.append(this.openArchives.size());
+		buffer.append(" open, hits="); //$NON-NLS-1$
+		buffer.append(this.hitCount);
+		buffer.append(", opens="); //$NON-NLS-1$
+		buffer.append(this.openCount);
+		buffer.append(", evictions="); //$NON-NLS-1$
+		buffer.append(this.evictionCount);
+		buffer.append(", idle="); //$NON-NLS-1$
+		buffer.append(this.idleCount);
+		buffer.append(']');
+		return buffer.toString();
+	}
+}
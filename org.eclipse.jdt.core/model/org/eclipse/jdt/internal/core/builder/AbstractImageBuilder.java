@@ -18,6 +18,8 @@ import org.eclipse.jdt.core.compiler.*;
 import org.eclipse.jdt.internal.compiler.*;
 import org.eclipse.jdt.internal.compiler.Compiler;
 import org.eclipse.jdt.internal.compiler.classfmt.ClassFileConstants;
+import org.eclipse.jdt.internal.compiler.env.AccessRule;
+import org.eclipse.jdt.internal.compiler.env.AccessRuleSet;
 import org.eclipse.jdt.internal.compiler.env.ICompilationUnit;
 import org.eclipse.jdt.internal.compiler.impl.CompilerOptions;
 import org.eclipse.jdt.internal.compiler.lookup.TypeConstants;
@@ -30,6 +32,7 @@ import org.eclipse.jdt.internal.core.util.Messages;
 import org.eclipse.jdt.internal.core.util.Util;
 
 import java.io.*;
+import java.security.MessageDigest;
 import java.util.*;
 
 /**
@@ -47,6 +50,7 @@ protected State newState;
 protected NameEnvironment nameEnvironment;
 protected ClasspathMultiDirectory[] sourceLocations;
 protected BuildNotifier notifier;
+protected BuildReport report; // null unless JavaBuilder.REPORT is set
 
 protected Compiler compiler;
 protected WorkQueue workQueue;
@@ -56,8 +60,15 @@ protected boolean compiledAllAtOnce;
 private boolean inCompiler;
 
 protected boolean keepStoringProblemMarkers;
+protected MarkerBatch markerBatch; // the markers of the units being compiled, applied at the end of compile(SourceFile[])
 protected SimpleSet filesWithAnnotations = null;
 
+// null unless the results are looked up in the build cache, see compile(SourceFile[])
+protected BuildCache buildCache;
+private boolean recordStructuralDigests; // whether the structure of every class file is digested for the build cache
+private byte[] buildCacheSetup; // digest of the compiler options & of the libraries, computed on first use
+private HashMap cacheEntries; // keyed by SourceFile, the entries for the results of the units being compiled
+
 //2000 is best compromise between space used and speed
 public static int MAX_AT_ONCE = Integer.getInteger(JavaModelManager.MAX_COMPILED_UNITS_AT_ONCE, 2000).intValue();
 public final static String[] JAVA_PROBLEM_MARKER_ATTRIBUTE_NAMES = {
@@ -93,7 +104,9 @@ protected AbstractImageBuilder(JavaBuilder javaBuilder, boolean buildStarting, S
 	this.nameEnvironment = javaBuilder.nameEnvironment;
 	this.sourceLocations = this.nameEnvironment.sourceLocations;
 	this.notifier = javaBuilder.notifier;
+	this.report = javaBuilder.report;
 	this.keepStoringProblemMarkers = true; // may get disabled when missing classfiles are encountered
+	this.markerBatch = new MarkerBatch();
 
 	if (buildStarting) {
 		this.newState = newState == null ? new State(javaBuilder) : newState;
@@ -112,6 +125,12 @@ protected AbstractImageBuilder(JavaBuilder javaBuilder, boolean buildStarting, S
 				}
 			}
 		}
+
+		// the results cannot be replayed when participants or annotation processors see the units being compiled
+		if (this.javaBuilder.participants == null && this.compiler.annotationProcessorManager == null
+				&& JavaCore.ENABLED.equals(javaBuilder.javaProject.getOption(JavaCore.CORE_JAVA_BUILD_CACHE, true)))
+			this.buildCache = JavaModelManager.getJavaModelManager().getBuildCache();
+		this.recordStructuralDigests = this.buildCache != null;
 	}
 }
 
@@ -127,6 +146,8 @@ public void acceptResult(CompilationResult result) {
 	SourceFile compilationUnit = (SourceFile) result.getCompilationUnit(); // go directly back to the sourceFile
 	if (!this.workQueue.isCompiled(compilationUnit)) {
 		this.workQueue.finished(compilationUnit);
+		if (this.report != null)
+			this.report.compiledUnits++;
 
 		try {
 			updateProblemsFor(compilationUnit, result); // record compilation problems before potentially adding duplicate errors
@@ -188,7 +209,12 @@ public void acceptResult(CompilationResult result) {
 					acceptSecondaryType(classFile);
 			}
 			try {
+				int previousPhase = this.report == null ? BuildReport.OTHER : this.report.enter(BuildReport.WRITE);
 				definedTypeNames.add(writeClassFile(classFile, compilationUnit, !isNestedType));
+				if (this.report != null) {
+					this.report.enter(previousPhase);
+					this.report.writtenClassFiles++;
+				}
 			} catch (CoreException e) {
 				Util.log(e, "JavaBuilder handling CoreException"); //$NON-NLS-1$
 				if (e.getStatus().getCode() == IResourceStatus.CASE_VARIANT_EXISTS)
@@ -199,6 +225,8 @@ public void acceptResult(CompilationResult result) {
 		}
 		if (result.hasAnnotations && this.filesWithAnnotations != null) // only initialized if an annotation processor is attached
 			this.filesWithAnnotations.add(compilationUnit);
+		if (this.cacheEntries != null)
+			this.cacheEntries.put(compilationUnit, BuildCache.Entry.forResult(result));
 
 		this.compiler.lookupEnvironment.releaseClassFiles(classFiles);
 		finishedWith(typeLocator, result, compilationUnit.getMainTypeName(), definedTypeNames, duplicateTypeNames);
@@ -206,6 +234,30 @@ public void acceptResult(CompilationResult result) {
 	}
 }
 
+/* Replay the results of the given units from the build cache if they were all compiled
+* with the types they would be compiled with now. Answer whether they were replayed.
+*/
+protected boolean acceptCachedResults(SourceFile[] units, String[] cacheKeys) {
+	int length = units.length;
+	StringSet typeLocators = new StringSet(length);
+	for (int i = 0; i < length; i++)
+		typeLocators.add(units[i].typeLocator());
+	Long otherTypesHash = this.newState.getTypesHash(typeLocators);
+	if (otherTypesHash == null) return false;
+	BuildCache.Entry[] entries = this.buildCache.lookup(cacheKeys, otherTypesHash.longValue());
+	if (entries == null) return false;
+
+	this.notifier.aboutToCompile(units[0]); // just to change the message
+	int maxProblemsPerUnit = this.compiler.options.maxProblemsPerUnit;
+	for (int i = 0; i < length; i++) {
+		if (JavaBuilder.DEBUG)
+			System.out.println("Reusing the cached result of " + units[i].typeLocator()); //$NON-NLS-1$
+		acceptResult(entries[i].toResult(units[i], i, length, maxProblemsPerUnit));
+		this.notifier.checkCancel();
+	}
+	return true;
+}
+
 protected void acceptSecondaryType(ClassFile classFile) {
 	// noop
 }
@@ -274,9 +326,13 @@ protected void cleanUp() {
 	this.nameEnvironment = null;
 	this.sourceLocations = null;
 	this.notifier = null;
+	this.report = null;
 	this.compiler = null;
 	this.workQueue = null;
 	this.problemSourceFiles = null;
+	this.buildCache = null;
+	this.cacheEntries = null;
+	this.markerBatch = null;
 }
 
 /* Compile the given elements, adding more elements to the work queue
@@ -295,6 +351,17 @@ protected void compile(SourceFile[] units) {
 			units[i] = participantResults[i].sourceFile;
 	}
 
+	String[] cacheKeys = this.buildCache == null ? null : computeCacheKeys(units);
+	SourceFile[] cachedUnits = null;
+	if (cacheKeys != null) {
+		if (acceptCachedResults(units, cacheKeys)) {
+			applyMarkerBatch();
+			return;
+		}
+		this.cacheEntries = new HashMap(units.length);
+		System.arraycopy(units, 0, cachedUnits = new SourceFile[units.length], 0, units.length); // the compiler clears the units it is done with
+	}
+
 	int unitsLength = units.length;
 	this.compiledAllAtOnce = MAX_AT_ONCE == 0 || unitsLength <= MAX_AT_ONCE;
 	if (this.compiledAllAtOnce) {
@@ -334,6 +401,11 @@ protected void compile(SourceFile[] units) {
 		}
 	}
 
+	if (cacheKeys != null) {
+		storeCacheEntries(cachedUnits, cacheKeys);
+		this.cacheEntries = null;
+	}
+
 	if (participantResults != null) {
 		for (int i = participantResults.length; --i >= 0;)
 			if (participantResults[i] != null)
@@ -341,6 +413,21 @@ protected void compile(SourceFile[] units) {
 
 		processAnnotations(participantResults);
 	}
+	applyMarkerBatch();
+}
+
+/* Apply the problem & task markers recorded for the units compiled so far.
+*/
+protected void applyMarkerBatch() {
+	int previousPhase = this.report == null ? BuildReport.OTHER : this.report.enter(BuildReport.MARKERS);
+	try {
+		this.markerBatch.apply();
+	} catch (CoreException e) {
+		throw internalException(e);
+	} finally {
+		if (this.report != null)
+			this.report.enter(previousPhase);
+	}
 }
 
 protected void compile(SourceFile[] units, SourceFile[] additionalUnits, boolean compilingFirstGroup) {
@@ -363,6 +450,7 @@ protected void compile(SourceFile[] units, SourceFile[] additionalUnits, boolean
 		initialTypeNames[i] = units[i].initialTypeName;
 	this.nameEnvironment.setNames(initialTypeNames, additionalUnits);
 	this.notifier.checkCancel();
+	int previousPhase = this.report == null ? BuildReport.OTHER : this.report.enter(BuildReport.COMPILE);
 	try {
 		this.inCompiler = true;
 		this.compiler.compile(units);
@@ -371,12 +459,109 @@ protected void compile(SourceFile[] units, SourceFile[] additionalUnits, boolean
 		// the Compiler failed after the user has chose to cancel... likely due to an OutOfMemory error
 	} finally {
 		this.inCompiler = false;
+		if (this.report != null)
+			this.report.enter(previousPhase);
 	}
 	// Check for cancel immediately after a compile, because the compiler may
 	// have been cancelled but without propagating the correct exception
 	this.notifier.checkCancel();
 }
 
+/* Answer the keys of the given units in the build cache, or null if they cannot be computed.
+*/
+protected String[] computeCacheKeys(SourceFile[] units) {
+	if (this.buildCacheSetup == null) {
+		this.buildCacheSetup = computeCacheSetup();
+		if (this.buildCacheSetup == null) {
+			this.buildCache = null; // do not try again during this build
+			return null;
+		}
+	}
+	String[] keys = new String[units.length];
+	for (int i = 0, l = units.length; i < l; i++) {
+		SourceFile unit = units[i];
+		MessageDigest digest = BuildCache.newDigest();
+		digest.update(this.buildCacheSetup);
+		BuildCache.update(digest, unit.initialTypeName);
+		BuildCache.update(digest, unit.resource.getName());
+		BuildCache.update(digest, String.valueOf(unit.ignoreOptionalProblems()));
+		try {
+			BuildCache.update(digest, unit.getContents());
+		} catch (AbortCompilation e) {
+			return null; // let the compiler report the missing source file
+		}
+		keys[i] = BuildCache.toKey(digest);
+	}
+	return keys;
+}
+
+/* Answer the digest of everything but the types of this project that the results depend on:
+* the compiler options, the API of the prerequisite projects & the contents of the libraries.
+* Answer null if one of them is unknown.
+*/
+private byte[] computeCacheSetup() {
+	MessageDigest digest = BuildCache.newDigest();
+	if (digest == null) return null;
+	BuildCache.update(digest, "builder " + JavaCore.getPlugin().getBundle().getVersion()); //$NON-NLS-1$
+	Iterator options = new TreeMap(this.compiler.options.getMap()).entrySet().iterator();
+	while (options.hasNext()) {
+		Map.Entry option = (Map.Entry) options.next();
+		BuildCache.update(digest, (String) option.getKey());
+		BuildCache.update(digest, String.valueOf(option.getValue()));
+	}
+
+	ClasspathLocation[] binaryLocations = this.nameEnvironment.binaryLocations;
+	for (int i = 0, l = binaryLocations.length; i < l; i++) {
+		AccessRuleSet accessRuleSet;
+		String externalAnnotationPath;
+		byte[] fingerprint;
+		if (binaryLocations[i] instanceof ClasspathMultiDirectory) {
+			// the types of this project are hashed separately
+			BuildCache.update(digest, "output"); //$NON-NLS-1$
+			continue;
+		} else if (binaryLocations[i] instanceof ClasspathDirectory) {
+			ClasspathDirectory directory = (ClasspathDirectory) binaryLocations[i];
+			if (directory.isOutputFolder) {
+				// the output folder of a prerequisite project: use the API of its types
+				State prereqState = this.javaBuilder.getLastState(directory.binaryFolder.getProject());
+				Long typesHash = prereqState == null ? null : prereqState.getTypesHash(null);
+				if (typesHash == null) return null;
+				BuildCache.update(digest, typesHash.toString());
+				fingerprint = new byte[0];
+			} else {
+				IPath location = directory.binaryFolder.getLocation();
+				fingerprint = location == null ? null : BuildCache.fingerprint(location.toFile());
+			}
+			accessRuleSet = directory.accessRuleSet;
+			externalAnnotationPath = directory.externalAnnotationPath;
+		} else if (binaryLocations[i] instanceof ClasspathJar) {
+			ClasspathJar jar = (ClasspathJar) binaryLocations[i];
+			IPath location = jar.resource == null ? new Path(jar.zipFilename) : jar.resource.getLocation();
+			fingerprint = location == null ? null : BuildCache.fingerprint(location.toFile());
+			accessRuleSet = jar.accessRuleSet;
+			externalAnnotationPath = jar.externalAnnotationPath;
+		} else {
+			return null;
+		}
+		if (fingerprint == null) return null;
+		digest.update(fingerprint);
+		if (accessRuleSet != null) {
+			// the restrictions are reported with the name of the classpath entry
+			BuildCache.update(digest, accessRuleSet.classpathEntryType + accessRuleSet.classpathEntryName);
+			AccessRule[] accessRules = accessRuleSet.getAccessRules();
+			for (int j = 0, m = accessRules.length; j < m; j++) {
+				BuildCache.update(digest, accessRules[j].pattern);
+				BuildCache.update(digest, String.valueOf(accessRules[j].problemId));
+			}
+		}
+		if (externalAnnotationPath != null) {
+			if ((fingerprint = BuildCache.fingerprint(new File(externalAnnotationPath))) == null) return null;
+			digest.update(fingerprint);
+		}
+	}
+	return digest.digest();
+}
+
 protected void copyResource(IResource source, IResource destination) throws CoreException {
 	IPath destPath = destination.getFullPath();
 	try {
@@ -392,7 +577,6 @@ protected void copyResource(IResource source, IResource destination) throws Core
 
 protected void createProblemFor(IResource resource, IMember javaElement, String message, String problemSeverity) {
 	try {
-		IMarker marker = resource.createMarker(IJavaModelMarker.JAVA_MODEL_PROBLEM_MARKER);
 		int severity = problemSeverity.equals(JavaCore.WARNING) ? IMarker.SEVERITY_WARNING : IMarker.SEVERITY_ERROR;
 
 		ISourceRange range = null;
@@ -412,9 +596,14 @@ protected void createProblemFor(IResource resource, IMember javaElement, String
 		}
 		int start = range == null ? 0 : range.getOffset();
 		int end = range == null ? 1 : start + range.getLength();
-		marker.setAttributes(
-			new String[] {IMarker.MESSAGE, IMarker.SEVERITY, IMarker.CHAR_START, IMarker.CHAR_END, IMarker.SOURCE_ID},
-			new Object[] {message, Integer.valueOf(severity), Integer.valueOf(start), Integer.valueOf(end), JavaBuilder.SOURCE_ID});
+		String[] attributeNames = new String[] {IMarker.MESSAGE, IMarker.SEVERITY, IMarker.CHAR_START, IMarker.CHAR_END, IMarker.SOURCE_ID};
+		Object[] values = new Object[] {message, Integer.valueOf(severity), Integer.valueOf(start), Integer.valueOf(end), JavaBuilder.SOURCE_ID};
+		if (this.markerBatch != null && this.markerBatch.includes(resource)) {
+			// the markers of the resource are not applied yet, and they may replace the existing ones
+			this.markerBatch.createMarker(resource, IJavaModelMarker.JAVA_MODEL_PROBLEM_MARKER, attributeNames, values);
+		} else {
+			resource.createMarker(IJavaModelMarker.JAVA_MODEL_PROBLEM_MARKER).setAttributes(attributeNames, values);
+		}
 	} catch (CoreException e) {
 		throw internalException(e);
 	}
@@ -446,7 +635,7 @@ protected SourceFile findSourceFile(IFile file, boolean mustExist) {
 
 protected void finishedWith(String sourceLocator, CompilationResult result, char[] mainTypeName, ArrayList definedTypeNames, ArrayList duplicateTypeNames) {
 	if (duplicateTypeNames == null) {
-		this.newState.record(sourceLocator, result.qualifiedReferences, result.simpleNameReferences, result.rootReferences, mainTypeName, definedTypeNames);
+		this.newState.record(sourceLocator, result.qualifiedReferences, result.simpleNameReferences, result.rootReferences, result.memberReferences, result.allMembersReferences, mainTypeName, definedTypeNames);
 		return;
 	}
 
@@ -462,7 +651,7 @@ protected void finishedWith(String sourceLocator, CompilationResult result, char
 		System.arraycopy(simpleRefs, 0, simpleRefs = new char[sLength + 1][], 0, sLength);
 		simpleRefs[sLength] = typeName;
 	}
-	this.newState.record(sourceLocator, result.qualifiedReferences, simpleRefs, result.rootReferences, mainTypeName, definedTypeNames);
+	this.newState.record(sourceLocator, result.qualifiedReferences, simpleRefs, result.rootReferences, result.memberReferences, result.allMembersReferences, mainTypeName, definedTypeNames);
 }
 
 protected IContainer createFolder(IPath packagePath, IContainer outputFolder) throws CoreException {
@@ -544,6 +733,9 @@ protected Compiler newCompiler() {
 	// temporary code to allow the compiler to revert to a single thread
 	String setting = System.getProperty("jdt.compiler.useSingleThread"); //$NON-NLS-1$
 	newCompiler.useSingleThread = setting != null && setting.equals("true"); //$NON-NLS-1$
+	if (!newCompiler.useSingleThread
+			&& JavaCore.ENABLED.equals(this.javaBuilder.javaProject.getOption(JavaCore.CORE_JAVA_BUILD_PARALLEL_COMPILATION, true)))
+		newCompiler.parsingThreads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1); // leave a core to the processing thread
 
 	// enable the compiler reference info support
 	options.produceReferenceInfo = true;
@@ -650,7 +842,7 @@ protected void recordParticipantResult(CompilationParticipantResult result) {
 
 	String[] dependencies = result.dependencies;
 	if (dependencies != null) {
-		ReferenceCollection refs = (ReferenceCollection) this.newState.references.get(result.sourceFile.typeLocator());
+		ReferenceCollection refs = (ReferenceCollection) this.newState.getReferences().get(result.sourceFile.typeLocator());
 		if (refs != null)
 			refs.addDependencies(dependencies);
 	}
@@ -692,6 +884,7 @@ protected void storeProblemsFor(SourceFile sourceFile, CategorizedProblem[] prob
 			// insert extra classpath problem, and make it the only problem for this project (optional)
 			if (isInvalidClasspathError && JavaCore.ABORT.equals(this.javaBuilder.javaProject.getOption(JavaCore.CORE_JAVA_BUILD_INVALID_CLASSPATH, true))) {
 				JavaBuilder.removeProblemsAndTasksFor(this.javaBuilder.currentProject); // make this the only problem for this project
+				this.markerBatch.clear();
 				this.keepStoringProblemMarkers = false;
 			}
 			IMarker marker = this.javaBuilder.currentProject.createMarker(IJavaModelMarker.JAVA_MODEL_PROBLEM_MARKER);
@@ -744,8 +937,6 @@ protected void storeProblemsFor(SourceFile sourceFile, CategorizedProblem[] prob
 					}
 				}
 			}
-			IMarker marker = resource.createMarker(markerType);
-
 			String[] attributeNames = JAVA_PROBLEM_MARKER_ATTRIBUTE_NAMES;
 			int standardLength = attributeNames.length;
 			String[] allNames = attributeNames;
@@ -778,13 +969,31 @@ protected void storeProblemsFor(SourceFile sourceFile, CategorizedProblem[] prob
 			if (extraLength > 0)
 				System.arraycopy(problem.getExtraMarkerAttributeValues(), 0, allValues, index, extraLength);
 
-			marker.setAttributes(allNames, allValues);
+			if (resource == sourceFile.resource) {
+				this.markerBatch.createMarker(resource, markerType, allNames, allValues);
+			} else {
+				// only one marker is created on the package, see above
+				resource.createMarker(markerType).setAttributes(allNames, allValues);
+			}
 
 			if (!this.keepStoringProblemMarkers) return; // only want the one error recorded on this source file
 		}
 	}
 }
 
+/* Store the results of the given units in the build cache, along with the types they were compiled with.
+*/
+protected void storeCacheEntries(SourceFile[] units, String[] cacheKeys) {
+	Long typesHash = this.newState.getTypesHash(null);
+	if (typesHash == null) return;
+	BuildCache.Entry[] entries = new BuildCache.Entry[units.length];
+	for (int i = 0, l = units.length; i < l; i++)
+		entries[i] = (BuildCache.Entry) this.cacheEntries.get(units[i]);
+	this.buildCache.store(cacheKeys, entries, typesHash.longValue());
+	if (JavaBuilder.DEBUG)
+		System.out.println(this.buildCache);
+}
+
 protected void storeTasksFor(SourceFile sourceFile, CategorizedProblem[] tasks) throws CoreException {
 	if (sourceFile == null || tasks == null || tasks.length == 0) return;
 
@@ -792,7 +1001,6 @@ protected void storeTasksFor(SourceFile sourceFile, CategorizedProblem[] tasks)
 	for (int i = 0, l = tasks.length; i < l; i++) {
 		CategorizedProblem task = tasks[i];
 		if (task.getID() == IProblem.Task) {
-			IMarker marker = resource.createMarker(IJavaModelMarker.TASK_MARKER);
 			Integer priority = P_NORMAL;
 			String compilerPriority = task.getArguments()[2];
 			if (JavaCore.COMPILER_TASK_PRIORITY_HIGH.equals(compilerPriority))
@@ -826,7 +1034,7 @@ protected void storeTasksFor(SourceFile sourceFile, CategorizedProblem[] tasks)
 			if (extraLength > 0)
 				System.arraycopy(task.getExtraMarkerAttributeValues(), 0, allValues, index, extraLength);
 
-			marker.setAttributes(allNames, allValues);
+			this.markerBatch.createMarker(resource, IJavaModelMarker.TASK_MARKER, allNames, allValues);
 		}
 	}
 }
@@ -866,7 +1074,8 @@ protected void writeClassFileContents(ClassFile classFile, IFile file, String qu
 //	InputStream input = new SequenceInputStream(
 //			new ByteArrayInputStream(classFile.header, 0, classFile.headerOffset),
 //			new ByteArrayInputStream(classFile.contents, 0, classFile.contentsOffset));
-	InputStream input = new ByteArrayInputStream(classFile.getBytes());
+	byte[] bytes = classFile.getBytes();
+	InputStream input = new ByteArrayInputStream(bytes);
 	if (file.exists()) {
 		// Deal with shared output folders... last one wins... no collision cases detected
 		if (JavaBuilder.DEBUG)
@@ -880,5 +1089,20 @@ protected void writeClassFileContents(ClassFile classFile, IFile file, String qu
 			System.out.println("Writing new class file " + file.getName());//$NON-NLS-1$
 		file.create(input, IResource.FORCE | IResource.DERIVED, null);
 	}
+	// the digests are only used by the incremental builds once a type is compiled again, except by the build cache
+	// which hashes the structure of all the types
+	if (this.recordStructuralDigests)
+		recordClassFileDigest(file, qualifiedFileName, bytes, ClassFileDigest.forContents(bytes));
+}
+
+/* Remember the digests of the class file just written, so that the next incremental build
+* can compare its new contents without reading the file back.
+*/
+protected void recordClassFileDigest(IFile file, String qualifiedFileName, byte[] bytes, ClassFileDigest digest) {
+	if (digest != null) {
+		digest.computeStructure(bytes, qualifiedFileName);
+		digest.modificationStamp = file.getModificationStamp();
+	}
+	this.newState.recordClassFileDigest(qualifiedFileName, digest);
 }
 }
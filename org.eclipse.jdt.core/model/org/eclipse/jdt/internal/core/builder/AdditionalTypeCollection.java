@@ -18,5 +18,10 @@ protected AdditionalTypeCollection(char[][] definedTypeNames, char[][][] qualifi
 	super(qualifiedReferences, simpleNameReferences, rootReferences);
 	this.definedTypeNames = definedTypeNames; // do not bother interning member type names (i.e. 'A$M')
 }
+
+protected AdditionalTypeCollection(char[][] definedTypeNames, char[][][] qualifiedReferences, char[][] simpleNameReferences, char[][] rootReferences, char[][] memberNameReferences, char[][][] allMembersReferences) {
+	super(qualifiedReferences, simpleNameReferences, rootReferences, memberNameReferences, allMembersReferences);
+	this.definedTypeNames = definedTypeNames; // do not bother interning member type names (i.e. 'A$M')
+}
 }
 
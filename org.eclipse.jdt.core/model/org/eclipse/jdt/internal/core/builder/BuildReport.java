@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core.builder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.eclipse.jdt.internal.compiler.util.SimpleLookupTable;
+
+/**
+ * The report of a build of a project: the time spent in each phase of the build, and for each type whose
+ * changes caused other source files to be recompiled, the number of these source files.
+ * It is only computed when {@link JavaBuilder#REPORT} is set, and written as a JSON file
+ * in the working location of the project (see {@link #write(File)}).
+ */
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class BuildReport {
+
+public static final String FILE_NAME = "buildReport.json"; //$NON-NLS-1$
+
+// phases of a build, the time spent in a phase excludes the time spent in the phases it encloses
+public static final int OTHER = 0; // any time not spent in the phases below
+public static final int CLASSPATH = 1; // computing the name environment from the classpath
+public static final int DELTAS = 2; // analyzing the deltas & finding the source files to compile
+public static final int COMPILE = 3;
+public static final int WRITE = 4; // writing the class files
+public static final int MARKERS = 5; // updating the problem & task markers
+public static final int STATE = 6; // copying & recording the build state
+static final String[] PHASE_NAMES = {
+	"other", "classpath", "deltas", "compile", "write", "markers", "state" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$
+};
+
+String projectName;
+String kind = "none"; //$NON-NLS-1$
+boolean successful;
+int compiledUnits;
+int writtenClassFiles;
+long startTime;
+long totalTime;
+
+long[] phaseTimes = new long[PHASE_NAMES.length]; // in nanoseconds
+int phase = OTHER;
+long phaseStart;
+
+// type path (i.e. 'p1/p2/X') -> Integer, the number of source files recompiled because the type changed
+SimpleLookupTable recompiledUnits = new SimpleLookupTable(3);
+
+public BuildReport(String projectName) {
+	this.projectName = projectName;
+	this.startTime = System.nanoTime();
+	this.phaseStart = this.startTime;
+}
+
+/**
+ * Attributes the time to the given phase from now on, until another phase is entered.
+ * Answers the previous phase, to enter it again once the given phase is over.
+ */
+public int enter(int newPhase) {
+	long now = System.nanoTime();
+	this.phaseTimes[this.phase] += now - this.phaseStart;
+	this.phaseStart = now;
+	int previousPhase = this.phase;
+	this.phase = newPhase;
+	return previousPhase;
+}
+
+public void finish(boolean isSuccessful) {
+	enter(OTHER);
+	this.successful = isSuccessful;
+	this.totalTime = System.nanoTime() - this.startTime;
+}
+
+public int getRecompiledUnits(String typePath) {
+	Integer count = (Integer) this.recompiledUnits.get(typePath);
+	return count == null ? 0 : count.intValue();
+}
+
+public long getTime(int reportPhase) {
+	return this.phaseTimes[reportPhase];
+}
+
+public void recordRecompiledUnits(String typePath, int count) {
+	if (count > 0)
+		this.recompiledUnits.put(typePath, Integer.valueOf(getRecompiledUnits(typePath) + count));
+}
+
+static long millis(long nanos) {
+	return nanos / 1000000;
+}
+
+static void appendString(StringBuffer buffer, String value) {
+	buffer.append('"');
+	for (int i = 0, length = value.length(); i < length; i++) {
+		char c = value.charAt(i);
+		switch (c) {
+			case '"' :
+			case '\\' :
+				buffer.append('\\').append(c);
+				break;
+			default :
+				if (c < 0x20) {
+					String hex = Integer.toHexString(c);
+					buffer.append("\\u"); //$NON-NLS-1$
+					for (int j = hex.length(); j < 4; j++)
+						buffer.append('0');
+					buffer.append(hex);
+				} else {
+					buffer.append(c);
+				}
+		}
+	}
+	buffer.append('"');
+}
+
+/**
+ * Answers the report as a JSON object. The types which caused recompilations are sorted
+ * by decreasing number of recompiled source files.
+ */
+public String toJSON() {
+	StringBuffer buffer = new StringBuffer();
+	buffer.append("{\n\t\"project\": "); //$NON-NLS-1$
+	appendString(buffer, this.projectName);
+	buffer.append(",\n\t\"kind\": "); //$NON-NLS-1$
+	appendString(buffer, this.kind);
+	buffer.append(",\n\t\"successful\": ").append(this.successful); //$NON-NLS-1$
+	buffer.append(",\n\t\"totalTime\": ").append(millis(this.totalTime)); //$NON-NLS-1$
+	buffer.append(",\n\t\"phaseTimes\": {"); //$NON-NLS-1$
+	for (int i = 0, length = PHASE_NAMES.length; i < length; i++) {
+		if (i > 0) buffer.append(',');
+		buffer.append("\n\t\t"); //$NON-NLS-1$
+		appendString(buffer, PHASE_NAMES[i]);
+		buffer.append(": ").append(millis(this.phaseTimes[i])); //$NON-NLS-1$
+	}
+	buffer.append("\n\t},\n\t\"compiledUnits\": ").append(this.compiledUnits); //$NON-NLS-1$
+	buffer.append(",\n\t\"writtenClassFiles\": ").append(this.writtenClassFiles); //$NON-NLS-1$
+	buffer.append(",\n\t\"changedTypes\": ["); //$NON-NLS-1$
+	String[] typePaths = new String[this.recompiledUnits.elementSize];
+	int index = 0;
+	Object[] keyTable = this.recompiledUnits.keyTable;
+	for (int i = 0, l = keyTable.length; i < l; i++)
+		if (keyTable[i] != null)
+			typePaths[index++] = (String) keyTable[i];
+	Arrays.sort(typePaths, new Comparator() {
+		public int compare(Object o1, Object o2) {
+			int difference = getRecompiledUnits((String) o2) - getRecompiledUnits((String) o1);
+			return difference != 0 ? difference : ((String) o1).compareTo((String) o2);
+		}
+	});
+	for (int i = 0, length = typePaths.length; i < length; i++) {
+		if (i > 0) buffer.append(',');
+		buffer.append("\n\t\t{\"type\": "); //$NON-NLS-1$
+		appendString(buffer, typePaths[i]);
+		buffer.append(", \"recompiledUnits\": ").append(getRecompiledUnits(typePaths[i])).append('}'); //$NON-NLS-1$
+	}
+	buffer.append(typePaths.length > 0 ? "\n\t]\n}\n" : "]\n}\n"); //$NON-NLS-1$ //$NON-NLS-2$
+	return buffer.toString();
+}
+
+/**
+ * Writes the report to the given file, replacing the report of the previous build.
+ */
+public void write(File file) throws IOException {
+	Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8"); //$NON-NLS-1$
+	try {
+		writer.write(toJSON());
+	} finally {
+		writer.close();
+	}
+}
+
+public String toString() {
+	return toJSON();
+}
+}
@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core.builder;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import org.eclipse.jdt.internal.compiler.BuildCache;
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFileReader;
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFormatException;
+
+/**
+ * The digests of a class file written by the builder: one of its contents and one of its structure
+ * (see {@link ClassFileReader#getStructuralKey()}), along with the modification stamp of the file once written.
+ * They let the incremental builder compare a new class file to the previous one without reading it back.
+ */
+public class ClassFileDigest {
+
+byte[] contents;
+byte[] structure; // null if unknown
+long modificationStamp;
+private long typeHash; // see getTypeHash(String)
+private boolean hasTypeHash;
+
+static final String ALGORITHM = "SHA-1"; //$NON-NLS-1$
+
+ClassFileDigest(byte[] contents, byte[] structure, long modificationStamp) {
+	this.contents = contents;
+	this.structure = structure;
+	this.modificationStamp = modificationStamp;
+}
+
+/*
+ * Answers the digest of the given bytes, or null if no message digest is available.
+ */
+static byte[] digest(byte[] bytes) {
+	try {
+		return MessageDigest.getInstance(ALGORITHM).digest(bytes);
+	} catch (NoSuchAlgorithmException e) {
+		return null;
+	}
+}
+
+/*
+ * Answers the digest of the structure of the given class file, or null if it cannot be computed.
+ */
+static byte[] structuralDigest(ClassFileReader reader) {
+	return BuildCache.structuralDigest(reader);
+}
+
+/*
+ * Answers the digest of the contents of the given class file bytes, or null if it cannot be computed.
+ * The digest of its structure is only computed on demand, see computeStructure(byte[], String).
+ */
+static ClassFileDigest forContents(byte[] bytes) {
+	byte[] contents = digest(bytes);
+	if (contents == null) return null;
+	return new ClassFileDigest(contents, null, 0);
+}
+
+/*
+ * Computes the digest of the structure of the given class file bytes, the ones whose contents this digest describes,
+ * unless it is already known.
+ */
+void computeStructure(byte[] bytes, String fileName) {
+	if (this.structure != null) return;
+	try {
+		this.structure = structuralDigest(new ClassFileReader(bytes, fileName.toCharArray()));
+	} catch (ClassFormatException e) {
+		// leave the structure unknown
+	}
+}
+
+/*
+ * Answers the hash of the type of this class file (see BuildCache#typeHash()), computed once.
+ * The structure must be known.
+ */
+long getTypeHash(String qualifiedFileName) {
+	if (!this.hasTypeHash) {
+		this.typeHash = BuildCache.typeHash(qualifiedFileName.toCharArray(), this.structure);
+		this.hasTypeHash = true;
+	}
+	return this.typeHash;
+}
+
+boolean hasSameContents(byte[] contentsDigest) {
+	return Arrays.equals(this.contents, contentsDigest);
+}
+
+boolean hasSameStructure(byte[] structureDigest) {
+	return this.structure != null && Arrays.equals(this.structure, structureDigest);
+}
+
+static ClassFileDigest read(DataInputStream in) throws IOException {
+	byte[] contents = new byte[in.readInt()];
+	in.readFully(contents);
+	int length = in.readInt();
+	byte[] structure = null;
+	if (length >= 0) {
+		structure = new byte[length];
+		in.readFully(structure);
+	}
+	return new ClassFileDigest(contents, structure, in.readLong());
+}
+
+void write(DataOutputStream out) throws IOException {
+	out.writeInt(this.contents.length);
+	out.write(this.contents);
+	if (this.structure == null) {
+		out.writeInt(-1);
+	} else {
+		out.writeInt(this.structure.length);
+		out.write(this.structure);
+	}
+	out.writeLong(this.modificationStamp);
+}
+}
@@ -40,6 +40,8 @@ protected StringSet qualifiedStrings;
 protected StringSet simpleStrings;
 protected StringSet rootStrings;
 protected SimpleLookupTable secondaryTypesToRemove;
+protected SimpleLookupTable memberChanges; // top level type path (i.e. 'p1/p2/X') -> StringSet of the changed field & method names
+protected StringSet changedTypes; // paths of the types whose dependents are looked for, only recorded for the report
 protected boolean hasStructuralChanges;
 protected int compileLoop;
 protected boolean makeOutputFolderConsistent;
@@ -55,7 +57,10 @@ protected IncrementalImageBuilder(JavaBuilder javaBuilder, State buildState) {
 
 protected IncrementalImageBuilder(JavaBuilder javaBuilder) {
 	this(javaBuilder, null);
+	int previousPhase = this.report == null ? BuildReport.OTHER : this.report.enter(BuildReport.STATE);
 	this.newState.copyFrom(javaBuilder.lastState);
+	if (this.report != null)
+		this.report.enter(previousPhase);
 }
 
 protected IncrementalImageBuilder(BatchImageBuilder batchBuilder) {
@@ -80,6 +85,7 @@ public boolean build(SimpleLookupTable deltas) {
 	try {
 		resetCollections();
 
+		int previousPhase = this.report == null ? BuildReport.OTHER : this.report.enter(BuildReport.DELTAS);
 		this.notifier.subTask(Messages.build_analyzingDeltas);
 		if (this.javaBuilder.hasBuildpathErrors()) {
 			// if a mssing class file was detected in the last build, a build state was saved since its no longer fatal
@@ -114,6 +120,8 @@ public boolean build(SimpleLookupTable deltas) {
 			addAffectedSourceFiles();
 			this.notifier.updateProgressDelta(0.05f);
 		}
+		if (this.report != null)
+			this.report.enter(previousPhase);
 
 		this.compileLoop = 0;
 		float increment = 0.40f;
@@ -181,12 +189,90 @@ protected void buildAfterBatchBuild() {
 }
 
 protected void addAffectedSourceFiles() {
-	if (this.qualifiedStrings.elementSize == 0 && this.simpleStrings.elementSize == 0) return;
+	int previousPhase = this.report == null ? BuildReport.OTHER : this.report.enter(BuildReport.DELTAS);
+	if (this.qualifiedStrings.elementSize > 0 || this.simpleStrings.elementSize > 0) {
+		int start = this.sourceFiles.size();
+		addAffectedSourceFiles(this.qualifiedStrings, this.simpleStrings, this.rootStrings, null);
+		if (this.report != null)
+			reportAffectedSourceFiles(start);
+	}
+	if (this.memberChanges.elementSize > 0)
+		addAffectedSourceFilesOfMembers();
+	if (this.report != null)
+		this.report.enter(previousPhase);
+}
+
+/*
+ * Records in the report the number of source files added from the given index which reference each changed type.
+ * A source file which references several changed types is counted for each of them.
+ */
+protected void reportAffectedSourceFiles(int start) {
+	int end = this.sourceFiles.size();
+	if (start == end) return;
+
+	SimpleLookupTable references = this.newState.getReferences();
+	String[] typePaths = this.changedTypes.values;
+	for (int i = 0, l = typePaths.length; i < l; i++) {
+		String typePath = typePaths[i];
+		if (typePath == null) continue;
 
-	addAffectedSourceFiles(this.qualifiedStrings, this.simpleStrings, this.rootStrings, null);
+		StringSet qualifiedSet = new StringSet(1);
+		StringSet simpleSet = new StringSet(1);
+		StringSet rootSet = new StringSet(1);
+		addDependentsOf(new Path(typePath), false, qualifiedSet, simpleSet, rootSet);
+		char[][][] internedQualifiedNames = ReferenceCollection.internQualifiedNames(qualifiedSet);
+		if (internedQualifiedNames.length < qualifiedSet.elementSize)
+			internedQualifiedNames = null;
+		char[][] internedSimpleNames = ReferenceCollection.internSimpleNames(simpleSet, true);
+		if (internedSimpleNames.length < simpleSet.elementSize)
+			internedSimpleNames = null;
+		char[][] internedRootNames = ReferenceCollection.internSimpleNames(rootSet, false);
+
+		int count = 0;
+		for (int j = start; j < end; j++) {
+			ReferenceCollection refs = (ReferenceCollection) references.get(((SourceFile) this.sourceFiles.get(j)).typeLocator());
+			if (refs != null && refs.includes(internedQualifiedNames, internedSimpleNames, internedRootNames))
+				count++;
+		}
+		this.report.recordRecompiledUnits(typePath, count);
+	}
+}
+
+/*
+ * Adds the source files which reference the fields & methods whose signature changed, or which depend on all
+ * the members of their type (i.e. a subtype whose inherited methods must be checked again).
+ */
+protected void addAffectedSourceFilesOfMembers() {
+	Object[] keyTable = this.memberChanges.keyTable;
+	Object[] valueTable = this.memberChanges.valueTable;
+	for (int i = 0, l = keyTable.length; i < l; i++) {
+		String typePath = (String) keyTable[i];
+		if (typePath == null) continue;
+
+		StringSet qualifiedSet = new StringSet(1);
+		StringSet simpleSet = new StringSet(1);
+		StringSet rootSet = new StringSet(1);
+		addDependentsOf(new Path(typePath), false, qualifiedSet, simpleSet, rootSet);
+		char[][] internedMemberNames = ReferenceCollection.internSimpleNames((StringSet) valueTable[i], false);
+		char[][][] internedTypeName = ReferenceCollection.internQualifiedNames(
+			new char[][][] {CharOperation.splitOn('/', typePath.toCharArray())}, false);
+		int start = this.sourceFiles.size();
+		addAffectedSourceFiles(qualifiedSet, simpleSet, rootSet, null, internedMemberNames,
+			internedTypeName.length == 0 ? null : internedTypeName[0]); // null when a well known type changed
+		if (this.report != null)
+			this.report.recordRecompiledUnits(typePath, this.sourceFiles.size() - start);
+	}
 }
 
 protected void addAffectedSourceFiles(StringSet qualifiedSet, StringSet simpleSet, StringSet rootSet, StringSet affectedTypes) {
+	addAffectedSourceFiles(qualifiedSet, simpleSet, rootSet, affectedTypes, null, null);
+}
+
+/*
+ * When memberNames is not null, only the source files which may reference one of these members of the type
+ * named qualifiedTypeName are added.
+ */
+protected void addAffectedSourceFiles(StringSet qualifiedSet, StringSet simpleSet, StringSet rootSet, StringSet affectedTypes, char[][] memberNames, char[][] qualifiedTypeName) {
 	// the qualifiedStrings are of the form 'p1/p2' & the simpleStrings are just 'X'
 	char[][][] internedQualifiedNames = ReferenceCollection.internQualifiedNames(qualifiedSet);
 	// if a well known qualified name was found then we can skip over these
@@ -198,14 +284,16 @@ protected void addAffectedSourceFiles(StringSet qualifiedSet, StringSet simpleSe
 		internedSimpleNames = null;
 	char[][] internedRootNames = ReferenceCollection.internSimpleNames(rootSet, false);
 
-	Object[] keyTable = this.newState.references.keyTable;
-	Object[] valueTable = this.newState.references.valueTable;
+	SimpleLookupTable references = this.newState.getReferences();
+	Object[] keyTable = references.keyTable;
+	Object[] valueTable = references.valueTable;
 	next : for (int i = 0, l = valueTable.length; i < l; i++) {
 		String typeLocator = (String) keyTable[i];
 		if (typeLocator != null) {
 			if (affectedTypes != null && !affectedTypes.includes(typeLocator)) continue next;
 			ReferenceCollection refs = (ReferenceCollection) valueTable[i];
-			if (refs.includes(internedQualifiedNames, internedSimpleNames, internedRootNames)) {
+			if (refs.includes(internedQualifiedNames, internedSimpleNames, internedRootNames)
+					&& (memberNames == null || refs.includesMembers(memberNames, qualifiedTypeName))) {
 				IFile file = this.javaBuilder.currentProject.getFile(typeLocator);
 				SourceFile sourceFile = findSourceFile(file, true);
 				if (sourceFile == null) continue next;
@@ -223,6 +311,8 @@ protected void addAffectedSourceFiles(StringSet qualifiedSet, StringSet simpleSe
 
 protected void addDependentsOf(IPath path, boolean isStructuralChange) {
 	addDependentsOf(path, isStructuralChange, this.qualifiedStrings, this.simpleStrings, this.rootStrings);
+	if (this.changedTypes != null)
+		this.changedTypes.add(path.setDevice(null).toString());
 }
 
 protected void addDependentsOf(IPath path, boolean isStructuralChange, StringSet qualifiedNames, StringSet simpleNames, StringSet rootNames) {
@@ -299,6 +389,8 @@ protected void cleanUp() {
 	this.simpleStrings = null;
 	this.rootStrings = null;
 	this.secondaryTypesToRemove = null;
+	this.memberChanges = null;
+	this.changedTypes = null;
 	this.hasStructuralChanges = false;
 	this.compileLoop = 0;
 }
@@ -751,6 +843,7 @@ protected void removeClassFile(IPath typePath, IContainer outputFolder) throws C
 			System.out.println("Found removed type " + typePath); //$NON-NLS-1$
 		addDependentsOf(typePath, true); // when member types are removed, their enclosing type is structurally changed
 	}
+	this.newState.removeClassFileDigest(typePath.toString());
 	IFile classFile = outputFolder.getFile(typePath.addFileExtension(SuffixConstants.EXTENSION_class));
 	if (classFile.exists()) {
 		if (JavaBuilder.DEBUG)
@@ -784,6 +877,8 @@ protected void resetCollections() {
 		this.qualifiedStrings = new StringSet(3);
 		this.simpleStrings = new StringSet(3);
 		this.rootStrings = new StringSet(3);
+		this.memberChanges = new SimpleLookupTable(3);
+		this.changedTypes = this.report == null ? null : new StringSet(3);
 		this.hasStructuralChanges = false;
 		this.compileLoop = 0;
 	} else {
@@ -793,6 +888,9 @@ protected void resetCollections() {
 		this.qualifiedStrings.clear();
 		this.simpleStrings.clear();
 		this.rootStrings.clear();
+		this.memberChanges = new SimpleLookupTable(3);
+		if (this.changedTypes != null)
+			this.changedTypes.clear();
 		this.workQueue.clear();
 	}
 }
@@ -807,7 +905,7 @@ protected void updateProblemsFor(SourceFile sourceFile, CompilationResult result
 	if (problems == null && markers.length == 0) return;
 
 	this.notifier.updateProblemCounts(markers, problems);
-	JavaBuilder.removeProblemsFor(sourceFile.resource);
+	this.markerBatch.replaceProblemsFor(sourceFile.resource);
 	storeProblemsFor(sourceFile, problems);
 }
 
@@ -816,7 +914,7 @@ protected void updateTasksFor(SourceFile sourceFile, CompilationResult result) t
 	CategorizedProblem[] tasks = result.getTasks();
 	if (tasks == null && markers.length == 0) return;
 
-	JavaBuilder.removeTasksFor(sourceFile.resource);
+	this.markerBatch.replaceTasksFor(sourceFile.resource);
 	storeTasksFor(sourceFile, tasks);
 }
 
@@ -827,15 +925,23 @@ protected void writeClassFileContents(ClassFile classfile, IFile file, String qu
 	// Before writing out the class file, compare it to the previous file
 	// If structural changes occurred then add dependent source files
 	byte[] bytes = classfile.getBytes();
+	ClassFileDigest digest = ClassFileDigest.forContents(bytes);
 	if (file.exists()) {
-		if (writeClassFileCheck(file, qualifiedFileName, bytes) || compilationUnit.updateClassFile) { // see 46093
+		ClassFileDigest oldDigest = this.newState.getClassFileDigest(qualifiedFileName);
+		if (oldDigest != null && oldDigest.modificationStamp != file.getModificationStamp())
+			oldDigest = null; // the class file was changed since it was written
+		if (writeClassFileCheck(file, qualifiedFileName, bytes, oldDigest, digest) || compilationUnit.updateClassFile) { // see 46093
 			if (JavaBuilder.DEBUG)
 				System.out.println("Writing changed class file " + file.getName());//$NON-NLS-1$
 			if (!file.isDerived())
 				file.setDerived(true, null);
 			file.setContents(new ByteArrayInputStream(bytes), true, false, null);
-		} else if (JavaBuilder.DEBUG) {
-			System.out.println("Skipped over unchanged class file " + file.getName());//$NON-NLS-1$
+			recordClassFileDigest(file, qualifiedFileName, bytes, digest);
+		} else {
+			if (JavaBuilder.DEBUG)
+				System.out.println("Skipped over unchanged class file " + file.getName());//$NON-NLS-1$
+			if (oldDigest == null) // otherwise it still describes the file
+				recordClassFileDigest(file, qualifiedFileName, bytes, digest);
 		}
 	} else {
 		if (isTopLevelType)
@@ -873,7 +979,10 @@ protected void writeClassFileContents(ClassFile classfile, IFile file, String qu
 						} catch (CoreException ignored) {
 							// ignore the second exception
 						}
-						if (success) return;
+						if (success) {
+							recordClassFileDigest(file, qualifiedFileName, bytes, digest);
+							return;
+						}
 					}
 				}
 				// catch the case that a type has been renamed and collides on disk with an as-yet-to-be-deleted type
@@ -881,10 +990,39 @@ protected void writeClassFileContents(ClassFile classfile, IFile file, String qu
 			}
 			throw e; // rethrow
 		}
+		recordClassFileDigest(file, qualifiedFileName, bytes, digest);
 	}
 }
 
-protected boolean writeClassFileCheck(IFile file, String fileName, byte[] newBytes) throws CoreException {
+protected void addMemberChanges(String fileName, char[][] changedMembers) {
+	if (!this.hasStructuralChanges) {
+		this.newState.tagAsStructurallyChanged();
+		this.hasStructuralChanges = true;
+	}
+	String typePath = fileName;
+	int memberIndex = typePath.indexOf('$', typePath.lastIndexOf('/') + 1);
+	if (memberIndex > 0)
+		typePath = typePath.substring(0, memberIndex); // the members of member types are recorded against their top level type
+	StringSet members = (StringSet) this.memberChanges.get(typePath);
+	if (members == null)
+		this.memberChanges.put(typePath, members = new StringSet(3));
+	for (int i = 0, l = changedMembers.length; i < l; i++)
+		members.add(new String(changedMembers[i]));
+}
+
+/* The old digest, if not null, describes the class file as it still is on disk.
+*/
+protected boolean writeClassFileCheck(IFile file, String fileName, byte[] newBytes, ClassFileDigest oldDigest, ClassFileDigest newDigest) throws CoreException {
+	if (oldDigest != null && newDigest != null) {
+		// compare the digests instead of reading the class file
+		if (oldDigest.hasSameContents(newDigest.contents))
+			return false; // bytes are identical so skip them
+		if (oldDigest.structure != null) {
+			newDigest.computeStructure(newBytes, fileName);
+			if (oldDigest.hasSameStructure(newDigest.structure))
+				return true; // no structural changes
+		}
+	}
 	try {
 		byte[] oldBytes = Util.getResourceContentsAsByteArray(file);
 		notEqual : if (newBytes.length == oldBytes.length) {
@@ -897,11 +1035,20 @@ protected boolean writeClassFileCheck(IFile file, String fileName, byte[] newByt
 		String filePath = location.getSchemeSpecificPart();
 		ClassFileReader reader = new ClassFileReader(oldBytes, filePath.toCharArray());
 		// ignore local types since they're only visible inside a single method
-		if (!(reader.isLocal() || reader.isAnonymous()) && reader.hasStructuralChanges(newBytes)) {
-			if (JavaBuilder.DEBUG)
-				System.out.println("Type has structural changes " + fileName); //$NON-NLS-1$
-			addDependentsOf(new Path(fileName), true);
-			this.newState.wasStructurallyChanged(fileName);
+		if (!(reader.isLocal() || reader.isAnonymous())) {
+			char[][] changedMembers = reader.getStructurallyChangedMemberNames(newBytes);
+			if (changedMembers == null) {
+				if (JavaBuilder.DEBUG)
+					System.out.println("Type has structural changes " + fileName); //$NON-NLS-1$
+				addDependentsOf(new Path(fileName), true);
+				this.newState.wasStructurallyChanged(fileName);
+			} else if (changedMembers.length > 0) {
+				if (JavaBuilder.DEBUG)
+					System.out.println("Type has structural changes to members " //$NON-NLS-1$
+						+ CharOperation.toString(changedMembers) + " of " + fileName); //$NON-NLS-1$
+				addMemberChanges(fileName, changedMembers);
+				this.newState.wasStructurallyChanged(fileName);
+			}
 		}
 	} catch (ClassFormatException e) {
 		addDependentsOf(new Path(fileName), true);
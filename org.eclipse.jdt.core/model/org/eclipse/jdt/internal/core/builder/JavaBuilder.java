@@ -35,12 +35,14 @@ NameEnvironment nameEnvironment;
 SimpleLookupTable binaryLocationsPerProject; // maps a project to its binary resources (output folders, class folders, zip/jar files)
 public State lastState;
 BuildNotifier notifier;
+BuildReport report; // null unless REPORT is set
 char[][] extraResourceFileFilters;
 String[] extraResourceFolderFilters;
 public static final String SOURCE_ID = "JDT"; //$NON-NLS-1$
 
 public static boolean DEBUG = false;
 public static boolean SHOW_STATS = false;
+public static boolean REPORT = false; // write a BuildReport of each build
 
 /**
  * A list of project names that have been built.
@@ -163,6 +165,7 @@ protected IProject[] build(int kind, Map ignored, IProgressMonitor monitor) thro
 			+ " @ " + new Date(System.currentTimeMillis())); //$NON-NLS-1$
 	this.notifier = new BuildNotifier(monitor, this.currentProject);
 	this.notifier.begin();
+	this.report = REPORT ? new BuildReport(this.currentProject.getName()) : null;
 	boolean ok = false;
 	try {
 		this.notifier.checkCancel();
@@ -186,7 +189,10 @@ protected IProject[] build(int kind, Map ignored, IProgressMonitor monitor) thro
 					buildAll();
 				} else if (this.nameEnvironment.sourceLocations.length > 0) {
 					// if there is no source to compile & no classpath changes then we are done
+					int previousPhase = this.report == null ? BuildReport.OTHER : this.report.enter(BuildReport.DELTAS);
 					SimpleLookupTable deltas = findDeltas();
+					if (this.report != null)
+						this.report.enter(previousPhase);
 					if (deltas == null) {
 						if (DEBUG)
 							System.out.println("JavaBuilder: Performing full build since deltas are missing after incremental request"); //$NON-NLS-1$
@@ -237,6 +243,8 @@ protected IProject[] build(int kind, Map ignored, IProgressMonitor monitor) thro
 			// If the build failed, clear the previously built state, forcing a full build next time.
 			clearLastState();
 		this.notifier.done();
+		if (this.report != null)
+			writeReport(ok);
 		cleanup();
 	}
 	IProject[] requiredProjects = getRequiredProjects(true);
@@ -252,6 +260,8 @@ private void buildAll() {
 	if (DEBUG && this.lastState != null)
 		System.out.println("JavaBuilder: Clearing last state : " + this.lastState); //$NON-NLS-1$
 	clearLastState();
+	if (this.report != null)
+		this.report.kind = "full"; //$NON-NLS-1$
 	BatchImageBuilder imageBuilder = new BatchImageBuilder(this, true);
 	imageBuilder.build();
 	recordNewState(imageBuilder.newState);
@@ -263,6 +273,8 @@ private void buildDeltas(SimpleLookupTable deltas) {
 	if (DEBUG && this.lastState != null)
 		System.out.println("JavaBuilder: Clearing last state : " + this.lastState); //$NON-NLS-1$
 	clearLastState(); // clear the previously built state so if the build fails, a full build will occur next time
+	if (this.report != null)
+		this.report.kind = "incremental"; //$NON-NLS-1$
 	IncrementalImageBuilder imageBuilder = new IncrementalImageBuilder(this);
 	if (imageBuilder.build(deltas)) {
 		recordNewState(imageBuilder.newState);
@@ -332,6 +344,7 @@ private void cleanup() {
 	this.binaryLocationsPerProject = null;
 	this.lastState = null;
 	this.notifier = null;
+	this.report = null;
 	this.extraResourceFileFilters = null;
 	this.extraResourceFolderFilters = null;
 }
@@ -601,7 +614,10 @@ private int initializeBuilder(int kind, boolean forBuild) throws CoreException {
 	}
 
 	this.binaryLocationsPerProject = new SimpleLookupTable(3);
+	int previousPhase = this.report == null ? BuildReport.OTHER : this.report.enter(BuildReport.CLASSPATH);
 	this.nameEnvironment = new NameEnvironment(this.workspaceRoot, this.javaProject, this.binaryLocationsPerProject, this.notifier);
+	if (this.report != null)
+		this.report.enter(previousPhase);
 
 	if (forBuild) {
 		String filterSequence = this.javaProject.getOption(JavaCore.CORE_JAVA_BUILD_RESOURCE_COPY_FILTER, true);
@@ -759,6 +775,7 @@ private void printLocations(ClasspathLocation[] newLocations, ClasspathLocation[
 }
 
 private void recordNewState(State state) {
+	int previousPhase = this.report == null ? BuildReport.OTHER : this.report.enter(BuildReport.STATE);
 	Object[] keyTable = this.binaryLocationsPerProject.keyTable;
 	for (int i = 0, l = keyTable.length; i < l; i++) {
 		IProject prereqProject = (IProject) keyTable[i];
@@ -770,6 +787,20 @@ private void recordNewState(State state) {
 		System.out.println("JavaBuilder: Recording new state : " + state); //$NON-NLS-1$
 	// state.dump();
 	JavaModelManager.getJavaModelManager().setLastBuiltState(this.currentProject, state);
+	if (this.report != null)
+		this.report.enter(previousPhase);
+}
+
+private void writeReport(boolean ok) {
+	this.report.finish(ok);
+	File file = this.currentProject.getWorkingLocation(JavaCore.PLUGIN_ID).append(BuildReport.FILE_NAME).toFile();
+	try {
+		this.report.write(file);
+		if (DEBUG)
+			System.out.println("JavaBuilder: Wrote build report to " + file); //$NON-NLS-1$
+	} catch (IOException e) {
+		Util.log(e, "JavaBuilder failed to write the build report of " + this.currentProject.getName()); //$NON-NLS-1$
+	}
 }
 
 /**
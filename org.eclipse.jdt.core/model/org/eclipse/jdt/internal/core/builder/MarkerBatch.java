@@ -0,0 +1,206 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core.builder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jdt.internal.core.JavaModelManager;
+
+/**
+ * The problem & task markers of the source files compiled in a batch, which are applied to the workspace at once.
+ * When the new markers of a resource replace its existing ones, the existing markers which are identical
+ * to new ones are kept instead of being deleted & created again.
+ * At most {@link #MAX_MARKERS_PER_RESOURCE} new markers are recorded per resource, error markers taking
+ * precedence over the other ones.
+ */
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class MarkerBatch {
+
+public static int MAX_MARKERS_PER_RESOURCE = Integer.getInteger(JavaModelManager.MAX_MARKERS_PER_RESOURCE, 1000).intValue();
+
+// keyed by IResource, the list of the markers to create as {type, attributes} pairs
+LinkedHashMap newMarkers;
+// the resources whose problem markers (resp. task markers) are replaced by the new ones
+HashSet problemsToReplace;
+HashSet tasksToReplace;
+// the number of markers which were not recorded because of the per resource limit
+int droppedMarkers;
+
+public MarkerBatch() {
+	this.newMarkers = new LinkedHashMap();
+	this.problemsToReplace = new HashSet();
+	this.tasksToReplace = new HashSet();
+}
+
+/*
+ * Answers the list of the new markers of the given resource.
+ */
+private ArrayList markersFor(IResource resource) {
+	ArrayList markers = (ArrayList) this.newMarkers.get(resource);
+	if (markers == null)
+		this.newMarkers.put(resource, markers = new ArrayList());
+	return markers;
+}
+
+/**
+ * Records a marker to create on the given resource, with the given attributes.
+ * Once {@link #MAX_MARKERS_PER_RESOURCE} markers are recorded for the resource, the marker is dropped,
+ * unless it is an error marker which then replaces the last recorded marker that is not an error.
+ */
+public void createMarker(IResource resource, String type, String[] attributeNames, Object[] values) {
+	HashMap attributes = new HashMap(attributeNames.length);
+	for (int i = 0, l = attributeNames.length; i < l; i++)
+		if (values[i] != null) // a null value does not set the attribute
+			attributes.put(attributeNames[i], values[i]);
+	ArrayList markers = markersFor(resource);
+	if (markers.size() >= MAX_MARKERS_PER_RESOURCE) {
+		this.droppedMarkers++;
+		if (!isError(attributes)) return;
+		int i = markers.size();
+		while (--i >= 0 && isError((Map) ((List) markers.get(i)).get(1))) {/*keep looking*/}
+		if (i < 0) return; // only errors
+		markers.remove(i);
+	}
+	markers.add(Arrays.asList(new Object[] {type, attributes}));
+}
+
+private static boolean isError(Map attributes) {
+	Object severity = attributes.get(IMarker.SEVERITY);
+	return severity instanceof Integer && ((Integer) severity).intValue() == IMarker.SEVERITY_ERROR;
+}
+
+/**
+ * Answers whether markers are recorded for the given resource, or whether its markers are replaced.
+ */
+public boolean includes(IResource resource) {
+	return this.newMarkers.containsKey(resource);
+}
+
+/**
+ * Records that the problem markers of the given resource are replaced by the new ones,
+ * see {@link JavaBuilder#removeProblemsFor(IResource)}.
+ */
+public void replaceProblemsFor(IResource resource) {
+	markersFor(resource);
+	this.problemsToReplace.add(resource);
+}
+
+/**
+ * Records that the task markers of the given resource are replaced by the new ones,
+ * see {@link JavaBuilder#removeTasksFor(IResource)}.
+ */
+public void replaceTasksFor(IResource resource) {
+	markersFor(resource);
+	this.tasksToReplace.add(resource);
+}
+
+/**
+ * Applies the recorded changes to the markers in one workspace operation, then forgets them.
+ */
+public void apply() throws CoreException {
+	if (this.newMarkers.isEmpty()) return;
+
+	IWorkspace workspace = ResourcesPlugin.getWorkspace();
+	final ArrayList markersToDelete = new ArrayList();
+	IWorkspaceRunnable update = new IWorkspaceRunnable() {
+		public void run(IProgressMonitor monitor) throws CoreException {
+			Iterator entries = MarkerBatch.this.newMarkers.entrySet().iterator();
+			while (entries.hasNext()) {
+				Map.Entry entry = (Map.Entry) entries.next();
+				update((IResource) entry.getKey(), (ArrayList) entry.getValue(), markersToDelete);
+			}
+			if (!markersToDelete.isEmpty()) {
+				IMarker[] markers = new IMarker[markersToDelete.size()];
+				markersToDelete.toArray(markers);
+				ResourcesPlugin.getWorkspace().deleteMarkers(markers);
+			}
+		}
+	};
+	try {
+		workspace.run(update, null/*no scheduling rule*/, IWorkspace.AVOID_UPDATE, null/*no progress*/);
+	} finally {
+		clear();
+	}
+}
+
+/**
+ * Forgets the recorded changes, for example once all the markers of the project have been removed.
+ */
+public void clear() {
+	this.newMarkers.clear();
+	this.problemsToReplace.clear();
+	this.tasksToReplace.clear();
+	this.droppedMarkers = 0;
+}
+
+void update(IResource resource, ArrayList markers, ArrayList markersToDelete) throws CoreException {
+	if (!resource.exists()) return;
+
+	// the existing markers which are replaced, keyed by their type & attributes
+	HashMap existingMarkers = null;
+	if (this.problemsToReplace.contains(resource))
+		existingMarkers = addExistingMarkers(JavaBuilder.getProblemsFor(resource), existingMarkers);
+	if (this.tasksToReplace.contains(resource))
+		existingMarkers = addExistingMarkers(JavaBuilder.getTasksFor(resource), existingMarkers);
+
+	for (int i = 0, l = markers.size(); i < l; i++) {
+		List marker = (List) markers.get(i);
+		if (existingMarkers != null) {
+			ArrayList sameMarkers = (ArrayList) existingMarkers.get(marker);
+			if (sameMarkers != null && !sameMarkers.isEmpty()) {
+				sameMarkers.remove(sameMarkers.size() - 1); // keep it
+				continue;
+			}
+		}
+		resource.createMarker((String) marker.get(0)).setAttributes((Map) marker.get(1));
+	}
+
+	if (existingMarkers != null) {
+		Iterator remainingMarkers = existingMarkers.values().iterator();
+		while (remainingMarkers.hasNext())
+			markersToDelete.addAll((ArrayList) remainingMarkers.next());
+	}
+}
+
+private HashMap addExistingMarkers(IMarker[] markers, HashMap existingMarkers) throws CoreException {
+	if (existingMarkers == null)
+		existingMarkers = new HashMap();
+	for (int i = 0, l = markers.length; i < l; i++) {
+		IMarker marker = markers[i];
+		Map attributes = marker.getAttributes();
+		List key = Arrays.asList(new Object[] {marker.getType(), attributes == null ? new HashMap() : attributes});
+		ArrayList sameMarkers = (ArrayList) existingMarkers.get(key);
+		if (sameMarkers == null)
+			existingMarkers.put(key, sameMarkers = new ArrayList(1));
+		sameMarkers.add(marker);
+	}
+	return existingMarkers;
+}
+
+public String toString() {
+	return "MarkerBatch for " + this.newMarkers.size() + " resources" //$NON-NLS-1$ //$NON-NLS-2$
+		+ (this.droppedMarkers == 0 ? "" : " (" + this.droppedMarkers + " markers dropped)"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+}
+}
@@ -19,11 +19,21 @@ public class ReferenceCollection {
 char[][][] qualifiedNameReferences; // contains no simple names as in just 'a' which is kept in simpleNameReferences instead
 char[][] simpleNameReferences;
 char[][] rootReferences;
+char[][] memberNameReferences; // names of the fields & methods looked up in other types, null if unknown
+char[][][] allMembersReferences; // top level types whose fields & methods are all referenced (e.g. the supertypes)
 
 protected ReferenceCollection(char[][][] qualifiedNameReferences, char[][] simpleNameReferences, char[][] rootReferences) {
+	this(qualifiedNameReferences, simpleNameReferences, rootReferences, null, null);
+}
+
+protected ReferenceCollection(char[][][] qualifiedNameReferences, char[][] simpleNameReferences, char[][] rootReferences, char[][] memberNameReferences, char[][][] allMembersReferences) {
 	this.qualifiedNameReferences = internQualifiedNames(qualifiedNameReferences, false);
 	this.simpleNameReferences = internSimpleNames(simpleNameReferences, true);
 	this.rootReferences = internSimpleNames(rootReferences, false);
+	if (memberNameReferences != null) {
+		this.memberNameReferences = internSimpleNames(memberNameReferences, false);
+		this.allMembersReferences = internQualifiedNames(allMembersReferences, false);
+	}
 }
 
 public void addDependencies(String[] typeNameDependencies) {
@@ -151,6 +161,28 @@ public boolean includes(char[][][] qualifiedNames, char[][] simpleNames, char[][
 	return false;
 }
 
+/**
+ * Answers whether the fields & methods with the given names of the given top level type may be referenced.
+ * Both the member names and the qualified type name must be interned. A null type name stands for a well known type.
+ */
+public boolean includesMembers(char[][] memberNames, char[][] qualifiedTypeName) {
+	if (this.memberNameReferences == null || qualifiedTypeName == null) return true; // unknown: assume they are referenced
+
+	for (int i = 0, l = this.allMembersReferences.length; i < l; i++)
+		if (qualifiedTypeName == this.allMembersReferences[i]) return true;
+	for (int i = 0, l = memberNames.length; i < l; i++) {
+		char[] memberName = memberNames[i];
+		for (int j = 0, m = this.memberNameReferences.length; j < m; j++) {
+			if (memberName == this.memberNameReferences[j]) {
+				if (JavaBuilder.DEBUG)
+					System.out.println("Found match to member " + new String(memberName)); //$NON-NLS-1$
+				return true;
+			}
+		}
+	}
+	return false;
+}
+
 public boolean insideRoot(char[] rootName) {
 	for (int i = 0, l = this.rootReferences.length; i < l; i++)
 		if (rootName == this.rootReferences[i]) return true;
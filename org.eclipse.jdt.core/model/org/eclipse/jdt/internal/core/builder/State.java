@@ -15,6 +15,7 @@ package org.eclipse.jdt.internal.core.builder;
 import org.eclipse.core.resources.*;
 import org.eclipse.core.runtime.*;
 
+import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.compiler.CharOperation;
 import org.eclipse.jdt.internal.compiler.env.AccessRuleSet;
 import org.eclipse.jdt.internal.compiler.env.AccessRule;
@@ -33,9 +34,20 @@ String javaProjectName;
 public ClasspathMultiDirectory[] sourceLocations;
 ClasspathLocation[] binaryLocations;
 // keyed by the project relative path of the type (i.e. "src1/p1/p2/A.java"), value is a ReferenceCollection or an AdditionalTypeCollection
-SimpleLookupTable references;
+// null until decoded from encodedReferences, see getReferences()
+private SimpleLookupTable references;
+// the references section of the state file as read, kept as is until the references are needed or updated
+private byte[] encodedReferences;
+private String[] encodedTypeLocators; // interned type locators used by encodedReferences
 // keyed by qualified type name "p1/p2/A", value is the project relative path which defines this type "src1/p1/p2/A.java"
 public SimpleLookupTable typeLocators;
+// keyed by qualified class file name "p1/p2/A$M", value is the ClassFileDigest of the class file written for this type
+SimpleLookupTable classFileDigests;
+// true when the tables above are still shared with the state this one was copied from
+private boolean sharesTables;
+// sum of the hashes of all the types as answered by getTypesHash(null), valid until the tables above are updated
+private Long typesHash;
+private boolean isTypesHashKnown;
 
 int buildNumber;
 long lastStructuralBuildTime;
@@ -47,7 +59,7 @@ private long previousStructuralBuildTime;
 private StringSet structurallyChangedTypes;
 public static int MaxStructurallyChangedTypes = 100; // keep track of ? structurally changed types, otherwise consider all to be changed
 
-public static final byte VERSION = 0x001D;
+public static final byte VERSION = 0x0020;
 
 static final byte SOURCE_FOLDER = 1;
 static final byte BINARY_FOLDER = 2;
@@ -67,6 +79,7 @@ protected State(JavaBuilder javaBuilder) {
 	this.binaryLocations = javaBuilder.nameEnvironment.binaryLocations;
 	this.references = new SimpleLookupTable(7);
 	this.typeLocators = new SimpleLookupTable(7);
+	this.classFileDigests = new SimpleLookupTable(7);
 
 	this.buildNumber = 0; // indicates a full build
 	this.lastStructuralBuildTime = computeStructuralBuildTime(javaBuilder.lastState == null ? 0 : javaBuilder.lastState.lastStructuralBuildTime);
@@ -88,33 +101,84 @@ void copyFrom(State lastState) {
 	this.lastStructuralBuildTime = lastState.lastStructuralBuildTime;
 	this.structuralBuildTimes = lastState.structuralBuildTimes;
 
+	// share the tables (& the references still encoded) until the first update, see makeWritable()
+	this.references = lastState.references;
+	this.encodedReferences = lastState.encodedReferences;
+	this.encodedTypeLocators = lastState.encodedTypeLocators;
+	this.typeLocators = lastState.typeLocators;
+	this.classFileDigests = lastState.classFileDigests;
+	this.sharesTables = true;
+	this.typesHash = lastState.typesHash;
+	this.isTypesHashKnown = lastState.isTypesHashKnown;
+}
+
+/*
+ * Decodes the references & copies the tables shared with the last state before they are updated.
+ */
+private void makeWritable() {
+	this.isTypesHashKnown = false;
+	if (this.encodedReferences != null)
+		getReferences();
+	if (!this.sharesTables) return;
+
+	this.sharesTables = false;
+	SimpleLookupTable sharedReferences = this.references;
+	SimpleLookupTable sharedTypeLocators = this.typeLocators;
+	SimpleLookupTable sharedClassFileDigests = this.classFileDigests;
 	try {
-		this.references = (SimpleLookupTable) lastState.references.clone();
-		this.typeLocators = (SimpleLookupTable) lastState.typeLocators.clone();
+		this.references = (SimpleLookupTable) sharedReferences.clone();
+		this.typeLocators = (SimpleLookupTable) sharedTypeLocators.clone();
+		this.classFileDigests = (SimpleLookupTable) sharedClassFileDigests.clone();
 	} catch (CloneNotSupportedException e) {
-		this.references = new SimpleLookupTable(lastState.references.elementSize);
-		Object[] keyTable = lastState.references.keyTable;
-		Object[] valueTable = lastState.references.valueTable;
+		this.references = new SimpleLookupTable(sharedReferences.elementSize);
+		Object[] keyTable = sharedReferences.keyTable;
+		Object[] valueTable = sharedReferences.valueTable;
 		for (int i = 0, l = keyTable.length; i < l; i++)
 			if (keyTable[i] != null)
 				this.references.put(keyTable[i], valueTable[i]);
 
-		this.typeLocators = new SimpleLookupTable(lastState.typeLocators.elementSize);
-		keyTable = lastState.typeLocators.keyTable;
-		valueTable = lastState.typeLocators.valueTable;
+		this.typeLocators = new SimpleLookupTable(sharedTypeLocators.elementSize);
+		keyTable = sharedTypeLocators.keyTable;
+		valueTable = sharedTypeLocators.valueTable;
 		for (int i = 0, l = keyTable.length; i < l; i++)
 			if (keyTable[i] != null)
 				this.typeLocators.put(keyTable[i], valueTable[i]);
+
+		this.classFileDigests = new SimpleLookupTable(sharedClassFileDigests.elementSize);
+		keyTable = sharedClassFileDigests.keyTable;
+		valueTable = sharedClassFileDigests.valueTable;
+		for (int i = 0, l = keyTable.length; i < l; i++)
+			if (keyTable[i] != null)
+				this.classFileDigests.put(keyTable[i], valueTable[i]);
 	}
 }
+
+ClassFileDigest getClassFileDigest(String qualifiedFileName) {
+	return (ClassFileDigest) this.classFileDigests.get(qualifiedFileName);
+}
 public char[][] getDefinedTypeNamesFor(String typeLocator) {
-	Object c = this.references.get(typeLocator);
+	Object c = getReferences().get(typeLocator);
 	if (c instanceof AdditionalTypeCollection)
 		return ((AdditionalTypeCollection) c).definedTypeNames;
 	return null; // means only one type is defined with the same name as the file... saves space
 }
 
-public SimpleLookupTable getReferences() {
+/**
+ * Answers the references table, decoding it from the state file contents on first access.
+ * The answered table must not be modified.
+ */
+public synchronized SimpleLookupTable getReferences() {
+	if (this.references == null) {
+		try {
+			this.references = readReferences(new DataInputStream(new ByteArrayInputStream(this.encodedReferences)), this.encodedTypeLocators);
+		} catch (IOException e) {
+			// the state file was corrupted: fail the build so the next one is a full build
+			throw new ImageBuilderInternalException(new CoreException(new Status(IStatus.ERROR, JavaCore.PLUGIN_ID, Platform.PLUGIN_ERROR,
+				"Error reading the references of the last build state for project " + this.javaProjectName, e))); //$NON-NLS-1$
+		}
+		this.encodedReferences = null;
+		this.encodedTypeLocators = null;
+	}
 	return this.references;
 }
 
@@ -128,6 +192,50 @@ StringSet getStructurallyChangedTypes(State prereqState) {
 	return null;
 }
 
+/*
+ * Answers the sum of the hashes of the types written by the builder (see BuildCache#typeHash()),
+ * skipping the types defined by the given source files if any.
+ * Answers null if the structure of one of these types is unknown.
+ * The sum of all the types is remembered until the types change, and the hash of each type until its class file changes.
+ */
+Long getTypesHash(StringSet skippedTypeLocators) {
+	if (skippedTypeLocators != null)
+		return computeTypesHash(skippedTypeLocators);
+	if (!this.isTypesHashKnown) {
+		this.typesHash = computeTypesHash(null);
+		this.isTypesHashKnown = true;
+	}
+	return this.typesHash;
+}
+
+private Long computeTypesHash(StringSet skippedTypeLocators) {
+	Object[] keyTable = this.typeLocators.keyTable;
+	for (int i = 0, l = keyTable.length; i < l; i++)
+		if (keyTable[i] != null && !this.classFileDigests.containsKey(keyTable[i]))
+			return null; // the class file of this type was written without its digests
+
+	long hash = 0;
+	keyTable = this.classFileDigests.keyTable;
+	Object[] valueTable = this.classFileDigests.valueTable;
+	for (int i = 0, l = keyTable.length; i < l; i++) {
+		String qualifiedFileName = (String) keyTable[i];
+		if (qualifiedFileName == null) continue;
+		if (skippedTypeLocators != null) {
+			String typeName = qualifiedFileName;
+			String typeLocator;
+			int index;
+			// member types are defined by the source file of their outer most enclosing type
+			while ((typeLocator = (String) this.typeLocators.get(typeName)) == null && (index = typeName.lastIndexOf('$')) > 0)
+				typeName = typeName.substring(0, index);
+			if (typeLocator != null && skippedTypeLocators.includes(typeLocator)) continue;
+		}
+		ClassFileDigest digest = (ClassFileDigest) valueTable[i];
+		if (digest.structure == null) return null;
+		hash += digest.getTypeHash(qualifiedFileName);
+	}
+	return Long.valueOf(hash);
+}
+
 public boolean isDuplicateLocator(String qualifiedTypeName, String typeLocator) {
 	String existing = (String) this.typeLocators.get(qualifiedTypeName);
 	return existing != null && !existing.equals(typeLocator);
@@ -171,17 +279,19 @@ boolean isSourceFolderEmpty(IContainer sourceFolder) {
 	return true;
 }
 
-void record(String typeLocator, char[][][] qualifiedRefs, char[][] simpleRefs, char[][] rootRefs, char[] mainTypeName, ArrayList typeNames) {
+void record(String typeLocator, char[][][] qualifiedRefs, char[][] simpleRefs, char[][] rootRefs, char[][] memberRefs, char[][][] allMembersRefs, char[] mainTypeName, ArrayList typeNames) {
+	makeWritable();
 	if (typeNames.size() == 1 && CharOperation.equals(mainTypeName, (char[]) typeNames.get(0))) {
-		this.references.put(typeLocator, new ReferenceCollection(qualifiedRefs, simpleRefs, rootRefs));
+		this.references.put(typeLocator, new ReferenceCollection(qualifiedRefs, simpleRefs, rootRefs, memberRefs, allMembersRefs));
 	} else {
 		char[][] definedTypeNames = new char[typeNames.size()][]; // can be empty when no types are defined
 		typeNames.toArray(definedTypeNames);
-		this.references.put(typeLocator, new AdditionalTypeCollection(definedTypeNames, qualifiedRefs, simpleRefs, rootRefs));
+		this.references.put(typeLocator, new AdditionalTypeCollection(definedTypeNames, qualifiedRefs, simpleRefs, rootRefs, memberRefs, allMembersRefs));
 	}
 }
 
 void recordLocatorForType(String qualifiedTypeName, String typeLocator) {
+	makeWritable();
 	this.knownPackageNames = null;
 	// in the common case, the qualifiedTypeName is a substring of the typeLocator so share the char[] by using String.substring()
 	int start = typeLocator.indexOf(qualifiedTypeName, 0);
@@ -197,6 +307,7 @@ void recordStructuralDependency(IProject prereqProject, State prereqState) {
 }
 
 void removeLocator(String typeLocatorToRemove) {
+	makeWritable();
 	this.knownPackageNames = null;
 	this.references.removeKey(typeLocatorToRemove);
 	this.typeLocators.removeValue(typeLocatorToRemove);
@@ -217,7 +328,21 @@ void removePackage(IResourceDelta sourceDelta) {
 	}
 }
 
+void recordClassFileDigest(String qualifiedFileName, ClassFileDigest digest) {
+	makeWritable();
+	if (digest == null)
+		this.classFileDigests.removeKey(qualifiedFileName);
+	else
+		this.classFileDigests.put(qualifiedFileName, digest);
+}
+
+void removeClassFileDigest(String qualifiedFileName) {
+	makeWritable();
+	this.classFileDigests.removeKey(qualifiedFileName);
+}
+
 void removeQualifiedTypeName(String qualifiedTypeNameToRemove) {
+	makeWritable();
 	this.knownPackageNames = null;
 	this.typeLocators.removeKey(qualifiedTypeNameToRemove);
 }
@@ -290,8 +415,26 @@ static State read(IProject project, DataInputStream in) throws IOException {
 	for (int i = 0; i < length; i++)
 		newState.recordLocatorForType(in.readUTF(), internedTypeLocators[in.readInt()]);
 
+	// keep the references encoded until they are needed, see getReferences()
+	newState.encodedReferences = new byte[in.readInt()];
+	in.readFully(newState.encodedReferences);
+	newState.encodedTypeLocators = internedTypeLocators;
+
+	newState.classFileDigests = new SimpleLookupTable(length = in.readInt());
+	for (int i = 0; i < length; i++)
+		newState.classFileDigests.put(in.readUTF(), ClassFileDigest.read(in));
+	if (JavaBuilder.DEBUG)
+		System.out.println("Successfully read state for " + newState.javaProjectName); //$NON-NLS-1$
+	return newState;
+}
+
+/*
+ * Reads the interned names & the references table written by writeReferences().
+ */
+private static SimpleLookupTable readReferences(DataInputStream in, String[] internedTypeLocators) throws IOException {
 	char[][] internedRootNames = ReferenceCollection.internSimpleNames(readNames(in), false);
 	char[][] internedSimpleNames = ReferenceCollection.internSimpleNames(readNames(in), false);
+	int length;
 	char[][][] internedQualifiedNames = new char[length = in.readInt()][][];
 	for (int i = 0; i < length; i++) {
 		int qLength = in.readInt();
@@ -302,7 +445,7 @@ static State read(IProject project, DataInputStream in) throws IOException {
 	}
 	internedQualifiedNames = ReferenceCollection.internQualifiedNames(internedQualifiedNames, false);
 
-	newState.references = new SimpleLookupTable(length = in.readInt());
+	SimpleLookupTable references = new SimpleLookupTable(length = in.readInt());
 	for (int i = 0; i < length; i++) {
 		String typeLocator = internedTypeLocators[in.readInt()];
 		ReferenceCollection collection = null;
@@ -318,7 +461,9 @@ static State read(IProject project, DataInputStream in) throws IOException {
 				char[][] rootNames = new char[in.readInt()][];
 				for (int j = 0, m = rootNames.length; j < m; j++)
 					rootNames[j] = internedRootNames[in.readInt()];
-				collection = new AdditionalTypeCollection(additionalTypeNames, qualifiedNames, simpleNames, rootNames);
+				char[][] memberNames = readMemberNames(in, internedSimpleNames);
+				char[][][] allMembersNames = memberNames == null ? null : readQualifiedNames(in, internedQualifiedNames);
+				collection = new AdditionalTypeCollection(additionalTypeNames, qualifiedNames, simpleNames, rootNames, memberNames, allMembersNames);
 				break;
 			case 2 :
 				char[][][] qNames = new char[in.readInt()][][];
@@ -330,13 +475,29 @@ static State read(IProject project, DataInputStream in) throws IOException {
 				char[][] rNames = new char[in.readInt()][];
 				for (int j = 0, m = rNames.length; j < m; j++)
 					rNames[j] = internedRootNames[in.readInt()];
-				collection = new ReferenceCollection(qNames, sNames, rNames);
+				char[][] mNames = readMemberNames(in, internedSimpleNames);
+				char[][][] aNames = mNames == null ? null : readQualifiedNames(in, internedQualifiedNames);
+				collection = new ReferenceCollection(qNames, sNames, rNames, mNames, aNames);
 		}
-		newState.references.put(typeLocator, collection);
+		references.put(typeLocator, collection);
 	}
-	if (JavaBuilder.DEBUG)
-		System.out.println("Successfully read state for " + newState.javaProjectName); //$NON-NLS-1$
-	return newState;
+	return references;
+}
+
+private static char[][] readMemberNames(DataInputStream in, char[][] internedSimpleNames) throws IOException {
+	int length = in.readInt();
+	if (length < 0) return null; // unknown
+	char[][] names = new char[length][];
+	for (int i = 0; i < length; i++)
+		names[i] = internedSimpleNames[in.readInt()];
+	return names;
+}
+
+private static char[][][] readQualifiedNames(DataInputStream in, char[][][] internedQualifiedNames) throws IOException {
+	char[][][] names = new char[in.readInt()][][];
+	for (int i = 0, length = names.length; i < length; i++)
+		names[i] = internedQualifiedNames[in.readInt()];
+	return names;
 }
 
 private static char[] readName(DataInputStream in) throws IOException {
@@ -493,20 +654,39 @@ void write(DataOutputStream out) throws IOException {
 /*
  * String[]	Interned type locators
  */
-	out.writeInt(length = this.references.elementSize);
-	SimpleLookupTable internedTypeLocators = new SimpleLookupTable(length);
-	if (length > 0) {
-		keyTable = this.references.keyTable;
-		for (int i = 0, l = keyTable.length; i < l; i++) {
-			if (keyTable[i] != null) {
-				length--;
-				String key = (String) keyTable[i];
-				out.writeUTF(key);
-				internedTypeLocators.put(key, Integer.valueOf(internedTypeLocators.elementSize));
+	SimpleLookupTable refs;
+	byte[] encodedRefs;
+	String[] encodedLocators;
+	synchronized (this) {
+		refs = this.references;
+		encodedRefs = this.encodedReferences;
+		encodedLocators = this.encodedTypeLocators;
+	}
+	SimpleLookupTable internedTypeLocators;
+	if (refs == null) {
+		// the references were never decoded so keep the ids they use
+		out.writeInt(length = encodedLocators.length);
+		internedTypeLocators = new SimpleLookupTable(length);
+		for (int i = 0; i < length; i++) {
+			out.writeUTF(encodedLocators[i]);
+			internedTypeLocators.put(encodedLocators[i], Integer.valueOf(i));
+		}
+	} else {
+		out.writeInt(length = refs.elementSize);
+		internedTypeLocators = new SimpleLookupTable(length);
+		if (length > 0) {
+			keyTable = refs.keyTable;
+			for (int i = 0, l = keyTable.length; i < l; i++) {
+				if (keyTable[i] != null) {
+					length--;
+					String key = (String) keyTable[i];
+					out.writeUTF(key);
+					internedTypeLocators.put(key, Integer.valueOf(internedTypeLocators.elementSize));
+				}
 			}
+			if (JavaBuilder.DEBUG && length != 0)
+				System.out.println("references table is inconsistent"); //$NON-NLS-1$
 		}
-		if (JavaBuilder.DEBUG && length != 0)
-			System.out.println("references table is inconsistent"); //$NON-NLS-1$
 	}
 
 /*
@@ -530,6 +710,54 @@ void write(DataOutputStream out) throws IOException {
 			System.out.println("typeLocators table is inconsistent"); //$NON-NLS-1$
 	}
 
+/*
+ * int		length of the references section
+ * byte[]	References section, see writeReferences()
+ */
+	if (refs == null) {
+		out.writeInt(encodedRefs.length);
+		out.write(encodedRefs);
+	} else {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream referencesOut = new DataOutputStream(bytes);
+		writeReferences(refs, internedTypeLocators, referencesOut);
+		referencesOut.flush();
+		out.writeInt(bytes.size());
+		bytes.writeTo(out);
+	}
+
+/*
+ * Class file digests table
+ * String		qualified class file name
+ * ClassFileDigest
+ */
+	out.writeInt(length = this.classFileDigests.elementSize);
+	if (length > 0) {
+		keyTable = this.classFileDigests.keyTable;
+		valueTable = this.classFileDigests.valueTable;
+		for (int i = 0, l = keyTable.length; i < l; i++) {
+			if (keyTable[i] != null) {
+				length--;
+				out.writeUTF((String) keyTable[i]);
+				((ClassFileDigest) valueTable[i]).write(out);
+			}
+		}
+		if (JavaBuilder.DEBUG && length != 0)
+			System.out.println("class file digests table is inconsistent"); //$NON-NLS-1$
+	}
+}
+
+/*
+ * Writes the references using ids into name tables written first. The name tables are local to the
+ * state of a project: a table shared by the states of all projects would have to be saved whenever any
+ * project is built, and a lost or stale shared table would invalidate the states of all projects.
+ * Once read, the names are interned in the tables of ReferenceCollection, which are shared by all states.
+ */
+private void writeReferences(SimpleLookupTable references, SimpleLookupTable internedTypeLocators, DataOutputStream out) throws IOException {
+	int length;
+	Object[] keyTable;
+	Object[] valueTable;
+
 /*
  * char[][]	Interned root names
  * char[][][]	Interned qualified names
@@ -538,7 +766,7 @@ void write(DataOutputStream out) throws IOException {
 	SimpleLookupTable internedRootNames = new SimpleLookupTable(3);
 	SimpleLookupTable internedQualifiedNames = new SimpleLookupTable(31);
 	SimpleLookupTable internedSimpleNames = new SimpleLookupTable(31);
-	valueTable = this.references.valueTable;
+	valueTable = references.valueTable;
 	for (int i = 0, l = valueTable.length; i < l; i++) {
 		if (valueTable[i] != null) {
 			ReferenceCollection collection = (ReferenceCollection) valueTable[i];
@@ -566,6 +794,26 @@ void write(DataOutputStream out) throws IOException {
 				if (!internedSimpleNames.containsKey(sName)) // remember the names have been interned
 					internedSimpleNames.put(sName, Integer.valueOf(internedSimpleNames.elementSize));
 			}
+			char[][] mNames = collection.memberNameReferences;
+			if (mNames != null) {
+				for (int j = 0, m = mNames.length; j < m; j++) {
+					char[] mName = mNames[j];
+					if (!internedSimpleNames.containsKey(mName)) // remember the names have been interned
+						internedSimpleNames.put(mName, Integer.valueOf(internedSimpleNames.elementSize));
+				}
+				char[][][] aNames = collection.allMembersReferences;
+				for (int j = 0, m = aNames.length; j < m; j++) {
+					char[][] aName = aNames[j];
+					if (!internedQualifiedNames.containsKey(aName)) { // remember the names have been interned
+						internedQualifiedNames.put(aName, Integer.valueOf(internedQualifiedNames.elementSize));
+						for (int k = 0, n = aName.length; k < n; k++) {
+							char[] sName = aName[k];
+							if (!internedSimpleNames.containsKey(sName)) // remember the names have been interned
+								internedSimpleNames.put(sName, Integer.valueOf(internedSimpleNames.elementSize));
+						}
+					}
+				}
+			}
 		}
 	}
 	char[][] internedArray = new char[internedRootNames.elementSize][];
@@ -615,9 +863,9 @@ void write(DataOutputStream out) throws IOException {
  * int		interned locator id
  * ReferenceCollection
 */
-	out.writeInt(length = this.references.elementSize);
+	out.writeInt(length = references.elementSize);
 	if (length > 0) {
-		keyTable = this.references.keyTable;
+		keyTable = references.keyTable;
 		for (int i = 0, l = keyTable.length; i < l; i++) {
 			if (keyTable[i] != null) {
 				length--;
@@ -652,6 +900,24 @@ void write(DataOutputStream out) throws IOException {
 					index = (Integer) internedRootNames.get(rNames[j]);
 					out.writeInt(index.intValue());
 				}
+				char[][] mNames = collection.memberNameReferences;
+				if (mNames == null) {
+					out.writeInt(-1); // unknown
+				} else {
+					int mLength = mNames.length;
+					out.writeInt(mLength);
+					for (int j = 0; j < mLength; j++) {
+						index = (Integer) internedSimpleNames.get(mNames[j]);
+						out.writeInt(index.intValue());
+					}
+					char[][][] aNames = collection.allMembersReferences;
+					int aLength = aNames.length;
+					out.writeInt(aLength);
+					for (int j = 0; j < aLength; j++) {
+						index = (Integer) internedQualifiedNames.get(aNames[j]);
+						out.writeInt(index.intValue());
+					}
+				}
 			}
 		}
 		if (JavaBuilder.DEBUG && length != 0)
@@ -49,6 +49,7 @@ public final class Messages extends NLS {
 	public static String javamodel_getting_build_state_number;
 	public static String javamodel_refreshing_external_jars;
 	public static String javamodel_resetting_source_attachment_properties;
+	public static String javamodel_resolving_classpaths;
 	public static String operation_needElements;
 	public static String operation_needName;
 	public static String operation_needPath;
@@ -194,6 +195,8 @@ public final class Messages extends NLS {
 	public static String savedState_jobName;
 	public static String refreshing_external_folders;
 	public static String synchronizing_projects_job;
+	public static String indexing_source_attachment_job;
+	public static String closing_idle_archives_job;
 	public static String convention_unit_nullName;
 	public static String convention_unit_notJavaName;
 	public static String convention_classFile_nullName;
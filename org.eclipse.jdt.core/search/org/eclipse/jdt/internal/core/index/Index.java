@@ -11,6 +11,8 @@
 package org.eclipse.jdt.internal.core.index;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.HashMap;
 
 import org.eclipse.jdt.core.compiler.CharOperation;
 import org.eclipse.jdt.core.search.*;
@@ -38,6 +40,19 @@ static final char JAR_SEPARATOR = IJavaSearchScope.JAR_FILE_ENTRY_SEPARATOR.char
 protected DiskIndex diskIndex;
 protected MemoryIndex memoryIndex;
 
+/*
+ * The categories whose entries are tracked (see startTrackingEntries(char[])), and for each of them the keys
+ * of the documents that were added or removed since the last call to takeEntryChanges(char[]).
+ */
+private char[][] trackedCategories;
+private EntryChanges[] trackedChanges;
+static final int MAX_TRACKED_DOCUMENTS = 10000;
+
+static class EntryChanges {
+	HashMap changes = new HashMap(); // containerRelativePath -> ArrayList of char[]
+	boolean overflow; // too many documents changed
+}
+
 /**
  * Mask used on match rule for indexing.
  */
@@ -98,6 +113,16 @@ public Index(IndexLocation location, String containerPath, boolean reuseExisting
 }
 public void addIndexEntry(char[] category, char[] key, String containerRelativePath) {
 	this.memoryIndex.addIndexEntry(category, key, containerRelativePath);
+	if (this.trackedCategories != null) {
+		for (int i = 0, length = this.trackedCategories.length; i < length; i++) {
+			if (category == this.trackedCategories[i] || CharOperation.equals(category, this.trackedCategories[i])) {
+				ArrayList keys = trackEntryChange(this.trackedChanges[i], containerRelativePath);
+				if (keys != null)
+					keys.add(key);
+				break;
+			}
+		}
+	}
 }
 public String containerRelativePath(String documentPath) {
 	int index = documentPath.indexOf(IJavaSearchScope.JAR_FILE_ENTRY_SEPARATOR);
@@ -177,6 +202,13 @@ public String[] queryDocumentNames(String substring) throws IOException {
 }
 public void remove(String containerRelativePath) {
 	this.memoryIndex.remove(containerRelativePath);
+	if (this.trackedChanges != null) {
+		for (int i = 0, length = this.trackedChanges.length; i < length; i++) {
+			ArrayList keys = trackEntryChange(this.trackedChanges[i], containerRelativePath);
+			if (keys != null)
+				keys.clear();
+		}
+	}
 }
 /**
  * Reset memory and disk indexes.
@@ -187,6 +219,9 @@ public void reset() throws IOException {
 	this.memoryIndex = new MemoryIndex();
 	this.diskIndex = new DiskIndex(this.diskIndex.indexLocation);
 	this.diskIndex.initialize(false/*do not reuse the index file*/);
+	if (this.trackedChanges != null)
+		for (int i = 0, length = this.trackedChanges.length; i < length; i++)
+			this.trackedChanges[i].overflow = true;
 }
 public void save() throws IOException {
 	// must own the write lock of the monitor
@@ -199,6 +234,67 @@ public void save() throws IOException {
 	if (numberOfChanges > 1000)
 		System.gc(); // reclaim space if the MemoryIndex was very BIG
 }
+/**
+ * Starts recording the keys of the given category for the documents that are added to or removed from this index.
+ * Must own the read lock of the monitor.
+ */
+public synchronized void startTrackingEntries(char[] category) {
+	EntryChanges entryChanges = getEntryChanges(category);
+	if (entryChanges == null) {
+		int length = this.trackedCategories == null ? 0 : this.trackedCategories.length;
+		char[][] categories = new char[length + 1][];
+		EntryChanges[] changes = new EntryChanges[length + 1];
+		if (length > 0) {
+			System.arraycopy(this.trackedCategories, 0, categories, 0, length);
+			System.arraycopy(this.trackedChanges, 0, changes, 0, length);
+		}
+		categories[length] = category;
+		changes[length] = entryChanges = new EntryChanges();
+		this.trackedChanges = changes;
+		this.trackedCategories = categories;
+	}
+	entryChanges.changes.clear();
+	entryChanges.overflow = false;
+}
+/**
+ * Returns the keys (char[]) of the given category for the documents that were added or removed since
+ * tracking started or since the last call to this method, and starts a new recording. A removed document
+ * has no keys. Returns null if the category was not tracked or if too many documents changed, in which case
+ * the index must be queried again.
+ * Must own the read lock of the monitor.
+ */
+public synchronized HashMap takeEntryChanges(char[] category) {
+	EntryChanges entryChanges = getEntryChanges(category);
+	if (entryChanges == null) return null;
+	HashMap changes = entryChanges.changes;
+	entryChanges.changes = new HashMap();
+	if (entryChanges.overflow) {
+		entryChanges.overflow = false;
+		return null;
+	}
+	return changes;
+}
+private EntryChanges getEntryChanges(char[] category) {
+	if (this.trackedCategories != null)
+		for (int i = 0, length = this.trackedCategories.length; i < length; i++)
+			if (CharOperation.equals(category, this.trackedCategories[i]))
+				return this.trackedChanges[i];
+	return null;
+}
+private synchronized ArrayList trackEntryChange(EntryChanges entryChanges, String containerRelativePath) {
+	if (entryChanges.overflow) return null;
+	ArrayList keys = (ArrayList) entryChanges.changes.get(containerRelativePath);
+	if (keys == null) {
+		if (entryChanges.changes.size() >= MAX_TRACKED_DOCUMENTS) {
+			// too many changes: the index will be queried again
+			entryChanges.overflow = true;
+			entryChanges.changes.clear();
+			return null;
+		}
+		entryChanges.changes.put(containerRelativePath, keys = new ArrayList());
+	}
+	return keys;
+}
 public void startQuery() {
 	if (this.diskIndex != null)
 		this.diskIndex.startQuery();
@@ -10,10 +10,17 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.core.search;
 
+import java.io.IOException;
+
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.jdt.core.search.*;
 import org.eclipse.jdt.internal.compiler.util.SimpleSet;
+import org.eclipse.jdt.internal.core.JavaModelManager;
 import org.eclipse.jdt.internal.core.index.Index;
+import org.eclipse.jdt.internal.core.search.indexing.ReadWriteMonitor;
+import org.eclipse.jdt.internal.core.search.indexing.SubtypeGraph;
+import org.eclipse.jdt.internal.core.search.matching.SuperTypeReferencePattern;
 
 public class SubTypeSearchJob extends PatternSearchJob {
 
@@ -41,6 +48,31 @@ public boolean search(Index index, IProgressMonitor progressMonitor) {
 	if (index == null) return COMPLETE;
 	if (this.indexes.addIfNotIncluded(index) == index)
 		index.startQuery();
+	if (SubtypeGraph.canAnswer(this.pattern)) {
+		SubtypeGraph graph = JavaModelManager.getIndexManager().getSubtypeGraph();
+		if (graph != null)
+			return search(graph, index, progressMonitor);
+	}
 	return super.search(index, progressMonitor);
 }
+/*
+ * Same as search(Index, IProgressMonitor) but finds the super type references in the subtype graph
+ * instead of querying the index.
+ */
+private boolean search(SubtypeGraph graph, Index index, IProgressMonitor progressMonitor) {
+	if (progressMonitor != null && progressMonitor.isCanceled()) throw new OperationCanceledException();
+	ReadWriteMonitor monitor = index.monitor;
+	if (monitor == null) return COMPLETE; // index got deleted since acquired
+	try {
+		monitor.enterRead(); // ask permission to read
+		long start = System.currentTimeMillis();
+		graph.findIndexMatches((SuperTypeReferencePattern) this.pattern, index, this.requestor, this.participant, this.scope, progressMonitor);
+		this.executionTime += System.currentTimeMillis() - start;
+		return COMPLETE;
+	} catch (IOException e) {
+		return FAILED;
+	} finally {
+		monitor.exitRead(); // finished reading
+	}
+}
 }
@@ -72,6 +72,16 @@ public class IndexManager extends JobManager implements IIndexConstants {
 	public static final String MANAGE_PRODUCT_INDEXES_PROPERTY = "jdt.core.manageProductIndexes"; //$NON-NLS-1$
 	private static final boolean IS_MANAGING_PRODUCT_INDEXES_PROPERTY = Boolean.getBoolean(MANAGE_PRODUCT_INDEXES_PROPERTY);
 
+	// should the possible subtypes of a type be found using the subtype graph instead of querying the indexes?
+	public static final String USE_SUBTYPE_GRAPH_PROPERTY = "jdt.core.useSubtypeGraph"; //$NON-NLS-1$
+	private static final boolean IS_USING_SUBTYPE_GRAPH = !"false".equals(System.getProperty(USE_SUBTYPE_GRAPH_PROPERTY)); //$NON-NLS-1$
+	private SubtypeGraph subtypeGraph = null;
+
+	// should type names be found using the type name dictionary instead of querying the indexes?
+	public static final String USE_TYPE_NAME_DICTIONARY_PROPERTY = "jdt.core.useTypeNameDictionary"; //$NON-NLS-1$
+	private static final boolean IS_USING_TYPE_NAME_DICTIONARY = !"false".equals(System.getProperty(USE_TYPE_NAME_DICTIONARY_PROPERTY)); //$NON-NLS-1$
+	private TypeNameDictionary typeNameDictionary = null;
+
 	// Debug
 	public static boolean DEBUG = false;
 
@@ -194,6 +204,10 @@ public void deleteIndexFiles() {
 		Util.verbose("Deleting index files"); //$NON-NLS-1$
 	this.savedIndexNamesFile.delete(); // forget saved indexes & delete each index file
 	deleteIndexFiles(null);
+	if (this.subtypeGraph != null)
+		this.subtypeGraph.reset();
+	if (this.typeNameDictionary != null)
+		this.typeNameDictionary.reset();
 }
 private void deleteIndexFiles(SimpleSet pathsToKeep) {
 	File[] indexesFiles = getSavedIndexesDirectory().listFiles();
@@ -446,6 +460,26 @@ private IPath getParticipantsContainer(IndexLocation indexLocation) {
 	}
 	return (IPath)this.participantsContainers.get(indexLocation);
 }
+/**
+ * Returns the graph used to find the possible subtypes of a type in the indexes,
+ * or null if the indexes must be queried instead.
+ */
+public synchronized SubtypeGraph getSubtypeGraph() {
+	if (!IS_USING_SUBTYPE_GRAPH) return null;
+	if (this.subtypeGraph == null)
+		this.subtypeGraph = new SubtypeGraph(new File(getSavedIndexesDirectory(), "subtypeGraph.dat")); //$NON-NLS-1$
+	return this.subtypeGraph;
+}
+/**
+ * Returns the dictionary used to find the type and constructor declarations in the indexes,
+ * or null if the indexes must be queried instead.
+ */
+public synchronized TypeNameDictionary getTypeNameDictionary() {
+	if (!IS_USING_TYPE_NAME_DICTIONARY) return null;
+	if (this.typeNameDictionary == null)
+		this.typeNameDictionary = new TypeNameDictionary();
+	return this.typeNameDictionary;
+}
 private IPath getJavaPluginWorkingLocation() {
 	if (this.javaPluginLocation != null) return this.javaPluginLocation;
 
@@ -676,6 +710,7 @@ private void rebuildIndex(IndexLocation indexLocation, IPath containerPath, fina
 	if (VERBOSE)
 		Util.verbose("-> request to rebuild index: "+indexLocation+" path: "+containerPath); //$NON-NLS-1$ //$NON-NLS-2$
 
+	removeSubtypeGraph(indexLocation);
 	updateIndexState(indexLocation, REBUILDING_STATE);
 	IndexRequest request = null;
 	if (target instanceof IProject) {
@@ -692,6 +727,10 @@ private void rebuildIndex(IndexLocation indexLocation, IPath containerPath, fina
 	if (request != null)
 		request(request);
 }
+private synchronized void removeSubtypeGraph(IndexLocation indexLocation) {
+	if (this.subtypeGraph != null)
+		this.subtypeGraph.remove(indexLocation);
+}
 /**
  * Recreates the index for a given path, keeping the same read-write monitor.
  * Returns the new empty index or null if it didn't exist before.
@@ -744,6 +783,10 @@ public synchronized void removeIndex(IPath containerPath) {
 	}
 	if (indexFile == null)
 		indexFile = indexLocation.getIndexFile(); // index is not cached yet, but still want to delete the file
+	if (this.typeNameDictionary != null)
+		this.typeNameDictionary.remove(indexLocation);
+	if (this.subtypeGraph != null)
+		this.subtypeGraph.remove(indexLocation);
 	if (this.indexStates.get(indexLocation) == REUSE_STATE) {
 		indexLocation.close();
 		this.indexLocations.put(containerPath, null);
@@ -779,6 +822,10 @@ public synchronized void removeIndexPath(IPath path) {
 			if (locations == null)
 				locations = new IndexLocation[max];
 			locations[count++] = indexLocation;
+			if (this.typeNameDictionary != null)
+				this.typeNameDictionary.remove(indexLocation);
+			if (this.subtypeGraph != null)
+				this.subtypeGraph.remove(indexLocation);
 			if (this.indexStates.get(indexLocation) == REUSE_STATE) {
 				indexLocation.close();
 			} else {
@@ -839,6 +886,15 @@ public void removeSourceFolderFromIndex(JavaProject javaProject, IPath sourceFol
 
 	request(new RemoveFolderFromIndex(sourceFolder, inclusionPatterns, exclusionPatterns, project, this));
 }
+public void shutdown() {
+	super.shutdown();
+	SubtypeGraph graph;
+	synchronized (this) {
+		graph = this.subtypeGraph;
+	}
+	if (graph != null)
+		graph.save();
+}
 /**
  * Flush current state
  */
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2014 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -105,8 +105,16 @@ public class SourceIndexer extends AbstractIndexer implements ITypeRequestor, Su
 		if (source == null || name == null) return; // could not retrieve document info (e.g. resource was discarded)
 		this.compilationUnit = new CompilationUnit(source, name);
 		try {
-			if (parser.parseCompilationUnit(this.compilationUnit, true, null).hasFunctionalTypes())
-				this.document.requireIndexingResolvedDocument();
+			CompilationUnitDeclaration parsedUnit = parser.parseCompilationUnit(this.compilationUnit, true, null);
+			if (parsedUnit.hasFunctionalTypes()) {
+				if (parsedUnit.compilationResult.hasDegradedSyntaxRecovery) {
+					// do not resolve a badly broken unit, its functional expressions are indexed as found by the parser
+					if (JobManager.VERBOSE)
+						org.eclipse.jdt.internal.core.util.Util.verbose("-> degraded syntax recovery, not resolving " + documentPath); //$NON-NLS-1$
+				} else {
+					this.document.requireIndexingResolvedDocument();
+				}
+			}
 		} catch (Exception e) {
 			if (JobManager.VERBOSE) {
 				e.printStackTrace();
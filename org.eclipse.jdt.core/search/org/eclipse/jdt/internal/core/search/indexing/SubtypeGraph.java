@@ -0,0 +1,399 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core.search.indexing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.jdt.core.compiler.CharOperation;
+import org.eclipse.jdt.core.search.IJavaSearchScope;
+import org.eclipse.jdt.core.search.SearchParticipant;
+import org.eclipse.jdt.core.search.SearchPattern;
+import org.eclipse.jdt.internal.core.index.EntryResult;
+import org.eclipse.jdt.internal.core.index.Index;
+import org.eclipse.jdt.internal.core.index.IndexLocation;
+import org.eclipse.jdt.internal.core.search.IndexQueryRequestor;
+import org.eclipse.jdt.internal.core.search.matching.JavaSearchPattern;
+import org.eclipse.jdt.internal.core.search.matching.SuperTypeReferencePattern;
+import org.eclipse.jdt.internal.core.util.Util;
+
+/**
+ * The super type references of the indexed documents, kept in memory for each index so that the
+ * possible subtypes of a type can be found without querying the indexes (e.g. when a type hierarchy
+ * is computed).
+ * <p>
+ * The graph of an index is built from the index the first time it is used, then kept in sync with
+ * the documents that are added to or removed from the index (see <code>Index#takeEntryChanges(char[])</code>).
+ * It is saved at shutdown for the indexes that have no unsaved changes, and reused on the next
+ * session as long as the index file did not change in the meantime.
+ * </p>
+ */
+public class SubtypeGraph {
+
+	static final int VERSION = 1;
+
+	private static final char[][] NO_KEYS = CharOperation.NO_CHAR_CHAR;
+	private static final char[][] CATEGORIES = { IIndexConstants.SUPER_REF };
+
+	static class IndexGraph {
+		Index index; // the index this graph is in sync with, null if read from disk and not used yet
+		long lastModified = -1; // the time stamp of the index file this graph was saved for
+
+		// document name -> super type reference keys of the document
+		final HashMap<String, char[][]> keysByDocument = new HashMap<>();
+		// super type simple name -> names of the documents referencing it
+		final HashMap<String, Set<String>> documentsBySuperName = new HashMap<>();
+
+		void addDocument(String documentName, char[][] keys) {
+			char[][] existing = this.keysByDocument.get(documentName);
+			if (existing != null) {
+				// only keep the keys that are not already known
+				char[][] added = new char[keys.length][];
+				int count = 0;
+				next : for (int i = 0; i < keys.length; i++) {
+					for (int j = 0; j < existing.length; j++)
+						if (CharOperation.equals(keys[i], existing[j]))
+							continue next;
+					added[count++] = keys[i];
+				}
+				if (count == 0) return;
+				System.arraycopy(added, 0, keys = new char[count][], 0, count);
+				char[][] merged = new char[existing.length + count][];
+				System.arraycopy(existing, 0, merged, 0, existing.length);
+				System.arraycopy(keys, 0, merged, existing.length, count);
+				this.keysByDocument.put(documentName, merged);
+			} else {
+				this.keysByDocument.put(documentName, keys);
+			}
+			for (int i = 0; i < keys.length; i++) {
+				String superName = getSuperSimpleName(keys[i]);
+				Set<String> documents = this.documentsBySuperName.get(superName);
+				if (documents == null)
+					this.documentsBySuperName.put(superName, documents = new LinkedHashSet<>());
+				documents.add(documentName);
+			}
+		}
+
+		void removeDocument(String documentName) {
+			char[][] keys = this.keysByDocument.remove(documentName);
+			if (keys == null) return;
+			for (int i = 0; i < keys.length; i++) {
+				String superName = getSuperSimpleName(keys[i]);
+				Set<String> documents = this.documentsBySuperName.get(superName);
+				if (documents != null && documents.remove(documentName) && documents.isEmpty())
+					this.documentsBySuperName.remove(superName);
+			}
+		}
+
+		/*
+		 * Brings this graph in sync with the given index.
+		 * The caller must own the read lock of the index monitor.
+		 */
+		void refresh(Index current) throws IOException {
+			if (this.index == current) {
+				Map changes = current.takeEntryChanges(IIndexConstants.SUPER_REF);
+				if (changes != null) {
+					for (Iterator iterator = changes.entrySet().iterator(); iterator.hasNext();) {
+						Map.Entry entry = (Map.Entry) iterator.next();
+						String documentName = (String) entry.getKey();
+						ArrayList keys = (ArrayList) entry.getValue();
+						removeDocument(documentName);
+						if (!keys.isEmpty())
+							addDocument(documentName, (char[][]) keys.toArray(new char[keys.size()][]));
+					}
+					return;
+				}
+				// too many changes: query the index again
+			} else if (this.index == null && this.lastModified != -1 && this.lastModified == current.getIndexLastModified() && !current.hasChanged()) {
+				// read from disk and the index file did not change since
+				this.index = current;
+				current.startTrackingEntries(IIndexConstants.SUPER_REF);
+				return;
+			}
+			this.keysByDocument.clear();
+			this.documentsBySuperName.clear();
+			this.index = current;
+			this.lastModified = -1;
+			current.startTrackingEntries(IIndexConstants.SUPER_REF);
+			EntryResult[] entries;
+			HashMap<String, ArrayList<char[]>> keys = new HashMap<>();
+			try {
+				current.startQuery();
+				entries = current.query(CATEGORIES, null, SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE);
+				if (entries == null) return;
+				for (int i = 0, length = entries.length; i < length; i++) {
+					char[] key = entries[i].getWord();
+					String[] documentNames = entries[i].getDocumentNames(current);
+					for (int j = 0, namesLength = documentNames.length; j < namesLength; j++) {
+						ArrayList<char[]> documentKeys = keys.get(documentNames[j]);
+						if (documentKeys == null)
+							keys.put(documentNames[j], documentKeys = new ArrayList<>(2));
+						documentKeys.add(key);
+					}
+				}
+			} finally {
+				current.stopQuery();
+			}
+			for (Iterator<Map.Entry<String, ArrayList<char[]>>> iterator = keys.entrySet().iterator(); iterator.hasNext();) {
+				Map.Entry<String, ArrayList<char[]>> entry = iterator.next();
+				addDocument(entry.getKey(), entry.getValue().toArray(NO_KEYS));
+			}
+		}
+	}
+
+	// canonical index file path -> graph
+	private final HashMap<String, IndexGraph> graphs = new HashMap<>();
+	private final File file;
+
+	public SubtypeGraph(File file) {
+		this.file = file;
+	}
+
+	static String getSuperSimpleName(char[] key) {
+		int slash = CharOperation.indexOf(IIndexConstants.SEPARATOR, key);
+		return slash == -1 ? new String(key) : new String(key, 0, slash);
+	}
+
+	/**
+	 * Returns whether the given pattern can be answered by this graph, i.e. whether it matches the super
+	 * type simple name exactly and case sensitively (as when searching for the possible subtypes of a type).
+	 */
+	public static boolean canAnswer(SearchPattern pattern) {
+		if (!(pattern instanceof SuperTypeReferencePattern)) return false;
+		int rule = pattern.getMatchRule() & (JavaSearchPattern.MATCH_MODE_MASK | SearchPattern.R_CASE_SENSITIVE);
+		return rule == (SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE);
+	}
+
+	/**
+	 * Same as <code>SearchPattern#findIndexMatches(Index, IndexQueryRequestor, SearchParticipant, IJavaSearchScope, IProgressMonitor)</code>
+	 * for a pattern that this graph can answer, but without querying the given index.
+	 * The caller must own the read lock of the index monitor.
+	 */
+	public void findIndexMatches(SuperTypeReferencePattern pattern, Index index, IndexQueryRequestor requestor, SearchParticipant participant, IJavaSearchScope scope, IProgressMonitor monitor) throws IOException {
+		if (monitor != null && monitor.isCanceled()) throw new OperationCanceledException();
+		IndexGraph graph = getGraph(index);
+		if (graph == null) {
+			pattern.findIndexMatches(index, requestor, participant, scope, monitor);
+			return;
+		}
+
+		// collect the candidates while holding the lock, report them after
+		ArrayList<String> documentNames = new ArrayList<>();
+		ArrayList<char[]> keys = new ArrayList<>();
+		synchronized (graph) {
+			graph.refresh(index);
+			if (pattern.superSimpleName == null) {
+				for (Iterator<Map.Entry<String, char[][]>> iterator = graph.keysByDocument.entrySet().iterator(); iterator.hasNext();) {
+					Map.Entry<String, char[][]> entry = iterator.next();
+					char[][] documentKeys = entry.getValue();
+					for (int i = 0; i < documentKeys.length; i++) {
+						documentNames.add(entry.getKey());
+						keys.add(documentKeys[i]);
+					}
+				}
+			} else {
+				String superName = new String(pattern.superSimpleName);
+				Set<String> documents = graph.documentsBySuperName.get(superName);
+				if (documents != null) {
+					for (Iterator<String> iterator = documents.iterator(); iterator.hasNext();) {
+						String documentName = iterator.next();
+						char[][] documentKeys = graph.keysByDocument.get(documentName);
+						for (int i = 0; i < documentKeys.length; i++) {
+							if (superName.equals(getSuperSimpleName(documentKeys[i]))) {
+								documentNames.add(documentName);
+								keys.add(documentKeys[i]);
+							}
+						}
+					}
+				}
+			}
+		}
+
+		SearchPattern decodedResult = pattern.getBlankPattern();
+		String containerPath = index.containerPath;
+		char separator = index.separator;
+		for (int i = 0, size = keys.size(); i < size; i++) {
+			if (monitor != null && monitor.isCanceled()) throw new OperationCanceledException();
+			decodedResult.decodeIndexKey(keys.get(i));
+			if (pattern.matchesDecodedKey(decodedResult))
+				pattern.acceptMatch(documentNames.get(i), containerPath, separator, decodedResult, requestor, participant, scope, monitor);
+		}
+	}
+
+	private synchronized IndexGraph getGraph(Index index) {
+		if (this.graphs.isEmpty() && this.file.exists())
+			read();
+		IndexLocation location = index.getIndexLocation();
+		if (location == null) return null;
+		String path = location.getCanonicalFilePath();
+		if (path == null) return null;
+		IndexGraph graph = this.graphs.get(path);
+		if (graph == null)
+			this.graphs.put(path, graph = new IndexGraph());
+		return graph;
+	}
+
+	/**
+	 * Forgets the graph of the index at the given location (e.g. because the index is removed or rebuilt).
+	 */
+	public synchronized void remove(IndexLocation location) {
+		if (this.graphs.isEmpty() && this.file.exists())
+			read(); // don't let the saved graph of this index come back
+		String path = location.getCanonicalFilePath();
+		if (path != null)
+			this.graphs.remove(path);
+	}
+
+	/**
+	 * Forgets the graphs of all indexes.
+	 */
+	public synchronized void reset() {
+		this.graphs.clear();
+		this.file.delete();
+	}
+
+	/**
+	 * Saves the graphs of the indexes that have no unsaved changes.
+	 */
+	public synchronized void save() {
+		if (this.graphs.isEmpty()) return;
+		DataOutputStream out = null;
+		File tempFile = new File(this.file.getPath() + ".tmp"); //$NON-NLS-1$
+		try {
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+			out.writeInt(VERSION);
+			ArrayList<String> paths = new ArrayList<>();
+			ArrayList<IndexGraph> toSave = new ArrayList<>();
+			for (Iterator<Map.Entry<String, IndexGraph>> iterator = this.graphs.entrySet().iterator(); iterator.hasNext();) {
+				Map.Entry<String, IndexGraph> entry = iterator.next();
+				IndexGraph graph = entry.getValue();
+				if (graph.index != null && !syncWithSavedIndex(graph)) continue;
+				if (graph.lastModified == -1) continue;
+				paths.add(entry.getKey());
+				toSave.add(graph);
+			}
+			out.writeInt(toSave.size());
+			for (int i = 0, size = toSave.size(); i < size; i++) {
+				IndexGraph graph = toSave.get(i);
+				out.writeUTF(paths.get(i));
+				out.writeLong(graph.lastModified);
+				out.writeInt(graph.keysByDocument.size());
+				for (Iterator<Map.Entry<String, char[][]>> iterator = graph.keysByDocument.entrySet().iterator(); iterator.hasNext();) {
+					Map.Entry<String, char[][]> entry = iterator.next();
+					out.writeUTF(entry.getKey());
+					char[][] keys = entry.getValue();
+					out.writeInt(keys.length);
+					for (int j = 0; j < keys.length; j++)
+						out.writeUTF(new String(keys[j]));
+				}
+			}
+			out.close();
+			out = null;
+			this.file.delete();
+			if (!tempFile.renameTo(this.file))
+				tempFile.delete();
+		} catch (IOException e) {
+			Util.log(e, "Unable to save the subtype graph"); //$NON-NLS-1$
+			tempFile.delete();
+		} finally {
+			if (out != null) {
+				try {
+					out.close();
+				} catch (IOException e) {
+					// ignore
+				}
+				tempFile.delete();
+			}
+		}
+	}
+
+	/*
+	 * Brings the given graph in sync with its index and records the time stamp of the index file.
+	 * Returns false if the index has unsaved changes or no longer exists.
+	 */
+	private boolean syncWithSavedIndex(IndexGraph graph) {
+		Index index = graph.index;
+		ReadWriteMonitor monitor = index.monitor;
+		if (monitor == null) return false; // index got deleted
+		try {
+			monitor.enterRead();
+			if (index.hasChanged()) return false;
+			synchronized (graph) {
+				graph.refresh(index);
+				graph.lastModified = index.getIndexLastModified();
+			}
+			return true;
+		} catch (IOException e) {
+			return false;
+		} finally {
+			monitor.exitRead();
+		}
+	}
+
+	private void read() {
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(this.file)));
+			if (in.readInt() != VERSION) return;
+			for (int i = 0, graphCount = in.readInt(); i < graphCount; i++) {
+				String path = in.readUTF();
+				IndexGraph graph = new IndexGraph();
+				graph.lastModified = in.readLong();
+				for (int j = 0, documentCount = in.readInt(); j < documentCount; j++) {
+					String documentName = in.readUTF();
+					char[][] keys = new char[in.readInt()][];
+					for (int k = 0; k < keys.length; k++)
+						keys[k] = in.readUTF().toCharArray();
+					graph.addDocument(documentName, keys);
+				}
+				this.graphs.put(path, graph);
+			}
+		} catch (IOException e) {
+			// corrupted file: the graphs will be computed from the indexes
+			this.graphs.clear();
+		} finally {
+			if (in != null) {
+				try {
+					in.close();
+				} catch (IOException e) {
+					// ignore
+				}
+			}
+			// the saved graphs become obsolete as soon as the indexes change
+			this.file.delete();
+		}
+	}
+
+	/**
+	 * Returns the number of indexes that have a graph in memory.
+	 */
+	public synchronized int getIndexCount() {
+		return this.graphs.size();
+	}
+
+	public synchronized String toString() {
+		return "SubtypeGraph for " + this.graphs.size() + " indexes"; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
@@ -0,0 +1,396 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core.search.indexing;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.jdt.core.compiler.CharOperation;
+import org.eclipse.jdt.core.search.IJavaSearchScope;
+import org.eclipse.jdt.core.search.SearchParticipant;
+import org.eclipse.jdt.core.search.SearchPattern;
+import org.eclipse.jdt.internal.core.index.EntryResult;
+import org.eclipse.jdt.internal.core.index.Index;
+import org.eclipse.jdt.internal.core.index.IndexLocation;
+import org.eclipse.jdt.internal.core.search.IndexQueryRequestor;
+import org.eclipse.jdt.internal.core.search.matching.ConstructorDeclarationPattern;
+import org.eclipse.jdt.internal.core.search.matching.JavaSearchPattern;
+import org.eclipse.jdt.internal.core.search.matching.QualifiedTypeDeclarationPattern;
+import org.eclipse.jdt.internal.core.search.matching.TypeDeclarationPattern;
+
+/**
+ * The type and constructor declarations of the indexed documents, kept in memory for each index so that
+ * type names can be found without querying the indexes (e.g. by code completion or when opening a type).
+ * <p>
+ * The index keys of these declarations start with the simple name of the type. They are kept in flat arrays
+ * (a key, its lower case simple name and the id of its document per entry) with one array of entries sorted by
+ * lower case simple name, so that a prefix or camel case query only looks at the names starting with the same
+ * characters. The matching keys are then decoded and filtered by the pattern as they would be
+ * when querying the index.
+ * </p><p>
+ * The dictionary of an index is built from the index the first time it is used, then kept in sync with
+ * the documents that are added to or removed from the index (see <code>Index#takeEntryChanges(char[])</code>).
+ * </p>
+ */
+public class TypeNameDictionary {
+
+	private static final char[][] NO_KEYS = CharOperation.NO_CHAR_CHAR;
+	private static final char[][] CATEGORIES = { IIndexConstants.TYPE_DECL, IIndexConstants.CONSTRUCTOR_DECL };
+	private static final int TYPES = 0;
+	private static final int CONSTRUCTORS = 1;
+
+	static class IndexDictionary {
+		final char[] category;
+		Index index; // the index this dictionary is in sync with
+
+		// by entry: the key, its lower case simple name, the id of its document and the next entry of the same document
+		// (-1 if none); the key of a removed entry is null
+		char[][] keys;
+		char[][] names;
+		int[] documents;
+		int[] nextEntries;
+		int entryCount;
+		int removedEntries;
+		boolean hasRemovedEntriesSinceSort;
+
+		// by document id: the document name and its first entry (-1 if none); the name of a removed document is null
+		String[] documentNames;
+		int[] firstEntries;
+		int documentCount;
+		final HashMap<String, Integer> documentIds = new HashMap<>();
+
+		// the entries up to sortedCount, sorted by lower case simple name (see sort())
+		int[] sortedEntries;
+		int sortedCount;
+
+		IndexDictionary(char[] category) {
+			this.category = category;
+			clear();
+		}
+
+		void clear() {
+			this.keys = new char[16][];
+			this.names = new char[16][];
+			this.documents = new int[16];
+			this.nextEntries = new int[16];
+			this.entryCount = 0;
+			this.removedEntries = 0;
+			this.documentNames = new String[16];
+			this.firstEntries = new int[16];
+			this.documentCount = 0;
+			this.documentIds.clear();
+			this.sortedEntries = new int[0];
+			this.sortedCount = 0;
+			this.hasRemovedEntriesSinceSort = false;
+		}
+
+		void addDocument(String documentName, char[][] documentKeys) {
+			Integer id = this.documentIds.get(documentName);
+			int document;
+			if (id != null) {
+				document = id.intValue();
+			} else {
+				if ((document = this.documentCount++) == this.documentNames.length) {
+					System.arraycopy(this.documentNames, 0, this.documentNames = new String[document * 2], 0, document);
+					System.arraycopy(this.firstEntries, 0, this.firstEntries = new int[document * 2], 0, document);
+				}
+				this.documentNames[document] = documentName;
+				this.firstEntries[document] = -1;
+				this.documentIds.put(documentName, Integer.valueOf(document));
+			}
+			for (int i = 0; i < documentKeys.length; i++) {
+				int entry = this.entryCount++;
+				if (entry == this.keys.length) {
+					System.arraycopy(this.keys, 0, this.keys = new char[entry * 2][], 0, entry);
+					System.arraycopy(this.names, 0, this.names = new char[entry * 2][], 0, entry);
+					System.arraycopy(this.documents, 0, this.documents = new int[entry * 2], 0, entry);
+					System.arraycopy(this.nextEntries, 0, this.nextEntries = new int[entry * 2], 0, entry);
+				}
+				this.keys[entry] = documentKeys[i];
+				this.names[entry] = getLowerCaseName(documentKeys[i]);
+				this.documents[entry] = document;
+				this.nextEntries[entry] = this.firstEntries[document];
+				this.firstEntries[document] = entry;
+			}
+		}
+
+		void removeDocument(String documentName) {
+			Integer id = this.documentIds.remove(documentName);
+			if (id == null) return;
+			int document = id.intValue();
+			for (int entry = this.firstEntries[document]; entry != -1; entry = this.nextEntries[entry]) {
+				this.keys[entry] = null;
+				this.names[entry] = null;
+				this.removedEntries++;
+				this.hasRemovedEntriesSinceSort = true;
+			}
+			this.documentNames[document] = null;
+			this.firstEntries[document] = -1;
+		}
+
+		/*
+		 * Brings this dictionary in sync with the given index.
+		 * The caller must own the read lock of the index monitor.
+		 */
+		void refresh(Index current) throws IOException {
+			if (this.index == current) {
+				Map changes = current.takeEntryChanges(this.category);
+				if (changes != null) {
+					for (Iterator iterator = changes.entrySet().iterator(); iterator.hasNext();) {
+						Map.Entry entry = (Map.Entry) iterator.next();
+						String documentName = (String) entry.getKey();
+						ArrayList documentKeys = (ArrayList) entry.getValue();
+						removeDocument(documentName);
+						if (!documentKeys.isEmpty())
+							addDocument(documentName, (char[][]) documentKeys.toArray(new char[documentKeys.size()][]));
+					}
+					return;
+				}
+				// too many changes: query the index again
+			}
+			clear();
+			this.index = current;
+			current.startTrackingEntries(this.category);
+			EntryResult[] entries;
+			HashMap<String, ArrayList<char[]>> keysByDocument = new HashMap<>();
+			try {
+				current.startQuery();
+				entries = current.query(new char[][] {this.category}, null, SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE);
+				if (entries == null) return;
+				for (int i = 0, length = entries.length; i < length; i++) {
+					char[] key = entries[i].getWord();
+					String[] entryDocumentNames = entries[i].getDocumentNames(current);
+					for (int j = 0, namesLength = entryDocumentNames.length; j < namesLength; j++) {
+						ArrayList<char[]> documentKeys = keysByDocument.get(entryDocumentNames[j]);
+						if (documentKeys == null)
+							keysByDocument.put(entryDocumentNames[j], documentKeys = new ArrayList<>(2));
+						documentKeys.add(key);
+					}
+				}
+			} finally {
+				current.stopQuery();
+			}
+			for (Iterator<Map.Entry<String, ArrayList<char[]>>> iterator = keysByDocument.entrySet().iterator(); iterator.hasNext();) {
+				Map.Entry<String, ArrayList<char[]>> entry = iterator.next();
+				addDocument(entry.getKey(), entry.getValue().toArray(NO_KEYS));
+			}
+		}
+
+		/*
+		 * Drops the removed entries once they are the majority, then sorts the entries added since the last sort
+		 * and merges them with the sorted ones, leaving out the removed ones.
+		 */
+		void sort() {
+			if (this.removedEntries > this.entryCount / 2) {
+				String[] liveNames = new String[this.documentIds.size()];
+				char[][][] liveKeys = new char[liveNames.length][][];
+				int count = 0;
+				for (int document = 0; document < this.documentCount; document++) {
+					if (this.documentNames[document] == null) continue;
+					int length = 0;
+					for (int entry = this.firstEntries[document]; entry != -1; entry = this.nextEntries[entry])
+						length++;
+					char[][] documentKeys = new char[length][];
+					for (int entry = this.firstEntries[document]; entry != -1; entry = this.nextEntries[entry])
+						documentKeys[--length] = this.keys[entry];
+					liveNames[count] = this.documentNames[document];
+					liveKeys[count++] = documentKeys;
+				}
+				clear();
+				for (int i = 0; i < count; i++)
+					addDocument(liveNames[i], liveKeys[i]);
+			}
+			int added = this.entryCount - this.sortedCount;
+			if (added == 0 && !this.hasRemovedEntriesSinceSort) return;
+
+			Integer[] addedEntries = new Integer[added];
+			for (int i = 0; i < added; i++)
+				addedEntries[i] = Integer.valueOf(this.sortedCount + i);
+			Arrays.sort(addedEntries, new Comparator<Integer>() {
+				public int compare(Integer entry1, Integer entry2) {
+					return compareNames(entry1.intValue(), entry2.intValue());
+				}
+			});
+			int[] sorted = new int[this.sortedEntries.length + added];
+			int index = 0, i = 0, j = 0;
+			while (i < this.sortedEntries.length || j < added) {
+				int entry;
+				if (j == added || i < this.sortedEntries.length && compareNames(this.sortedEntries[i], addedEntries[j].intValue()) <= 0)
+					entry = this.sortedEntries[i++];
+				else
+					entry = addedEntries[j++].intValue();
+				if (this.keys[entry] != null)
+					sorted[index++] = entry;
+			}
+			if (index < sorted.length)
+				System.arraycopy(sorted, 0, sorted = new int[index], 0, index);
+			this.sortedEntries = sorted;
+			this.sortedCount = this.entryCount;
+			this.hasRemovedEntriesSinceSort = false;
+		}
+
+		int compareNames(int entry1, int entry2) {
+			char[] name1 = this.names[entry1];
+			char[] name2 = this.names[entry2];
+			if (name1 == null || name2 == null) // removed entries are left out by the merge, their position does not matter
+				return name1 == null ? (name2 == null ? 0 : -1) : 1;
+			return CharOperation.compareTo(name1, name2);
+		}
+
+		/*
+		 * Collects the keys whose lower case simple name starts with the given prefix, and the names of their documents.
+		 */
+		void collect(char[] prefix, ArrayList<String> matchingDocumentNames, ArrayList<char[]> matchingKeys) {
+			sort();
+			int[] sorted = this.sortedEntries;
+			// first entry whose name is not lower than the prefix
+			int low = 0, high = sorted.length;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				char[] name = this.names[sorted[middle]];
+				if (CharOperation.compareTo(name, prefix) < 0)
+					low = middle + 1;
+				else
+					high = middle;
+			}
+			for (int i = low; i < sorted.length; i++) {
+				int entry = sorted[i];
+				if (!CharOperation.prefixEquals(prefix, this.names[entry])) break;
+				matchingDocumentNames.add(this.documentNames[this.documents[entry]]);
+				matchingKeys.add(this.keys[entry]);
+			}
+		}
+	}
+
+	// canonical index file path -> dictionaries of the CATEGORIES of the index
+	private final HashMap<String, IndexDictionary[]> dictionaries = new HashMap<>();
+
+	static char[] getLowerCaseName(char[] key) {
+		int slash = CharOperation.indexOf(IIndexConstants.SEPARATOR, key);
+		char[] name = slash == -1 ? key : CharOperation.subarray(key, 0, slash);
+		return CharOperation.toLowerCase(name);
+	}
+
+	/**
+	 * Returns whether the given pattern can be answered by this dictionary, i.e. whether it is a type declaration
+	 * or a constructor declaration pattern which is fully checked by <code>matchesDecodedKey(SearchPattern)</code>
+	 * (unlike secondary type declaration patterns, which rely on their index query).
+	 */
+	public static boolean canAnswer(SearchPattern pattern) {
+		Class patternClass = pattern.getClass();
+		return patternClass == TypeDeclarationPattern.class
+			|| patternClass == QualifiedTypeDeclarationPattern.class
+			|| patternClass == ConstructorDeclarationPattern.class;
+	}
+
+	/*
+	 * Returns the lower case prefix that all the simple names matching the given pattern start with.
+	 * Names starting with another prefix do not need to be decoded.
+	 */
+	static char[] getNamePrefix(SearchPattern pattern) {
+		char[] name = pattern instanceof TypeDeclarationPattern
+			? ((TypeDeclarationPattern) pattern).simpleName
+			: ((ConstructorDeclarationPattern) pattern).declaringSimpleName;
+		if (name == null || name.length == 0) return CharOperation.NO_CHAR;
+		switch (pattern.getMatchRule() & JavaSearchPattern.MATCH_MODE_MASK) {
+			case SearchPattern.R_EXACT_MATCH :
+			case SearchPattern.R_PREFIX_MATCH :
+				break;
+			case SearchPattern.R_PATTERN_MATCH :
+				int length = 0;
+				while (length < name.length && name[length] != '*' && name[length] != '?')
+					length++;
+				name = CharOperation.subarray(name, 0, length);
+				break;
+			case SearchPattern.R_CAMELCASE_MATCH :
+			case SearchPattern.R_CAMELCASE_SAME_PART_COUNT_MATCH :
+				// the first character must match
+				name = CharOperation.subarray(name, 0, 1);
+				break;
+			default :
+				return CharOperation.NO_CHAR;
+		}
+		return CharOperation.toLowerCase(name);
+	}
+
+	/**
+	 * Same as <code>SearchPattern#findIndexMatches(Index, IndexQueryRequestor, SearchParticipant, IJavaSearchScope, IProgressMonitor)</code>
+	 * for a pattern that this dictionary can answer, but without querying the given index.
+	 * The caller must own the read lock of the index monitor.
+	 */
+	public void findIndexMatches(SearchPattern pattern, Index index, IndexQueryRequestor requestor, SearchParticipant participant, IJavaSearchScope scope, IProgressMonitor monitor) throws IOException {
+		if (monitor != null && monitor.isCanceled()) throw new OperationCanceledException();
+		IndexDictionary dictionary = getDictionary(index, pattern instanceof TypeDeclarationPattern ? TYPES : CONSTRUCTORS);
+		if (dictionary == null) {
+			pattern.findIndexMatches(index, requestor, participant, scope, monitor);
+			return;
+		}
+
+		// collect the candidates while holding the lock, report them after
+		ArrayList<String> documentNames = new ArrayList<>();
+		ArrayList<char[]> keys = new ArrayList<>();
+		synchronized (dictionary) {
+			dictionary.refresh(index);
+			dictionary.collect(getNamePrefix(pattern), documentNames, keys);
+		}
+
+		SearchPattern decodedResult = pattern.getBlankPattern();
+		String containerPath = index.containerPath;
+		char separator = index.separator;
+		for (int i = 0, size = keys.size(); i < size; i++) {
+			if (monitor != null && monitor.isCanceled()) throw new OperationCanceledException();
+			decodedResult.decodeIndexKey(keys.get(i));
+			if (pattern.matchesDecodedKey(decodedResult))
+				pattern.acceptMatch(documentNames.get(i), containerPath, separator, decodedResult, requestor, participant, scope, monitor);
+		}
+	}
+
+	private synchronized IndexDictionary getDictionary(Index index, int category) {
+		IndexLocation location = index.getIndexLocation();
+		if (location == null) return null;
+		String path = location.getCanonicalFilePath();
+		if (path == null) return null;
+		IndexDictionary[] indexDictionaries = this.dictionaries.get(path);
+		if (indexDictionaries == null)
+			this.dictionaries.put(path, indexDictionaries = new IndexDictionary[CATEGORIES.length]);
+		IndexDictionary dictionary = indexDictionaries[category];
+		if (dictionary == null)
+			indexDictionaries[category] = dictionary = new IndexDictionary(CATEGORIES[category]);
+		return dictionary;
+	}
+
+	/**
+	 * Forgets the dictionaries of the index at the given location, e.g. once the index is removed.
+	 */
+	public synchronized void remove(IndexLocation location) {
+		String path = location.getCanonicalFilePath();
+		if (path != null)
+			this.dictionaries.remove(path);
+	}
+
+	/**
+	 * Forgets the dictionaries of all indexes.
+	 */
+	public synchronized void reset() {
+		this.dictionaries.clear();
+	}
+
+	public synchronized String toString() {
+		return "TypeNameDictionary for " + this.dictionaries.size() + " indexes"; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
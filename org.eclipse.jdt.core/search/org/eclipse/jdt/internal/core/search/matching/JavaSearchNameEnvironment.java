@@ -12,9 +12,11 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.core.search.matching;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.zip.ZipFile;
 
 import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.runtime.CoreException;
@@ -47,6 +49,11 @@ public class JavaSearchNameEnvironment implements INameEnvironment, SuffixConsta
 	 */
 	HashMap workingCopies;
 
+	/*
+	 * The zip files obtained from the Java model manager, to be given back on cleanup
+	 */
+	private ArrayList<ZipFile> zipFiles = new ArrayList<ZipFile>();
+
 public JavaSearchNameEnvironment(IJavaProject javaProject, org.eclipse.jdt.core.ICompilationUnit[] copies) {
 	this.locationSet = computeClasspathLocations((JavaProject) javaProject);
 	try {
@@ -70,6 +77,11 @@ public JavaSearchNameEnvironment(IJavaProject javaProject, org.eclipse.jdt.core.
 
 public void cleanup() {
 	this.locationSet.clear();
+	JavaModelManager manager = JavaModelManager.getJavaModelManager();
+	for (int i = 0, size = this.zipFiles.size(); i < size; i++) {
+		manager.closeZipFile(this.zipFiles.get(i));
+	}
+	this.zipFiles.clear();
 }
 
 void addProjectClassPath(JavaProject javaProject) {
@@ -101,7 +113,9 @@ private ClasspathLocation mapToClassPathLocation( JavaModelManager manager, Pack
 	try {
 		if (root.isArchive()) {
 			ClasspathEntry rawClasspathEntry = (ClasspathEntry) root.getRawClasspathEntry();
-			cp = new ClasspathJar(manager.getZipFile(path), rawClasspathEntry.getAccessRuleSet(), ClasspathEntry.getExternalAnnotationPath(rawClasspathEntry, ((IJavaProject)root.getParent()).getProject(), true));
+			ZipFile zipFile = manager.getZipFile(path);
+			this.zipFiles.add(zipFile);
+			cp = new ClasspathJar(zipFile, rawClasspathEntry.getAccessRuleSet(), ClasspathEntry.getExternalAnnotationPath(rawClasspathEntry, ((IJavaProject)root.getParent()).getProject(), true));
 		} else {
 			Object target = JavaModel.getTarget(path, true);
 			if (target != null) {